@@ -14,6 +14,8 @@
  *******************************************************************************/
 package com.alvarium;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -121,8 +123,21 @@ public class DefaultSdk implements Sdk {
   }
 
   public void close() throws StreamException {
-    this.stream.close();
-    this.logger.debug("stream provider connection terminated successfully.");
+    try {
+      this.stream.close();
+      this.logger.debug("stream provider connection terminated successfully.");
+    } finally {
+      // e.g. annotators watching a directory stop their background thread
+      for (Annotator annotator : this.annotators) {
+        if (annotator instanceof Closeable) {
+          try {
+            ((Closeable) annotator).close();
+          } catch (IOException e) {
+            this.logger.warn("Could not close annotator: ", e);
+          }
+        }
+      }
+    }
   }
 
   /**
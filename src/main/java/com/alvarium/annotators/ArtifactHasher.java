@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.alvarium.hash.HashProvider;
+import com.alvarium.hash.HashProviderFactory;
+import com.alvarium.hash.HashType;
+import com.alvarium.hash.HashTypeException;
+import com.alvarium.utils.MappedBuffers;
+
+/**
+ * <p>Hashes artifacts and remembers their digest along with the size, modification time and file
+ * key (e.g. the inode) they had. As long as an artifact keeps the same metadata, its digest is
+ * returned at the cost of reading its attributes instead of reading its content again.</p>
+ *
+ * <p>Large artifacts are hashed through memory-mapped regions, each unmapped once hashed, small
+ * ones through a direct buffer. A digest is only remembered if the artifact was not modified while it was hashed nor
+ * in the same clock tick, otherwise a later modification could keep the same metadata.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+class ArtifactHasher {
+  // artifacts from this size on are memory-mapped
+  private static final long MAP_THRESHOLD = 1 << 20;
+  private static final long MAP_REGION_SIZE = 64L << 20;
+  private static final int BUFFER_SIZE = 1 << 20;
+  private static final int MAX_CACHED_DIGESTS = 4096;
+
+  private final HashType hash;
+  private final ConcurrentHashMap<Path, CachedDigest> cache;
+  private final ThreadLocal<ByteBuffer> buffers;
+
+  ArtifactHasher(HashType hash) {
+    this.hash = hash;
+    this.cache = new ConcurrentHashMap<Path, CachedDigest>();
+    this.buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+  }
+
+  /**
+   * returns the digest of the artifact's content
+   * @param artifactPath path of the artifact
+   * @return hash of the artifact's contents in string format
+   * @throws AnnotatorException if the artifact could not be read
+   */
+  String hash(String artifactPath) throws AnnotatorException {
+    final Path path = Paths.get(artifactPath).toAbsolutePath().normalize();
+    try {
+      final BasicFileAttributes before = Files.readAttributes(path, BasicFileAttributes.class);
+      final CachedDigest cached = this.cache.get(path);
+      if (cached != null && cached.matches(before)) {
+        return cached.digest;
+      }
+
+      final FileTime startedAt = FileTime.fromMillis(System.currentTimeMillis());
+      final String digest = this.hashContent(path, before.size());
+
+      final BasicFileAttributes after = Files.readAttributes(path, BasicFileAttributes.class);
+      if (new CachedDigest(null, before).matches(after)
+          && after.lastModifiedTime().compareTo(startedAt) < 0) {
+        if (this.cache.size() >= MAX_CACHED_DIGESTS) {
+          this.cache.clear();
+        }
+        this.cache.put(path, new CachedDigest(digest, after));
+      } else {
+        this.cache.remove(path);
+      }
+      return digest;
+    } catch (IOException e) {
+      throw new AnnotatorException("Failed to hash artifact, could not validate checksum", e);
+    } catch (SecurityException e) {
+      throw new AnnotatorException(
+          "Insufficient permission to access artifact, could not validate checksum",
+          e
+      );
+    }
+  }
+
+  private String hashContent(Path path, long size) throws IOException, AnnotatorException {
+    final HashProvider hashProvider = this.hashProvider();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (size >= MAP_THRESHOLD) {
+        // the artifact may have grown since its size was read, hash what is there
+        final long end = channel.size();
+        for (long position = 0; position < end; position += MAP_REGION_SIZE) {
+          final MappedByteBuffer region = channel.map(
+              FileChannel.MapMode.READ_ONLY,
+              position,
+              Math.min(MAP_REGION_SIZE, end - position)
+          );
+          try {
+            hashProvider.update(region);
+          } catch (InternalError e) {
+            // reading a mapping past the end of a file truncated meanwhile
+            throw new IOException("Artifact was truncated while it was hashed", e);
+          } finally {
+            MappedBuffers.unmap(region);
+          }
+        }
+      } else {
+        final ByteBuffer buffer = this.buffers.get();
+        buffer.clear();
+        while (channel.read(buffer) != -1) {
+          buffer.flip();
+          hashProvider.update(buffer);
+          buffer.clear();
+        }
+      }
+    }
+    return hashProvider.getValue();
+  }
+
+  private HashProvider hashProvider() throws AnnotatorException {
+    try {
+      return new HashProviderFactory().getProvider(this.hash);
+    } catch (HashTypeException e) {
+      throw new AnnotatorException(
+          "Hashing algorithm not found, could not hash data or validate checksum",
+          e
+      );
+    }
+  }
+
+  /**
+   * Digest of an artifact and the metadata it had when it was hashed
+   */
+  private static class CachedDigest {
+    final String digest;
+    final long size;
+    final FileTime modified;
+    final Object fileKey;
+
+    CachedDigest(String digest, BasicFileAttributes attrs) {
+      this.digest = digest;
+      this.size = attrs.size();
+      this.modified = attrs.lastModifiedTime();
+      this.fileKey = attrs.fileKey();
+    }
+
+    boolean matches(BasicFileAttributes attrs) {
+      return this.size == attrs.size() && this.modified.equals(attrs.lastModifiedTime())
+          && Objects.equals(this.fileKey, attrs.fileKey());
+    }
+  }
+}
@@ -13,14 +13,22 @@
  *******************************************************************************/
 package com.alvarium.annotators;
 
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.Logger;
 
@@ -32,15 +40,24 @@ import com.alvarium.hash.HashProviderFactory;
 import com.alvarium.hash.HashType;
 import com.alvarium.hash.HashTypeException;
 import com.alvarium.sign.SignatureInfo;
+import com.alvarium.utils.AnnotationClock;
 import com.alvarium.utils.PropertyBag;
 
 public class ChecksumAnnotator extends AbstractAnnotator implements Annotator {
+    // shared by every annotator, each manifest verification bounds how many threads it uses
+    private static final ExecutorService verifiers = Executors.newCachedThreadPool(r -> {
+        final Thread t = new Thread(r, "alvarium-checksum-verifier");
+        t.setDaemon(true);
+        return t;
+    });
 
     final private HashType hash;
     final private SignatureInfo signature;
     private final AnnotationType kind;
     private final LayerType layer;
 
+    private final ArtifactHasher artifactHasher;
+
     private HashProvider hashProvider;
 
     protected ChecksumAnnotator(HashType hash, SignatureInfo signature, Logger logger, LayerType layer) {
@@ -49,6 +66,7 @@ public class ChecksumAnnotator extends AbstractAnnotator implements Annotator {
         this.signature = signature;
         this.kind = AnnotationType.CHECKSUM;
         this.layer = layer;
+        this.artifactHasher = new ArtifactHasher(hash);
     }
     
     @Override
@@ -66,13 +84,17 @@ public class ChecksumAnnotator extends AbstractAnnotator implements Annotator {
         boolean isSatisfied;
         try{
             host = InetAddress.getLocalHost().getHostName();
-            // Get artifact checksum
-            final String checksum = this.readFile(props.getChecksumPath());
+            if (props.getManifestPath() != null) {
+                isSatisfied = this.verifyManifest(props);
+            } else {
+                // Get artifact checksum
+                final String checksum = this.readFile(props.getChecksumPath());
 
-            // Validate artifact checksum
-            final String artifactHash = this.hashFile(props.getArtifactPath());
+                // Validate artifact checksum
+                final String artifactHash = this.artifactHasher.hash(props.getArtifactPath());
 
-            isSatisfied = checksum.equals(artifactHash);
+                isSatisfied = checksum.equals(artifactHash);
+            }
         } catch (UnknownHostException | AnnotatorException e) {
             isSatisfied = false;
             //log the error using the logger 
@@ -87,7 +109,7 @@ public class ChecksumAnnotator extends AbstractAnnotator implements Annotator {
             this.kind, 
             null, 
             isSatisfied, 
-            Instant.now()
+            AnnotationClock.getDefault().now()
         );
 
         final String annotationSignature = super.signAnnotation(
@@ -114,6 +136,85 @@ public class ChecksumAnnotator extends AbstractAnnotator implements Annotator {
         }
     }
 
+    /**
+     * Verifies every artifact listed in the manifest, hashing up to the configured number of
+     * artifacts at the same time. The calling thread verifies artifacts as well.
+     * @param props
+     * @return true if every artifact matches its digest
+     * @throws AnnotatorException - When the manifest could not be read or is empty
+     */
+    private boolean verifyManifest(ChecksumAnnotatorProps props) throws AnnotatorException {
+        if (props.getParallelism() <= 0) {
+            throw new AnnotatorException("parallelism must be greater than 0");
+        }
+        final List<ChecksumManifest.Entry> entries = ChecksumManifest.read(
+            Paths.get(props.getManifestPath())
+        ).getEntries();
+        if (entries.isEmpty()) {
+            throw new AnnotatorException("Checksum manifest does not list any artifact");
+        }
+
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final Queue<String> failures = new ConcurrentLinkedQueue<String>();
+        final Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < entries.size() && !stop.get();
+                    i = next.getAndIncrement()) {
+                final String failure = this.verifyArtifact(entries.get(i));
+                if (failure != null) {
+                    failures.add(failure);
+                    if (props.getFailFast()) {
+                        stop.set(true);
+                    }
+                }
+            }
+        };
+
+        final List<Future<?>> workers = new ArrayList<Future<?>>();
+        for (int i = 1; i < Math.min(props.getParallelism(), entries.size()); i++) {
+            workers.add(verifiers.submit(worker));
+        }
+        worker.run();
+        try {
+            for (Future<?> w : workers) {
+                w.get();
+            }
+        } catch (InterruptedException e) {
+            stop.set(true);
+            Thread.currentThread().interrupt();
+            throw new AnnotatorException("Checksum manifest verification was interrupted", e);
+        } catch (ExecutionException e) {
+            stop.set(true);
+            throw new AnnotatorException("Could not verify checksum manifest", e);
+        }
+
+        if (props.getReportFailures()) {
+            for (String failure : failures) {
+                this.logger.warn("Checksum manifest artifact not verified: " + failure);
+            }
+        }
+        return failures.isEmpty();
+    }
+
+    /**
+     * Hashes a single artifact of the manifest
+     * @param entry
+     * @return null if the artifact matches its digest, the reason otherwise
+     */
+    private String verifyArtifact(ChecksumManifest.Entry entry) {
+        try {
+            final String artifactHash = this.artifactHasher.hash(entry.path.toString());
+            // sha256sum and md5sum write lowercase digests
+            if (!entry.digest.equalsIgnoreCase(artifactHash)) {
+                return entry.name + ": checksum mismatch";
+            }
+            return null;
+        } catch (AnnotatorException e) {
+            final Throwable cause = e.getCause();
+            return entry.name + ": " + (cause != null ? cause.toString() : e.getMessage());
+        }
+    }
+
     /**
      * Reads a file on the local file system
      * @param filePath
@@ -132,36 +233,4 @@ public class ChecksumAnnotator extends AbstractAnnotator implements Annotator {
         }
         return content;
     }
-
-   /**
-     * Reads and hashes a file on the local file system in in chunks of 8KB 
-     * @param filePath
-     * @return hash of the file's contents in string format
-     * @throws AnnotatorException - When bad file path or corrupted file given
-     */
-     private final String hashFile(String filePath) throws AnnotatorException {
-        try {
-            FileInputStream fs = new FileInputStream(filePath);
-            final byte[] buffer = new byte[8192];
-
-            int bytesRead = 0;
-            while (true) {
-                bytesRead = fs.read(buffer);
-                if (bytesRead == -1) { // indicates EOF
-                    break;
-                } else {
-                    this.hashProvider.update(buffer, 0, bytesRead);
-                }
-            }
-
-            fs.close();
-        } catch(IOException e) {
-            throw new AnnotatorException(
-                "Failed to hash artifact, could not validate checksum", 
-                e
-            );
-        }
-
-        return this.hashProvider.getValue();
-    }
 }
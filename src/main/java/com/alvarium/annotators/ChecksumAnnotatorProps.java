@@ -16,10 +16,41 @@ package com.alvarium.annotators;
 public class ChecksumAnnotatorProps {
     final private String checksumPath;
     final private String artifactPath;
+    /**
+     * Optional sha256sum-style manifest listing the artifacts to verify, see
+     * {@link ChecksumManifest}. The artifact and checksum paths are not used when given.
+     */
+    final private String manifestPath;
+    /**
+     * Maximum number of artifacts of the manifest hashed at the same time
+     */
+    final private int parallelism;
+    /**
+     * Whether the verification of the manifest stops at the first artifact that does not match
+     */
+    final private boolean failFast;
+    /**
+     * Whether every artifact of the manifest that does not match is logged with the reason
+     */
+    final private boolean reportFailures;
     
     public ChecksumAnnotatorProps(String artifactPath, String checksumPath) {
+        this(artifactPath, checksumPath, null, 1, false, false);
+    }
+
+    public ChecksumAnnotatorProps(String manifestPath, int parallelism, boolean failFast,
+            boolean reportFailures) {
+        this(null, null, manifestPath, parallelism, failFast, reportFailures);
+    }
+
+    private ChecksumAnnotatorProps(String artifactPath, String checksumPath, String manifestPath,
+            int parallelism, boolean failFast, boolean reportFailures) {
         this.artifactPath = artifactPath;
         this.checksumPath = checksumPath;
+        this.manifestPath = manifestPath;
+        this.parallelism = parallelism;
+        this.failFast = failFast;
+        this.reportFailures = reportFailures;
     }
 
     public String getChecksumPath() {
@@ -29,4 +60,20 @@ public class ChecksumAnnotatorProps {
     public String getArtifactPath() {
         return this.artifactPath;
     }
+
+    public String getManifestPath() {
+        return this.manifestPath;
+    }
+
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    public boolean getFailFast() {
+        return this.failFast;
+    }
+
+    public boolean getReportFailures() {
+        return this.reportFailures;
+    }
 }
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Artifacts listed in a checksum manifest, in the format written by {@code sha256sum} and
+ * {@code md5sum}: one {@code <digest>  <path>} line per artifact, with a {@code *} in front of
+ * the path when it was hashed in binary mode. Lines starting with a backslash hold a path
+ * escaped by the tools, where {@code \n} is a newline and {@code \\} a backslash.</p>
+ *
+ * <p>Relative paths are resolved against the directory of the manifest. Blank lines and lines
+ * starting with {@code #} are ignored.</p>
+ */
+class ChecksumManifest {
+  private final List<Entry> entries;
+
+  private ChecksumManifest(List<Entry> entries) {
+    this.entries = Collections.unmodifiableList(entries);
+  }
+
+  List<Entry> getEntries() {
+    return this.entries;
+  }
+
+  /**
+   * reads and parses a manifest
+   * @param manifestPath path of the manifest
+   * @return the listed artifacts, in the order of the manifest
+   * @throws AnnotatorException if the manifest could not be read or holds a malformed line
+   */
+  static ChecksumManifest read(Path manifestPath) throws AnnotatorException {
+    final Path base = manifestPath.toAbsolutePath().getParent();
+    final List<Entry> entries = new ArrayList<Entry>();
+    try (BufferedReader reader = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8)) {
+      int number = 0;
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        number++;
+        if (line.isBlank() || line.startsWith("#")) {
+          continue;
+        }
+        entries.add(parse(base, line, number));
+      }
+    } catch (IOException e) {
+      throw new AnnotatorException("Failed to read checksum manifest " + manifestPath, e);
+    }
+    return new ChecksumManifest(entries);
+  }
+
+  private static Entry parse(Path base, String line, int number) throws AnnotatorException {
+    final boolean escaped = line.startsWith("\\");
+    final int start = escaped ? 1 : 0;
+    final int separator = line.indexOf(' ', start);
+    // the digest is followed by a space and either a second space or the binary marker
+    if (separator <= start || separator + 2 > line.length()
+        || (line.charAt(separator + 1) != ' ' && line.charAt(separator + 1) != '*')) {
+      throw new AnnotatorException("Malformed checksum manifest line " + number);
+    }
+
+    final String digest = line.substring(start, separator);
+    String path = line.substring(separator + 2);
+    if (escaped) {
+      path = unescape(path);
+    }
+    if (path.isEmpty()) {
+      throw new AnnotatorException("Malformed checksum manifest line " + number);
+    }
+    return new Entry(digest, path, base.resolve(path));
+  }
+
+  private static String unescape(String path) {
+    final StringBuilder sb = new StringBuilder(path.length());
+    for (int i = 0; i < path.length(); i++) {
+      final char c = path.charAt(i);
+      if (c == '\\' && i + 1 < path.length()) {
+        final char next = path.charAt(++i);
+        sb.append(next == 'n' ? '\n' : next);
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * An artifact and its expected digest
+   */
+  static class Entry {
+    final String digest;
+    // path as written in the manifest
+    final String name;
+    final Path path;
+
+    Entry(String digest, String name, Path path) {
+      this.digest = digest;
+      this.name = name;
+      this.path = path;
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Reads the entries of a git index (the staging area), versions 2 to 4. Every entry holds the
+ * object id of a tracked file along with the stat data the file had when it was last hashed by
+ * git, which tells whether the file may have changed since without reading it.</p>
+ *
+ * <p>Format: https://git-scm.com/docs/index-format</p>
+ */
+class GitIndex {
+  private static final int SIGNATURE = 0x44495243; // "DIRC"
+  private static final int EXTENDED = 0x4000;
+  private static final int SKIP_WORKTREE = 0x4000;
+  private static final int INTENT_TO_ADD = 0x2000;
+  private static final int NAME_MASK = 0xfff;
+
+  private final List<Entry> entries;
+  private final FileTime modified;
+
+  private GitIndex(List<Entry> entries, FileTime modified) {
+    this.entries = entries;
+    this.modified = modified;
+  }
+
+  /**
+   * reads the index of a repository
+   * @param path path of the index file
+   * @param idLength length of the object ids of the repository, in bytes
+   */
+  static GitIndex read(Path path, int idLength) throws IOException {
+    final FileTime modified = Files.getLastModifiedTime(path);
+    final ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+    if (data.getInt() != SIGNATURE) {
+      throw new IOException("Invalid git index " + path);
+    }
+    final int version = data.getInt();
+    if (version < 2 || version > 4) {
+      throw new IOException("Unsupported git index version " + version);
+    }
+    final int count = data.getInt();
+
+    final List<Entry> entries = new ArrayList<Entry>(count);
+    byte[] previous = new byte[0];
+    for (int i = 0; i < count; i++) {
+      final int start = data.position();
+      final int ctimeSeconds = data.getInt();
+      final int ctimeNanos = data.getInt();
+      final int mtimeSeconds = data.getInt();
+      final int mtimeNanos = data.getInt();
+      data.position(data.position() + 4); // dev
+      final int ino = data.getInt();
+      final int mode = data.getInt();
+      data.position(data.position() + 4 * 2); // uid, gid
+      final int size = data.getInt();
+      final byte[] id = new byte[idLength];
+      data.get(id);
+      final int flags = data.getShort() & 0xffff;
+      int extendedFlags = 0;
+      if ((flags & EXTENDED) != 0) {
+        extendedFlags = data.getShort() & 0xffff;
+      }
+
+      final byte[] name;
+      if (version == 4) {
+        // the name is the previous one minus N trailing bytes, plus a new suffix
+        final int strip = (int) varint(data);
+        final byte[] suffix = nulTerminated(data);
+        name = new byte[previous.length - strip + suffix.length];
+        System.arraycopy(previous, 0, name, 0, previous.length - strip);
+        System.arraycopy(suffix, 0, name, previous.length - strip, suffix.length);
+      } else {
+        final int length = flags & NAME_MASK;
+        if (length < NAME_MASK) {
+          name = new byte[length];
+          data.get(name);
+        } else {
+          name = nulTerminated(data);
+          data.position(data.position() - 1);
+        }
+        // entries are padded with 1 to 8 NUL bytes to a multiple of 8 bytes
+        final int end = start + ((data.position() - start + 8) & ~7);
+        data.position(end);
+      }
+      previous = name;
+
+      entries.add(new Entry(
+          new String(name, StandardCharsets.UTF_8),
+          mode,
+          GitRepository.hex(id),
+          (flags >> 12) & 3,
+          (extendedFlags & (SKIP_WORKTREE | INTENT_TO_ADD)) != 0,
+          size,
+          ctimeSeconds,
+          ctimeNanos,
+          mtimeSeconds,
+          mtimeNanos,
+          ino
+      ));
+    }
+    return new GitIndex(Collections.unmodifiableList(entries), modified);
+  }
+
+  List<Entry> getEntries() {
+    return this.entries;
+  }
+
+  /**
+   * returns when the index was written, files modified from then on cannot be trusted from their
+   * stat data (racily clean entries)
+   */
+  FileTime getModified() {
+    return this.modified;
+  }
+
+  private static byte[] nulTerminated(ByteBuffer data) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte b;
+    while ((b = data.get()) != 0) {
+      out.write(b);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * reads the offset encoding used by version 4 names, see varint.c in git
+   */
+  private static long varint(ByteBuffer data) {
+    int b = data.get() & 0xff;
+    long value = b & 0x7f;
+    while ((b & 0x80) != 0) {
+      b = data.get() & 0xff;
+      value = ((value + 1) << 7) | (b & 0x7f);
+    }
+    return value;
+  }
+
+  /**
+   * A tracked file
+   */
+  static class Entry {
+    final String path;
+    final int mode;
+    final String id;
+    final int stage;
+    // skip-worktree and intent-to-add entries do not reflect the work tree
+    final boolean virtual;
+    final int size;
+    final int ctimeSeconds;
+    final int ctimeNanos;
+    final int mtimeSeconds;
+    final int mtimeNanos;
+    // truncated to 32 bits, like the other stat data
+    final int ino;
+
+    Entry(String path, int mode, String id, int stage, boolean virtual, int size,
+        int ctimeSeconds, int ctimeNanos, int mtimeSeconds, int mtimeNanos, int ino) {
+      this.path = path;
+      this.mode = mode;
+      this.id = id;
+      this.stage = stage;
+      this.virtual = virtual;
+      this.size = size;
+      this.ctimeSeconds = ctimeSeconds;
+      this.ctimeNanos = ctimeNanos;
+      this.mtimeSeconds = mtimeSeconds;
+      this.mtimeNanos = mtimeNanos;
+      this.ino = ino;
+    }
+  }
+}
@@ -0,0 +1,305 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * <p>Reads objects from a git pack file through its version 2 index. The index is memory-mapped
+ * and searched by object id; the pack is read with positional reads so that packs larger than
+ * 2GB are supported. Deltified objects are rebuilt from their base, which may live in another
+ * pack or be a loose object.</p>
+ *
+ * <p>Format: https://git-scm.com/docs/pack-format</p>
+ */
+class GitPack implements Closeable {
+  private static final int IDX_MAGIC = 0xff744f63;
+  private static final int PACK_MAGIC = 0x5041434b;
+  private static final int OBJ_OFS_DELTA = 6;
+  private static final int OBJ_REF_DELTA = 7;
+  private static final int READ_CHUNK = 8192;
+  private static final int MAX_DELTA_DEPTH = 4096;
+
+  private final GitRepository repository;
+  private final int idLength;
+  private final FileChannel idxChannel;
+  private final FileChannel packChannel;
+  private final MappedByteBuffer idx;
+  private final int count;
+  private final int idsOffset;
+  private final int offsetsOffset;
+  private final int largeOffsetsOffset;
+
+  GitPack(Path idxPath, Path packPath, GitRepository repository) throws IOException {
+    this.repository = repository;
+    this.idLength = repository.getIdLength();
+    this.idxChannel = FileChannel.open(idxPath, StandardOpenOption.READ);
+    try {
+      this.packChannel = FileChannel.open(packPath, StandardOpenOption.READ);
+    } catch (IOException e) {
+      this.idxChannel.close();
+      throw e;
+    }
+    try {
+      this.idx = this.idxChannel.map(FileChannel.MapMode.READ_ONLY, 0, this.idxChannel.size());
+      if (this.idx.getInt(0) != IDX_MAGIC || this.idx.getInt(4) != 2) {
+        throw new IOException("Unsupported pack index " + idxPath);
+      }
+      final ByteBuffer header = this.read(0, 12);
+      if (header.getInt(0) != PACK_MAGIC) {
+        throw new IOException("Invalid pack file " + packPath);
+      }
+    } catch (IOException e) {
+      this.close();
+      throw e;
+    }
+    this.count = this.idx.getInt(8 + 255 * 4);
+    this.idsOffset = 8 + 256 * 4;
+    this.offsetsOffset = this.idsOffset + this.count * (this.idLength + 4);
+    this.largeOffsetsOffset = this.offsetsOffset + this.count * 4;
+  }
+
+  /**
+   * reads an object of the pack
+   * @param id binary object id
+   * @return the object or null if it is not part of this pack
+   */
+  GitRepository.GitObject read(byte[] id) throws IOException {
+    final int index = this.find(id);
+    if (index < 0) {
+      return null;
+    }
+    return this.readAt(this.offset(index), 0);
+  }
+
+  public void close() throws IOException {
+    try {
+      this.idxChannel.close();
+    } finally {
+      if (this.packChannel != null) {
+        this.packChannel.close();
+      }
+    }
+  }
+
+  /**
+   * binary search of the id among the ids sharing its first byte
+   */
+  private int find(byte[] id) {
+    final int first = id[0] & 0xff;
+    int low = first == 0 ? 0 : this.idx.getInt(8 + (first - 1) * 4);
+    int high = this.idx.getInt(8 + first * 4) - 1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final int c = this.compare(middle, id);
+      if (c < 0) {
+        low = middle + 1;
+      } else if (c > 0) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  private int compare(int index, byte[] id) {
+    final int base = this.idsOffset + index * this.idLength;
+    for (int i = 0; i < this.idLength; i++) {
+      final int c = (this.idx.get(base + i) & 0xff) - (id[i] & 0xff);
+      if (c != 0) {
+        return c;
+      }
+    }
+    return 0;
+  }
+
+  private long offset(int index) {
+    final int offset = this.idx.getInt(this.offsetsOffset + index * 4);
+    if (offset >= 0) {
+      return offset;
+    }
+    return this.idx.getLong(this.largeOffsetsOffset + (offset & 0x7fffffff) * 8);
+  }
+
+  private GitRepository.GitObject readAt(long offset, int depth) throws IOException {
+    if (depth > MAX_DELTA_DEPTH) {
+      throw new IOException("Delta chain too long in pack");
+    }
+    // type and size header, then the base reference of deltas
+    final ByteBuffer header = this.read(offset, 32);
+    int b = header.get() & 0xff;
+    final int type = (b >> 4) & 7;
+    long size = b & 0x0f;
+    int shift = 4;
+    while ((b & 0x80) != 0) {
+      b = header.get() & 0xff;
+      size |= (long) (b & 0x7f) << shift;
+      shift += 7;
+    }
+
+    switch (type) {
+      case GitRepository.OBJ_COMMIT:
+      case GitRepository.OBJ_TREE:
+      case GitRepository.OBJ_BLOB:
+      case GitRepository.OBJ_TAG:
+        return new GitRepository.GitObject(type, this.inflate(offset + header.position(), size));
+      case OBJ_OFS_DELTA: {
+        b = header.get() & 0xff;
+        long distance = b & 0x7f;
+        while ((b & 0x80) != 0) {
+          b = header.get() & 0xff;
+          distance = ((distance + 1) << 7) | (b & 0x7f);
+        }
+        final byte[] delta = this.inflate(offset + header.position(), size);
+        return apply(this.readAt(offset - distance, depth + 1), delta);
+      }
+      case OBJ_REF_DELTA: {
+        final byte[] base = new byte[this.idLength];
+        final ByteBuffer ref = this.read(offset + header.position(), this.idLength);
+        ref.get(base);
+        final byte[] delta = this.inflate(offset + header.position() + this.idLength, size);
+        final int index = this.find(base);
+        final GitRepository.GitObject object = index >= 0 ?
+            this.readAt(this.offset(index), depth + 1) :
+            this.repository.readObject(GitRepository.hex(base));
+        return apply(object, delta);
+      }
+      default:
+        throw new IOException("Unknown pack object type " + type);
+    }
+  }
+
+  /**
+   * inflates the zlib stream starting at the given offset of the pack
+   */
+  private byte[] inflate(long offset, long size) throws IOException {
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Pack object too large");
+    }
+    final byte[] result = new byte[(int) size];
+    final Inflater inflater = new Inflater();
+    try {
+      int written = 0;
+      long position = offset;
+      while (written < result.length) {
+        if (inflater.needsInput()) {
+          final ByteBuffer chunk = this.read(position, READ_CHUNK);
+          if (!chunk.hasRemaining()) {
+            throw new IOException("Truncated pack object");
+          }
+          position += chunk.remaining();
+          inflater.setInput(chunk);
+        }
+        final int n = inflater.inflate(result, written, result.length - written);
+        if (n == 0 && (inflater.finished() || inflater.needsDictionary())) {
+          throw new IOException("Truncated pack object");
+        }
+        written += n;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupted pack object", e);
+    } finally {
+      inflater.end();
+    }
+    return result;
+  }
+
+  /**
+   * reads up to length bytes of the pack at the given position
+   */
+  private ByteBuffer read(long position, int length) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (this.packChannel.read(buffer, position + buffer.position()) < 0) {
+        break;
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * rebuilds an object from its base and a delta
+   */
+  private static GitRepository.GitObject apply(GitRepository.GitObject base, byte[] delta)
+      throws IOException {
+    final int[] position = new int[1];
+    final long baseSize = varint(delta, position);
+    final long resultSize = varint(delta, position);
+    if (baseSize != base.data.length || resultSize > Integer.MAX_VALUE) {
+      throw new IOException("Delta does not apply to its base");
+    }
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream((int) resultSize);
+    int i = position[0];
+    while (i < delta.length) {
+      final int op = delta[i++] & 0xff;
+      if ((op & 0x80) != 0) {
+        long copyOffset = 0;
+        int copySize = 0;
+        for (int bit = 0; bit < 4; bit++) {
+          if ((op & (1 << bit)) != 0) {
+            copyOffset |= (long) (delta[i++] & 0xff) << (bit * 8);
+          }
+        }
+        for (int bit = 0; bit < 3; bit++) {
+          if ((op & (0x10 << bit)) != 0) {
+            copySize |= (delta[i++] & 0xff) << (bit * 8);
+          }
+        }
+        if (copySize == 0) {
+          copySize = 0x10000;
+        }
+        if (copyOffset + copySize > base.data.length) {
+          throw new IOException("Delta copies outside of its base");
+        }
+        out.write(base.data, (int) copyOffset, copySize);
+      } else if (op != 0) {
+        out.write(delta, i, op);
+        i += op;
+      } else {
+        throw new IOException("Invalid delta instruction");
+      }
+    }
+    if (out.size() != resultSize) {
+      throw new IOException("Delta result has an unexpected size");
+    }
+    return new GitRepository.GitObject(base.type, out.toByteArray());
+  }
+
+  /**
+   * reads a little-endian base 128 size of a delta header
+   */
+  private static long varint(byte[] data, int[] position) {
+    long value = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = data[position[0]++] & 0xff;
+      value |= (long) (b & 0x7f) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+}
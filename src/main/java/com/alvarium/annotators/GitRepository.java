@@ -0,0 +1,322 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.InflaterInputStream;
+
+import com.alvarium.utils.Encoder;
+
+/**
+ * <p>Reads the references and objects of a git repository, without depending on a git
+ * installation. Loose objects and pack files are supported, as are repositories using SHA-256
+ * object ids and linked work trees, whose {@code .git} is a file pointing at the git
+ * directory.</p>
+ *
+ * <p>Only what is needed to know the content of a commit is implemented: resolving HEAD and
+ * reading commit and tree objects.</p>
+ */
+class GitRepository implements Closeable {
+  static final int OBJ_COMMIT = 1;
+  static final int OBJ_TREE = 2;
+  static final int OBJ_BLOB = 3;
+  static final int OBJ_TAG = 4;
+
+  private static final int MAX_SYMBOLIC_REFS = 5;
+
+  private final Path gitDir;
+  private final Path commonDir;
+  private final String hashAlgorithm;
+  private final List<GitPack> packs;
+
+  private GitRepository(Path gitDir, Path commonDir, String hashAlgorithm) {
+    this.gitDir = gitDir;
+    this.commonDir = commonDir;
+    this.hashAlgorithm = hashAlgorithm;
+    this.packs = new ArrayList<GitPack>();
+  }
+
+  /**
+   * opens the repository of a work tree
+   * @param workTree root of the work tree, holding the .git directory or file
+   * @throws IOException if the work tree is not the root of a git repository
+   */
+  static GitRepository open(Path workTree) throws IOException {
+    Path gitDir = workTree.resolve(".git");
+    if (Files.isRegularFile(gitDir)) {
+      // linked work tree or submodule: "gitdir: <path>"
+      final String content = Files.readString(gitDir, StandardCharsets.UTF_8).trim();
+      if (!content.startsWith("gitdir:")) {
+        throw new IOException("Invalid .git file in " + workTree);
+      }
+      gitDir = workTree.resolve(content.substring("gitdir:".length()).trim()).normalize();
+    }
+    if (!Files.isDirectory(gitDir)) {
+      throw new IOException(workTree + " is not the root of a git work tree");
+    }
+
+    Path commonDir = gitDir;
+    final Path commonFile = gitDir.resolve("commondir");
+    if (Files.isRegularFile(commonFile)) {
+      commonDir = gitDir.resolve(Files.readString(commonFile, StandardCharsets.UTF_8).trim())
+          .normalize();
+    }
+
+    final GitRepository repository = new GitRepository(gitDir, commonDir,
+        objectFormat(commonDir));
+    final Path packDir = commonDir.resolve("objects").resolve("pack");
+    if (Files.isDirectory(packDir)) {
+      try (DirectoryStream<Path> idx = Files.newDirectoryStream(packDir, "*.idx")) {
+        for (Path path : idx) {
+          final String name = path.getFileName().toString();
+          final Path pack = packDir.resolve(name.substring(0, name.length() - 4) + ".pack");
+          if (Files.isRegularFile(pack)) {
+            repository.packs.add(new GitPack(path, pack, repository));
+          }
+        }
+      } catch (IOException e) {
+        repository.close();
+        throw e;
+      }
+    }
+    return repository;
+  }
+
+  Path getGitDir() {
+    return this.gitDir;
+  }
+
+  /**
+   * returns the name of the digest used for object ids, SHA-1 or SHA-256
+   */
+  String getHashAlgorithm() {
+    return this.hashAlgorithm;
+  }
+
+  int getIdLength() {
+    return this.hashAlgorithm.equals("SHA-256") ? 32 : 20;
+  }
+
+  /**
+   * resolves HEAD to the id of the checked out commit
+   * @throws IOException if HEAD cannot be resolved, e.g. in a repository without commits
+   */
+  String resolveHead() throws IOException {
+    String value = Files.readString(this.gitDir.resolve("HEAD"), StandardCharsets.UTF_8).trim();
+    for (int i = 0; value.startsWith("ref:"); i++) {
+      if (i == MAX_SYMBOLIC_REFS) {
+        throw new IOException("Too many symbolic references from HEAD");
+      }
+      value = this.readRef(value.substring("ref:".length()).trim());
+    }
+    return value;
+  }
+
+  /**
+   * reads the files of a commit
+   * @param commitId id of the commit, or of a tag pointing at it
+   * @return every file of the commit, by path relative to the work tree with / separators
+   */
+  Map<String, TreeEntry> readCommitTree(String commitId) throws IOException {
+    GitObject object = this.readObject(commitId);
+    while (object.type == OBJ_TAG) {
+      object = this.readObject(header(object, "object"));
+    }
+    if (object.type != OBJ_COMMIT) {
+      throw new IOException(commitId + " is not a commit");
+    }
+    final Map<String, TreeEntry> entries = new TreeMap<String, TreeEntry>();
+    this.readTree(header(object, "tree"), "", entries);
+    return entries;
+  }
+
+  /**
+   * reads an object from the loose objects or the pack files
+   */
+  GitObject readObject(String id) throws IOException {
+    final Path loose = this.commonDir.resolve("objects")
+        .resolve(id.substring(0, 2))
+        .resolve(id.substring(2));
+    try (InputStream in = new InflaterInputStream(Files.newInputStream(loose))) {
+      final byte[] content = in.readAllBytes();
+      int i = 0;
+      while (i < content.length && content[i] != 0) {
+        i++;
+      }
+      final String[] header = new String(content, 0, i, StandardCharsets.US_ASCII).split(" ");
+      final byte[] data = new byte[content.length - i - 1];
+      System.arraycopy(content, i + 1, data, 0, data.length);
+      return new GitObject(type(header[0]), data);
+    } catch (NoSuchFileException e) {
+      // packed object
+    }
+
+    final byte[] binary = Encoder.hexToBytes(id);
+    for (GitPack pack : this.packs) {
+      final GitObject object = pack.read(binary);
+      if (object != null) {
+        return object;
+      }
+    }
+    throw new IOException("Object " + id + " not found");
+  }
+
+  public void close() throws IOException {
+    for (GitPack pack : this.packs) {
+      pack.close();
+    }
+    this.packs.clear();
+  }
+
+  private void readTree(String id, String prefix, Map<String, TreeEntry> entries)
+      throws IOException {
+    final GitObject tree = this.readObject(id);
+    if (tree.type != OBJ_TREE) {
+      throw new IOException(id + " is not a tree");
+    }
+    final byte[] data = tree.data;
+    final int idLength = this.getIdLength();
+    int i = 0;
+    while (i < data.length) {
+      int space = i;
+      while (data[space] != ' ') {
+        space++;
+      }
+      int nul = space + 1;
+      while (data[nul] != 0) {
+        nul++;
+      }
+      final int mode = Integer.parseInt(
+          new String(data, i, space - i, StandardCharsets.US_ASCII), 8
+      );
+      final String name = new String(data, space + 1, nul - space - 1, StandardCharsets.UTF_8);
+      final byte[] entryId = new byte[idLength];
+      System.arraycopy(data, nul + 1, entryId, 0, idLength);
+      i = nul + 1 + idLength;
+
+      if ((mode & 0170000) == 0040000) {
+        this.readTree(hex(entryId), prefix + name + "/", entries);
+      } else {
+        entries.put(prefix + name, new TreeEntry(mode, hex(entryId)));
+      }
+    }
+  }
+
+  private String readRef(String name) throws IOException {
+    for (Path dir : new Path[] {this.gitDir, this.commonDir}) {
+      final Path ref = dir.resolve(name);
+      if (Files.isRegularFile(ref)) {
+        return Files.readString(ref, StandardCharsets.UTF_8).trim();
+      }
+    }
+    final Path packed = this.commonDir.resolve("packed-refs");
+    if (Files.isRegularFile(packed)) {
+      for (String line : Files.readAllLines(packed, StandardCharsets.UTF_8)) {
+        if (line.startsWith("#") || line.startsWith("^")) {
+          continue;
+        }
+        final int space = line.indexOf(' ');
+        if (space > 0 && line.substring(space + 1).equals(name)) {
+          return line.substring(0, space);
+        }
+      }
+    }
+    throw new IOException("Reference " + name + " not found");
+  }
+
+  private static String header(GitObject object, String name) throws IOException {
+    final String text = new String(object.data, StandardCharsets.UTF_8);
+    for (String line : text.split("\n")) {
+      if (line.isEmpty()) {
+        break;
+      }
+      if (line.startsWith(name + " ")) {
+        return line.substring(name.length() + 1).trim();
+      }
+    }
+    throw new IOException("Object has no " + name + " header");
+  }
+
+  private static int type(String name) throws IOException {
+    switch (name) {
+      case "commit":
+        return OBJ_COMMIT;
+      case "tree":
+        return OBJ_TREE;
+      case "blob":
+        return OBJ_BLOB;
+      case "tag":
+        return OBJ_TAG;
+      default:
+        throw new IOException("Unknown object type " + name);
+    }
+  }
+
+  private static String objectFormat(Path commonDir) throws IOException {
+    final Path config = commonDir.resolve("config");
+    if (Files.isRegularFile(config)) {
+      for (String line : Files.readAllLines(config, StandardCharsets.UTF_8)) {
+        final String l = line.replace(" ", "").replace("\t", "").toLowerCase();
+        if (l.equals("objectformat=sha256")) {
+          return "SHA-256";
+        }
+      }
+    }
+    return "SHA-1";
+  }
+
+  /**
+   * returns the lower case hexadecimal form of an object id, as used by git
+   */
+  static String hex(byte[] id) {
+    return Encoder.bytesToHex(id).toLowerCase();
+  }
+
+  /**
+   * A decompressed object
+   */
+  static class GitObject {
+    final int type;
+    final byte[] data;
+
+    GitObject(int type, byte[] data) {
+      this.type = type;
+      this.data = data;
+    }
+  }
+
+  /**
+   * A file of a commit
+   */
+  static class TreeEntry {
+    final int mode;
+    final String id;
+
+    TreeEntry(int mode, String id) {
+      this.mode = mode;
+      this.id = id;
+    }
+  }
+}
@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Verifies that a git work tree holds exactly the files of an expected commit, relying on the
+ * data git already keeps instead of hashing the whole tree:</p>
+ * <ol>
+ *   <li>HEAD must point at the expected commit</li>
+ *   <li>the index must hold the files of the commit's tree, i.e. nothing is staged</li>
+ *   <li>every tracked file must match its index entry. A file whose size, modification time,
+ *   status change time and inode are those recorded in the index is not read, the others are
+ *   hashed as git blobs. The status change time cannot be set from userland, unlike the
+ *   modification time, so files are always hashed where it is not available. Files
+ *   marked skip-worktree are always hashed, and only allowed to be missing from the work tree</li>
+ *   <li>no untracked file may be present, outside of the directories excluded by the rules of the
+ *   tree. The .git directory is always skipped, and a path that cannot be read is a difference</li>
+ * </ol>
+ *
+ * <p>Content filters (e.g. end of line conversion or LFS) are not applied, a file stored through
+ * such a filter is reported as modified when its stat data changed.</p>
+ */
+class GitSourceVerifier {
+  private static final int TYPE_MASK = 0170000;
+  private static final int SYMLINK = 0120000;
+  private static final int GITLINK = 0160000;
+  private static final int BUFFER_SIZE = 65536;
+
+  /**
+   * returns the commit checked out in the work tree
+   * @param tree the work tree
+   */
+  static String head(SourceCodeTree tree) throws AnnotatorException {
+    try (GitRepository repository = GitRepository.open(tree.getRoot())) {
+      return repository.resolveHead();
+    } catch (IOException e) {
+      throw new AnnotatorException("Failed to read git HEAD, could not validate checksum", e);
+    }
+  }
+
+  /**
+   * checks the work tree against the expected commit
+   * @param tree the work tree, whose rules exclude paths from the untracked files search
+   * @param commit id of the expected commit
+   * @return null when the work tree matches, otherwise the first difference found
+   * @throws AnnotatorException if the repository could not be read
+   */
+  String verify(SourceCodeTree tree, String commit) throws AnnotatorException {
+    try (GitRepository repository = GitRepository.open(tree.getRoot())) {
+      final String head = repository.resolveHead();
+      if (!head.equalsIgnoreCase(commit)) {
+        return String.format("HEAD is at %s instead of %s", head, commit);
+      }
+
+      final Map<String, GitRepository.TreeEntry> files = repository.readCommitTree(head);
+      final GitIndex index = GitIndex.read(
+          repository.getGitDir().resolve("index"),
+          repository.getIdLength()
+      );
+
+      final Map<String, GitIndex.Entry> tracked = new HashMap<String, GitIndex.Entry>();
+      for (GitIndex.Entry entry : index.getEntries()) {
+        if (entry.stage != 0) {
+          return "unmerged path " + entry.path;
+        }
+        final GitRepository.TreeEntry file = files.get(entry.path);
+        if (file == null || !file.id.equals(entry.id) || file.mode != entry.mode) {
+          return "staged change to " + entry.path;
+        }
+        tracked.put(entry.path, entry);
+      }
+      if (tracked.size() != files.size()) {
+        return "staged deletion";
+      }
+
+      for (GitIndex.Entry entry : index.getEntries()) {
+        final String difference = this.verifyFile(tree.getRoot(), entry, index.getModified(),
+            repository.getHashAlgorithm());
+        if (difference != null) {
+          return difference;
+        }
+      }
+      return findUntracked(tree, tracked);
+    } catch (IOException e) {
+      throw new AnnotatorException("Failed to read git repository, could not validate checksum",
+          e);
+    }
+  }
+
+  private String verifyFile(Path root, GitIndex.Entry entry, FileTime indexModified,
+      String algorithm) throws IOException {
+    final int type = entry.mode & TYPE_MASK;
+    if (type == GITLINK) {
+      return null;
+    }
+
+    final Path path = root.resolve(entry.path);
+    final BasicFileAttributes attrs;
+    try {
+      attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    } catch (NoSuchFileException e) {
+      // a sparse checkout leaves skip-worktree entries out of the work tree
+      return entry.virtual ? null : "deleted " + entry.path;
+    }
+
+    if (type == SYMLINK) {
+      if (!attrs.isSymbolicLink()) {
+        return "modified " + entry.path;
+      }
+      final byte[] target = Files.readSymbolicLink(path).toString()
+          .getBytes(StandardCharsets.UTF_8);
+      final MessageDigest digest = blobDigest(algorithm, target.length);
+      digest.update(target);
+      return GitRepository.hex(digest.digest()).equals(entry.id) ? null : "modified " + entry.path;
+    }
+
+    if (!attrs.isRegularFile()) {
+      return "modified " + entry.path;
+    }
+    // git does not refresh the stat data of skip-worktree entries, their files are always hashed
+    if (!entry.virtual && isClean(path, entry, attrs, indexModified)) {
+      return null;
+    }
+    return hashBlob(path, attrs.size(), algorithm).equals(entry.id) ?
+        null : "modified " + entry.path;
+  }
+
+  /**
+   * checks the stat data of the file against its index entry, the file is not trusted if it was
+   * modified in the same clock tick as the index was written
+   */
+  private static boolean isClean(Path path, GitIndex.Entry entry, BasicFileAttributes attrs,
+      FileTime indexModified) throws IOException {
+    if ((int) attrs.size() != entry.size
+        || !sameTime(attrs.lastModifiedTime(), entry.mtimeSeconds, entry.mtimeNanos)) {
+      return false;
+    }
+    // the modification time can be restored after an edit, the status change time cannot
+    final FileTime ctime;
+    final Object ino;
+    try {
+      ctime = (FileTime) Files.getAttribute(path, "unix:ctime", LinkOption.NOFOLLOW_LINKS);
+      ino = Files.getAttribute(path, "unix:ino", LinkOption.NOFOLLOW_LINKS);
+    } catch (UnsupportedOperationException | IllegalArgumentException e) {
+      return false;
+    }
+    if (!sameTime(ctime, entry.ctimeSeconds, entry.ctimeNanos)
+        || !(ino instanceof Long) || (int) (long) (Long) ino != entry.ino) {
+      return false;
+    }
+    return attrs.lastModifiedTime().compareTo(indexModified) < 0
+        && ctime.compareTo(indexModified) < 0;
+  }
+
+  /**
+   * compares a file time with the seconds and nanoseconds recorded by git
+   */
+  private static boolean sameTime(FileTime time, int seconds, int nanos) {
+    final long value = time.to(TimeUnit.NANOSECONDS);
+    if ((int) Math.floorDiv(value, 1000000000L) != seconds) {
+      return false;
+    }
+    // git may be built without nanosecond timestamps
+    return nanos == 0 || (int) Math.floorMod(value, 1000000000L) == nanos;
+  }
+
+  private static String hashBlob(Path path, long size, String algorithm) throws IOException {
+    final MessageDigest digest = blobDigest(algorithm, size);
+    final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      while (channel.read(buffer) != -1) {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+      }
+    }
+    return GitRepository.hex(digest.digest());
+  }
+
+  /**
+   * returns a digest already fed with the header of a blob of the given size
+   */
+  private static MessageDigest blobDigest(String algorithm, long size) throws IOException {
+    try {
+      final MessageDigest digest = MessageDigest.getInstance(algorithm);
+      digest.update(("blob " + size + "\0").getBytes(StandardCharsets.US_ASCII));
+      return digest;
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(algorithm + " is not supported", e);
+    }
+  }
+
+  /**
+   * walks the work tree, without following links, looking for a file missing from the index
+   */
+  private static String findUntracked(SourceCodeTree tree, Map<String, GitIndex.Entry> tracked)
+      throws IOException {
+    final Path root = tree.getRoot();
+    final String[] untracked = new String[1];
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        if (dir.equals(root)) {
+          return FileVisitResult.CONTINUE;
+        }
+        final GitIndex.Entry entry = tracked.get(relative(root, dir));
+        if (dir.getFileName().toString().equals(".git") || !tree.acceptsDirectory(dir)
+            || (entry != null && (entry.mode & TYPE_MASK) == GITLINK)) {
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        final String name = relative(root, file);
+        if (!tracked.containsKey(name) && tree.acceptsFile(file)) {
+          untracked[0] = "untracked " + name;
+          return FileVisitResult.TERMINATE;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException e) {
+        // an unreadable directory could hide untracked files
+        untracked[0] = "unreadable " + relative(root, file);
+        return FileVisitResult.TERMINATE;
+      }
+    });
+    return untracked[0];
+  }
+
+  /**
+   * returns the path relative to the root with / separators, as in the index
+   */
+  private static String relative(Path root, Path path) {
+    final StringBuilder sb = new StringBuilder();
+    for (Path name : root.relativize(path)) {
+      if (sb.length() > 0) {
+        sb.append('/');
+      }
+      sb.append(name.toString());
+    }
+    return sb.toString();
+  }
+}
@@ -16,7 +16,6 @@ package com.alvarium.annotators;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.time.Instant;
 
 import com.alvarium.contracts.Annotation;
 import com.alvarium.contracts.AnnotationType;
@@ -25,6 +24,7 @@ import com.alvarium.hash.HashProviderFactory;
 import com.alvarium.hash.HashType;
 import com.alvarium.hash.HashTypeException;
 import com.alvarium.sign.SignatureInfo;
+import com.alvarium.utils.AnnotationClock;
 import com.alvarium.utils.PropertyBag;
 
 /**
@@ -52,7 +52,8 @@ class MockAnnotator implements Annotator {
       final String host = InetAddress.getLocalHost().getHostName();
       final String sig = signature.getPublicKey().getType().toString();
 
-      final Annotation annotation = new Annotation(key, hash, host, layer, kind, sig, cfg.getShouldSatisfy(), Instant.now());
+      final Annotation annotation = new Annotation(key, hash, host, layer, kind, sig,
+          cfg.getShouldSatisfy(), AnnotationClock.getDefault().now());
       return annotation;
     } catch (HashTypeException e) {
       throw new AnnotatorException("failed to hash data", e);
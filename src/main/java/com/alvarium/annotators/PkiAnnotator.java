@@ -16,7 +16,6 @@ package com.alvarium.annotators;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.time.Instant;
 
 import org.apache.logging.log4j.Logger;
 
@@ -25,6 +24,7 @@ import com.alvarium.contracts.AnnotationType;
 import com.alvarium.contracts.LayerType;
 import com.alvarium.hash.HashType;
 import com.alvarium.sign.SignatureInfo;
+import com.alvarium.utils.AnnotationClock;
 import com.alvarium.utils.PropertyBag;
 
 class PkiAnnotator extends AbstractPkiAnnotator implements Annotator {
@@ -65,7 +65,7 @@ class PkiAnnotator extends AbstractPkiAnnotator implements Annotator {
         kind, 
         null, 
         isSatisfied, 
-        Instant.now());
+        AnnotationClock.getDefault().now());
 
     final String annotationSignature = super.signAnnotation(signature.getPrivateKey(), annotation);
     annotation.setSignature(annotationSignature);
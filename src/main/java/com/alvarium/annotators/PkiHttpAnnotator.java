@@ -19,7 +19,6 @@ import java.net.InetAddress;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
 import java.nio.file.Paths;
-import java.time.Instant;
 import java.nio.file.Path;
 
 import com.alvarium.annotators.http.ParseResult;
@@ -31,6 +30,7 @@ import com.alvarium.hash.HashType;
 import com.alvarium.sign.KeyInfo;
 import com.alvarium.sign.SignatureInfo;
 import com.alvarium.sign.SignType;
+import com.alvarium.utils.AnnotationClock;
 import com.alvarium.utils.PropertyBag;
 
 import org.apache.http.client.methods.HttpUriRequest;
@@ -103,7 +103,7 @@ class PkiHttpAnnotator extends AbstractPkiAnnotator implements Annotator {
         kind,
         null,
         isSatisfied,
-        Instant.now());
+        AnnotationClock.getDefault().now());
 
     final String annotationSignature = super.signAnnotation(sig.getPrivateKey(), annotation);
     annotation.setSignature(annotationSignature);
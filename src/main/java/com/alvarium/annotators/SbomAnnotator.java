@@ -15,7 +15,6 @@ package com.alvarium.annotators;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.time.Instant;
 
 import org.apache.logging.log4j.Logger;
 
@@ -28,6 +27,7 @@ import com.alvarium.contracts.AnnotationType;
 import com.alvarium.contracts.LayerType;
 import com.alvarium.hash.HashType;
 import com.alvarium.sign.SignatureInfo;
+import com.alvarium.utils.AnnotationClock;
 import com.alvarium.utils.PropertyBag;
 
 public class SbomAnnotator extends AbstractAnnotator implements Annotator {
@@ -80,7 +80,7 @@ public class SbomAnnotator extends AbstractAnnotator implements Annotator {
         kind, 
         null, 
         isSatisfied, 
-        Instant.now()
+        AnnotationClock.getDefault().now()
     );
 
     final String annotationSignature = super.signAnnotation(
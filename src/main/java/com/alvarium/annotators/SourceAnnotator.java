@@ -16,7 +16,6 @@ package com.alvarium.annotators;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.time.Instant;
 
 import org.apache.logging.log4j.Logger;
 
@@ -25,6 +24,7 @@ import com.alvarium.contracts.AnnotationType;
 import com.alvarium.contracts.LayerType;
 import com.alvarium.hash.HashType;
 import com.alvarium.sign.SignatureInfo;
+import com.alvarium.utils.AnnotationClock;
 import com.alvarium.utils.PropertyBag;
 
 /**
@@ -63,7 +63,7 @@ class SourceAnnotator extends AbstractAnnotator implements Annotator {
 
     // create an annotation without signature
     final Annotation annotation = new Annotation(key, this.hash, host, layer, this.kind, null, isSatisfied,
-        Instant.now());
+        AnnotationClock.getDefault().now());
     
     final String signature = super.signAnnotation(signatureInfo.getPrivateKey(), annotation);
     annotation.setSignature(signature);
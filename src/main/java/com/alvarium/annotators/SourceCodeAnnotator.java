@@ -15,20 +15,14 @@
 package com.alvarium.annotators;
 
 
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.Collator;
-import java.time.Instant;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 import org.apache.logging.log4j.Logger;
 
 import com.alvarium.contracts.Annotation;
@@ -39,9 +33,10 @@ import com.alvarium.hash.HashProviderFactory;
 import com.alvarium.hash.HashType;
 import com.alvarium.hash.HashTypeException;
 import com.alvarium.sign.SignatureInfo;
+import com.alvarium.utils.AnnotationClock;
 import com.alvarium.utils.PropertyBag;
 
-class SourceCodeAnnotator extends AbstractAnnotator implements Annotator {
+class SourceCodeAnnotator extends AbstractAnnotator implements Annotator, Closeable {
 
     private final HashType hash;
     private final AnnotationType kind;
@@ -49,6 +44,13 @@ class SourceCodeAnnotator extends AbstractAnnotator implements Annotator {
     private final LayerType layer;
 
     private HashProvider hashProvider;
+    private final SourceCodeChecksum checksum;
+    private final GitSourceVerifier gitVerifier;
+    private SourceCodeManifest manifest;
+    private Path manifestPath;
+    private SourceCodeWatcher watcher;
+    // the last tree the watcher could not follow, hashed on every execution instead
+    private SourceCodeTree unwatchable;
 
     protected SourceCodeAnnotator(HashType hash, SignatureInfo signature, Logger logger, LayerType layer) {
         super(logger);
@@ -56,6 +58,8 @@ class SourceCodeAnnotator extends AbstractAnnotator implements Annotator {
         this.kind = AnnotationType.SourceCode;
         this.signature = signature;
         this.layer = layer;
+        this.checksum = new SourceCodeChecksum(hash);
+        this.gitVerifier = new GitSourceVerifier();
     }
 
     // File (git working directory) is to be passed in the ctx bag
@@ -75,8 +79,12 @@ class SourceCodeAnnotator extends AbstractAnnotator implements Annotator {
         try{
             host = InetAddress.getLocalHost().getHostName();
             final String checksum = this.readChecksum(props.getChecksumPath());
-            final String generatedChecksum = this.generateChecksum(props.getSourceCodePath());
-            isSatisfied = generatedChecksum.equals(checksum);
+            if (props.getGit()) {
+                isSatisfied = this.verifyCommit(props, checksum.trim());
+            } else {
+                final String generatedChecksum = this.generateChecksum(props);
+                isSatisfied = generatedChecksum.equals(checksum);
+            }
         } catch (UnknownHostException | AnnotatorException e) {
             isSatisfied = false;
             this.logger.error("Error during SourceCodeAnnotator execution: ",e);
@@ -90,7 +98,7 @@ class SourceCodeAnnotator extends AbstractAnnotator implements Annotator {
                 kind,
                 null,
                 isSatisfied,
-                Instant.now());
+                AnnotationClock.getDefault().now());
 
         final String annotationSignature = super.signAnnotation(signature.getPrivateKey(), annotation);
         annotation.setSignature(annotationSignature);
@@ -134,89 +142,154 @@ class SourceCodeAnnotator extends AbstractAnnotator implements Annotator {
     }
 
     /**
-     * Recursively gets all files in a directory as a list of absolute paths
-     * @param path
-     * @return List<String> of all files in directory
+     * Computes the hash of all files hashes and their corresponding paths in the specified directory and returns the
+     * hash value as a string. When a manifest is configured, files whose size, modification time and file key did not
+     * change since they were last hashed are not read again.
+     * @param props the source code properties, holding the path of the directory to hash
+     * @return the hash value of the directory as a string
+     * @throws AnnotatorException if an error occurs while hashing the directory
      */
-    private List<String> getAllFiles(String path) {
-        List<String> files = new ArrayList<>();
-        File directory = new File(path);
-
-        if (directory.isDirectory()) {
-            File[] directoryFiles = directory.listFiles();
-            if (directoryFiles != null) {
-                for (File file : directoryFiles) {
-                    if (file.isFile()) {
-                        files.add(file.getAbsolutePath());
-                    } else if (file.isDirectory()) {
-                        files.addAll(getAllFiles(file.getAbsolutePath()));
-                    }
-                }
+    private String generateChecksum(SourceCodeAnnotatorProps props) throws AnnotatorException {
+        if (props.getWatch()) {
+            final String watched = this.watchedChecksum(tree(props));
+            if (watched != null) {
+                return watched;
             }
-        } else if (directory.isFile()) {
-            files.add(directory.getAbsolutePath());
         }
-        return files;
+
+        if (props.getManifestPath() == null) {
+            return this.checksum.generate(tree(props), null, false);
+        }
+        return this.manifestChecksum(props);
     }
 
     /**
-     * Reads and hashes a file on the local file system in in chunks of 8KB 
-     * @param filePath
-     * @return hash of the file's contents in string format
-     * @throws AnnotatorException - When bad file path or corrupted file given
+     * Computes the checksum through the manifest at the configured path. Executions sharing the
+     * annotator run one at a time here, so that a manifest is only updated and saved by one run.
+     * @param props the source code properties, holding the paths of the directory and manifest
+     * @return the hash value of the directory as a string
+     * @throws AnnotatorException if an error occurs while hashing the directory
      */
-    private final String readAndHashFile(String filePath) throws AnnotatorException {
+    private synchronized String manifestChecksum(SourceCodeAnnotatorProps props) throws AnnotatorException {
+        final SourceCodeManifest manifest = this.loadManifest(props.getManifestPath());
+        final long startedAt = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        final boolean fullVerify = props.getFullVerifyIntervalMs() > 0
+            && System.currentTimeMillis() - manifest.getVerifiedAt() >= props.getFullVerifyIntervalMs();
+
+        final String sourceCodeChecksum = this.checksum.generate(
+            tree(props),
+            manifest,
+            fullVerify
+        );
+
+        if (fullVerify) {
+            manifest.verified(System.currentTimeMillis());
+        }
+        this.saveManifest(manifest, startedAt);
+        return sourceCodeChecksum;
+    }
+
+    /**
+     * Verifies that the source code path is a git work tree holding exactly the given commit
+     * @param props the source code properties
+     * @param commit the id of the expected commit
+     * @return whether the work tree matches the commit
+     * @throws AnnotatorException if the git repository could not be read
+     */
+    private boolean verifyCommit(SourceCodeAnnotatorProps props, String commit) throws AnnotatorException {
+        final String difference = this.gitVerifier.verify(tree(props), commit);
+        if (difference != null) {
+            this.logger.debug("Source code does not match commit {}: {}", commit, difference);
+        }
+        return difference == null;
+    }
+
+    /**
+     * Returns the checksum kept current by a watcher of the directory, the watcher is started on
+     * the first execution and replaced if the directory or its rules change or the watcher falls
+     * behind
+     * @param tree the directory to hash
+     * @return the hash value of the directory as a string, null if the directory links to files
+     * the watcher cannot follow
+     * @throws AnnotatorException if the directory could not be hashed
+     */
+    private synchronized String watchedChecksum(SourceCodeTree tree) throws AnnotatorException {
+        if (this.watcher != null && !this.watcher.getTree().equals(tree)) {
+            this.watcher.close();
+            this.watcher = null;
+        }
+        if (tree.equals(this.unwatchable)) {
+            return null;
+        }
+        if (this.watcher == null) {
+            this.watcher = new SourceCodeWatcher(tree, this.checksum, this.logger);
+        }
         try {
-            FileInputStream fs = new FileInputStream(filePath);
-            final byte[] buffer = new byte[8192];
-            int bytesRead = 0;
-            while (true) {
-                bytesRead = fs.read(buffer);
-                if (bytesRead == -1) { // indicates EOF
-                    break;
-                } else {
-                    this.hashProvider.update(buffer, 0, bytesRead);
-                }
+            final String value = this.watcher.getChecksum();
+            if (this.watcher.isComplete()) {
+                return value;
             }
-            fs.close();
-        } catch (OutOfMemoryError e) {
-            throw new AnnotatorException(
-                "Failed to read file due to size larger than 2GB, could not validate checksum" + e
-            );
-        } catch (IOException e) {
-            throw new AnnotatorException(
-                "Failed to read file contents, could not generate checksum", 
-                e
-            );
-        } catch (SecurityException e) {
-            throw new AnnotatorException(
-                "Insufficient permission to access file, could not validate checksum",
-                e
-            );
-        } catch (Exception e) {
-            throw new AnnotatorException("Could not validate checksum", e);
+            this.logger.warn("{} links to files outside of the watched directories, it is hashed "
+                + "on every execution instead", tree.getRoot());
+            this.unwatchable = tree;
+            this.watcher.close();
+            this.watcher = null;
+            return null;
+        } catch (AnnotatorException e) {
+            this.watcher.close();
+            this.watcher = null;
+            throw e;
         }
-        return this.hashProvider.getValue();
     }
 
     /**
-     * Computes the hash of all files hashes and their corresponding paths in the specified directory and returns the
-     * hash value as a string.
-     * @param path the path of the directory to hash
-     * @return the hash value of the directory as a string
-     * @throws AnnotatorException if an error occurs while hashing the directory
+     * Stops the watcher of the directory, if one was started. A later execution starts a new one.
+     */
+    @Override
+    public synchronized void close() {
+        if (this.watcher != null) {
+            this.watcher.close();
+            this.watcher = null;
+        }
+    }
+
+    /**
+     * Returns the manifest kept at the given path, it is read from disk only when the path or the
+     * hash type changed since the last execution. Called with the annotator lock held.
+     * @param path path of the manifest
+     * @return the manifest
      */
-    private String generateChecksum(String path) throws AnnotatorException {
-        List<String> filePaths = getAllFiles(path);
-        for(int i = 0 ; i<filePaths.size();i++){
-            String hashThenPath = readAndHashFile(filePaths.get(i)) + "  " + filePaths.get(i);
-            filePaths.set(i, hashThenPath);
+    private SourceCodeManifest loadManifest(String path) {
+        final Path p = Paths.get(path);
+        if (this.manifest == null || !p.equals(this.manifestPath) || this.manifest.getHash() != this.hash) {
+            try {
+                this.manifest = SourceCodeManifest.load(p, this.hash);
+            } catch (IOException e) {
+                this.logger.warn("Could not read source code manifest, hashing every file: ", e);
+                this.manifest = new SourceCodeManifest(this.hash);
+            }
+            this.manifestPath = p;
         }
-        Collections.sort(filePaths, Collator.getInstance(Locale.US));
+        return this.manifest;
+    }
 
-        String hashesAndFiles = String.join("\n", filePaths) + "\n";
-        final String sourceCodeChecksum = this.hashProvider.derive(hashesAndFiles.getBytes());
+    /**
+     * Saves the manifest if files were hashed, a failure only costs hashing them again next time.
+     * Called with the annotator lock held.
+     */
+    private void saveManifest(SourceCodeManifest manifest, long startedAt) {
+        if (!manifest.isDirty()) {
+            return;
+        }
+        manifest.scanned(startedAt);
+        try {
+            manifest.save(this.manifestPath);
+        } catch (IOException e) {
+            this.logger.warn("Could not save source code manifest: ", e);
+        }
+    }
 
-        return sourceCodeChecksum;
-     }
+    static SourceCodeTree tree(SourceCodeAnnotatorProps props) {
+        return new SourceCodeTree(props.getSourceCodePath(), props.getIncludes(), props.getExcludes());
+    }
 }
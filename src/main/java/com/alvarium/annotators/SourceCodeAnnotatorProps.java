@@ -4,10 +4,54 @@ package com.alvarium.annotators;
 public class SourceCodeAnnotatorProps {
     final private String sourceCodePath;
     final private String checksumPath;
+    /**
+     * Optional, file where the digests of the source files are remembered between executions
+     * so that only modified files are hashed again. It should be kept outside of the source
+     * code path, otherwise it becomes part of the checksum.
+     */
+    final private String manifestPath;
+    /**
+     * How often every file is hashed again regardless of the manifest, in milliseconds. 0 never
+     * forces a full verification.
+     */
+    final private long fullVerifyIntervalMs;
+    /**
+     * Whether the checksum is kept current from file system events instead of being computed on
+     * every execution. Meant for long-running services whose source rarely changes. The
+     * manifest is not used in this mode.
+     */
+    final private boolean watch;
+    /**
+     * Optional glob rules selecting the files of the source code path, see
+     * {@link SourceCodeTree}. Only files matching one of the includes are hashed when given.
+     */
+    final private String[] includes;
+    /**
+     * Optional glob rules of files and directories left out of the checksum, e.g. {@code .git/},
+     * {@code target/} or {@code node_modules/}. Excluded directories are not walked.
+     */
+    final private String[] excludes;
+    /**
+     * Whether the source code path is verified as a git work tree: the checksum file then holds
+     * the id of the expected commit, and only the files whose stat data differs from the git
+     * index are hashed. The include and exclude rules only restrict the search for untracked
+     * files in this mode.
+     */
+    final private boolean git;
 
     public SourceCodeAnnotatorProps(String sourceCodePath, String checksumPath) {
-        this.checksumPath = checksumPath;
-        this.sourceCodePath = sourceCodePath;
+        this(new Builder(sourceCodePath, checksumPath));
+    }
+
+    private SourceCodeAnnotatorProps(Builder builder) {
+        this.checksumPath = builder.checksumPath;
+        this.sourceCodePath = builder.sourceCodePath;
+        this.manifestPath = builder.manifestPath;
+        this.fullVerifyIntervalMs = builder.fullVerifyIntervalMs;
+        this.watch = builder.watch;
+        this.includes = builder.includes;
+        this.excludes = builder.excludes;
+        this.git = builder.git;
     }
 
     final public String getSourceCodePath() {
@@ -17,4 +61,82 @@ public class SourceCodeAnnotatorProps {
     final public String getChecksumPath() {
         return this.checksumPath;
     }
-}
\ No newline at end of file
+
+    final public String getManifestPath() {
+        return this.manifestPath;
+    }
+
+    final public long getFullVerifyIntervalMs() {
+        return this.fullVerifyIntervalMs;
+    }
+
+    final public boolean getWatch() {
+        return this.watch;
+    }
+
+    final public String[] getIncludes() {
+        return this.includes;
+    }
+
+    final public String[] getExcludes() {
+        return this.excludes;
+    }
+
+    final public boolean getGit() {
+        return this.git;
+    }
+
+    /**
+     * Builds the props of a source code annotation, every optional setting keeps its default
+     * unless set
+     */
+    public static class Builder {
+        final private String sourceCodePath;
+        final private String checksumPath;
+        private String manifestPath;
+        private long fullVerifyIntervalMs;
+        private boolean watch;
+        private String[] includes;
+        private String[] excludes;
+        private boolean git;
+
+        public Builder(String sourceCodePath, String checksumPath) {
+            this.sourceCodePath = sourceCodePath;
+            this.checksumPath = checksumPath;
+        }
+
+        public Builder manifestPath(String manifestPath) {
+            this.manifestPath = manifestPath;
+            return this;
+        }
+
+        public Builder fullVerifyIntervalMs(long fullVerifyIntervalMs) {
+            this.fullVerifyIntervalMs = fullVerifyIntervalMs;
+            return this;
+        }
+
+        public Builder watch(boolean watch) {
+            this.watch = watch;
+            return this;
+        }
+
+        public Builder includes(String... includes) {
+            this.includes = includes;
+            return this;
+        }
+
+        public Builder excludes(String... excludes) {
+            this.excludes = excludes;
+            return this;
+        }
+
+        public Builder git(boolean git) {
+            this.git = git;
+            return this;
+        }
+
+        public SourceCodeAnnotatorProps build() {
+            return new SourceCodeAnnotatorProps(this);
+        }
+    }
+}
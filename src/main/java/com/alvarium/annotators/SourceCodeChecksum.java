@@ -0,0 +1,339 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.alvarium.hash.HashProvider;
+import com.alvarium.hash.HashProviderFactory;
+import com.alvarium.hash.HashType;
+import com.alvarium.hash.HashTypeException;
+
+/**
+ * <p>Computes the checksum of a source tree: the hash of the sorted {@code "hash  path"} lines of
+ * every regular file under the tree, the same output as {@code sha256sum} (or {@code md5sum})
+ * piped through a US-locale sort.</p>
+ *
+ * <p>The tree is walked once with {@link Files#walkFileTree}, which yields the attributes of
+ * every file without extra system calls. Files are then hashed in parallel on a shared
+ * fork/join pool, every worker thread reusing its own hash provider and read buffer. Lines are
+ * sorted through collation keys, giving the order of the US collator at the cost of a byte
+ * comparison, and are streamed into the final digest instead of being joined in memory.</p>
+ */
+class SourceCodeChecksum {
+  private static final int BUFFER_SIZE = 8192;
+  // files hashed sequentially by a single fork/join task
+  private static final int TASK_SIZE = 16;
+  private static final ForkJoinPool pool = new ForkJoinPool(
+      Runtime.getRuntime().availableProcessors()
+  );
+
+  private final HashType hash;
+  private final ThreadLocal<HashProvider> hashers;
+  private final ThreadLocal<byte[]> buffers;
+
+  SourceCodeChecksum(HashType hash) {
+    this.hash = hash;
+    this.hashers = new ThreadLocal<HashProvider>();
+    this.buffers = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+  }
+
+  /**
+   * Orders the lines of the checksum like the US collator, lines the collator considers equal are
+   * ordered by their code points so that the order never depends on the walk
+   */
+  static final Comparator<CollationKey> LINE_ORDER = (a, b) -> {
+    final int c = a.compareTo(b);
+    return c != 0 ? c : a.getSourceString().compareTo(b.getSourceString());
+  };
+
+  /**
+   * computes the checksum of the tree
+   * @param tree directory, or single file, being hashed and the rules selecting its files
+   * @param manifest optional digests of previous executions, updated with the hashed files
+   * @param fullVerify whether every file is hashed regardless of the manifest
+   * @return the checksum of the tree
+   * @throws AnnotatorException if a file could not be hashed
+   */
+  String generate(SourceCodeTree tree, SourceCodeManifest manifest, boolean fullVerify)
+      throws AnnotatorException {
+    final List<SourceFile> files = this.scan(
+        walk(tree, tree.getRoot(), null),
+        manifest,
+        fullVerify
+    );
+
+    final Collator collator = Collator.getInstance(Locale.US);
+    final List<CollationKey> lines = new ArrayList<CollationKey>(files.size());
+    for (SourceFile file : files) {
+      lines.add(line(collator, file.digest, file.path));
+    }
+    Collections.sort(lines, LINE_ORDER);
+    return this.digest(lines);
+  }
+
+  /**
+   * sets the digest of every file, hashing those the manifest does not know
+   * @param files files of the tree
+   * @param manifest optional digests of previous executions, updated with the hashed files
+   * @param fullVerify whether every file is hashed regardless of the manifest
+   * @return the given files
+   * @throws AnnotatorException if a file could not be hashed
+   */
+  List<SourceFile> scan(List<SourceFile> files, SourceCodeManifest manifest, boolean fullVerify)
+      throws AnnotatorException {
+    final List<SourceFile> pending = new ArrayList<SourceFile>();
+    for (SourceFile file : files) {
+      if (manifest != null && !fullVerify) {
+        file.digest = manifest.lookup(file.path, file.attrs);
+      }
+      if (file.digest == null) {
+        pending.add(file);
+      }
+    }
+    this.hashAll(pending);
+
+    if (manifest != null) {
+      final List<String> paths = new ArrayList<String>(files.size());
+      for (SourceFile file : files) {
+        paths.add(file.path);
+      }
+      for (SourceFile file : pending) {
+        manifest.update(file.path, file.attrs, file.digest);
+      }
+      manifest.retain(paths);
+    }
+    return files;
+  }
+
+  /**
+   * returns the line of a file in the checksum, as a collation key
+   */
+  static CollationKey line(Collator collator, String digest, String path) {
+    return collator.getCollationKey(digest + "  " + path);
+  }
+
+  /**
+   * lists the regular files of the tree accepted by its rules, excluded directories are not
+   * entered. Symbolic links are followed, links and directories that cannot be read are skipped
+   * @param tree tree being listed
+   * @param start directory, or single file, of the tree where the walk starts
+   * @param directories optional list receiving the walked directories
+   */
+  static List<SourceFile> walk(SourceCodeTree tree, Path start, List<Path> directories)
+      throws AnnotatorException {
+    final List<SourceFile> files = new ArrayList<SourceFile>();
+    try {
+      Files.walkFileTree(
+          start,
+          EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+          Integer.MAX_VALUE,
+          new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+              if (!tree.acceptsDirectory(dir)) {
+                return FileVisitResult.SKIP_SUBTREE;
+              }
+              if (directories != null) {
+                directories.add(dir);
+              }
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+              if (attrs.isRegularFile() && tree.acceptsFile(file)) {
+                files.add(new SourceFile(file.toString(), attrs));
+              }
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+              return FileVisitResult.CONTINUE;
+            }
+          }
+      );
+    } catch (IOException | SecurityException e) {
+      throw new AnnotatorException("Failed to list source files, could not generate checksum", e);
+    }
+    return files;
+  }
+
+  /**
+   * hashes the contents of a single file
+   * @param path path of the file
+   * @return the hash of the file's contents in string format
+   * @throws AnnotatorException if the file could not be read
+   */
+  String hashFile(String path) throws AnnotatorException {
+    final HashProvider hasher = this.hasher();
+    final byte[] buffer = this.buffers.get();
+    final ByteBuffer view = ByteBuffer.wrap(buffer);
+    try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+      while (true) {
+        view.clear();
+        final int bytesRead = channel.read(view);
+        if (bytesRead == -1) { // indicates EOF
+          break;
+        }
+        hasher.update(buffer, 0, bytesRead);
+      }
+    } catch (IOException e) {
+      // drop the partially updated state
+      hasher.getValue();
+      throw new AnnotatorException("Failed to read file contents, could not generate checksum", e);
+    } catch (SecurityException e) {
+      hasher.getValue();
+      throw new AnnotatorException(
+          "Insufficient permission to access file, could not validate checksum",
+          e
+      );
+    }
+    return hasher.getValue();
+  }
+
+  /**
+   * hashes the given files on the fork/join pool
+   */
+  private void hashAll(List<SourceFile> files) throws AnnotatorException {
+    if (files.isEmpty()) {
+      return;
+    }
+    try {
+      pool.invoke(new HashTask(files, 0, files.size()));
+    } catch (HashFailure e) {
+      throw e.cause;
+    }
+  }
+
+  /**
+   * hashes the sorted lines, each one followed by a new line
+   */
+  String digest(Iterable<CollationKey> lines) throws AnnotatorException {
+    final HashProvider hasher = this.hasher();
+    if (this.hash == HashType.NoHash) {
+      // the "hash" is the manifest itself, it has to be materialized
+      final StringBuilder sb = new StringBuilder();
+      for (CollationKey line : lines) {
+        sb.append(line.getSourceString()).append('\n');
+      }
+      return hasher.derive(sb.toString().getBytes());
+    }
+
+    final byte[] newLine = "\n".getBytes();
+    for (CollationKey line : lines) {
+      hasher.update(line.getSourceString().getBytes());
+      hasher.update(newLine);
+    }
+    return hasher.getValue();
+  }
+
+  private HashProvider hasher() throws AnnotatorException {
+    HashProvider hasher = this.hashers.get();
+    if (hasher == null) {
+      try {
+        hasher = new HashProviderFactory().getProvider(this.hash);
+      } catch (HashTypeException e) {
+        throw new AnnotatorException(
+            "Hashing algorithm not found, could not hash data or generate checksum",
+            e
+        );
+      }
+      this.hashers.set(hasher);
+    }
+    return hasher;
+  }
+
+  /**
+   * A regular file of the tree, along with its attributes and digest once known
+   */
+  static class SourceFile {
+    final String path;
+    final BasicFileAttributes attrs;
+    String digest;
+
+    SourceFile(String path, BasicFileAttributes attrs) {
+      this.path = path;
+      this.attrs = attrs;
+    }
+  }
+
+  /**
+   * Splits the files in halves until they are small enough to be hashed by a single thread
+   */
+  private class HashTask extends RecursiveAction {
+    private final List<SourceFile> files;
+    private final int from;
+    private final int to;
+
+    HashTask(List<SourceFile> files, int from, int to) {
+      this.files = files;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from <= TASK_SIZE) {
+        for (int i = this.from; i < this.to; i++) {
+          final SourceFile file = this.files.get(i);
+          try {
+            file.digest = hashFile(file.path);
+          } catch (AnnotatorException e) {
+            throw new HashFailure(e);
+          }
+        }
+        return;
+      }
+      final int middle = (this.from + this.to) >>> 1;
+      invokeAll(
+          new HashTask(this.files, this.from, middle),
+          new HashTask(this.files, middle, this.to)
+      );
+    }
+  }
+
+  /**
+   * Carries a checked failure out of a fork/join task
+   */
+  private static class HashFailure extends RuntimeException {
+    private final AnnotatorException cause;
+
+    HashFailure(AnnotatorException cause) {
+      super(cause);
+      this.cause = cause;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import com.alvarium.hash.HashType;
+
+/**
+ * Generates the checksum verified by the source code annotator, e.g. at build or deployment time.
+ * The same files are hashed as during verification, honouring the include and exclude rules of
+ * the given properties. In git mode the checksum is the id of the commit checked out in the
+ * source code path.
+ */
+public class SourceCodeChecksumGenerator {
+  private final SourceCodeChecksum checksum;
+
+  public SourceCodeChecksumGenerator(HashType hash) {
+    this.checksum = new SourceCodeChecksum(hash);
+  }
+
+  /**
+   * computes the checksum of the source code path of the properties
+   * @param props source code properties
+   * @return the checksum of the source code
+   * @throws AnnotatorException if the source code could not be hashed
+   */
+  public String generate(SourceCodeAnnotatorProps props) throws AnnotatorException {
+    if (props.getGit()) {
+      return GitSourceVerifier.head(SourceCodeAnnotator.tree(props));
+    }
+    return this.checksum.generate(SourceCodeAnnotator.tree(props), null, true);
+  }
+
+  /**
+   * computes the checksum of the source code path and writes it to the checksum path of the
+   * properties
+   * @param props source code properties
+   * @throws AnnotatorException if the source code could not be hashed or the checksum written
+   */
+  public void write(SourceCodeAnnotatorProps props) throws AnnotatorException {
+    final String value = this.generate(props);
+    try {
+      Files.write(Paths.get(props.getChecksumPath()), value.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new AnnotatorException("Failed to write source code checksum", e);
+    }
+  }
+}
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import com.alvarium.hash.HashType;
+
+/**
+ * <p>Remembers the digest of every file of a source tree along with the metadata it had when it
+ * was hashed: size, modification time and file key (e.g. the inode). A later checksum only
+ * re-hashes the files whose metadata changed.</p>
+ *
+ * <p>The manifest is saved as a text file, one file per line:
+ * {@code digest<TAB>size<TAB>mtime<TAB>fileKey<TAB>path}, after a header holding the hash
+ * type, the time the tree was last scanned and the time it was last fully verified.</p>
+ *
+ * <p>Like git's index, a file modified in the same clock tick as the scan that hashed it could
+ * keep its old metadata. Entries whose modification time is not older than the scan are
+ * therefore never trusted and are hashed again on the next checksum.</p>
+ */
+class SourceCodeManifest {
+  private static final String HEADER = "# alvarium source manifest v1";
+
+  private final HashType hash;
+  private final Map<String, Entry> entries;
+  private long scannedAt;
+  private long verifiedAt;
+  private boolean dirty;
+
+  SourceCodeManifest(HashType hash) {
+    this.hash = hash;
+    this.entries = new HashMap<String, Entry>();
+  }
+
+  /**
+   * loads a manifest, an empty one is returned if the file does not exist or was written for
+   * another hash type
+   */
+  static SourceCodeManifest load(Path path, HashType hash) throws IOException {
+    final SourceCodeManifest manifest = new SourceCodeManifest(hash);
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      final String header = reader.readLine();
+      if (header == null || !header.startsWith(HEADER)) {
+        return manifest;
+      }
+      final String[] fields = header.substring(HEADER.length()).trim().split(" ");
+      if (fields.length != 3 || !fields[0].equals(hash.name())) {
+        return manifest;
+      }
+      manifest.scannedAt = Long.parseLong(fields[1]);
+      manifest.verifiedAt = Long.parseLong(fields[2]);
+
+      String line;
+      while ((line = reader.readLine()) != null) {
+        final String[] columns = line.split("\t", 5);
+        if (columns.length != 5) {
+          continue;
+        }
+        manifest.entries.put(columns[4], new Entry(
+            columns[0],
+            Long.parseLong(columns[1]),
+            Long.parseLong(columns[2]),
+            columns[3]
+        ));
+      }
+    } catch (NoSuchFileException e) {
+      return manifest;
+    } catch (NumberFormatException e) {
+      // a corrupted manifest is rebuilt from scratch
+      return new SourceCodeManifest(hash);
+    }
+    return manifest;
+  }
+
+  /**
+   * writes the manifest through a temporary file, so a crash never leaves a partial manifest
+   */
+  void save(Path path) throws IOException {
+    final Path absolute = path.toAbsolutePath();
+    final Path tmp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+    try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+      writer.write(String.format("%s %s %d %d\n", HEADER, this.hash.name(), this.scannedAt,
+          this.verifiedAt));
+      for (Map.Entry<String, Entry> e : this.entries.entrySet()) {
+        final Entry entry = e.getValue();
+        writer.write(entry.digest);
+        writer.write('\t');
+        writer.write(Long.toString(entry.size));
+        writer.write('\t');
+        writer.write(Long.toString(entry.mtime));
+        writer.write('\t');
+        writer.write(entry.fileKey);
+        writer.write('\t');
+        writer.write(e.getKey());
+        writer.write('\n');
+      }
+    }
+    Files.move(tmp, absolute, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    this.dirty = false;
+  }
+
+  /**
+   * returns the remembered digest of the file if its metadata did not change since it was hashed
+   * @param path path of the file, as written in the checksum
+   * @param attrs current attributes of the file
+   * @return the digest or null if the file must be hashed
+   */
+  String lookup(String path, BasicFileAttributes attrs) {
+    final Entry entry = this.entries.get(path);
+    if (entry == null || entry.mtime >= this.scannedAt) {
+      return null;
+    }
+    if (entry.size != attrs.size() || entry.mtime != mtime(attrs)
+        || !entry.fileKey.equals(fileKey(attrs))) {
+      return null;
+    }
+    return entry.digest;
+  }
+
+  /**
+   * remembers the digest of a file that was just hashed
+   */
+  void update(String path, BasicFileAttributes attrs, String digest) {
+    if (path.indexOf('\n') >= 0) {
+      // cannot be written in the manifest, such a file is hashed on every checksum
+      return;
+    }
+    final Entry entry = new Entry(digest, attrs.size(), mtime(attrs), fileKey(attrs));
+    // an untrusted entry is only trusted once a later scan time is saved
+    if (!entry.equals(this.entries.put(path, entry)) || entry.mtime >= this.scannedAt) {
+      this.dirty = true;
+    }
+  }
+
+  /**
+   * forgets the files that are no longer part of the tree
+   */
+  void retain(Iterable<String> paths) {
+    final Map<String, Entry> kept = new HashMap<String, Entry>();
+    for (String path : paths) {
+      final Entry entry = this.entries.get(path);
+      if (entry != null) {
+        kept.put(path, entry);
+      }
+    }
+    if (kept.size() != this.entries.size()) {
+      this.dirty = true;
+    }
+    this.entries.clear();
+    this.entries.putAll(kept);
+  }
+
+  /**
+   * records the time, in nanoseconds since the epoch, at which the scan that updated the
+   * manifest started. Entries modified from then on are not trusted.
+   */
+  void scanned(long startedAt) {
+    this.scannedAt = startedAt;
+    this.dirty = true;
+  }
+
+  void verified(long verifiedAt) {
+    this.verifiedAt = verifiedAt;
+    this.dirty = true;
+  }
+
+  long getVerifiedAt() {
+    return this.verifiedAt;
+  }
+
+  HashType getHash() {
+    return this.hash;
+  }
+
+  boolean isDirty() {
+    return this.dirty;
+  }
+
+  int size() {
+    return this.entries.size();
+  }
+
+  private static long mtime(BasicFileAttributes attrs) {
+    return attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+  }
+
+  private static String fileKey(BasicFileAttributes attrs) {
+    // tabs and new lines would break the manifest format
+    return Objects.toString(attrs.fileKey(), "-").replaceAll("\\s", "_");
+  }
+
+  private static class Entry {
+    final String digest;
+    final long size;
+    final long mtime;
+    final String fileKey;
+
+    Entry(String digest, long size, long mtime, String fileKey) {
+      this.digest = digest;
+      this.size = size;
+      this.mtime = mtime;
+      this.fileKey = fileKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Entry)) {
+        return false;
+      }
+      final Entry other = (Entry) o;
+      return this.size == other.size && this.mtime == other.mtime
+          && this.digest.equals(other.digest) && this.fileKey.equals(other.fileKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.digest, this.size, this.mtime, this.fileKey);
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators;
+
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <p>The files of a source tree taken into its checksum: every regular file under the root,
+ * minus the excluded ones and, when include rules are given, only those matching one of them.</p>
+ *
+ * <p>Rules are globs in the spirit of gitignore, matched against the path relative to the root
+ * with {@code /} separators:</p>
+ * <ul>
+ *   <li>a rule without a slash matches a name at any depth, e.g. {@code *.class} or
+ *   {@code node_modules}</li>
+ *   <li>a rule holding a slash is anchored at the root, e.g. {@code /target} or
+ *   {@code docs/**}</li>
+ *   <li>a trailing slash only matches directories, e.g. {@code build/}</li>
+ *   <li>an exclude rule starting with {@code !} includes back what earlier rules excluded, the last
+ *   matching rule wins</li>
+ * </ul>
+ *
+ * <p>Excluded directories are pruned while walking, their content is never listed. Include rules
+ * only apply to files, a directory is walked as long as it is not excluded.</p>
+ */
+class SourceCodeTree {
+  private final Path root;
+  private final String[] includes;
+  private final String[] excludes;
+  private final List<Rule> includeRules;
+  private final List<Rule> excludeRules;
+
+  SourceCodeTree(String root, String[] includes, String[] excludes) {
+    this.root = Paths.get(root).toAbsolutePath();
+    this.includes = includes == null ? new String[0] : includes.clone();
+    this.excludes = excludes == null ? new String[0] : excludes.clone();
+    this.includeRules = compile(this.root.getFileSystem(), this.includes);
+    this.excludeRules = compile(this.root.getFileSystem(), this.excludes);
+  }
+
+  Path getRoot() {
+    return this.root;
+  }
+
+  /**
+   * checks whether the directory is walked, the root always is
+   */
+  boolean acceptsDirectory(Path dir) {
+    if (dir.equals(this.root)) {
+      return true;
+    }
+    return !this.excluded(this.root.relativize(dir), true);
+  }
+
+  /**
+   * checks whether the file is part of the checksum, the root always is when it is a file
+   */
+  boolean acceptsFile(Path file) {
+    if (file.equals(this.root)) {
+      return true;
+    }
+    final Path relative = this.root.relativize(file);
+    if (this.excluded(relative, false)) {
+      return false;
+    }
+    if (this.includeRules.isEmpty()) {
+      return true;
+    }
+    for (Rule rule : this.includeRules) {
+      if (rule.matches(relative, false)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean excluded(Path relative, boolean directory) {
+    boolean excluded = false;
+    for (Rule rule : this.excludeRules) {
+      if (rule.matches(relative, directory)) {
+        excluded = !rule.negated;
+      }
+    }
+    return excluded;
+  }
+
+  private static List<Rule> compile(FileSystem fs, String[] patterns) {
+    final List<Rule> rules = new ArrayList<Rule>(patterns.length);
+    for (String pattern : patterns) {
+      if (pattern == null || pattern.trim().isEmpty() || pattern.startsWith("#")) {
+        continue;
+      }
+      rules.add(new Rule(fs, pattern.trim()));
+    }
+    return rules;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof SourceCodeTree)) {
+      return false;
+    }
+    final SourceCodeTree other = (SourceCodeTree) o;
+    return this.root.equals(other.root) && Arrays.equals(this.includes, other.includes)
+        && Arrays.equals(this.excludes, other.excludes);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(this.root, Arrays.hashCode(this.includes), Arrays.hashCode(this.excludes));
+  }
+
+  /**
+   * A compiled include or exclude rule
+   */
+  private static class Rule {
+    final boolean negated;
+    final boolean directoryOnly;
+    final PathMatcher anchored;
+    final PathMatcher anyDepth;
+
+    Rule(FileSystem fs, String pattern) {
+      this.negated = pattern.startsWith("!");
+      if (this.negated) {
+        pattern = pattern.substring(1);
+      }
+      this.directoryOnly = pattern.endsWith("/");
+      while (pattern.endsWith("/")) {
+        pattern = pattern.substring(0, pattern.length() - 1);
+      }
+      final boolean rooted = pattern.contains("/");
+      while (pattern.startsWith("/")) {
+        pattern = pattern.substring(1);
+      }
+      this.anchored = fs.getPathMatcher("glob:" + pattern);
+      this.anyDepth = rooted ? null : fs.getPathMatcher("glob:**/" + pattern);
+    }
+
+    boolean matches(Path relative, boolean directory) {
+      if (this.directoryOnly && !directory) {
+        return false;
+      }
+      return this.anchored.matches(relative)
+          || (this.anyDepth != null && this.anyDepth.matches(relative));
+    }
+  }
+}
@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * <p>Keeps the checksum of a source tree current from file system events, so that reading it is
+ * immediate. The tree is hashed once when the watcher starts; from then on a background thread
+ * only hashes the files reported as created or modified and drops the deleted ones. When events
+ * were lost, the whole tree is scanned again.</p>
+ *
+ * <p>Events are delivered asynchronously by the file system, so a change is reflected in the
+ * checksum shortly after it happens rather than immediately. Changes made while the watcher is
+ * not running, e.g. on a stopped machine, are caught by the scan made on start.</p>
+ *
+ * <p>Directories reached through links are watched through the link. A linked file only raises
+ * events when its target is in a watched directory, the watcher reports itself incomplete as
+ * soon as it finds a link to a file elsewhere and such trees have to be hashed another way.</p>
+ *
+ * <p>The background thread stops once the watcher is closed.</p>
+ */
+class SourceCodeWatcher implements Closeable {
+  // delay during which more events are collected before the checksum is computed again
+  private static final long QUIET_PERIOD_MS = 20;
+
+  private final SourceCodeTree tree;
+  private final SourceCodeChecksum checksum;
+  private final Logger logger;
+  private final Collator collator;
+  private final WatchService watcher;
+  private final Map<WatchKey, Path> keys;
+  // digest of every file, and the line each one adds to the checksum
+  private final TreeMap<String, CollationKey> lines;
+  private final TreeSet<CollationKey> sorted;
+  private final Thread thread;
+
+  private volatile String current;
+  private volatile AnnotatorException failure;
+  // set once a linked file whose target raises no events is found
+  private volatile boolean incomplete;
+
+  SourceCodeWatcher(SourceCodeTree tree, SourceCodeChecksum checksum, Logger logger)
+      throws AnnotatorException {
+    this.tree = tree;
+    this.checksum = checksum;
+    this.logger = logger;
+    this.collator = Collator.getInstance(Locale.US);
+    this.keys = new HashMap<WatchKey, Path>();
+    this.lines = new TreeMap<String, CollationKey>();
+    this.sorted = new TreeSet<CollationKey>(SourceCodeChecksum.LINE_ORDER);
+    try {
+      this.watcher = tree.getRoot().getFileSystem().newWatchService();
+    } catch (IOException e) {
+      throw new AnnotatorException("Could not watch source code directory", e);
+    }
+
+    try {
+      this.rescan();
+    } catch (AnnotatorException e) {
+      this.close();
+      throw e;
+    }
+    this.thread = new Thread(this::run, "alvarium-source-watcher");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * returns the checksum of the tree as of the last processed events
+   * @throws AnnotatorException if the tree could not be hashed again after a change, the watcher
+   * is then out of date and should be replaced
+   */
+  String getChecksum() throws AnnotatorException {
+    final AnnotatorException e = this.failure;
+    if (e != null) {
+      throw e;
+    }
+    return this.current;
+  }
+
+  SourceCodeTree getTree() {
+    return this.tree;
+  }
+
+  /**
+   * @return false if a file of the tree links to a file outside of the watched directories, whose
+   * changes are not reflected in the checksum
+   */
+  boolean isComplete() {
+    return !this.incomplete;
+  }
+
+  public void close() {
+    try {
+      // wakes the background thread up, it stops on the closed watch service
+      this.watcher.close();
+    } catch (IOException e) {
+      // nothing left to release
+    }
+  }
+
+  private void run() {
+    try {
+      while (true) {
+        final Set<Path> changed = new LinkedHashSet<Path>();
+        final Set<Path> created = new HashSet<Path>();
+        boolean overflow = this.collect(this.watcher.take(), changed, created);
+        WatchKey key;
+        while ((key = this.watcher.poll(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS)) != null) {
+          overflow |= this.collect(key, changed, created);
+        }
+
+        try {
+          if (overflow) {
+            this.logger.debug("Source code events were lost, scanning {} again", this.tree.getRoot());
+            this.rescan();
+          } else {
+            this.update(changed, created);
+            this.current = this.checksum.digest(this.sorted);
+          }
+          this.failure = null;
+        } catch (AnnotatorException e) {
+          this.failure = e;
+          this.logger.error("Could not update source code checksum: ", e);
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // the watcher was closed
+    }
+  }
+
+  /**
+   * adds the paths reported by the key to the changed paths, and to the created ones for
+   * creation events
+   * @return true if events were lost
+   */
+  private boolean collect(WatchKey key, Set<Path> changed, Set<Path> created) {
+    final Path dir = this.keys.get(key);
+    boolean overflow = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        overflow = true;
+      } else if (dir != null) {
+        final Path path = dir.resolve((Path) event.context());
+        changed.add(path);
+        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+          created.add(path);
+        }
+      }
+    }
+    if (!key.reset()) {
+      this.keys.remove(key);
+    }
+    return overflow || dir == null;
+  }
+
+  /**
+   * hashes the changed files again, watching the new directories and dropping deleted entries
+   */
+  private void update(Set<Path> changed, Set<Path> created) throws AnnotatorException {
+    for (Path path : changed) {
+      final String name = path.toString();
+      if (Files.isDirectory(path)) {
+        // a directory is modified whenever one of its entries changes, which is reported
+        // on its own, only a new directory has to be walked
+        if (created.contains(path) && this.tree.acceptsDirectory(path)) {
+          this.remove(name);
+          this.removeChildren(name);
+          this.add(path);
+        }
+      } else if (Files.isRegularFile(path) && this.tree.acceptsFile(path)) {
+        this.checkLink(path);
+        this.removeChildren(name);
+        try {
+          this.put(name, this.checksum.hashFile(name));
+        } catch (AnnotatorException e) {
+          if (Files.exists(path)) {
+            throw e;
+          }
+          // deleted since the event was raised, its deletion event follows
+        }
+      } else {
+        this.remove(name);
+        this.removeChildren(name);
+      }
+    }
+  }
+
+  /**
+   * forgets the whole tree and hashes it again
+   */
+  private void rescan() throws AnnotatorException {
+    for (WatchKey key : this.keys.keySet()) {
+      key.cancel();
+    }
+    this.keys.clear();
+    this.lines.clear();
+    this.sorted.clear();
+    this.add(this.tree.getRoot());
+    this.current = this.checksum.digest(this.sorted);
+  }
+
+  /**
+   * watches the directories of a tree and hashes its files
+   */
+  private void add(Path path) throws AnnotatorException {
+    final List<Path> directories = new ArrayList<Path>();
+    final List<SourceCodeChecksum.SourceFile> files = this.checksum.scan(
+        SourceCodeChecksum.walk(this.tree, path, directories),
+        null,
+        true
+    );
+    for (Path dir : directories) {
+      try {
+        this.keys.put(
+            dir.register(
+                this.watcher,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE
+            ),
+            dir
+        );
+      } catch (IOException e) {
+        throw new AnnotatorException("Could not watch source code directory " + dir, e);
+      }
+    }
+    for (SourceCodeChecksum.SourceFile file : files) {
+      this.checkLink(Paths.get(file.path));
+      this.put(file.path, file.digest);
+    }
+  }
+
+  /**
+   * flags the watcher incomplete if the file is a link whose target is not in a watched directory
+   */
+  private void checkLink(Path path) {
+    if (this.incomplete || !Files.isSymbolicLink(path)) {
+      return;
+    }
+    try {
+      final Path parent = path.toRealPath().getParent();
+      for (Path dir : this.keys.values()) {
+        if (Files.isSameFile(dir, parent)) {
+          return;
+        }
+      }
+    } catch (IOException e) {
+      // the target cannot be resolved anymore, it is not known to be watched
+    }
+    this.logger.debug("{} links to a file outside of the watched directories", path);
+    this.incomplete = true;
+  }
+
+  private void put(String path, String digest) {
+    final CollationKey line = SourceCodeChecksum.line(this.collator, digest, path);
+    this.remove(path);
+    this.lines.put(path, line);
+    this.sorted.add(line);
+  }
+
+  private void remove(String path) {
+    final CollationKey line = this.lines.remove(path);
+    if (line != null) {
+      this.sorted.remove(line);
+    }
+  }
+
+  /**
+   * drops the files under a deleted or replaced directory
+   */
+  private void removeChildren(String dir) {
+    final String prefix = dir + this.tree.getRoot().getFileSystem().getSeparator();
+    final Iterator<Map.Entry<String, CollationKey>> it = this.lines
+        .tailMap(prefix, true)
+        .entrySet()
+        .iterator();
+    while (it.hasNext()) {
+      final Map.Entry<String, CollationKey> e = it.next();
+      if (!e.getKey().startsWith(prefix)) {
+        break;
+      }
+      this.sorted.remove(e.getValue());
+      it.remove();
+    }
+  }
+}
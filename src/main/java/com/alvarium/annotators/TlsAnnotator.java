@@ -20,13 +20,13 @@ import javax.net.ssl.SSLSocket;
 
 import org.apache.logging.log4j.Logger;
 
-import java.time.Instant;
 
 import com.alvarium.contracts.Annotation;
 import com.alvarium.contracts.AnnotationType;
 import com.alvarium.contracts.LayerType;
 import com.alvarium.hash.HashType;
 import com.alvarium.sign.SignatureInfo;
+import com.alvarium.utils.AnnotationClock;
 import com.alvarium.utils.PropertyBag;
 
 class TlsAnnotator extends AbstractAnnotator implements Annotator {
@@ -71,7 +71,7 @@ class TlsAnnotator extends AbstractAnnotator implements Annotator {
 
     // create an annotation without signature
     final Annotation annotation = new Annotation(key, hash, host, layer, kind, null, isSatisfied, 
-        Instant.now());
+        AnnotationClock.getDefault().now());
 
     // sign annotation
     final String signature = super.signAnnotation(signatureInfo.getPrivateKey(),
@@ -20,7 +20,6 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.time.Instant;
 
 import org.apache.logging.log4j.Logger;
 
@@ -29,6 +28,7 @@ import com.alvarium.contracts.AnnotationType;
 import com.alvarium.contracts.LayerType;
 import com.alvarium.hash.HashType;
 import com.alvarium.sign.SignatureInfo;
+import com.alvarium.utils.AnnotationClock;
 import com.alvarium.utils.PropertyBag;
 
 class TpmAnnotator extends AbstractAnnotator implements Annotator {
@@ -72,7 +72,7 @@ class TpmAnnotator extends AbstractAnnotator implements Annotator {
           kind,
           null,
           isSatisfied,
-          Instant.now());
+          AnnotationClock.getDefault().now());
     
     final String annotationSignature = super.signAnnotation(signature.getPrivateKey(), annotation);
     annotation.setSignature(annotationSignature);
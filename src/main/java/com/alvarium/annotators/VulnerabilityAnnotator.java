@@ -15,14 +15,13 @@ package com.alvarium.annotators;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.time.Instant;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 import org.apache.logging.log4j.Logger;
 
-import com.alvarium.annotators.vulnerability.PackageFileHandler;
-import com.alvarium.annotators.vulnerability.PackageFileHandlerFactory;
+import com.alvarium.annotators.vulnerability.Dependency;
+import com.alvarium.annotators.vulnerability.PackageFileScanner;
 import com.alvarium.annotators.vulnerability.VulnerabilityAnnotatorConfig;
 import com.alvarium.annotators.vulnerability.VulnerabilityApiHandler;
 import com.alvarium.annotators.vulnerability.VulnerabilityApiHandlerFactory;
@@ -32,6 +31,7 @@ import com.alvarium.contracts.AnnotationType;
 import com.alvarium.contracts.LayerType;
 import com.alvarium.hash.HashType;
 import com.alvarium.sign.SignatureInfo;
+import com.alvarium.utils.AnnotationClock;
 import com.alvarium.utils.PropertyBag;
 
 
@@ -43,7 +43,10 @@ public class VulnerabilityAnnotator extends AbstractAnnotator implements Annotat
     final AnnotationType kind;
     final LayerType layer;
 
-    private PackageFileHandler packageHandler;
+    // kept between executions so that its cache of parsed package files is reused
+    private final PackageFileScanner packageScanner;
+    // kept between executions so that its cache of vulnerabilities is reused
+    private VulnerabilityApiHandler apiHandler;
 
     protected VulnerabilityAnnotator(
         VulnerabilityAnnotatorConfig cfg, 
@@ -58,6 +61,7 @@ public class VulnerabilityAnnotator extends AbstractAnnotator implements Annotat
         this.sign = signature;
         this.kind = AnnotationType.VULNERABILITY;
         this.layer = layer;
+        this.packageScanner = new PackageFileScanner(logger);
     }
 
     @Override
@@ -72,7 +76,7 @@ public class VulnerabilityAnnotator extends AbstractAnnotator implements Annotat
         try{
             host = InetAddress.getLocalHost().getHostName();
 
-            Map<String, String> packages = getPackages(dir);
+            Set<Dependency> packages = getPackages(dir);
             vulnerabilities = retrievePackagesVulnerabilities(packages);
             isSatisfied = vulnerabilities.isEmpty();
         } catch (UnknownHostException | AnnotatorException e) {
@@ -88,7 +92,7 @@ public class VulnerabilityAnnotator extends AbstractAnnotator implements Annotat
             this.kind, 
             null, 
             isSatisfied, 
-            Instant.now()
+            AnnotationClock.getDefault().now()
         );
 
         final String annotationSignature = super.signAnnotation(
@@ -100,10 +104,13 @@ public class VulnerabilityAnnotator extends AbstractAnnotator implements Annotat
         return annotation;
     }
     
-    private Map<String, String> getPackages(String dir) throws AnnotatorException {
+    /**
+     * reads the dependencies of every package file found under the directory, e.g. every module
+     * of a monorepo, so that they are checked in a single query
+     */
+    private Set<Dependency> getPackages(String dir) throws AnnotatorException {
         try {
-            this.packageHandler = new PackageFileHandlerFactory().getHandler(dir);
-            return this.packageHandler.getPackages();
+            return this.packageScanner.scan(dir);
         } catch (VulnerabilityException e) {
             throw new AnnotatorException("Failed to get dependency info", e);
         } catch (Exception e) {
@@ -111,11 +118,9 @@ public class VulnerabilityAnnotator extends AbstractAnnotator implements Annotat
         }
     }
     
-    private List<String> retrievePackagesVulnerabilities( Map<String, String> packages) throws AnnotatorException {
+    private List<String> retrievePackagesVulnerabilities(Set<Dependency> packages) throws AnnotatorException {
         try{
-            final VulnerabilityApiHandler apiHandler = new VulnerabilityApiHandlerFactory()
-                .getHandler(this.cfg);
-            List<String> vulnerabilities = apiHandler.getVulnerabilityIds(packages);
+            List<String> vulnerabilities = this.getApiHandler().getVulnerabilityIds(packages);
             return vulnerabilities;
         } catch (VulnerabilityException e) {
             throw new AnnotatorException("Failed to retrieve packages vulnerabilities", e);
@@ -125,5 +130,12 @@ public class VulnerabilityAnnotator extends AbstractAnnotator implements Annotat
 
     }
 
+    private synchronized VulnerabilityApiHandler getApiHandler() throws VulnerabilityException {
+        if (this.apiHandler == null) {
+            this.apiHandler = new VulnerabilityApiHandlerFactory().getHandler(this.cfg, this.logger);
+        }
+        return this.apiHandler;
+    }
+
 }
 
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators.vulnerability;
+
+import java.util.Objects;
+
+/**
+ * A version of a package of an OSV ecosystem, e.g. version 4.12 of junit:junit in Maven
+ */
+public class Dependency {
+    private final String ecosystem;
+    private final String name;
+    private final String version;
+
+    public Dependency(String ecosystem, String name, String version) {
+        this.ecosystem = ecosystem;
+        this.name = name;
+        this.version = version;
+    }
+
+    public String getEcosystem() {
+        return this.ecosystem;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public String getVersion() {
+        return this.version;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Dependency)) {
+            return false;
+        }
+        final Dependency other = (Dependency) o;
+        return this.ecosystem.equals(other.ecosystem) && this.name.equals(other.name)
+            && this.version.equals(other.version);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.ecosystem, this.name, this.version);
+    }
+
+    @Override
+    public String toString() {
+        return this.ecosystem + ":" + this.name + "@" + this.version;
+    }
+}
@@ -16,17 +16,25 @@ package com.alvarium.annotators.vulnerability;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 
 public class GoModHandler implements PackageFileHandler {
+    static final String FILE_NAME = "go.mod";
+    static final String ECOSYSTEM = "Go";
+
     final private File file;
 
     protected GoModHandler(String dir) {
-        this.file = new File(dir + "/" + "go.mod");
+        this.file = new File(dir + "/" + FILE_NAME);
     }
 
     @Override
@@ -34,64 +42,73 @@ public class GoModHandler implements PackageFileHandler {
         return this.file.getName();
     }
 
+    @Override
+    public String getEcosystem() {
+        return ECOSYSTEM;
+    }
+
     @Override
     public Map<String, String> getPackages() throws VulnerabilityException {
-        Map<String, String> packages = new HashMap<>();
+        try (InputStream in = new FileInputStream(this.file)) {
+            return this.getPackages(in);
+        } catch (IOException e) {
+            throw new VulnerabilityException("Failed to read go.mod file", e);
+        }
+    }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+    @Override
+    public Map<String, String> getPackages(InputStream content) throws VulnerabilityException {
+        final Map<String, String> required = new HashMap<>();
+        // replacements keyed by module, or by module@version when they only apply to a version
+        final Map<String, String[]> replacements = new HashMap<>();
+        final BufferedReader reader = new BufferedReader(
+            new InputStreamReader(content, StandardCharsets.UTF_8)
+        );
+        try {
+            // directive of the block being read, e.g. require, null outside of blocks
+            String block = null;
+            final List<String> tokens = new ArrayList<String>();
             String line;
-            boolean inRequireBlock = false;
-            boolean inReplaceBlock = false;
             while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (this.isRequireBlock(line)) {
-                    inRequireBlock = true;
-                    continue;
-                }
-                if (this.isReplaceBlock(line)) {
-                    inReplaceBlock = true;
-                    continue;
-                }
-                if (line.startsWith(")")) {
-                    inRequireBlock = false;
-                    inReplaceBlock = false;
+                tokenize(line, tokens);
+                if (tokens.isEmpty()) {
                     continue;
                 }
-                if (inRequireBlock) {
-                    String[] parts = line.split("\\s+");
-                    if (parts.length >= 2) {
-                        String path = parts[0];
-                        String version = parts[1];
-                        packages.put(path, version);
+                if (block != null) {
+                    if (tokens.get(0).equals(")")) {
+                        block = null;
+                    } else {
+                        this.apply(block, tokens, 0, required, replacements);
                     }
                     continue;
                 }
-                if (this.isInlineRequire(line)) {
-                    String[] parts = line.split("\\s+");
-                    String path = parts[1];
-                    String version = parts[2];
-                    packages.put(path, version);
-                    continue;
-                }
-                if (inReplaceBlock) {
-                    String[] parts = line.split("\\s+");
-                    if (parts.length == 5) {
-                        packages.remove(parts[0]);
-                        packages.put(parts[3], parts[4]);
-                    }
-                    continue;
-                }
-                if (this.isInlineReplace(line)) {
-                    String[] parts = line.split("\\s+");
-                    packages.remove(parts[1]);
-                    packages.put(parts[4], parts[5]);
-                    continue;
+
+                final String directive = tokens.get(0);
+                if (tokens.size() == 2 && tokens.get(1).equals("(")) {
+                    block = directive;
+                } else if (directive.endsWith("(")) {
+                    block = directive.substring(0, directive.length() - 1);
+                } else {
+                    this.apply(directive, tokens, 1, required, replacements);
                 }
             }
-            reader.close();
         } catch (IOException e) {
             throw new VulnerabilityException("Failed to read go.mod file", e);
         }
+
+        // replacements apply wherever they appear in the file, and only to required modules
+        final Map<String, String> packages = new HashMap<>();
+        for (Map.Entry<String, String> module : required.entrySet()) {
+            String[] replacement = replacements.get(module.getKey() + "@" + module.getValue());
+            if (replacement == null) {
+                replacement = replacements.get(module.getKey());
+            }
+            if (replacement != null) {
+                packages.put(replacement[0], replacement[1]);
+            } else {
+                packages.put(module.getKey(), module.getValue());
+            }
+        }
         return packages;
     }
 
@@ -99,26 +116,42 @@ public class GoModHandler implements PackageFileHandler {
     public boolean exists() {
         return this.file.exists();
     }
-    
-    private boolean isRequireBlock(String line) {
-        String[] parts = line.split("\\s+");
-        return line.startsWith("require(") || 
-                (line.startsWith("require") && parts.length == 2);
-    }
-
-    private boolean isInlineRequire(String line) {
-        String[] parts = line.split("\\s+");
-        return line.startsWith("require ") && parts.length == 3;
-    }
 
-    private boolean isReplaceBlock(String line) {
-        String[] parts = line.split("\\s+");
-        return line.startsWith("replace(") || 
-                (line.startsWith("replace") && parts.length == 2);
+    /**
+     * records a require or replace directive whose arguments start at the given token
+     */
+    private void apply(String directive, List<String> tokens, int start,
+            Map<String, String> required, Map<String, String[]> replacements) {
+        final int count = tokens.size() - start;
+        if (directive.equals("require") && count == 2) {
+            required.put(tokens.get(start), tokens.get(start + 1));
+        } else if (directive.equals("replace")) {
+            // old [version] => new version, replacements by a local directory have no version
+            final int arrow = tokens.indexOf("=>");
+            if (arrow > start && arrow <= start + 2 && tokens.size() - arrow - 1 == 2) {
+                final String old = arrow == start + 2 ?
+                    tokens.get(start) + "@" + tokens.get(start + 1) : tokens.get(start);
+                replacements.put(old, new String[] {tokens.get(arrow + 1), tokens.get(arrow + 2)});
+            }
+        }
     }
 
-    private boolean isInlineReplace(String line) {
-        String[] parts = line.split("\\s+");
-        return line.startsWith("replace ") && parts.length == 6;
+    /**
+     * splits a line on white space, leaving out comments
+     */
+    private static void tokenize(String line, List<String> tokens) {
+        tokens.clear();
+        final int comment = line.indexOf("//");
+        final int end = comment < 0 ? line.length() : comment;
+        int start = -1;
+        for (int i = 0; i <= end; i++) {
+            final boolean space = i == end || Character.isWhitespace(line.charAt(i));
+            if (space && start >= 0) {
+                tokens.add(line.substring(start, i));
+                start = -1;
+            } else if (!space && start < 0) {
+                start = i;
+            }
+        }
     }
 }
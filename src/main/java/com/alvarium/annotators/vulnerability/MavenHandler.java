@@ -14,27 +14,32 @@
 
 package com.alvarium.annotators.vulnerability;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 
 public class MavenHandler implements PackageFileHandler {
+    static final String FILE_NAME = "pom.xml";
+    static final String ECOSYSTEM = "Maven";
+
+    private static final XMLInputFactory xmlInputFactory = createXmlInputFactory();
+
     final private File file;
 
     protected MavenHandler(String dir) {
-        this.file = new File(dir + "/" + "pom.xml");
+        this.file = new File(dir + "/" + FILE_NAME);
     }
 
     @Override
@@ -43,59 +48,134 @@ public class MavenHandler implements PackageFileHandler {
     }
 
     @Override
-    public Map<String, String> getPackages() throws VulnerabilityException {
-        final Map<String, String> packages = new HashMap<String, String>();
-
-        final Document pom = this.getDocument();
-        NodeList deps = pom.getElementsByTagName("dependency");
-        for (int i = 0; i < deps.getLength(); i++) {
-            Node node = deps.item(i);
-            if (node.getNodeType() == Node.ELEMENT_NODE) {
-                Element dep = (Element) node;
-                String groupId = dep.getElementsByTagName("groupId").item(0).getTextContent();
-                String artifactId = dep.getElementsByTagName("artifactId").item(0).getTextContent();
-                String version = dep.getElementsByTagName("version").item(0).getTextContent();
-                packages.put(
-                    String.format("%s:%s", groupId, artifactId), 
-                    version
-                );
-            }
-        }
-        return packages;
+    public String getEcosystem() {
+        return ECOSYSTEM;
     }
 
     @Override
-    public boolean exists() {
-        return this.file.exists();
-    }
-
-    private Document getDocument() throws VulnerabilityException {
-        try {
-            final DocumentBuilder documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-            final Document doc = documentBuilder.parse(this.file);
-            doc.getDocumentElement().normalize();
-            return doc;
-        } catch (ParserConfigurationException e) {
-            throw new VulnerabilityException(
-                "Failed to configure XML reader, could not read package info from pom.xml",
-                e
-            );
+    public Map<String, String> getPackages() throws VulnerabilityException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(this.file))) {
+            return this.getPackages(in);
         } catch (IOException e) {
             throw new VulnerabilityException(
                 "Failed to read file, could not read package info from pom.xml",
                 e
             );
-        } catch (SAXException e) {
+        }
+    }
+
+    /**
+     * streams through the pom, keeping the groupId, artifactId and version of every dependency.
+     * Versions referring to a property of the pom are resolved, dependencies without a version,
+     * e.g. managed by a parent pom, are left out.
+     */
+    @Override
+    public Map<String, String> getPackages(InputStream content) throws VulnerabilityException {
+        final Map<String, String> properties = new HashMap<String, String>();
+        final List<String[]> dependencies = new ArrayList<String[]>();
+        try {
+            final XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(content);
+            try {
+                // names of the open elements, from the root
+                final List<String> path = new ArrayList<String>();
+                String[] dependency = null;
+                while (reader.hasNext()) {
+                    final int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (dependency != null && reader.getLocalName().equals("dependency")) {
+                            dependencies.add(dependency);
+                            dependency = null;
+                        }
+                        path.remove(path.size() - 1);
+                        continue;
+                    }
+                    if (event != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+
+                    final String name = reader.getLocalName();
+                    final String parent = path.isEmpty() ? null : path.get(path.size() - 1);
+                    if (name.equals("dependency")) {
+                        dependency = new String[3];
+                    } else if (dependency != null && "dependency".equals(parent)) {
+                        final int field = name.equals("groupId") ? 0
+                            : name.equals("artifactId") ? 1
+                            : name.equals("version") ? 2 : -1;
+                        if (field >= 0) {
+                            // reads up to the end of the element
+                            dependency[field] = reader.getElementText().trim();
+                            continue;
+                        }
+                    } else if (path.size() == 2 && "properties".equals(parent)) {
+                        properties.put(name, reader.getElementText().trim());
+                        continue;
+                    } else if (name.equals("version") && (path.size() == 1
+                            || (path.size() == 2 && "parent".equals(parent)))) {
+                        // the version of the project, inherited from the parent when not set
+                        final String version = reader.getElementText().trim();
+                        if (path.size() == 1 || !properties.containsKey("project.version")) {
+                            properties.put("project.version", version);
+                        }
+                        continue;
+                    }
+                    path.add(name);
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
             throw new VulnerabilityException(
                 "Bad XML file, could not read package info from pom.xml",
                 e
             );
-        } catch (Exception e) {
-            throw new VulnerabilityException(
-                "Could not read package info from pom.xml",
-                e
-            );
         }
+
+        final Map<String, String> packages = new HashMap<String, String>();
+        for (String[] dep : dependencies) {
+            final String version = resolve(dep[2], properties);
+            if (dep[0] != null && dep[1] != null && version != null) {
+                packages.put(String.format("%s:%s", dep[0], dep[1]), version);
+            }
+        }
+        return packages;
+    }
+
+    @Override
+    public boolean exists() {
+        return this.file.exists();
+    }
+
+    /**
+     * replaces the ${name} references of a value by the properties of the pom
+     * @return the resolved value, null if a reference could not be resolved
+     */
+    private static String resolve(String value, Map<String, String> properties) {
+        if (value == null) {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder();
+        int position = 0;
+        for (int start = value.indexOf("${"); start >= 0; start = value.indexOf("${", position)) {
+            final int end = value.indexOf('}', start);
+            if (end < 0) {
+                return null;
+            }
+            final String property = properties.get(value.substring(start + 2, end));
+            // properties referring to other properties are not followed
+            if (property == null || property.contains("${")) {
+                return null;
+            }
+            sb.append(value, position, start).append(property);
+            position = end + 1;
+        }
+        return sb.append(value.substring(position)).toString();
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        // a pom never needs a DTD, refusing them prevents XXE
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
     }
-    
 }
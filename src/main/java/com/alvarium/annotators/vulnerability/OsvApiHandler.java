@@ -14,66 +14,277 @@
 package com.alvarium.annotators.vulnerability;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 
+/**
+ * Queries the OSV querybatch endpoint for the vulnerabilities of a set of packages.
+ *
+ * <p>Every handler shares one pooled HTTP client, so connections are kept alive between
+ * annotations. Large dependency sets are split in batches of at most {@link #BATCH_SIZE}
+ * queries, up to {@link #MAX_CONCURRENT_BATCHES} of which are sent at the same time, and the
+ * queries whose results are paginated are sent again with their page token until every page
+ * was read. Responses are parsed as they are received.</p>
+ *
+ * <p>Connecting, waiting on a response and leasing a pooled connection are bounded by timeouts,
+ * so a hung response fails its query instead of holding a connection of the pool.</p>
+ */
 public class OsvApiHandler implements VulnerabilityApiHandler {
+    // maximum number of queries accepted by OSV in a single querybatch request
+    static final int BATCH_SIZE = 1000;
+    static final int MAX_CONCURRENT_BATCHES = 4;
+    private static final long IDLE_CONNECTION_TIMEOUT_SECONDS = 30;
+    private static final int CONNECT_TIMEOUT_MS = 10000;
+    private static final int SOCKET_TIMEOUT_MS = 30000;
+    private static final int CONNECTION_REQUEST_TIMEOUT_MS = 30000;
+
+    private static final CloseableHttpClient httpClient = createHttpClient();
+    private static final ExecutorService batches = Executors.newFixedThreadPool(
+        MAX_CONCURRENT_BATCHES,
+        r -> {
+            final Thread t = new Thread(r, "alvarium-osv-batch");
+            t.setDaemon(true);
+            return t;
+        }
+    );
+
     final private Gson gson = new Gson();
     final private VulnerabilityAnnotatorConfig cfg;
+    // null when caching is disabled
+    final private OsvResultCache cache;
+    final private int batchSize;
+    final private Logger logger;
 
     public OsvApiHandler(VulnerabilityAnnotatorConfig cfg) {
+        this(cfg, LogManager.getLogger(OsvApiHandler.class));
+    }
+
+    public OsvApiHandler(VulnerabilityAnnotatorConfig cfg, Logger logger) {
+        this(cfg, OsvResultCache.create(cfg.getCache()), BATCH_SIZE, logger);
+    }
+
+    OsvApiHandler(VulnerabilityAnnotatorConfig cfg, OsvResultCache cache, int batchSize) {
+        this(cfg, cache, batchSize, LogManager.getLogger(OsvApiHandler.class));
+    }
+
+    private OsvApiHandler(VulnerabilityAnnotatorConfig cfg, OsvResultCache cache, int batchSize,
+            Logger logger) {
         this.cfg = cfg;
+        this.cache = cache;
+        this.batchSize = batchSize;
+        this.logger = logger;
     }
 
-    private OsvBatchResponse makeApiCall(Map<String,String> packages) throws VulnerabilityException {
-        try {
-            // Create the HTTP client and POST request
-            CloseableHttpClient httpClient = HttpClients.createDefault();
-            HttpPost httpPost = new HttpPost(this.cfg.getQueryBatchPath()); 
+    private static CloseableHttpClient createHttpClient() {
+        final PoolingHttpClientConnectionManager connections =
+            new PoolingHttpClientConnectionManager();
+        connections.setMaxTotal(MAX_CONCURRENT_BATCHES * 2);
+        connections.setDefaultMaxPerRoute(MAX_CONCURRENT_BATCHES);
+        final RequestConfig requests = RequestConfig.custom()
+            .setConnectTimeout(CONNECT_TIMEOUT_MS)
+            .setSocketTimeout(SOCKET_TIMEOUT_MS)
+            .setConnectionRequestTimeout(CONNECTION_REQUEST_TIMEOUT_MS)
+            .build();
+        return HttpClients.custom()
+            .setConnectionManager(connections)
+            .setDefaultRequestConfig(requests)
+            .evictExpiredConnections()
+            .evictIdleConnections(IDLE_CONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .build();
+    }
 
-            // Set the request body
-            OsvBatchRequest req = new OsvBatchRequest(packages);
-            StringEntity entity = new StringEntity(gson.toJson(req), StandardCharsets.UTF_8);
-            httpPost.setEntity(entity);
+    private OsvBatchResponse makeApiCall(OsvBatchRequest req) throws VulnerabilityException {
+        final HttpPost httpPost = new HttpPost(this.cfg.getQueryBatchPath());
+        httpPost.setEntity(new StringEntity(gson.toJson(req), StandardCharsets.UTF_8));
+        httpPost.setHeader("Content-Type", "application/json");
 
-            // Set the content type header
-            httpPost.setHeader("Content-Type", "application/json");
+        // Closing the response releases the connection back to the pool
+        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+            final int status = response.getStatusLine().getStatusCode();
+            final HttpEntity responseEntity = response.getEntity();
+            if (status != HttpStatus.SC_OK || responseEntity == null) {
+                throw new VulnerabilityException(
+                    "Error making API call: unexpected response status " + status
+                );
+            }
 
-            // Execute the request
-            CloseableHttpResponse response = httpClient.execute(httpPost);
+            try (JsonReader reader = new JsonReader(
+                new InputStreamReader(responseEntity.getContent(), StandardCharsets.UTF_8)
+            )) {
+                final OsvBatchResponse responseBatch = gson.fromJson(
+                    reader,
+                    OsvBatchResponse.class
+                );
+                // results are returned in the order of the queries
+                if (responseBatch == null || responseBatch.results == null
+                        || responseBatch.results.size() != req.queries.size()) {
+                    throw new VulnerabilityException(
+                        "Unexpected number of results in OSV response"
+                    );
+                }
+                return responseBatch;
+            }
+        } catch (IOException | JsonParseException e) {
+            throw new VulnerabilityException("Error making API call: " + e.getMessage(), e);
+        }
+    }
 
-            // Get the response body
-            HttpEntity responseEntity = response.getEntity();
-            String responseBody = responseEntity != null ? EntityUtils.toString(responseEntity) : null;
+    /**
+     * sends a batch of queries, following the pagination of their results
+     * @return the vulnerability ids of each query, in the order of the queries
+     */
+    private List<List<String>> queryBatch(List<OsvBatchRequest.Query> queries)
+            throws VulnerabilityException {
+        final List<List<String>> ids = new ArrayList<List<String>>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            ids.add(new ArrayList<String>());
+        }
+
+        List<OsvBatchRequest.Query> pending = queries;
+        List<Integer> positions = null;
+        while (!pending.isEmpty()) {
+            final OsvBatchResponse response = makeApiCall(new OsvBatchRequest(pending));
+            final List<OsvBatchRequest.Query> nextPending = new ArrayList<OsvBatchRequest.Query>();
+            final List<Integer> nextPositions = new ArrayList<Integer>();
+            for (int i = 0; i < pending.size(); i++) {
+                final int position = positions == null ? i : positions.get(i);
+                final OsvBatchResponse.Result result = response.results.get(i);
+                ids.get(position).addAll(result.getVulnerabilityIds());
+                if (result.nextPageToken != null && !result.nextPageToken.isEmpty()) {
+                    nextPending.add(pending.get(i).withPageToken(result.nextPageToken));
+                    nextPositions.add(position);
+                }
+            }
+            pending = nextPending;
+            positions = nextPositions;
+        }
+        return ids;
+    }
 
-            OsvBatchResponse responseBatch = gson.fromJson(responseBody, OsvBatchResponse.class);
+    /**
+     * splits the queries in batches sent concurrently
+     * @return the vulnerability ids of each query, in the order of the queries
+     */
+    private List<List<String>> query(List<OsvBatchRequest.Query> queries)
+            throws VulnerabilityException {
+        if (queries.size() <= this.batchSize) {
+            return this.queryBatch(queries);
+        }
 
-            // Close the response and the client
-            response.close();
-            httpClient.close();
+        final List<Future<List<List<String>>>> futures = new ArrayList<>();
+        for (int start = 0; start < queries.size(); start += this.batchSize) {
+            final List<OsvBatchRequest.Query> batch = queries.subList(
+                start,
+                Math.min(start + this.batchSize, queries.size())
+            );
+            futures.add(batches.submit(() -> this.queryBatch(batch)));
+        }
 
-            return responseBatch;
-        } catch (IOException e) {
-            throw new VulnerabilityException("Error making API call: " + e.getMessage(), e);
+        final List<List<String>> ids = new ArrayList<List<String>>(queries.size());
+        try {
+            for (Future<List<List<String>>> future : futures) {
+                ids.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new VulnerabilityException("OSV query was interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof VulnerabilityException) {
+                throw (VulnerabilityException) e.getCause();
+            }
+            throw new VulnerabilityException("Error making API call", e);
         }
+        return ids;
     }
 
+    /**
+     * looks the packages up as Maven dependencies
+     */
+    public List<String> getVulnerabilityIds(Map<String, String> packages)
+            throws VulnerabilityException {
+        final List<Dependency> dependencies = new ArrayList<Dependency>();
+        for (Map.Entry<String, String> entry : packages.entrySet()) {
+            dependencies.add(
+                new Dependency(MavenHandler.ECOSYSTEM, entry.getKey(), entry.getValue())
+            );
+        }
+        return this.getVulnerabilityIds(dependencies);
+    }
 
-    public List<String> getVulnerabilityIds(Map<String,String> packages) throws VulnerabilityException {
-        OsvBatchResponse response = makeApiCall(packages);
-        final List<String> vulnerabilitiyIds = response.getVulnerabilityIds();
+    public List<String> getVulnerabilityIds(Collection<Dependency> dependencies)
+            throws VulnerabilityException {
+        // only the dependencies that are not cached are queried
+        final List<String> vulnerabilitiyIds = new ArrayList<String>();
+        final List<OsvBatchRequest.Query> misses = new ArrayList<OsvBatchRequest.Query>();
+        for (Dependency dependency : dependencies) {
+            final List<String> cached = this.cache == null ? null : this.cache.get(
+                dependency.getEcosystem(),
+                dependency.getName(),
+                dependency.getVersion()
+            );
+            if (cached != null) {
+                vulnerabilitiyIds.addAll(cached);
+            } else {
+                misses.add(new OsvBatchRequest.Query(
+                    dependency.getVersion(),
+                    new OsvBatchRequest.Package(dependency.getName(), dependency.getEcosystem())
+                ));
+            }
+        }
+        if (misses.isEmpty()) {
+            return vulnerabilitiyIds;
+        }
 
+        final OsvBatchRequest req = new OsvBatchRequest(misses);
+        final List<List<String>> results = this.query(req.queries);
+        for (int i = 0; i < req.queries.size(); i++) {
+            final OsvBatchRequest.Query query = req.queries.get(i);
+            if (this.cache != null) {
+                this.cache.put(
+                    query.packageInfo.ecosystem,
+                    query.packageInfo.name,
+                    query.version,
+                    results.get(i)
+                );
+            }
+            vulnerabilitiyIds.addAll(results.get(i));
+        }
+
+        if (this.cache != null) {
+            try {
+                this.cache.save();
+            } catch (IOException e) {
+                // the results are still cached in memory, saving is retried after the next query
+                this.logger.warn("Could not save OSV result cache: ", e);
+            }
+        }
         return vulnerabilitiyIds;
     }
 
@@ -30,15 +30,28 @@ public class OsvBatchRequest {
         }
     }
 
+    OsvBatchRequest(List<Query> queries) {
+        this.queries = queries;
+    }
+
     static class Query {
         @SerializedName("package") // package is a reserved keyword in Java
         public Package packageInfo;
         public String version;
+        // set to read the next page of the results of a previous query
+        @SerializedName("page_token")
+        public String pageToken;
 
         Query(String version, Package packageInfo) {
             this.version = version;
             this.packageInfo = packageInfo;
         }
+
+        Query withPageToken(String pageToken) {
+            final Query query = new Query(this.version, this.packageInfo);
+            query.pageToken = pageToken;
+            return query;
+        }
     }
 
     static class Package {
@@ -46,8 +59,12 @@ public class OsvBatchRequest {
         public String ecosystem;
 
         Package(String name) {
+            this(name, MavenHandler.ECOSYSTEM);
+        }
+
+        Package(String name, String ecosystem) {
             this.name = name;
-            this.ecosystem = "Maven";
+            this.ecosystem = ecosystem;
         }
     }
     
@@ -16,6 +16,8 @@ package com.alvarium.annotators.vulnerability;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.google.gson.annotations.SerializedName;
+
 public class OsvBatchResponse {
 
     public List<Result> results;
@@ -23,22 +25,31 @@ public class OsvBatchResponse {
     public List<String> getVulnerabilityIds() {
         List<String> vulnerabilitiesIds = new ArrayList<>();
         for (Result result : results) {
-            if (result.vulns != null) {
-                for (Vulnerability vuln : result.vulns) {
-                    if (vuln != null) {
-                        vulnerabilitiesIds.add(vuln.id);
-                    }
-                }
-            }
+            vulnerabilitiesIds.addAll(result.getVulnerabilityIds());
         }
         return vulnerabilitiesIds;
     }
     static class Result {
         public List<Vulnerability> vulns;
+        // set when the vulnerabilities of the query span more than one page
+        @SerializedName("next_page_token")
+        public String nextPageToken;
 
         public Result(List<Vulnerability> vulns) {
             this.vulns = vulns;
         }
+
+        List<String> getVulnerabilityIds() {
+            List<String> vulnerabilitiesIds = new ArrayList<>();
+            if (this.vulns != null) {
+                for (Vulnerability vuln : this.vulns) {
+                    if (vuln != null) {
+                        vulnerabilitiesIds.add(vuln.id);
+                    }
+                }
+            }
+            return vulnerabilitiesIds;
+        }
     }
 
     static class Vulnerability {
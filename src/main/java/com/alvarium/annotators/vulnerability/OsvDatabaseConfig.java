@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators.vulnerability;
+
+import java.io.Serializable;
+
+import com.google.gson.Gson;
+
+/**
+ * A unit that encapsulates where the offline OSV database is read from
+ */
+public class OsvDatabaseConfig implements Serializable {
+    /**
+     * Directory holding the OSV bulk exports, e.g. {@code Maven/all.zip} as downloaded from
+     * https://osv-vulnerabilities.storage.googleapis.com/Maven/all.zip. Zips are looked up in
+     * the directory and its direct subdirectories.
+     */
+    private final String directory;
+    /**
+     * Optional directory the indexes built from the exports are written to, the {@code .index}
+     * subdirectory of the export directory when not set.
+     */
+    private final String indexDirectory;
+
+    public OsvDatabaseConfig(String directory, String indexDirectory) {
+        this.directory = directory;
+        this.indexDirectory = indexDirectory;
+    }
+
+    public String getDirectory() {
+        return this.directory;
+    }
+
+    public String getIndexDirectory() {
+        return this.indexDirectory;
+    }
+
+    public String toJson() {
+        Gson gson = new Gson();
+        return gson.toJson(this);
+    }
+
+    public static OsvDatabaseConfig fromJson(String json) {
+        Gson gson = new Gson();
+        return gson.fromJson(json, OsvDatabaseConfig.class);
+    }
+}
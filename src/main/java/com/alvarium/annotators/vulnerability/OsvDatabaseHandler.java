@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators.vulnerability;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Looks vulnerabilities up in OSV bulk exports stored on the local file system, for sites
+ * without access to the OSV API.
+ *
+ * <p>Every export zip gets its own {@link OsvIndex}, built the first time the export is seen
+ * and reused, across restarts too, as long as the export keeps the same size and modification
+ * time. The export directory is scanned again at most every {@link #RESCAN_INTERVAL_MS}, so only
+ * the exports that were added or replaced since are indexed again, and removed exports stop
+ * being used. Queries in between only read the current indexes, without locking.</p>
+ *
+ * <p>The mapping of a replaced or removed index is released once the last query using it is
+ * done. When the export directory cannot be listed, the indexes of the previous scan keep being
+ * used until the next one.</p>
+ */
+public class OsvDatabaseHandler implements VulnerabilityApiHandler {
+    static final long RESCAN_INTERVAL_MS = 60000;
+    private static final String INDEX_DIRECTORY = ".index";
+    private static final String INDEX_SUFFIX = ".osvidx";
+
+    private final Path directory;
+    private final Path indexDirectory;
+    private final long rescanIntervalNanos;
+    private final Logger logger;
+    private volatile Snapshot snapshot;
+
+    public OsvDatabaseHandler(VulnerabilityAnnotatorConfig cfg) throws VulnerabilityException {
+        this(cfg, LogManager.getLogger(OsvDatabaseHandler.class));
+    }
+
+    public OsvDatabaseHandler(VulnerabilityAnnotatorConfig cfg, Logger logger)
+            throws VulnerabilityException {
+        this(cfg, RESCAN_INTERVAL_MS, logger);
+    }
+
+    OsvDatabaseHandler(VulnerabilityAnnotatorConfig cfg, long rescanIntervalMs)
+            throws VulnerabilityException {
+        this(cfg, rescanIntervalMs, LogManager.getLogger(OsvDatabaseHandler.class));
+    }
+
+    private OsvDatabaseHandler(VulnerabilityAnnotatorConfig cfg, long rescanIntervalMs,
+            Logger logger) throws VulnerabilityException {
+        final OsvDatabaseConfig database = cfg.getDatabase();
+        if (database == null || database.getDirectory() == null) {
+            throw new VulnerabilityException("OSV database directory not configured");
+        }
+        this.directory = Paths.get(database.getDirectory());
+        this.indexDirectory = database.getIndexDirectory() != null
+            ? Paths.get(database.getIndexDirectory())
+            : this.directory.resolve(INDEX_DIRECTORY);
+        this.rescanIntervalNanos = TimeUnit.MILLISECONDS.toNanos(rescanIntervalMs);
+        this.logger = logger;
+    }
+
+    /**
+     * looks the packages up as Maven dependencies
+     */
+    public List<String> getVulnerabilityIds(Map<String, String> packages)
+            throws VulnerabilityException {
+        final List<Dependency> dependencies = new ArrayList<Dependency>();
+        for (Map.Entry<String, String> entry : packages.entrySet()) {
+            dependencies.add(
+                new Dependency(MavenHandler.ECOSYSTEM, entry.getKey(), entry.getValue())
+            );
+        }
+        return this.getVulnerabilityIds(dependencies);
+    }
+
+    public List<String> getVulnerabilityIds(Collection<Dependency> dependencies)
+            throws VulnerabilityException {
+        final Snapshot current = this.acquire();
+        try {
+            final List<String> vulnerabilityIds = new ArrayList<String>();
+            final Set<String> ids = new LinkedHashSet<String>();
+            for (Dependency dependency : dependencies) {
+                // an advisory may list the same package more than once
+                ids.clear();
+                for (OsvIndex index : current.indexes.values()) {
+                    index.lookup(
+                        dependency.getEcosystem(),
+                        dependency.getName(),
+                        dependency.getVersion(),
+                        ids
+                    );
+                }
+                vulnerabilityIds.addAll(ids);
+            }
+            return vulnerabilityIds;
+        } finally {
+            current.release();
+        }
+    }
+
+    /**
+     * returns the current indexes, held until released, scanning the exports first when they
+     * were last scanned more than the rescan interval ago
+     */
+    private Snapshot acquire() throws VulnerabilityException {
+        while (true) {
+            Snapshot current = this.snapshot;
+            if (current == null || System.nanoTime() - current.scannedAt >= this.rescanIntervalNanos) {
+                current = this.refresh();
+            }
+            // fails if the snapshot was replaced and released meanwhile
+            if (current.acquire()) {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * indexes the exports that were added or replaced since the last scan
+     * @return the snapshot holding the index of every export
+     */
+    private synchronized Snapshot refresh() throws VulnerabilityException {
+        final Snapshot previous = this.snapshot;
+        final long now = System.nanoTime();
+        // another query may have scanned while this one waited for the lock
+        if (previous != null && now - previous.scannedAt < this.rescanIntervalNanos) {
+            return previous;
+        }
+        final Map<Path, OsvIndex> indexes = previous != null
+            ? previous.indexes : new HashMap<Path, OsvIndex>();
+
+        final List<Path> exports;
+        try (Stream<Path> files = Files.walk(this.directory, 2)) {
+            exports = files
+                .filter(p -> p.getFileName().toString().endsWith(".zip") && Files.isRegularFile(p))
+                .collect(Collectors.toList());
+        } catch (IOException e) {
+            if (previous == null) {
+                throw new VulnerabilityException("Failed to list OSV database exports", e);
+            }
+            // tried again after the next interval, not on every query meanwhile
+            this.logger.error("Failed to list OSV database exports, keeping the previous ones: ", e);
+            previous.scannedAt = now;
+            return previous;
+        }
+        if (exports.isEmpty()) {
+            throw new VulnerabilityException("No OSV database export found in " + this.directory);
+        }
+
+        final Map<Path, OsvIndex> refreshed = new HashMap<Path, OsvIndex>();
+        for (Path export : exports) {
+            try {
+                final BasicFileAttributes attrs = Files.readAttributes(
+                    export,
+                    BasicFileAttributes.class
+                );
+                final long size = attrs.size();
+                final long modified = attrs.lastModifiedTime().toMillis();
+
+                OsvIndex index = indexes.get(export);
+                if (index == null || !index.isBuiltFrom(size, modified)) {
+                    index = this.openIndex(export, size, modified);
+                }
+                refreshed.put(export, index);
+            } catch (IOException e) {
+                // an export being replaced may not be readable yet, its previous index is kept
+                final OsvIndex kept = indexes.get(export);
+                if (kept == null) {
+                    // the indexes opened by this scan are not used by anyone yet
+                    for (OsvIndex index : refreshed.values()) {
+                        if (!indexes.containsValue(index)) {
+                            index.close();
+                        }
+                    }
+                    throw new VulnerabilityException("Failed to index OSV export " + export, e);
+                }
+                refreshed.put(export, kept);
+            }
+        }
+
+        if (previous != null && refreshed.equals(indexes)) {
+            previous.scannedAt = now;
+            return previous;
+        }
+        final Snapshot current = new Snapshot(refreshed, now);
+        this.snapshot = current;
+        if (previous != null) {
+            // its indexes that are no longer used are unmapped once its last query is done
+            previous.release();
+        }
+        return current;
+    }
+
+    /**
+     * maps the index of an export, building it first if it is missing or out of date
+     */
+    private OsvIndex openIndex(Path export, long size, long modified) throws IOException {
+        // e.g. Maven/all.zip is indexed in Maven_all.zip.osvidx
+        final String name = this.directory.relativize(export).toString()
+            .replaceAll("[^a-zA-Z0-9_.-]", "_");
+        final Path path = this.indexDirectory.resolve(name + INDEX_SUFFIX);
+        if (Files.exists(path)) {
+            try {
+                final OsvIndex index = OsvIndex.open(path);
+                if (index.isBuiltFrom(size, modified)) {
+                    return index;
+                }
+                index.close();
+            } catch (IOException e) {
+                // rebuilt below
+            }
+        }
+        OsvIndex.build(export, path);
+        return OsvIndex.open(path);
+    }
+
+    /**
+     * The indexes found by one scan of the export directory. The handler holds the current
+     * snapshot and every query holds the snapshot it reads, each snapshot holding its indexes.
+     * An index is unmapped once no snapshot holds it anymore.
+     */
+    private static class Snapshot {
+        // keyed by export path
+        final Map<Path, OsvIndex> indexes;
+        volatile long scannedAt;
+        // the handler while the snapshot is current, and every query reading it
+        private final AtomicInteger users;
+
+        Snapshot(Map<Path, OsvIndex> indexes, long scannedAt) {
+            this.indexes = indexes;
+            this.scannedAt = scannedAt;
+            this.users = new AtomicInteger(1);
+            indexes.values().forEach(OsvIndex::retain);
+        }
+
+        /**
+         * @return false if the snapshot was already released by everyone
+         */
+        boolean acquire() {
+            while (true) {
+                final int count = this.users.get();
+                if (count == 0) {
+                    return false;
+                }
+                if (this.users.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void release() {
+            if (this.users.decrementAndGet() == 0) {
+                this.indexes.values().forEach(OsvIndex::release);
+            }
+        }
+    }
+}
@@ -0,0 +1,564 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators.vulnerability;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.alvarium.utils.MappedBuffers;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * <p>A memory-mapped index of the advisories of one OSV bulk export, e.g. {@code Maven/all.zip},
+ * from ecosystem and package name to the versions each advisory affects. Lookups binary search
+ * the package table and only decode the advisories of the package being looked up.</p>
+ *
+ * <p>Layout: a header holding the size and modification time of the export it was built from,
+ * a table of {@code packageCount} key and record offsets sorted by key, then the data. A key is
+ * {@code ecosystem NUL name}. The record of a package lists its advisories: id, affected
+ * versions and ECOSYSTEM or SEMVER ranges, whose events are sorted by version. GIT ranges are not
+ * indexed, advisories list the versions they map to. Strings are stored as their UTF-8 length
+ * (2) followed by their bytes.</p>
+ */
+class OsvIndex {
+    private static final int MAGIC = 0x4f535649;
+    private static final int FORMAT = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+    private static final int TABLE_ENTRY_SIZE = 8;
+
+    static final byte EVENT_INTRODUCED = 0;
+    static final byte EVENT_FIXED = 1;
+    static final byte EVENT_LAST_AFFECTED = 2;
+
+    private final MappedByteBuffer buffer;
+    // the snapshots of the handler holding the index
+    private final AtomicInteger references = new AtomicInteger();
+    private final long sourceSize;
+    private final long sourceModified;
+    private final int packageCount;
+    private final int dataOffset;
+
+    private OsvIndex(MappedByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) != FORMAT) {
+            throw new IOException("Not an OSV index");
+        }
+        this.buffer = buffer;
+        this.sourceSize = buffer.getLong(8);
+        this.sourceModified = buffer.getLong(16);
+        this.packageCount = buffer.getInt(24);
+        this.dataOffset = HEADER_SIZE + this.packageCount * TABLE_ENTRY_SIZE;
+        if (this.dataOffset > buffer.capacity()) {
+            throw new IOException("Truncated OSV index");
+        }
+    }
+
+    /**
+     * maps an index previously written by {@link #build(Path, Path)}
+     */
+    static OsvIndex open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid once the channel is closed
+            return new OsvIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * whether the index was built from the export in its current state
+     */
+    boolean isBuiltFrom(long size, long modified) {
+        return this.sourceSize == size && this.sourceModified == modified;
+    }
+
+    void retain() {
+        this.references.incrementAndGet();
+    }
+
+    /**
+     * unmaps the index once nothing holds it anymore, it must not be looked up afterwards
+     */
+    void release() {
+        if (this.references.decrementAndGet() == 0) {
+            MappedBuffers.unmap(this.buffer);
+        }
+    }
+
+    /**
+     * unmaps an index nothing holds yet
+     */
+    void close() {
+        if (this.references.get() == 0) {
+            MappedBuffers.unmap(this.buffer);
+        }
+    }
+
+    /**
+     * appends the ids of the advisories affecting a version of a package
+     * @param ecosystem OSV ecosystem of the package, e.g. Maven
+     * @param name package name as used by OSV, e.g. junit:junit
+     * @param version version of the package
+     * @param ids receives the ids
+     */
+    void lookup(String ecosystem, String name, String version, Collection<String> ids) {
+        final int record = this.find(key(ecosystem, name));
+        if (record < 0) {
+            return;
+        }
+        final byte[] versionBytes = version.getBytes(StandardCharsets.UTF_8);
+        final Reader reader = new Reader(this.buffer, this.dataOffset + record);
+        final int count = reader.readInt();
+        for (int i = 0; i < count; i++) {
+            final String id = reader.readString();
+            boolean affected = false;
+
+            final int versions = reader.readInt();
+            for (int j = 0; j < versions; j++) {
+                affected |= reader.skipString(versionBytes);
+            }
+
+            final int ranges = reader.readInt();
+            for (int j = 0; j < ranges; j++) {
+                final byte type = reader.readByte();
+                final int events = reader.readInt();
+                boolean inRange = false;
+                for (int k = 0; k < events; k++) {
+                    final byte kind = reader.readByte();
+                    final String value = reader.readString();
+                    if (affected) {
+                        continue;
+                    }
+                    final boolean initial = kind == EVENT_INTRODUCED && value.equals("0");
+                    final int c = initial ? 1 : OsvVersion.compare(ecosystem, type, version, value);
+                    if (kind == EVENT_INTRODUCED && c >= 0) {
+                        inRange = true;
+                    } else if (kind == EVENT_FIXED && c >= 0) {
+                        inRange = false;
+                    } else if (kind == EVENT_LAST_AFFECTED && c > 0) {
+                        inRange = false;
+                    }
+                }
+                affected |= inRange;
+            }
+
+            if (affected) {
+                ids.add(id);
+            }
+        }
+    }
+
+    private int find(byte[] key) {
+        int low = 0;
+        int high = this.packageCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int entry = HEADER_SIZE + mid * TABLE_ENTRY_SIZE;
+            final int c = this.compareKey(this.dataOffset + this.buffer.getInt(entry), key);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return this.buffer.getInt(entry + 4);
+            }
+        }
+        return -1;
+    }
+
+    // compares the stored key at the position with the given one, byte by byte, unsigned
+    private int compareKey(int position, byte[] key) {
+        final int length = this.buffer.getShort(position) & 0xffff;
+        for (int i = 0; i < Math.min(length, key.length); i++) {
+            final int c = Integer.compare(
+                this.buffer.get(position + 2 + i) & 0xff,
+                key[i] & 0xff
+            );
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private static byte[] key(String ecosystem, String name) {
+        return (ecosystem + "\0" + name).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * builds the index of an OSV bulk export zip, holding one JSON advisory per entry
+     * @param export path of the zip
+     * @param path path of the index, replaced atomically
+     */
+    static void build(Path export, Path path) throws IOException {
+        final long size = Files.size(export);
+        final long modified = Files.getLastModifiedTime(export).toMillis();
+
+        // packages sorted by the unsigned bytes of their key, like the lookups compare them
+        final Map<String, List<Advisory>> packages = new TreeMap<String, List<Advisory>>(
+            (a, b) -> Arrays.compareUnsigned(
+                a.getBytes(StandardCharsets.UTF_8),
+                b.getBytes(StandardCharsets.UTF_8)
+            )
+        );
+        try (ZipFile zip = new ZipFile(export.toFile(), StandardCharsets.UTF_8)) {
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory() || !entry.getName().endsWith(".json")) {
+                    continue;
+                }
+                try (JsonReader reader = new JsonReader(new InputStreamReader(
+                    zip.getInputStream(entry),
+                    StandardCharsets.UTF_8
+                ))) {
+                    readAdvisory(reader, packages);
+                }
+            }
+        }
+
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        final DataOutputStream dataOut = new DataOutputStream(data);
+        final int[] offsets = new int[packages.size() * 2];
+        int i = 0;
+        for (Map.Entry<String, List<Advisory>> e : packages.entrySet()) {
+            offsets[i++] = dataOut.size();
+            writeString(dataOut, e.getKey());
+            offsets[i++] = dataOut.size();
+            final String ecosystem = e.getKey().substring(0, e.getKey().indexOf('\0'));
+            dataOut.writeInt(e.getValue().size());
+            for (Advisory advisory : e.getValue()) {
+                advisory.write(ecosystem, dataOut);
+            }
+        }
+        dataOut.flush();
+
+        final Path absolute = path.toAbsolutePath();
+        Files.createDirectories(absolute.getParent());
+        // unique, so that handlers building the same index at once do not write the same file
+        final Path tmp = Files.createTempFile(absolute.getParent(),
+            absolute.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream file = Files.newOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT);
+                out.writeLong(size);
+                out.writeLong(modified);
+                out.writeInt(packages.size());
+                for (int offset : offsets) {
+                    out.writeInt(offset);
+                }
+                data.writeTo(out);
+            }
+            Files.move(tmp, absolute, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * reads an OSV advisory, adding it to every package it affects
+     */
+    private static void readAdvisory(JsonReader reader, Map<String, List<Advisory>> packages)
+            throws IOException {
+        String id = null;
+        boolean withdrawn = false;
+        final List<Affected> affected = new ArrayList<Affected>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "id":
+                    id = reader.nextString();
+                    break;
+                case "withdrawn":
+                    withdrawn = true;
+                    reader.skipValue();
+                    break;
+                case "affected":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        affected.add(Affected.read(reader));
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (id == null || withdrawn) {
+            return;
+        }
+        for (Affected a : affected) {
+            if (a.ecosystem == null || a.name == null) {
+                continue;
+            }
+            packages.computeIfAbsent(a.ecosystem + "\0" + a.name, k -> new ArrayList<Advisory>())
+                .add(new Advisory(id, a));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xffff) {
+            throw new IOException("OSV index string too long");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * An affected entry of an advisory: a package, its affected versions and version ranges
+     */
+    private static class Affected {
+        String ecosystem;
+        String name;
+        final List<String> versions = new ArrayList<String>();
+        final List<Range> ranges = new ArrayList<Range>();
+
+        static Affected read(JsonReader reader) throws IOException {
+            final Affected affected = new Affected();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "package":
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            final String field = reader.nextName();
+                            if (field.equals("ecosystem") && reader.peek() == JsonToken.STRING) {
+                                affected.ecosystem = reader.nextString();
+                            } else if (field.equals("name")
+                                    && reader.peek() == JsonToken.STRING) {
+                                affected.name = reader.nextString();
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                        break;
+                    case "versions":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            affected.versions.add(reader.nextString());
+                        }
+                        reader.endArray();
+                        break;
+                    case "ranges":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            final Range range = Range.read(reader);
+                            if (range != null) {
+                                affected.ranges.add(range);
+                            }
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return affected;
+        }
+    }
+
+    /**
+     * An ECOSYSTEM or SEMVER range of an affected entry
+     */
+    private static class Range {
+        byte type;
+        final List<Byte> kinds = new ArrayList<Byte>();
+        final List<String> values = new ArrayList<String>();
+
+        /**
+         * reads a range, returns null for ranges that are not indexed
+         */
+        static Range read(JsonReader reader) throws IOException {
+            final Range range = new Range();
+            String type = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+                if (name.equals("type") && reader.peek() == JsonToken.STRING) {
+                    type = reader.nextString();
+                } else if (name.equals("events") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            final String kind = reader.nextName();
+                            final byte code = kind.equals("introduced") ? EVENT_INTRODUCED
+                                : kind.equals("fixed") ? EVENT_FIXED
+                                : kind.equals("last_affected") ? EVENT_LAST_AFFECTED : -1;
+                            if (code >= 0 && reader.peek() == JsonToken.STRING) {
+                                range.kinds.add(code);
+                                range.values.add(reader.nextString());
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if ("ECOSYSTEM".equals(type)) {
+                range.type = OsvVersion.RANGE_ECOSYSTEM;
+            } else if ("SEMVER".equals(type)) {
+                range.type = OsvVersion.RANGE_SEMVER;
+            } else {
+                return null;
+            }
+            return range;
+        }
+    }
+
+    /**
+     * An advisory affecting a package, as written to the index
+     */
+    private static class Advisory {
+        final String id;
+        final Affected affected;
+
+        Advisory(String id, Affected affected) {
+            this.id = id;
+            this.affected = affected;
+        }
+
+        void write(String ecosystem, DataOutputStream out) throws IOException {
+            writeString(out, this.id);
+            out.writeInt(this.affected.versions.size());
+            for (String version : this.affected.versions) {
+                writeString(out, version);
+            }
+            out.writeInt(this.affected.ranges.size());
+            for (Range range : this.affected.ranges) {
+                // events are evaluated in version order, introduced "0" first
+                final List<Integer> order = new ArrayList<Integer>();
+                for (int i = 0; i < range.kinds.size(); i++) {
+                    order.add(i);
+                }
+                order.sort((a, b) -> {
+                    final boolean initialA = isInitial(range, a);
+                    final boolean initialB = isInitial(range, b);
+                    if (initialA || initialB) {
+                        return Boolean.compare(initialB, initialA);
+                    }
+                    return OsvVersion.compare(
+                        ecosystem,
+                        range.type,
+                        range.values.get(a),
+                        range.values.get(b)
+                    );
+                });
+
+                out.writeByte(range.type);
+                out.writeInt(order.size());
+                for (int i : order) {
+                    out.writeByte(range.kinds.get(i));
+                    writeString(out, range.values.get(i));
+                }
+            }
+        }
+
+        private static boolean isInitial(Range range, int i) {
+            return range.kinds.get(i) == EVENT_INTRODUCED && range.values.get(i).equals("0");
+        }
+    }
+
+    /**
+     * Sequential reads from an absolute position of the shared buffer, which is never moved
+     */
+    private static class Reader {
+        private final ByteBuffer buffer;
+        private int position;
+
+        Reader(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        byte readByte() {
+            return this.buffer.get(this.position++);
+        }
+
+        int readInt() {
+            final int value = this.buffer.getInt(this.position);
+            this.position += 4;
+            return value;
+        }
+
+        String readString() {
+            final int length = this.buffer.getShort(this.position) & 0xffff;
+            final byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = this.buffer.get(this.position + 2 + i);
+            }
+            this.position += 2 + length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * skips a string, returns whether it equals the given bytes
+         */
+        boolean skipString(byte[] expected) {
+            final int length = this.buffer.getShort(this.position) & 0xffff;
+            boolean equal = length == expected.length;
+            for (int i = 0; equal && i < length; i++) {
+                equal = this.buffer.get(this.position + 2 + i) == expected[i];
+            }
+            this.position += 2 + length;
+            return equal;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators.vulnerability;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * <p>Remembers the vulnerability ids the provider returned for each package, keyed by
+ * ecosystem, package name and version. Entries expire after the configured time to live, so
+ * that vulnerabilities published in the meantime are eventually picked up.</p>
+ *
+ * <p>When a path is configured, the cache is loaded from it on creation and saved to it after
+ * every update, so that a restarted annotator does not query every package again. Expired
+ * entries are dropped on load, when they are looked up and when the cache is saved. A cache
+ * that cannot be read is ignored.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+class OsvResultCache {
+    static final long DEFAULT_TTL_MS = 60 * 60 * 1000;
+    private static final int VERSION = 1;
+
+    private final Gson gson = new Gson();
+    private final long ttlMs;
+    private final Path path;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries;
+    private volatile boolean dirty;
+
+    OsvResultCache(long ttlMs, Path path, LongSupplier clock) {
+        this.ttlMs = ttlMs;
+        this.path = path;
+        this.clock = clock;
+        this.entries = new ConcurrentHashMap<String, Entry>();
+    }
+
+    /**
+     * creates the cache described by the configuration, loading its file when there is one
+     * @param cfg cache configuration, null when caching is not configured
+     * @return the cache or null if caching is disabled
+     */
+    static OsvResultCache create(VulnerabilityCacheConfig cfg) {
+        return create(cfg, System::currentTimeMillis);
+    }
+
+    static OsvResultCache create(VulnerabilityCacheConfig cfg, LongSupplier clock) {
+        // every annotation queries the provider unless a cache is configured
+        if (cfg == null || cfg.getTtlMs() < 0) {
+            return null;
+        }
+        final OsvResultCache cache = new OsvResultCache(
+            cfg.getTtlMs() == 0 ? DEFAULT_TTL_MS : cfg.getTtlMs(),
+            cfg.getPath() == null ? null : Paths.get(cfg.getPath()),
+            clock
+        );
+        cache.load();
+        return cache;
+    }
+
+    /**
+     * returns the vulnerability ids of a package
+     * @return the ids, or null if the package is not cached or its entry expired
+     */
+    List<String> get(String ecosystem, String name, String version) {
+        final String key = key(ecosystem, name, version);
+        final Entry entry = this.entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (this.isExpired(entry)) {
+            // unless it was replaced meanwhile
+            this.entries.remove(key, entry);
+            return null;
+        }
+        return entry.ids;
+    }
+
+    int size() {
+        return this.entries.size();
+    }
+
+    void put(String ecosystem, String name, String version, List<String> ids) {
+        final Entry entry = new Entry(
+            ecosystem,
+            name,
+            version,
+            Collections.unmodifiableList(new ArrayList<String>(ids)),
+            this.clock.getAsLong()
+        );
+        this.entries.put(key(ecosystem, name, version), entry);
+        this.dirty = true;
+    }
+
+    /**
+     * drops the expired entries, then writes the cache to its file if it changed since it was
+     * last saved
+     */
+    synchronized void save() throws IOException {
+        this.entries.values().removeIf(this::isExpired);
+        if (this.path == null || !this.dirty) {
+            return;
+        }
+        this.dirty = false;
+
+        final Document document = new Document();
+        document.version = VERSION;
+        document.entries = new ArrayList<Entry>(this.entries.values());
+
+        final Path absolute = this.path.toAbsolutePath();
+        final Path tmp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(absolute.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                this.gson.toJson(document, writer);
+            }
+            Files.move(tmp, absolute, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // saved again with the next update
+            this.dirty = true;
+            throw e;
+        }
+    }
+
+    private void load() {
+        if (this.path == null) {
+            return;
+        }
+        final Document document;
+        try (BufferedReader reader = Files.newBufferedReader(this.path, StandardCharsets.UTF_8)) {
+            document = this.gson.fromJson(reader, Document.class);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException | JsonParseException e) {
+            // the cache is rebuilt from the provider
+            return;
+        }
+        if (document == null || document.version != VERSION || document.entries == null) {
+            return;
+        }
+
+        for (Entry entry : document.entries) {
+            if (entry.ids != null && !this.isExpired(entry)) {
+                this.entries.put(key(entry.ecosystem, entry.name, entry.version), entry);
+            }
+        }
+    }
+
+    private boolean isExpired(Entry entry) {
+        return this.clock.getAsLong() - entry.fetchedAt >= this.ttlMs;
+    }
+
+    // none of the parts may contain a newline
+    private static String key(String ecosystem, String name, String version) {
+        return ecosystem + "\n" + name + "\n" + version;
+    }
+
+    /**
+     * Vulnerability ids of a package and the time they were fetched
+     */
+    private static class Entry {
+        String ecosystem;
+        String name;
+        String version;
+        List<String> ids;
+        long fetchedAt;
+
+        Entry(String ecosystem, String name, String version, List<String> ids, long fetchedAt) {
+            this.ecosystem = ecosystem;
+            this.name = name;
+            this.version = version;
+            this.ids = ids;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    /**
+     * Layout of the cache file
+     */
+    private static class Document {
+        int version;
+        List<Entry> entries;
+    }
+}
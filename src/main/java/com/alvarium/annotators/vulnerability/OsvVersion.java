@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators.vulnerability;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Orders the versions found in the ranges of OSV advisories.
+ *
+ * <p>SEMVER ranges, and every range of the Go ecosystem, follow semantic versioning with an
+ * optional {@code v} prefix. Other ecosystems are ordered like Maven orders versions, which
+ * also suits most dotted version schemes: versions are split in numbers and qualifiers, numbers
+ * are compared numerically, and the well known qualifiers are ordered
+ * {@code alpha < beta < milestone < rc < snapshot < release < sp}. This is an approximation of
+ * the ordering of each ecosystem, versions listed explicitly by an advisory are always matched
+ * exactly.</p>
+ */
+class OsvVersion {
+    static final byte RANGE_ECOSYSTEM = 0;
+    static final byte RANGE_SEMVER = 1;
+
+    private static final String[] QUALIFIERS = {
+        "alpha", "beta", "milestone", "rc", "snapshot", "", "sp"
+    };
+    private static final int RELEASE = 5;
+
+    private OsvVersion() {}
+
+    /**
+     * compares two versions of a package
+     * @param ecosystem ecosystem of the package
+     * @param rangeType RANGE_ECOSYSTEM or RANGE_SEMVER
+     * @return a negative number, zero or a positive number as a is lower, equal or greater
+     */
+    static int compare(String ecosystem, byte rangeType, String a, String b) {
+        if (rangeType == RANGE_SEMVER || "Go".equals(ecosystem)) {
+            return compareSemver(a, b);
+        }
+        return compareTokens(tokenize(a), tokenize(b));
+    }
+
+    static int compareSemver(String a, String b) {
+        a = stripBuild(stripPrefix(a));
+        b = stripBuild(stripPrefix(b));
+        final int dashA = a.indexOf('-');
+        final int dashB = b.indexOf('-');
+        final String coreA = dashA < 0 ? a : a.substring(0, dashA);
+        final String coreB = dashB < 0 ? b : b.substring(0, dashB);
+
+        final String[] partsA = coreA.split("\\.");
+        final String[] partsB = coreB.split("\\.");
+        for (int i = 0; i < Math.max(partsA.length, partsB.length); i++) {
+            final int c = compareNumbers(
+                i < partsA.length ? partsA[i] : "0",
+                i < partsB.length ? partsB[i] : "0"
+            );
+            if (c != 0) {
+                return c;
+            }
+        }
+
+        // a pre-release is lower than the release
+        if (dashA < 0 || dashB < 0) {
+            return dashA < 0 ? (dashB < 0 ? 0 : 1) : -1;
+        }
+        final String[] preA = a.substring(dashA + 1).split("\\.");
+        final String[] preB = b.substring(dashB + 1).split("\\.");
+        for (int i = 0; i < Math.min(preA.length, preB.length); i++) {
+            final boolean numericA = isNumber(preA[i]);
+            final boolean numericB = isNumber(preB[i]);
+            final int c;
+            if (numericA && numericB) {
+                c = compareNumbers(preA[i], preB[i]);
+            } else if (numericA || numericB) {
+                c = numericA ? -1 : 1;
+            } else {
+                c = preA[i].compareTo(preB[i]);
+            }
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(preA.length, preB.length);
+    }
+
+    private static int compareTokens(List<String> a, List<String> b) {
+        for (int i = 0; i < Math.max(a.size(), b.size()); i++) {
+            final String tokenA = i < a.size() ? a.get(i) : null;
+            final String tokenB = i < b.size() ? b.get(i) : null;
+            final int c = compareToken(tokenA, tokenB);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    // a missing token is 0 when compared to a number and a release when compared to a qualifier
+    private static int compareToken(String a, String b) {
+        final boolean numericA = a == null ? b == null || isNumber(b) : isNumber(a);
+        final boolean numericB = b == null ? numericA : isNumber(b);
+        if (numericA && numericB) {
+            return compareNumbers(a == null ? "0" : a, b == null ? "0" : b);
+        }
+        if (numericA != numericB) {
+            // 1.0.1 is greater than 1.0-sp, which is greater than 1.0
+            return numericA ? 1 : -1;
+        }
+        final int rankA = a == null ? RELEASE : rank(a);
+        final int rankB = b == null ? RELEASE : rank(b);
+        if (rankA != rankB) {
+            return Integer.compare(rankA, rankB);
+        }
+        return rankA == QUALIFIERS.length ? a.compareTo(b) : 0;
+    }
+
+    private static int rank(String qualifier) {
+        switch (qualifier) {
+            case "a":
+                return 0;
+            case "b":
+                return 1;
+            case "m":
+                return 2;
+            case "cr":
+                return 3;
+            case "ga":
+            case "final":
+            case "release":
+                return RELEASE;
+            default:
+                for (int i = 0; i < QUALIFIERS.length; i++) {
+                    if (QUALIFIERS[i].equals(qualifier)) {
+                        return i;
+                    }
+                }
+                // unknown qualifiers come after the known ones
+                return QUALIFIERS.length;
+        }
+    }
+
+    /**
+     * splits a version in numbers and lowercase qualifiers, dropping separators
+     */
+    private static List<String> tokenize(String version) {
+        final List<String> tokens = new ArrayList<String>();
+        final String v = stripPrefix(version).toLowerCase();
+        int start = 0;
+        for (int i = 1; i <= v.length(); i++) {
+            if (i == v.length() || isSeparator(v.charAt(i))
+                    || Character.isDigit(v.charAt(i)) != Character.isDigit(v.charAt(i - 1))) {
+                if (start < i && !isSeparator(v.charAt(start))) {
+                    tokens.add(v.substring(start, i));
+                }
+                start = i < v.length() && isSeparator(v.charAt(i)) ? i + 1 : i;
+            }
+        }
+        // trailing zeros and release qualifiers do not change the version, 1.0 equals 1
+        while (!tokens.isEmpty()) {
+            final String last = tokens.get(tokens.size() - 1);
+            if (isNumber(last) ? compareNumbers(last, "0") != 0 : rank(last) != RELEASE) {
+                break;
+            }
+            tokens.remove(tokens.size() - 1);
+        }
+        return tokens;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '.' || c == '-' || c == '_' || c == '+';
+    }
+
+    private static boolean isNumber(String s) {
+        if (s.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isDigit(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // compares digit strings of any length
+    private static int compareNumbers(String a, String b) {
+        a = stripZeros(a);
+        b = stripZeros(b);
+        if (!isNumber(a) || !isNumber(b)) {
+            return a.compareTo(b);
+        }
+        return a.length() != b.length() ? Integer.compare(a.length(), b.length()) : a.compareTo(b);
+    }
+
+    private static String stripZeros(String s) {
+        int i = 0;
+        while (i < s.length() - 1 && s.charAt(i) == '0') {
+            i++;
+        }
+        return s.substring(i);
+    }
+
+    private static String stripPrefix(String version) {
+        if (version.length() > 1 && (version.charAt(0) == 'v' || version.charAt(0) == 'V')
+                && Character.isDigit(version.charAt(1))) {
+            return version.substring(1);
+        }
+        return version;
+    }
+
+    private static String stripBuild(String version) {
+        final int plus = version.indexOf('+');
+        return plus < 0 ? version : version.substring(0, plus);
+    }
+}
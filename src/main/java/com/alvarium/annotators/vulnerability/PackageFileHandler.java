@@ -14,12 +14,27 @@
 
 package com.alvarium.annotators.vulnerability;
 
+import java.io.InputStream;
 import java.util.Map;
 
 
 public interface PackageFileHandler {
     String getFileName();
+    /**
+     * returns the OSV ecosystem of the packages listed by the package file, e.g. Maven. Defaults
+     * to Maven, the only ecosystem package files were read for before.
+     */
+    default String getEcosystem() {
+        return MavenHandler.ECOSYSTEM;
+    }
     Map<String, String> getPackages() throws VulnerabilityException;
+    /**
+     * reads the packages from the given content of a package file, the stream is not closed.
+     * Handlers that cannot parse a stream read their package file instead by default.
+     */
+    default Map<String, String> getPackages(InputStream content) throws VulnerabilityException {
+        return this.getPackages();
+    }
     boolean exists();
 }
 
@@ -14,7 +14,12 @@
 
 package com.alvarium.annotators.vulnerability;
 
+import java.nio.file.Path;
+import java.util.Set;
+
 public class PackageFileHandlerFactory {
+    // names of the package files a handler exists for
+    static final Set<String> FILE_NAMES = Set.of(MavenHandler.FILE_NAME, GoModHandler.FILE_NAME);
     
     public PackageFileHandler getHandler(String dir) throws VulnerabilityException {
         final PackageFileHandler[] handlers = {
@@ -30,4 +35,22 @@ public class PackageFileHandlerFactory {
 
         throw new VulnerabilityException("Could not find a supported package file");
     }
+
+    /**
+     * returns the handler of the given package file
+     * @param file path of a package file, e.g. a/b/pom.xml
+     * @return handler reading the file
+     * @throws VulnerabilityException if the file is not a supported package file
+     */
+    public PackageFileHandler getHandler(Path file) throws VulnerabilityException {
+        final String dir = file.toAbsolutePath().getParent().toString();
+        switch (file.getFileName().toString()) {
+            case MavenHandler.FILE_NAME:
+                return new MavenHandler(dir);
+            case GoModHandler.FILE_NAME:
+                return new GoModHandler(dir);
+            default:
+                throw new VulnerabilityException("Unsupported package file " + file);
+        }
+    }
 }
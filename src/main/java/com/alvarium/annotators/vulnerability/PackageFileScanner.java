@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators.vulnerability;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.alvarium.hash.HashProviderFactory;
+import com.alvarium.hash.HashType;
+import com.alvarium.hash.HashTypeException;
+
+/**
+ * <p>Finds every supported package file of a directory tree, e.g. each module of a monorepo,
+ * and reads the dependencies they list, tagged with the ecosystem of their package file.</p>
+ *
+ * <p>Package files are read in parallel. The dependencies of each file are cached by the digest
+ * of its content, so a package file that did not change is not parsed again. Hidden
+ * directories, directories holding build outputs or vendored dependencies, and test resource
+ * directories (test/resources and Go testdata) are not walked. A package file that cannot be
+ * read or parsed is logged and left out, the scan only fails if no package file could be
+ * read.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ */
+public class PackageFileScanner {
+    private static final Set<String> SKIPPED_DIRECTORIES = Set.of(
+        "build", "node_modules", "target", "testdata", "vendor"
+    );
+    private static final int MAX_CACHED_FILES = 1024;
+    private static final ForkJoinPool pool = new ForkJoinPool(
+        Runtime.getRuntime().availableProcessors()
+    );
+
+    private final PackageFileHandlerFactory factory = new PackageFileHandlerFactory();
+    private final Map<String, List<Dependency>> cache =
+        new ConcurrentHashMap<String, List<Dependency>>();
+    private final Logger logger;
+
+    public PackageFileScanner() {
+        this(LogManager.getLogger(PackageFileScanner.class));
+    }
+
+    public PackageFileScanner(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * reads the dependencies of every package file found under a directory
+     * @param dir root of the directory tree
+     * @return dependencies of every package file, each listed once
+     * @throws VulnerabilityException if no package file was found or none could be read
+     */
+    public Set<Dependency> scan(String dir) throws VulnerabilityException {
+        final List<Path> files = this.find(Paths.get(dir));
+        if (files.isEmpty()) {
+            throw new VulnerabilityException("Could not find a supported package file");
+        }
+
+        final List<Future<List<Dependency>>> reads = new ArrayList<Future<List<Dependency>>>();
+        for (Path file : files) {
+            reads.add(pool.submit(() -> this.read(file)));
+        }
+
+        final Set<Dependency> dependencies = new LinkedHashSet<Dependency>();
+        VulnerabilityException failure = null;
+        int read = 0;
+        for (int i = 0; i < reads.size(); i++) {
+            try {
+                dependencies.addAll(reads.get(i).get());
+                read++;
+            } catch (InterruptedException e) {
+                reads.forEach(r -> r.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new VulnerabilityException("Package file scan was interrupted", e);
+            } catch (ExecutionException e) {
+                // e.g. a malformed fixture, the other package files are still checked
+                final VulnerabilityException error = e.getCause() instanceof VulnerabilityException
+                    ? (VulnerabilityException) e.getCause()
+                    : new VulnerabilityException("Failed to read package file " + files.get(i), e);
+                this.logger.warn("Skipping package file {}: ", files.get(i), error);
+                if (failure == null) {
+                    failure = error;
+                }
+            }
+        }
+        if (read == 0) {
+            throw failure;
+        }
+        return dependencies;
+    }
+
+    /**
+     * lists the package files of a directory tree, sorted by path so that scans are repeatable
+     */
+    private List<Path> find(Path root) throws VulnerabilityException {
+        final List<Path> files = new ArrayList<Path>();
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (dir.equals(root)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    final String name = dir.getFileName().toString();
+                    return name.startsWith(".") || SKIPPED_DIRECTORIES.contains(name)
+                        || isTestResources(dir)
+                        ? FileVisitResult.SKIP_SUBTREE
+                        : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && PackageFileHandlerFactory.FILE_NAMES.contains(
+                        file.getFileName().toString()
+                    )) {
+                        files.add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e)
+                        throws IOException {
+                    if (file.equals(root)) {
+                        throw e;
+                    }
+                    // unreadable entries cannot hold a package file we could read
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new VulnerabilityException("Failed to list package files in " + root, e);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * tells whether the directory holds test resources, e.g. src/test/resources, whose package
+     * files are fixtures rather than modules
+     */
+    private static boolean isTestResources(Path dir) {
+        final Path parent = dir.getParent();
+        return dir.getFileName().toString().equals("resources") && parent != null
+            && parent.getFileName() != null && parent.getFileName().toString().equals("test");
+    }
+
+    private List<Dependency> read(Path file) throws VulnerabilityException {
+        final PackageFileHandler handler = this.factory.getHandler(file);
+        final byte[] content;
+        try {
+            content = Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new VulnerabilityException("Failed to read package file " + file, e);
+        }
+
+        final String key = handler.getEcosystem() + ":" + digest(content);
+        final List<Dependency> cached = this.cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final List<Dependency> dependencies = new ArrayList<Dependency>();
+        final Map<String, String> packages = handler.getPackages(
+            new ByteArrayInputStream(content)
+        );
+        for (Map.Entry<String, String> entry : packages.entrySet()) {
+            dependencies.add(
+                new Dependency(handler.getEcosystem(), entry.getKey(), entry.getValue())
+            );
+        }
+        if (this.cache.size() >= MAX_CACHED_FILES) {
+            this.cache.clear();
+        }
+        this.cache.put(key, Collections.unmodifiableList(dependencies));
+        return dependencies;
+    }
+
+    private static String digest(byte[] content) throws VulnerabilityException {
+        try {
+            return new HashProviderFactory().getProvider(HashType.SHA256Hash).derive(content);
+        } catch (HashTypeException e) {
+            throw new VulnerabilityException("Failed to hash package file", e);
+        }
+    }
+}
@@ -25,13 +25,27 @@ public class VulnerabilityAnnotatorConfig extends AnnotatorConfig {
     private final VulnerabilityProviderType type;
     private final ServiceInfo provider;
     private final EndpointPaths paths;
+    private final VulnerabilityCacheConfig cache;
+    private final OsvDatabaseConfig database;
     
 
     VulnerabilityAnnotatorConfig(ServiceInfo provider, VulnerabilityProviderType type, EndpointPaths paths) {
+        this(provider, type, paths, null);
+    }
+
+    VulnerabilityAnnotatorConfig(ServiceInfo provider, VulnerabilityProviderType type,
+            EndpointPaths paths, VulnerabilityCacheConfig cache) {
+        this(provider, type, paths, cache, null);
+    }
+
+    VulnerabilityAnnotatorConfig(ServiceInfo provider, VulnerabilityProviderType type,
+            EndpointPaths paths, VulnerabilityCacheConfig cache, OsvDatabaseConfig database) {
         super(AnnotationType.VULNERABILITY);
         this.provider = provider;
         this.type = type;
         this.paths = paths;
+        this.cache = cache;
+        this.database = database;
     }
 
     public ServiceInfo getProvider() {
@@ -42,6 +56,21 @@ public class VulnerabilityAnnotatorConfig extends AnnotatorConfig {
         return this.type;
     }
 
+    /**
+     * returns the cache configuration, null when not configured in which case results are not
+     * cached
+     */
+    public VulnerabilityCacheConfig getCache() {
+        return this.cache;
+    }
+
+    /**
+     * returns the offline database configuration, used by the osv-offline provider type
+     */
+    public OsvDatabaseConfig getDatabase() {
+        return this.database;
+    }
+
     public String getQueryBatchPath() {
         return this.provider.uri() + this.paths.getBatchQuery();
     }
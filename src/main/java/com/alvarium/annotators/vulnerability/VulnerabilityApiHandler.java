@@ -13,11 +13,34 @@
  *******************************************************************************/
 package com.alvarium.annotators.vulnerability;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 
 public interface VulnerabilityApiHandler {
+    /**
+     * returns the ids of the vulnerabilities affecting the given dependencies, which may belong
+     * to different ecosystems. Defaults to passing the Maven dependencies to
+     * {@link #getVulnerabilityIds(Map)}, the others are not looked up by handlers that only
+     * know Maven packages.
+     */
+    default List<String> getVulnerabilityIds(Collection<Dependency> dependencies)
+            throws VulnerabilityException {
+        final Map<String, String> packages = new HashMap<String, String>();
+        for (Dependency dependency : dependencies) {
+            if (MavenHandler.ECOSYSTEM.equals(dependency.getEcosystem())) {
+                packages.put(dependency.getName(), dependency.getVersion());
+            }
+        }
+        return this.getVulnerabilityIds(packages);
+    }
+
+    /**
+     * returns the ids of the vulnerabilities affecting the given Maven packages
+     * @param packages versions keyed by package name
+     */
     List<String> getVulnerabilityIds(Map<String, String> packages) throws VulnerabilityException;
 
 }
\ No newline at end of file
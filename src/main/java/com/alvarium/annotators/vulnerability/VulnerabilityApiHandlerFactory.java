@@ -13,13 +13,23 @@
  *******************************************************************************/
 package com.alvarium.annotators.vulnerability;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
 public class VulnerabilityApiHandlerFactory {
     public VulnerabilityApiHandler getHandler(VulnerabilityAnnotatorConfig cfg
+    ) throws VulnerabilityException {
+        return this.getHandler(cfg, LogManager.getLogger(VulnerabilityApiHandler.class));
+    }
+
+    public VulnerabilityApiHandler getHandler(VulnerabilityAnnotatorConfig cfg, Logger logger
     ) throws VulnerabilityException {
         //switch case on apiProvider
         switch (cfg.getProviderType()) {
             case OSV:
-                return new OsvApiHandler(cfg);
+                return new OsvApiHandler(cfg, logger);
+            case OSV_OFFLINE:
+                return new OsvDatabaseHandler(cfg, logger);
             default:
                 throw new VulnerabilityException("Vulnerability api provider not found");
         }
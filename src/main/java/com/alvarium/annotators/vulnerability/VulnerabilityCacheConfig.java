@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators.vulnerability;
+
+import java.io.Serializable;
+
+import com.google.gson.Gson;
+
+/**
+ * A unit that encapsulates how the vulnerabilities found for each package are cached between
+ * annotations. Results are only cached when this configuration is present.
+ */
+public class VulnerabilityCacheConfig implements Serializable {
+    /**
+     * How long the vulnerabilities of a package are reused before querying the provider again,
+     * in milliseconds. 1 hour when not set, a negative value disables the cache.
+     */
+    private final long ttlMs;
+    /**
+     * Optional file the cache is persisted to, so that it survives restarts.
+     */
+    private final String path;
+
+    public VulnerabilityCacheConfig(long ttlMs, String path) {
+        this.ttlMs = ttlMs;
+        this.path = path;
+    }
+
+    public long getTtlMs() {
+        return this.ttlMs;
+    }
+
+    public String getPath() {
+        return this.path;
+    }
+
+    public String toJson() {
+        Gson gson = new Gson();
+        return gson.toJson(this);
+    }
+
+    public static VulnerabilityCacheConfig fromJson(String json) {
+        Gson gson = new Gson();
+        return gson.fromJson(json, VulnerabilityCacheConfig.class);
+    }
+}
@@ -18,5 +18,7 @@ import com.google.gson.annotations.SerializedName;
 
 public enum VulnerabilityProviderType {
     @SerializedName("osv")
-    OSV
+    OSV,
+    @SerializedName("osv-offline")
+    OSV_OFFLINE
 }
@@ -20,11 +20,10 @@ import java.time.Instant;
 
 import com.alvarium.hash.HashType;
 import com.alvarium.serializers.InstantConverter;
+import com.alvarium.utils.AnnotationClock;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
-import de.huxhorn.sulky.ulid.ULID;
-
 /**
  * A java bean that encapsulates all of the data related to a specific annotation.
  * this will be generated by the annotators.
@@ -45,11 +44,14 @@ public class Annotation implements Serializable {
   // it is utilized to retrieve the commit SHA of the workload where the application is running,
   // which is instrumental in tracing the impact on the current layer's score from the lower layers.
   public static final String TAG_ENV_KEY = "TAG";
+  // Gson instances are thread-safe, so one is shared by every annotation
+  private static final Gson gson = new GsonBuilder()
+      .registerTypeAdapter(Instant.class, new InstantConverter())
+      .create();
 
   public Annotation(String key, HashType hash, String host, LayerType layer, AnnotationType kind, String signature,
       Boolean isSatisfied, Instant timestamp) {
-    ULID ulid = new ULID();
-    this.id = ulid.nextULID(); 
+    this.id = AnnotationClock.getDefault().nextId();
     this.key = key;
     this.hash = hash;
     this.host = host;
@@ -114,8 +116,6 @@ public class Annotation implements Serializable {
      * @return json string representation
      */ 
     public String toJson() {
-      Gson gson = new GsonBuilder().registerTypeAdapter(Instant.class, new InstantConverter())
-          .create();
       return gson.toJson(this, Annotation.class);
     }
 
@@ -125,8 +125,6 @@ public class Annotation implements Serializable {
     * @return Annotation Object
     */  
     public static Annotation fromJson(String json) {
-      Gson gson = new GsonBuilder().registerTypeAdapter(Instant.class, new InstantConverter())
-          .create();
       return gson.fromJson(json, Annotation.class);
     }
 
@@ -14,9 +14,10 @@
  *******************************************************************************/
 package com.alvarium.contracts;
 
+import java.time.Instant;
 import java.util.List;
 
-import com.alvarium.serializers.AnnotationConverter;
+import com.alvarium.serializers.InstantConverter;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
@@ -25,6 +26,12 @@ import com.google.gson.GsonBuilder;
  * A wrapper over the list of annotations
  */
 public class AnnotationList {
+  // annotations are (de)serialized in place through the Instant adapter rather than being
+  // converted to and from their own JSON strings one by one
+  private static final Gson gson = new GsonBuilder()
+      .registerTypeAdapter(Instant.class, new InstantConverter())
+      .create();
+
   private final List<Annotation> items;
 
   public AnnotationList(Annotation[] annotations) {
@@ -40,18 +47,10 @@ public class AnnotationList {
   }
 
   public String toJson() {
-    Gson gson = new GsonBuilder()
-        .registerTypeAdapter(Annotation.class, new AnnotationConverter())
-        .create();
-
     return gson.toJson(this);
   }
 
   public static AnnotationList fromJson(String json) {
-    Gson gson = new GsonBuilder()
-        .registerTypeAdapter(Annotation.class, new AnnotationConverter())
-        .create();
-    
     return gson.fromJson(json, AnnotationList.class);
   }
 }
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.contracts;
+
+/**
+ * A projection of an annotation holding only the fields needed to score data.
+ * Produced by the streaming readers without materializing the full Annotation.
+ */
+public class AnnotationSummary {
+  private final String key;
+  private final AnnotationType kind;
+  private final Boolean isSatisfied;
+
+  public AnnotationSummary(String key, AnnotationType kind, Boolean isSatisfied) {
+    this.key = key;
+    this.kind = kind;
+    this.isSatisfied = isSatisfied;
+  }
+
+  public String getKey() {
+    return this.key;
+  }
+
+  public AnnotationType getKind() {
+    return this.kind;
+  }
+
+  public Boolean getIsSatisfied() {
+    return this.isSatisfied;
+  }
+}
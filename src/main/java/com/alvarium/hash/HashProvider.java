@@ -13,6 +13,8 @@
  *******************************************************************************/
 package com.alvarium.hash;
 
+import java.nio.ByteBuffer;
+
 /**
  * A unit that provides arbitrary ways to derive hash values
  * from a given piece of data
@@ -43,6 +45,21 @@ public interface HashProvider {
    */
   public void update(byte[] buffer, int offset, int length);
 
+  /**
+   * Updates the hash with the remaining bytes of the buffer, e.g. a memory-mapped region of a
+   * file, and consumes them. Bytes are passed on in chunks of 8KB unless the provider can read
+   * the buffer directly
+   * @param buffer buffer holding the input data
+   */
+  default void update(ByteBuffer buffer) {
+    final byte[] chunk = new byte[Math.min(8192, buffer.remaining())];
+    while (buffer.hasRemaining()) {
+      final int length = Math.min(chunk.length, buffer.remaining());
+      buffer.get(chunk, 0, length);
+      this.update(chunk, 0, length);
+    }
+  }
+
   /**
    * Gets the current hash, resets any saved values from previous <code>update()</code>
    * calls
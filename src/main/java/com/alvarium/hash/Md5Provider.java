@@ -13,6 +13,7 @@
  *******************************************************************************/
 package com.alvarium.hash;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -45,6 +46,11 @@ class Md5Provider implements HashProvider{
     this.md5.update(data, offset, size);
   }
 
+  @Override
+  public void update(ByteBuffer buffer) {
+    this.md5.update(buffer);
+  }
+
   @Override
   public String getValue() {
     final String hashedString = Encoder.bytesToHex(this.md5.digest());
@@ -13,6 +13,7 @@
  *******************************************************************************/
 package com.alvarium.hash;
 
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -48,6 +49,11 @@ class Sha256Provider implements HashProvider {
     this.sha256.update(data, offset, size);
   }
 
+  @Override
+  public void update(ByteBuffer buffer) {
+    this.sha256.update(buffer);
+  }
+
   @Override
   public String getValue() {
     final String hashedString = Encoder.bytesToHex(this.sha256.digest());
@@ -1,4 +1,3 @@
-
 /*******************************************************************************
  * Copyright 2021 Dell Inc.
  *
@@ -14,40 +13,44 @@
  *******************************************************************************/
 package com.alvarium.serializers;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 import java.time.Instant;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
+import com.alvarium.utils.AnnotationClock;
 import com.google.gson.JsonParseException;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSerializationContext;
-import com.google.gson.JsonSerializer;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 /**
- * A converter of Instant datatype to RFC3339 string representation and vice versa
+ * A converter of Instant datatype to RFC3339 string representation and vice versa.
+ * The zone offset written is the one of the shared {@link AnnotationClock}, which is the system
+ * default zone unless a different clock was plugged in.
  */
-public class InstantConverter implements JsonSerializer<Instant>, JsonDeserializer<Instant>{
-
-  public JsonElement serialize(Instant src, Type typeOfSrc, JsonSerializationContext context) {
-    // a workaround to preserve the zone information 
-    DateTimeFormatter f = DateTimeFormatter.ISO_INSTANT.withZone(ZoneId.systemDefault());
-    ZonedDateTime zdt = ZonedDateTime.parse(DateTimeFormatter.ISO_INSTANT.format(src), f);
-    String raw = zdt.toString();
+public class InstantConverter extends TypeAdapter<Instant> {
 
-    if (raw.indexOf('[') > 0) {
-      return new JsonPrimitive(zdt.toString().substring(0, raw.indexOf('[')));
+  @Override
+  public void write(JsonWriter out, Instant src) throws IOException {
+    if (src == null) {
+      out.nullValue();
+      return;
     }
-    return new JsonPrimitive(raw);
+    out.value(TimestampFormatter.format(src, AnnotationClock.getDefault().getClock().getZone()));
   }
 
   @Override
-  public Instant deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context)
-      throws JsonParseException {
-    return DateTimeFormatter.ISO_ZONED_DATE_TIME.parse(json.getAsString(), Instant::from);
+  public Instant read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    try {
+      return DateTimeFormatter.ISO_ZONED_DATE_TIME.parse(in.nextString(), Instant::from);
+    } catch (DateTimeParseException e) {
+      throw new JsonParseException(e);
+    }
   }
 }
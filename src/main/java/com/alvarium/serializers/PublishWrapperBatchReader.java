@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.serializers;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * <p>Reads a received stream message that holds either a single PublishWrapper or a batch of
+ * them, as sent when batching is enabled on the stream. A batch is the JSON array of the
+ * wrappers, in publish order.</p>
+ *
+ * <p>Wrappers are read one at a time from the byte stream, each through a
+ * {@link PublishWrapperReader} that decodes its annotations on demand. Instances are not
+ * thread-safe.</p>
+ */
+public class PublishWrapperBatchReader implements Closeable {
+  private final JsonReader reader;
+  private final boolean isBatch;
+  private boolean singleRead;
+
+  public PublishWrapperBatchReader(InputStream in) throws IOException {
+    this.reader = new JsonReader(
+        new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))
+    );
+    this.isBatch = this.reader.peek() == JsonToken.BEGIN_ARRAY;
+    if (this.isBatch) {
+      this.reader.beginArray();
+    }
+  }
+
+  /**
+   * @return true if the message was a batch, false if it held a single wrapper
+   */
+  public boolean isBatch() {
+    return this.isBatch;
+  }
+
+  /**
+   * checks whether the message holds more wrappers
+   * @return true if another wrapper can be read
+   */
+  public boolean hasNext() throws IOException {
+    return this.isBatch ? this.reader.hasNext() : !this.singleRead;
+  }
+
+  /**
+   * reads the next wrapper of the message
+   * @return reader of the wrapper fields and annotations
+   * @throws IOException if no wrapper is left or the message is not valid JSON
+   */
+  public PublishWrapperReader next() throws IOException {
+    if (!this.hasNext()) {
+      throw new IOException("No publish wrappers left in the message");
+    }
+    this.singleRead = true;
+    return new PublishWrapperReader(this.reader);
+  }
+
+  public void close() throws IOException {
+    this.reader.close();
+  }
+}
@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.serializers;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import com.alvarium.SdkAction;
+import com.alvarium.contracts.Annotation;
+import com.alvarium.contracts.AnnotationSummary;
+import com.alvarium.contracts.AnnotationType;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * <p>Reads a received PublishWrapper from a byte stream and yields the annotations it carries one
+ * at a time, without building an intermediate JSON tree or an AnnotationList.</p>
+ *
+ * <p>The wrapper fields are read on construction. The base64 content is then decoded lazily as
+ * annotations are requested, either as full {@link Annotation} objects through {@link #next()}
+ * or as {@link AnnotationSummary} projections through {@link #nextSummary()}, which skip every
+ * field that is not needed for scoring.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ */
+public class PublishWrapperReader implements Closeable {
+  private static final Gson gson = new GsonBuilder()
+      .registerTypeAdapter(Instant.class, new InstantConverter())
+      .create();
+  private static final TypeAdapter<Annotation> annotationAdapter = gson.getAdapter(
+      Annotation.class
+  );
+  private static final TypeAdapter<AnnotationType> kindAdapter = gson.getAdapter(
+      AnnotationType.class
+  );
+  private static final TypeAdapter<SdkAction> actionAdapter = gson.getAdapter(SdkAction.class);
+
+  private final JsonReader wrapperReader;
+  private final boolean ownsReader;
+  private SdkAction action;
+  private String messageType;
+  private String content;
+
+  private JsonReader itemsReader;
+  private boolean hasItems;
+
+  public PublishWrapperReader(InputStream in) throws IOException {
+    this.wrapperReader = new JsonReader(
+        new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))
+    );
+    this.ownsReader = true;
+    this.readWrapper();
+  }
+
+  /**
+   * reads the wrapper the given reader is positioned on, e.g. an element of a batch. The reader
+   * is left after the wrapper and is not closed by {@link #close()}.
+   */
+  PublishWrapperReader(JsonReader reader) throws IOException {
+    this.wrapperReader = reader;
+    this.ownsReader = false;
+    this.readWrapper();
+  }
+
+  public SdkAction getAction() {
+    return this.action;
+  }
+
+  public String getMessageType() {
+    return this.messageType;
+  }
+
+  /**
+   * checks whether the content holds more annotations
+   * @return true if another annotation can be read
+   * @throws IOException if the content is not valid JSON
+   */
+  public boolean hasNext() throws IOException {
+    this.openItems();
+    return this.hasItems && this.itemsReader.hasNext();
+  }
+
+  /**
+   * reads the next annotation of the content
+   * @return fully populated Annotation
+   * @throws IOException if no annotation is left or the content is not valid JSON
+   */
+  public Annotation next() throws IOException {
+    this.ensureNext();
+    return annotationAdapter.read(this.itemsReader);
+  }
+
+  /**
+   * reads the next annotation of the content, keeping only the key, kind and isSatisfied fields
+   * @return projection of the next annotation
+   * @throws IOException if no annotation is left or the content is not valid JSON
+   */
+  public AnnotationSummary nextSummary() throws IOException {
+    this.ensureNext();
+
+    String key = null;
+    AnnotationType kind = null;
+    Boolean isSatisfied = null;
+
+    this.itemsReader.beginObject();
+    while (this.itemsReader.hasNext()) {
+      final String name = this.itemsReader.nextName();
+      if (this.itemsReader.peek() == JsonToken.NULL) {
+        this.itemsReader.nextNull();
+        continue;
+      }
+      switch (name) {
+        case "key":
+          key = this.itemsReader.nextString();
+          break;
+        case "kind":
+          kind = kindAdapter.read(this.itemsReader);
+          break;
+        case "isSatisfied":
+          isSatisfied = this.itemsReader.nextBoolean();
+          break;
+        default:
+          this.itemsReader.skipValue();
+      }
+    }
+    this.itemsReader.endObject();
+    return new AnnotationSummary(key, kind, isSatisfied);
+  }
+
+  public void close() throws IOException {
+    if (this.ownsReader) {
+      this.wrapperReader.close();
+    }
+  }
+
+  /**
+   * reads the wrapper fields, the content is kept encoded until annotations are requested
+   */
+  private void readWrapper() throws IOException {
+    this.wrapperReader.beginObject();
+    while (this.wrapperReader.hasNext()) {
+      final String name = this.wrapperReader.nextName();
+      if (this.wrapperReader.peek() == JsonToken.NULL) {
+        this.wrapperReader.nextNull();
+        continue;
+      }
+      switch (name) {
+        case "action":
+          this.action = actionAdapter.read(this.wrapperReader);
+          break;
+        case "messageType":
+          this.messageType = this.wrapperReader.nextString();
+          break;
+        case "content":
+          this.content = this.wrapperReader.nextString();
+          break;
+        default:
+          this.wrapperReader.skipValue();
+      }
+    }
+    this.wrapperReader.endObject();
+  }
+
+  /**
+   * decodes the content on the fly and positions the reader at the start of the items array
+   */
+  private void openItems() throws IOException {
+    if (this.itemsReader != null) {
+      return;
+    }
+
+    final InputStream decoded = Base64.getDecoder().wrap(
+        new AsciiInputStream(this.content == null ? "" : this.content)
+    );
+    this.itemsReader = new JsonReader(
+        new BufferedReader(new InputStreamReader(decoded, StandardCharsets.UTF_8))
+    );
+    if (this.content == null || this.content.isEmpty()) {
+      return;
+    }
+    // the content of a wrapper is not necessarily JSON (e.g. a plain string), peek leniently
+    // so that such content is reported as holding no annotations instead of failing
+    this.itemsReader.setLenient(true);
+    final JsonToken first = this.itemsReader.peek();
+    this.itemsReader.setLenient(false);
+    if (first != JsonToken.BEGIN_OBJECT) {
+      return;
+    }
+
+    this.itemsReader.beginObject();
+    while (this.itemsReader.hasNext()) {
+      if (this.itemsReader.nextName().equals("items")
+          && this.itemsReader.peek() == JsonToken.BEGIN_ARRAY) {
+        this.itemsReader.beginArray();
+        this.hasItems = true;
+        return;
+      }
+      this.itemsReader.skipValue();
+    }
+  }
+
+  private void ensureNext() throws IOException {
+    if (!this.hasNext()) {
+      throw new IOException("No annotations left in the publish wrapper content");
+    }
+  }
+
+  /**
+   * Exposes the characters of an ASCII string as bytes without copying them
+   */
+  private static class AsciiInputStream extends InputStream {
+    private final String value;
+    private int position;
+
+    AsciiInputStream(String value) {
+      this.value = value;
+    }
+
+    @Override
+    public int read() {
+      return this.position < this.value.length() ? this.value.charAt(this.position++) : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      final int count = Math.min(len, this.value.length() - this.position);
+      if (count <= 0) {
+        return -1;
+      }
+      for (int i = 0; i < count; i++) {
+        b[off + i] = (byte) this.value.charAt(this.position++);
+      }
+      return count;
+    }
+  }
+}
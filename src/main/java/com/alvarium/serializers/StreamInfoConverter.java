@@ -16,8 +16,15 @@ package com.alvarium.serializers;
 
 import java.lang.reflect.Type;
 
+import com.alvarium.streams.BatchConfig;
+import com.alvarium.streams.CompositeConfig;
+import com.alvarium.streams.FileConfig;
+import com.alvarium.streams.LimiterConfig;
+import com.alvarium.streams.MemoryConfig;
 import com.alvarium.streams.MqttConfig;
+import com.alvarium.streams.ReconnectConfig;
 import com.alvarium.streams.PravegaConfig;
+import com.alvarium.streams.SpoolConfig;
 import com.alvarium.streams.StreamInfo;
 import com.alvarium.streams.StreamType;
 import com.google.gson.JsonDeserializer;
@@ -43,15 +50,39 @@ public class StreamInfoConverter implements JsonDeserializer<StreamInfo> {
     Gson gson = new Gson();
     JsonObject obj = json.getAsJsonObject();
     StreamType type = gson.fromJson(obj.get("type"), StreamType.class);
+    SpoolConfig spool = obj.has("spool") && !obj.get("spool").isJsonNull() ?
+        SpoolConfig.fromJson(obj.get("spool").toString()) : null;
+    BatchConfig batch = obj.has("batch") && !obj.get("batch").isJsonNull() ?
+        BatchConfig.fromJson(obj.get("batch").toString()) : null;
+    LimiterConfig limiter = obj.has("limiter") && !obj.get("limiter").isJsonNull() ?
+        LimiterConfig.fromJson(obj.get("limiter").toString()) : null;
+    ReconnectConfig reconnect = obj.has("reconnect") && !obj.get("reconnect").isJsonNull() ?
+        ReconnectConfig.fromJson(obj.get("reconnect").toString()) : null;
+    final Object config;
     switch(type){
       case MQTT: 
-        MqttConfig mqttConfig = MqttConfig.fromJson(obj.get("config").toString());
-        return new StreamInfo(type,mqttConfig);
+        config = MqttConfig.fromJson(obj.get("config").toString());
+        break;
       case PRAVEGA:
-        PravegaConfig pravegaConfig = PravegaConfig.fromJson(obj.get("config").toString());
-        return new StreamInfo(type, pravegaConfig);
+        config = PravegaConfig.fromJson(obj.get("config").toString());
+        break;
+      case FILE:
+        config = FileConfig.fromJson(obj.get("config").toString());
+        break;
+      case MEMORY:
+        config = MemoryConfig.fromJson(obj.get("config").toString());
+        break;
+      case COMPOSITE:
+        config = CompositeConfig.fromJson(obj.get("config").toString());
+        break;
       default: 
         return gson.fromJson(json, StreamInfo.class);
     } 
+    return new StreamInfo.Builder(type, config)
+        .spool(spool)
+        .batch(batch)
+        .limiter(limiter)
+        .reconnect(reconnect)
+        .build();
   }
 }
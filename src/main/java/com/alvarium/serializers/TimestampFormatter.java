@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.serializers;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Writes instants as RFC3339 strings carrying the offset of the given zone, without creating
+ * intermediate date-time objects.
+ *
+ * <p>The output is identical to {@code ZonedDateTime.toString()} minus the bracketed region id
+ * (e.g. {@code 2021-08-24T12:22:33.334070489-05:00}), which is the format other Alvarium SDKs
+ * expect.</p>
+ */
+public class TimestampFormatter {
+  private static final int SECONDS_PER_DAY = 86400;
+  private static final int DAYS_0000_TO_1970 = 719528;
+  private static final int DAYS_PER_400_YEARS = 146097;
+
+  private TimestampFormatter() {}
+
+  /**
+   * returns the RFC3339 representation of the instant in the given zone
+   * @param instant instant being formatted
+   * @param zone zone used to resolve the offset
+   * @return RFC3339 string
+   */
+  public static String format(Instant instant, ZoneId zone) {
+    final StringBuilder sb = new StringBuilder(35);
+    formatTo(instant, zone, sb);
+    return sb.toString();
+  }
+
+  /**
+   * appends the RFC3339 representation of the instant in the given zone to the buffer
+   * @param instant instant being formatted
+   * @param zone zone used to resolve the offset
+   * @param sb output buffer
+   */
+  public static void formatTo(Instant instant, ZoneId zone, StringBuilder sb) {
+    final ZoneOffset offset = zone.getRules().getOffset(instant);
+    final long localSeconds = instant.getEpochSecond() + offset.getTotalSeconds();
+    final long epochDay = Math.floorDiv(localSeconds, SECONDS_PER_DAY);
+    final int secondOfDay = Math.floorMod(localSeconds, SECONDS_PER_DAY);
+
+    appendDate(epochDay, sb);
+    sb.append('T');
+    appendTime(secondOfDay, instant.getNano(), sb);
+    appendOffset(offset.getTotalSeconds(), sb);
+  }
+
+  // Same civil calendar computation as LocalDate.ofEpochDay
+  private static void appendDate(long epochDay, StringBuilder sb) {
+    long zeroDay = epochDay + DAYS_0000_TO_1970;
+    // find the march-based year
+    zeroDay -= 60;  // adjust to 0000-03-01 so leap day is at end of four year cycle
+    long adjust = 0;
+    if (zeroDay < 0) {
+      // adjust negative years to positive for calculation
+      final long adjustCycles = (zeroDay + 1) / DAYS_PER_400_YEARS - 1;
+      adjust = adjustCycles * 400;
+      zeroDay += -adjustCycles * DAYS_PER_400_YEARS;
+    }
+    long yearEst = (400 * zeroDay + 591) / DAYS_PER_400_YEARS;
+    long doyEst = zeroDay - (365 * yearEst + yearEst / 4 - yearEst / 100 + yearEst / 400);
+    if (doyEst < 0) {
+      // fix estimate
+      yearEst--;
+      doyEst = zeroDay - (365 * yearEst + yearEst / 4 - yearEst / 100 + yearEst / 400);
+    }
+    yearEst += adjust;  // reset any negative year
+    final int marchDoy0 = (int) doyEst;
+
+    // convert march-based values back to january-based
+    final int marchMonth0 = (marchDoy0 * 5 + 2) / 153;
+    final int month = (marchMonth0 + 2) % 12 + 1;
+    final int day = marchDoy0 - (marchMonth0 * 306 + 5) / 10 + 1;
+    final long year = yearEst + marchMonth0 / 10;
+
+    final long absYear = Math.abs(year);
+    if (absYear < 1000) {
+      if (year < 0) {
+        sb.append('-');
+      }
+      pad(absYear, 4, sb);
+    } else {
+      if (year > 9999) {
+        sb.append('+');
+      }
+      sb.append(year);
+    }
+    sb.append('-');
+    pad(month, 2, sb);
+    sb.append('-');
+    pad(day, 2, sb);
+  }
+
+  // Same rules as LocalTime.toString: seconds are omitted when zero and the fraction uses the
+  // shortest of 3, 6 or 9 digits
+  private static void appendTime(int secondOfDay, int nano, StringBuilder sb) {
+    final int hour = secondOfDay / 3600;
+    final int minute = (secondOfDay / 60) % 60;
+    final int second = secondOfDay % 60;
+
+    pad(hour, 2, sb);
+    sb.append(':');
+    pad(minute, 2, sb);
+    if (second > 0 || nano > 0) {
+      sb.append(':');
+      pad(second, 2, sb);
+      if (nano > 0) {
+        sb.append('.');
+        if (nano % 1000_000 == 0) {
+          pad(nano / 1000_000, 3, sb);
+        } else if (nano % 1000 == 0) {
+          pad(nano / 1000, 6, sb);
+        } else {
+          pad(nano, 9, sb);
+        }
+      }
+    }
+  }
+
+  // Same rules as ZoneOffset.getId
+  private static void appendOffset(int totalSeconds, StringBuilder sb) {
+    if (totalSeconds == 0) {
+      sb.append('Z');
+      return;
+    }
+    final int absSeconds = Math.abs(totalSeconds);
+    sb.append(totalSeconds < 0 ? '-' : '+');
+    pad(absSeconds / 3600, 2, sb);
+    sb.append(':');
+    pad((absSeconds / 60) % 60, 2, sb);
+    final int seconds = absSeconds % 60;
+    if (seconds != 0) {
+      sb.append(':');
+      pad(seconds, 2, sb);
+    }
+  }
+
+  private static void pad(long value, int width, StringBuilder sb) {
+    for (long limit = 10; width > 1; width--, limit *= 10) {
+      if (value < limit) {
+        for (int i = 1; i < width; i++) {
+          sb.append('0');
+        }
+        break;
+      }
+    }
+    sb.append(value);
+  }
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+/**
+ * <p>Bounds the number of concurrent publishes by a limit adapted to the acknowledgement latency
+ * of the stream, following the configured {@link LimiterAlgorithm}. Publishers wait while the
+ * limit is reached. A failed publish is treated as a congestion signal and decreases the
+ * limit.</p>
+ *
+ * <p>The limit only grows while at least half of it is used, so it does not drift upwards when
+ * the publishers are the bottleneck rather than the stream.</p>
+ */
+class AdaptiveLimiter {
+  private static final int DEFAULT_INITIAL_LIMIT = 20;
+  private static final int DEFAULT_MAX_LIMIT = 1000;
+  private static final double DEFAULT_BACKOFF_RATIO = 0.9;
+  // weight of a new sample in the recent and the long-term latency averages
+  private static final double SHORT_SMOOTHING = 0.2;
+  private static final double LONG_SMOOTHING = 0.01;
+  // weight of the newly computed limit of the gradient algorithm
+  private static final double LIMIT_SMOOTHING = 0.2;
+
+  private final LimiterAlgorithm algorithm;
+  private final int minLimit;
+  private final int maxLimit;
+  private final long latencyThresholdNanos;
+  private final double backoffRatio;
+
+  private double limit;
+  private int inflight;
+  private double shortLatency;
+  private double longLatency;
+  private long failures;
+
+  AdaptiveLimiter(LimiterConfig config) throws StreamException {
+    this.algorithm = config.getAlgorithm() != null ? config.getAlgorithm() : LimiterAlgorithm.AIMD;
+    if (this.algorithm == LimiterAlgorithm.AIMD && config.getLatencyThresholdMs() <= 0) {
+      throw new StreamException("latencyThresholdMs must be greater than 0");
+    }
+    if (config.getBackoffRatio() < 0 || config.getBackoffRatio() >= 1) {
+      throw new StreamException("backoffRatio must be between 0 and 1");
+    }
+    this.minLimit = Math.max(1, config.getMinLimit());
+    this.maxLimit = config.getMaxLimit() > 0 ? config.getMaxLimit() : DEFAULT_MAX_LIMIT;
+    if (this.minLimit > this.maxLimit) {
+      throw new StreamException("minLimit must not be greater than maxLimit");
+    }
+    this.latencyThresholdNanos = config.getLatencyThresholdMs() * 1000_000;
+    this.backoffRatio = config.getBackoffRatio() > 0 ? 
+        config.getBackoffRatio() : DEFAULT_BACKOFF_RATIO;
+    this.limit = this.clamp(
+        config.getInitialLimit() > 0 ? config.getInitialLimit() : DEFAULT_INITIAL_LIMIT
+    );
+  }
+
+  /**
+   * waits until one more publish is allowed
+   */
+  synchronized void acquire() throws InterruptedException {
+    while (this.inflight >= (int) this.limit) {
+      this.wait();
+    }
+    this.inflight++;
+  }
+
+  /**
+   * records the outcome of a publish allowed by acquire and adapts the limit
+   * @param latencyNanos time from the publish to its acknowledgement
+   * @param success false if the publish failed
+   */
+  synchronized void release(long latencyNanos, boolean success) {
+    // the publish is still counted, the limit was used up to this point
+    final boolean utilized = this.inflight * 2 >= this.limit;
+    this.inflight--;
+
+    if (!success) {
+      this.failures++;
+      this.limit = this.clamp(this.limit * this.backoffRatio);
+    } else {
+      this.shortLatency = this.shortLatency == 0 ? latencyNanos : 
+          this.shortLatency * (1 - SHORT_SMOOTHING) + latencyNanos * SHORT_SMOOTHING;
+      this.longLatency = this.longLatency == 0 ? latencyNanos : 
+          this.longLatency * (1 - LONG_SMOOTHING) + latencyNanos * LONG_SMOOTHING;
+
+      if (this.algorithm == LimiterAlgorithm.AIMD) {
+        if (latencyNanos > this.latencyThresholdNanos) {
+          this.limit = this.clamp(this.limit * this.backoffRatio);
+        } else if (utilized) {
+          // one more publish per limit worth of acknowledgements, i.e. per round trip
+          this.limit = this.clamp(this.limit + 1 / this.limit);
+        }
+      } else {
+        this.gradient(utilized);
+      }
+    }
+    this.notifyAll();
+  }
+
+  private void gradient(boolean utilized) {
+    if (this.longLatency > 2 * this.shortLatency) {
+      // the latency dropped for good, let the baseline catch up faster
+      this.longLatency *= 0.95;
+    }
+    final double gradient = Math.max(0.5, Math.min(1.0, this.longLatency / this.shortLatency));
+    // room for a few queued publishes, so the limit keeps probing upwards
+    final double queue = Math.sqrt(this.limit);
+    final double target = this.limit * gradient + queue;
+    if (target > this.limit && !utilized) {
+      return;
+    }
+    this.limit = this.clamp(this.limit * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING);
+  }
+
+  private double clamp(double value) {
+    return Math.max(this.minLimit, Math.min(this.maxLimit, value));
+  }
+
+  synchronized int getLimit() {
+    return (int) this.limit;
+  }
+
+  synchronized int getInflight() {
+    return this.inflight;
+  }
+
+  synchronized double getLatencyMs() {
+    return this.shortLatency / 1000_000;
+  }
+
+  synchronized long getFailures() {
+    return this.failures;
+  }
+}
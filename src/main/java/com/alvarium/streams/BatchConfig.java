@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.Serializable;
+
+import com.google.gson.Gson;
+
+/**
+ * A unit that encapsulates the settings used to pack several published wrappers into a single
+ * stream message
+ */
+public class BatchConfig implements Serializable {
+  /**
+   * Time in milliseconds a batch waits for more wrappers after the first one is added. 0 sends
+   * the batch as soon as the previous one is sent.
+   */
+  private final long lingerMs;
+  /**
+   * Maximum size in bytes of the encoded wrappers of a batch, 0 does not bound it.
+   */
+  private final int maxBytes;
+  /**
+   * Maximum number of wrappers of a batch, 0 does not bound it.
+   */
+  private final int maxCount;
+
+  public BatchConfig(long lingerMs, int maxBytes, int maxCount) {
+    this.lingerMs = lingerMs;
+    this.maxBytes = maxBytes;
+    this.maxCount = maxCount;
+  }
+
+  public long getLingerMs() {
+    return this.lingerMs;
+  }
+
+  public int getMaxBytes() {
+    return this.maxBytes;
+  }
+
+  public int getMaxCount() {
+    return this.maxCount;
+  }
+
+  public String toJson() {
+    Gson gson = new Gson();
+    return gson.toJson(this);
+  }
+
+  public static BatchConfig fromJson(String json) {
+    Gson gson = new Gson();
+    return gson.fromJson(json, BatchConfig.class);
+  }
+}
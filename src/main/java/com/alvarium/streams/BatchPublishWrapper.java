@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.alvarium.PublishWrapper;
+
+/**
+ * Several wrappers sent as one stream message. The message is the JSON array of the encoded
+ * wrappers, in publish order, and is read back with
+ * {@link com.alvarium.serializers.PublishWrapperBatchReader}. The action, message type and
+ * content of the batch are those of its first wrapper, providers that hand the wrappers on as
+ * objects instead of their JSON must publish every wrapper of {@link #getWrappers()}.
+ */
+class BatchPublishWrapper extends PublishWrapper {
+  private final List<EncodedPublishWrapper> wrappers;
+  private final int length;
+  private final String json;
+
+  /**
+   * @param wrappers wrappers of the batch, at least one
+   * @param length total UTF-8 length of their encoded forms
+   */
+  BatchPublishWrapper(List<EncodedPublishWrapper> wrappers, int length) {
+    this(wrappers, length, null);
+  }
+
+  /**
+   * rebuilds a batch read back from its JSON
+   * @param wrappers wrappers of the batch, at least one
+   * @param json JSON array of the wrappers
+   */
+  BatchPublishWrapper(List<EncodedPublishWrapper> wrappers, String json) {
+    this(wrappers, BatchingStreamProvider.utf8Length(json), json);
+  }
+
+  private BatchPublishWrapper(List<EncodedPublishWrapper> wrappers, int length, String json) {
+    super(wrappers.get(0).getAction(), wrappers.get(0).getMessageType(),
+        wrappers.get(0).getContent());
+    this.wrappers = wrappers;
+    this.length = length;
+    this.json = json;
+  }
+
+  List<EncodedPublishWrapper> getWrappers() {
+    return this.wrappers;
+  }
+
+  /**
+   * groups the wrappers of a batch by key, keeping their order, so that a stream routing by key
+   * keeps the wrappers of a key in order even though they were batched with other keys. A batch
+   * whose wrappers share a key is returned as is, a group of a single wrapper is that wrapper.
+   * @param wrapper a batch, or a single wrapper which is its own group
+   * @param key returns the key of a wrapper, possibly null
+   * @return the groups by key, in the order of their first wrapper
+   */
+  static Map<String, PublishWrapper> splitByKey(PublishWrapper wrapper,
+      Function<PublishWrapper, String> key) {
+    final Map<String, PublishWrapper> groups = new LinkedHashMap<String, PublishWrapper>();
+    if (!(wrapper instanceof BatchPublishWrapper)) {
+      groups.put(key.apply(wrapper), wrapper);
+      return groups;
+    }
+
+    final Map<String, List<EncodedPublishWrapper>> keyed = 
+        new LinkedHashMap<String, List<EncodedPublishWrapper>>();
+    for (EncodedPublishWrapper batched : ((BatchPublishWrapper) wrapper).getWrappers()) {
+      keyed.computeIfAbsent(key.apply(batched), k -> new ArrayList<EncodedPublishWrapper>())
+          .add(batched);
+    }
+    if (keyed.size() == 1) {
+      groups.put(keyed.keySet().iterator().next(), wrapper);
+      return groups;
+    }
+    for (Map.Entry<String, List<EncodedPublishWrapper>> group : keyed.entrySet()) {
+      final List<EncodedPublishWrapper> wrappers = group.getValue();
+      if (wrappers.size() == 1) {
+        groups.put(group.getKey(), wrappers.get(0));
+        continue;
+      }
+      int length = 0;
+      for (EncodedPublishWrapper batched : wrappers) {
+        length += BatchingStreamProvider.utf8Length(batched.toJson());
+      }
+      groups.put(group.getKey(), new BatchPublishWrapper(wrappers, length));
+    }
+    return groups;
+  }
+
+  @Override
+  public String toJson() {
+    if (this.json != null) {
+      return this.json;
+    }
+    final StringBuilder sb = new StringBuilder(this.length + this.wrappers.size() + 1);
+    sb.append('[');
+    for (int i = 0; i < this.wrappers.size(); i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(this.wrappers.get(i).toJson());
+    }
+    return sb.append(']').toString();
+  }
+}
@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.alvarium.PublishWrapper;
+
+/**
+ * <p>Decorates a StreamProvider so that the published wrappers are packed into batches, sent as
+ * a single stream message through {@link BatchPublishWrapper}. A batch is sent once it holds
+ * {@link BatchConfig#getMaxCount()} wrappers or {@link BatchConfig#getMaxBytes()} bytes, or
+ * {@link BatchConfig#getLingerMs()} after its first wrapper was added. A batch of a single
+ * wrapper is sent as that wrapper.</p>
+ *
+ * <p>Batches are sent in order by a background thread. publish only adds the wrapper to the
+ * current batch, while publishAsync completes once its batch is sent. A batch that cannot be
+ * sent fails the publishAsync results of its wrappers, and is reported by the next flush or
+ * close, never by the publish of an unrelated wrapper. Publishers wait when too many batches are
+ * waiting to be sent.</p>
+ */
+class BatchingStreamProvider implements StreamProvider {
+  private static final int MAX_PENDING_BATCHES = 4;
+
+  private final StreamProvider stream;
+  private final BatchConfig config;
+  private final AtomicReference<StreamException> failure;
+  private final Object capacity = new Object();
+
+  private ScheduledExecutorService sender;
+  private List<EncodedPublishWrapper> batch;
+  private List<CompletableFuture<Void>> results;
+  private int batchBytes;
+  private long generation;
+  private int pendingBatches;
+
+  BatchingStreamProvider(StreamProvider stream, BatchConfig config) throws StreamException {
+    if (config.getLingerMs() < 0 || config.getMaxBytes() < 0 || config.getMaxCount() < 0) {
+      throw new StreamException("batch settings must not be negative");
+    }
+    this.stream = stream;
+    this.config = config;
+    this.failure = new AtomicReference<StreamException>();
+    this.batch = new ArrayList<EncodedPublishWrapper>();
+    this.results = new ArrayList<CompletableFuture<Void>>();
+  }
+
+  public void connect() throws StreamException {
+    this.stream.connect();
+    synchronized (this) {
+      if (this.sender == null) {
+        this.sender = Executors.newSingleThreadScheduledExecutor(r -> {
+          final Thread t = new Thread(r, "alvarium-batch-sender");
+          t.setDaemon(true);
+          return t;
+        });
+      }
+    }
+  }
+
+  public void close() throws StreamException {
+    try {
+      this.flush();
+    } finally {
+      synchronized (this) {
+        if (this.sender != null) {
+          this.sender.shutdown();
+          this.sender = null;
+        }
+      }
+      this.stream.close();
+    }
+  }
+
+  public void publish(PublishWrapper wrapper) throws StreamException {
+    final CompletableFuture<Void> result = this.publishAsync(wrapper);
+    if (result.isCompletedExceptionally()) {
+      try {
+        result.join();
+      } catch (CompletionException e) {
+        throw (StreamException) e.getCause();
+      }
+    }
+  }
+
+  public boolean isPipelined() {
+    return true;
+  }
+
+  public CompletableFuture<Void> publishAsync(PublishWrapper wrapper) {
+    final CompletableFuture<Void> result = new CompletableFuture<Void>();
+    final EncodedPublishWrapper encoded = EncodedPublishWrapper.encode(wrapper);
+    final int length = utf8Length(encoded.toJson());
+    boolean sent = false;
+    synchronized (this) {
+      if (this.sender == null) {
+        result.completeExceptionally(new StreamException("batching stream is not connected"));
+        return result;
+      }
+
+      // the wrapper starts a new batch if it would not fit in the current one
+      final int maxBytes = this.config.getMaxBytes();
+      if (!this.batch.isEmpty() && maxBytes > 0 && this.batchBytes + length > maxBytes) {
+        this.send();
+        sent = true;
+      }
+
+      this.batch.add(encoded);
+      this.results.add(result);
+      this.batchBytes += length;
+      final int maxCount = this.config.getMaxCount();
+      if ((maxCount > 0 && this.batch.size() >= maxCount)
+          || (maxBytes > 0 && this.batchBytes >= maxBytes)) {
+        this.send();
+        sent = true;
+      } else if (this.batch.size() == 1) {
+        final long current = this.generation;
+        this.sender.schedule(() -> this.linger(current), this.config.getLingerMs(),
+            TimeUnit.MILLISECONDS);
+      }
+    }
+
+    if (sent) {
+      this.awaitCapacity(result);
+    }
+    return result;
+  }
+
+  /**
+   * sends the current batch and waits until every batch is sent and flushed by the stream
+   */
+  public void flush() throws StreamException {
+    final CompletableFuture<Void> done = new CompletableFuture<Void>();
+    synchronized (this) {
+      if (this.sender != null) {
+        if (!this.batch.isEmpty()) {
+          this.send();
+        }
+        // runs after every batch queued so far
+        this.sender.execute(() -> done.complete(null));
+      } else {
+        done.complete(null);
+      }
+    }
+
+    try {
+      done.get();
+    } catch (ExecutionException e) {
+      throw new StreamException("flushing process could not resolve.", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StreamException("flushing process was interrupted.", e);
+    }
+    this.stream.flush();
+    this.throwFailure();
+  }
+
+  /**
+   * sends the batch started in the given generation, if it was not sent already
+   */
+  private synchronized void linger(long generation) {
+    if (generation == this.generation && !this.batch.isEmpty()) {
+      this.send();
+    }
+  }
+
+  /**
+   * hands the current batch to the sender and starts a new one, called with the lock held
+   */
+  private void send() {
+    final List<EncodedPublishWrapper> wrappers = this.batch;
+    final List<CompletableFuture<Void>> pending = this.results;
+    final int length = this.batchBytes;
+    this.batch = new ArrayList<EncodedPublishWrapper>();
+    this.results = new ArrayList<CompletableFuture<Void>>();
+    this.batchBytes = 0;
+    this.generation++;
+
+    synchronized (this.capacity) {
+      this.pendingBatches++;
+    }
+    this.sender.execute(() -> {
+      try {
+        this.stream.publish(wrappers.size() == 1 ? 
+            wrappers.get(0) : new BatchPublishWrapper(wrappers, length));
+        pending.forEach(result -> result.complete(null));
+      } catch (StreamException e) {
+        this.failure.compareAndSet(null, e);
+        pending.forEach(result -> result.completeExceptionally(e));
+      } finally {
+        synchronized (this.capacity) {
+          this.pendingBatches--;
+          this.capacity.notifyAll();
+        }
+      }
+    });
+  }
+
+  /**
+   * blocks the publisher while too many batches are waiting to be sent
+   */
+  private void awaitCapacity(CompletableFuture<Void> result) {
+    synchronized (this.capacity) {
+      while (this.pendingBatches > MAX_PENDING_BATCHES) {
+        try {
+          this.capacity.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          result.completeExceptionally(
+              new StreamException("publishing process was interrupted.", e)
+          );
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * returns the number of bytes of the UTF-8 encoding of the string, without encoding it
+   */
+  static int utf8Length(String s) {
+    int length = 0;
+    for (int i = 0; i < s.length(); i++) {
+      final char c = s.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+          && Character.isLowSurrogate(s.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  private void throwFailure() throws StreamException {
+    final StreamException e = this.failure.getAndSet(null);
+    if (e != null) {
+      throw e;
+    }
+  }
+}
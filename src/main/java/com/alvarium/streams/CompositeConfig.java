@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.Serializable;
+
+import com.alvarium.serializers.StreamInfoConverter;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * A unit that encapsulates the configuration of a composite stream, which publishes the same
+ * data to several streams
+ */
+public class CompositeConfig implements Serializable {
+  private final StreamInfo[] streams;
+  /**
+   * How many streams must accept a publish, all of them when not set.
+   */
+  private final CompositeAckPolicy ack;
+  /**
+   * Maximum number of publishes queued for a single stream, a publish beyond that fails for
+   * that stream only. 0 does not bound the queues.
+   */
+  private final int maxPending;
+  /**
+   * How long close waits, in milliseconds, for the queued publishes of all the streams to
+   * complete. The publishes still running are then interrupted. 0 waits up to 30 seconds.
+   */
+  private final long closeTimeoutMs;
+
+  public CompositeConfig(StreamInfo[] streams, CompositeAckPolicy ack, int maxPending) {
+    this(streams, ack, maxPending, 0);
+  }
+
+  public CompositeConfig(StreamInfo[] streams, CompositeAckPolicy ack, int maxPending,
+      long closeTimeoutMs) {
+    this.streams = streams;
+    this.ack = ack;
+    this.maxPending = maxPending;
+    this.closeTimeoutMs = closeTimeoutMs;
+  }
+
+  public StreamInfo[] getStreams() {
+    return this.streams;
+  }
+
+  public CompositeAckPolicy getAck() {
+    return this.ack;
+  }
+
+  public int getMaxPending() {
+    return this.maxPending;
+  }
+
+  public long getCloseTimeoutMs() {
+    return this.closeTimeoutMs;
+  }
+
+  public String toJson() {
+    Gson gson = new Gson();
+    return gson.toJson(this);
+  }
+
+  public static CompositeConfig fromJson(String json) {
+    Gson gson = new GsonBuilder().registerTypeAdapter(StreamInfo.class, new StreamInfoConverter())
+        .create();
+    return gson.fromJson(json, CompositeConfig.class);
+  }
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alvarium.PublishWrapper;
+
+/**
+ * <p>Publishes every wrapper to several streams at once. The wrapper is encoded a single time and
+ * handed to each stream on a thread dedicated to it, so the streams are published to in
+ * parallel, a slow or unreachable stream does not delay the others and each stream receives the
+ * wrappers in publish order.</p>
+ *
+ * <p>A publish succeeds once the number of streams required by the {@link CompositeAckPolicy}
+ * have accepted it, and fails as soon as that number can no longer be reached. The remaining
+ * streams keep publishing in the background. The same policy applies to connect.</p>
+ *
+ * <p>Close waits up to {@link CompositeConfig#getCloseTimeoutMs()} for the queued publishes,
+ * interrupts the ones left and closes every stream in any case.</p>
+ */
+class CompositeStreamProvider implements StreamProvider {
+  private static final long DEFAULT_CLOSE_TIMEOUT_MS = 30000;
+
+  private final Target[] targets;
+  private final int required;
+  private final long closeTimeoutMs;
+
+  CompositeStreamProvider(CompositeConfig config, StreamProviderFactory factory)
+      throws StreamException {
+    final StreamInfo[] streams = config.getStreams();
+    if (streams == null || streams.length == 0) {
+      throw new StreamException("composite stream requires at least one stream");
+    }
+
+    this.targets = new Target[streams.length];
+    for (int i = 0; i < streams.length; i++) {
+      this.targets[i] = new Target(
+          factory.getProvider(streams[i]),
+          streams[i].getType().name().toLowerCase() + "-" + i,
+          config.getMaxPending()
+      );
+    }
+
+    this.closeTimeoutMs = config.getCloseTimeoutMs() > 0 ? config.getCloseTimeoutMs() :
+        DEFAULT_CLOSE_TIMEOUT_MS;
+    final CompositeAckPolicy ack = config.getAck() != null ? config.getAck() : 
+        CompositeAckPolicy.ALL;
+    switch (ack) {
+      case ANY:
+        this.required = 1;
+        break;
+      case QUORUM:
+        this.required = streams.length / 2 + 1;
+        break;
+      default:
+        this.required = streams.length;
+    }
+  }
+
+  public void connect() throws StreamException {
+    final CompletableFuture<?>[] results = new CompletableFuture<?>[this.targets.length];
+    for (int i = 0; i < this.targets.length; i++) {
+      final StreamProvider provider = this.targets[i].provider;
+      results[i] = this.targets[i].submit(() -> provider.connect());
+    }
+    await(this.acknowledge(results, "connect"));
+  }
+
+  public void close() throws StreamException {
+    StreamException error = null;
+    for (Target target : this.targets) {
+      // queued publishes are completed before the stream is closed
+      target.executor.shutdown();
+    }
+    // the streams share the timeout, they drain in parallel
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.closeTimeoutMs);
+    for (Target target : this.targets) {
+      try {
+        final long remaining = Math.max(0, deadline - System.nanoTime());
+        if (!target.executor.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+          target.executor.shutdownNow();
+          error = error != null ? error : new StreamException(String.format(
+              "stream %s did not complete its publishes before the close timeout", target.name));
+        }
+      } catch (InterruptedException e) {
+        // later targets are not waited for either, the interrupt stays set
+        Thread.currentThread().interrupt();
+        target.executor.shutdownNow();
+        error = error != null ? error : new StreamException("closing process was interrupted.", e);
+      } finally {
+        try {
+          target.provider.close();
+        } catch (StreamException e) {
+          error = error != null ? error : e;
+        }
+      }
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  public void publish(PublishWrapper wrapper) throws StreamException {
+    await(this.publishAsync(wrapper));
+  }
+
+  public CompletableFuture<Void> publishAsync(PublishWrapper wrapper) {
+    final PublishWrapper encoded = EncodedPublishWrapper.encode(wrapper);
+    final CompletableFuture<?>[] results = new CompletableFuture<?>[this.targets.length];
+    for (int i = 0; i < this.targets.length; i++) {
+      final StreamProvider provider = this.targets[i].provider;
+      results[i] = this.targets[i].submit(() -> provider.publish(encoded));
+    }
+    return this.acknowledge(results, "publish");
+  }
+
+  /**
+   * waits for the publishes queued so far and flushes every stream
+   */
+  public void flush() throws StreamException {
+    final CompletableFuture<?>[] results = new CompletableFuture<?>[this.targets.length];
+    for (int i = 0; i < this.targets.length; i++) {
+      final StreamProvider provider = this.targets[i].provider;
+      results[i] = this.targets[i].submit(() -> provider.flush());
+    }
+    await(this.acknowledge(results, "flush"));
+  }
+
+  /**
+   * combines the results of the streams according to the ack policy
+   */
+  private CompletableFuture<Void> acknowledge(CompletableFuture<?>[] results, String operation) {
+    final CompletableFuture<Void> result = new CompletableFuture<Void>();
+    final AtomicInteger succeeded = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+    final int tolerated = results.length - this.required;
+    for (int i = 0; i < results.length; i++) {
+      final String name = this.targets[i].name;
+      results[i].whenComplete((v, e) -> {
+        if (e == null) {
+          if (succeeded.incrementAndGet() == this.required) {
+            result.complete(null);
+          }
+        } else if (failed.incrementAndGet() == tolerated + 1) {
+          final Throwable cause = e.getCause() != null ? e.getCause() : e;
+          result.completeExceptionally(new StreamException(
+              String.format("%s failed on stream %s", operation, name),
+              cause instanceof Exception ? (Exception) cause : new Exception(cause)
+          ));
+        }
+      });
+    }
+    return result;
+  }
+
+  private static void await(CompletableFuture<Void> result) throws StreamException {
+    try {
+      result.get();
+    } catch (CancellationException e) {
+      throw new StreamException("publishing process was cancelled.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof StreamException) {
+        throw (StreamException) e.getCause();
+      }
+      throw new StreamException("publishing process could not resolve.", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StreamException("publishing process was interrupted.", e);
+    }
+  }
+
+  /**
+   * An operation run against a single stream
+   */
+  private interface Operation {
+    void run() throws StreamException;
+  }
+
+  /**
+   * A stream of the composite and the thread publishing to it
+   */
+  private static class Target {
+    final StreamProvider provider;
+    final String name;
+    final ThreadPoolExecutor executor;
+
+    Target(StreamProvider provider, String name, int maxPending) {
+      this.provider = provider;
+      this.name = name;
+      final BlockingQueue<Runnable> queue = maxPending > 0 ? 
+          new ArrayBlockingQueue<Runnable>(maxPending) : new LinkedBlockingQueue<Runnable>();
+      this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, queue, r -> {
+        final Thread t = new Thread(r, "alvarium-composite-" + name);
+        t.setDaemon(true);
+        return t;
+      });
+    }
+
+    CompletableFuture<Void> submit(Operation operation) {
+      final CompletableFuture<Void> result = new CompletableFuture<Void>();
+      try {
+        this.executor.execute(() -> {
+          try {
+            operation.run();
+            result.complete(null);
+          } catch (StreamException | RuntimeException e) {
+            result.completeExceptionally(e);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        result.completeExceptionally(
+            new StreamException(String.format("stream %s is overloaded or closed", this.name), e)
+        );
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.alvarium.PublishWrapper;
+
+/**
+ * <p>Decorates a StreamProvider so that publishing threads never connect themselves. The
+ * connection is watched through a circuit breaker: while the stream is connected the circuit is
+ * closed and publishes go through. When the stream reports it is disconnected, or after
+ * {@link ReconnectConfig#getFailureThreshold()} consecutive failed publishes, the circuit opens,
+ * publishes fail immediately (and are spooled if a spool is configured) and the stream is
+ * reconnected in the background.</p>
+ *
+ * <p>Reconnect attempts are spaced by an exponential backoff with jitter and run on a scheduler
+ * shared by every supervised stream. The circuit closes again once an attempt succeeds.</p>
+ */
+class ConnectionSupervisor implements StreamProvider {
+  private static final double DEFAULT_MULTIPLIER = 2;
+  private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+      2,
+      r -> {
+        final Thread t = new Thread(r, "alvarium-stream-supervisor");
+        t.setDaemon(true);
+        return t;
+      }
+  );
+
+  private final StreamProvider stream;
+  private final long initialBackoffMs;
+  private final long maxBackoffMs;
+  private final double multiplier;
+  private final double jitter;
+  private final int failureThreshold;
+
+  private volatile boolean open;
+  private int consecutiveFailures;
+  private int attempts;
+  private ScheduledFuture<?> reconnect;
+  private boolean closed;
+
+  ConnectionSupervisor(StreamProvider stream, ReconnectConfig config) throws StreamException {
+    if (config.getInitialBackoffMs() <= 0) {
+      throw new StreamException("initialBackoffMs must be greater than 0");
+    }
+    if (config.getMaxBackoffMs() < config.getInitialBackoffMs()) {
+      throw new StreamException("maxBackoffMs must not be lower than initialBackoffMs");
+    }
+    if (config.getJitter() < 0 || config.getJitter() > 1) {
+      throw new StreamException("jitter must be between 0 and 1");
+    }
+    this.stream = stream;
+    this.initialBackoffMs = config.getInitialBackoffMs();
+    this.maxBackoffMs = config.getMaxBackoffMs();
+    this.multiplier = config.getMultiplier() > 1 ? config.getMultiplier() : DEFAULT_MULTIPLIER;
+    this.jitter = config.getJitter();
+    this.failureThreshold = Math.max(1, config.getFailureThreshold());
+  }
+
+  /**
+   * connects the stream once. If it fails the circuit opens and the stream is reconnected in
+   * the background instead of failing the caller.
+   */
+  public void connect() {
+    synchronized (this) {
+      this.closed = false;
+    }
+    try {
+      this.stream.connect();
+    } catch (StreamException e) {
+      this.trip();
+      return;
+    }
+    synchronized (this) {
+      if (this.reconnect == null) {
+        this.open = false;
+        this.consecutiveFailures = 0;
+      }
+    }
+  }
+
+  public void close() throws StreamException {
+    synchronized (this) {
+      this.closed = true;
+      if (this.reconnect != null) {
+        this.reconnect.cancel(false);
+        this.reconnect = null;
+      }
+    }
+    this.stream.close();
+  }
+
+  public boolean isConnected() {
+    return !this.open && this.stream.isConnected();
+  }
+
+  public void publish(PublishWrapper wrapper) throws StreamException {
+    this.checkCircuit();
+    try {
+      this.stream.publish(wrapper);
+    } catch (StreamException e) {
+      this.failed();
+      throw e;
+    }
+    this.succeeded();
+  }
+
+  public boolean isPipelined() {
+    return this.stream.isPipelined();
+  }
+
+  public CompletableFuture<Void> publishAsync(PublishWrapper wrapper) {
+    try {
+      this.checkCircuit();
+    } catch (StreamException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    return this.stream.publishAsync(wrapper).whenComplete((v, e) -> {
+      if (e == null) {
+        this.succeeded();
+      } else {
+        this.failed();
+      }
+    });
+  }
+
+  public void flush() throws StreamException {
+    if (!this.open) {
+      this.stream.flush();
+    }
+  }
+
+  /**
+   * fails fast while the circuit is open, or opens it if the stream lost its connection
+   */
+  private void checkCircuit() throws StreamException {
+    if (!this.open && !this.stream.isConnected()) {
+      this.trip();
+    }
+    if (this.open) {
+      throw new StreamException("stream is unavailable, reconnecting in the background");
+    }
+  }
+
+  private synchronized void succeeded() {
+    this.consecutiveFailures = 0;
+  }
+
+  private synchronized void failed() {
+    if (++this.consecutiveFailures >= this.failureThreshold) {
+      this.trip();
+    }
+  }
+
+  /**
+   * opens the circuit and schedules the first reconnect attempt
+   */
+  private synchronized void trip() {
+    this.open = true;
+    if (this.reconnect == null && !this.closed) {
+      this.attempts = 0;
+      this.schedule();
+    }
+  }
+
+  private void schedule() {
+    final double backoff = Math.min(
+        this.maxBackoffMs,
+        this.initialBackoffMs * Math.pow(this.multiplier, this.attempts)
+    );
+    final double delay = backoff * (1 - this.jitter * ThreadLocalRandom.current().nextDouble());
+    this.reconnect = scheduler.schedule(this::attempt, (long) delay, TimeUnit.MILLISECONDS);
+  }
+
+  private void attempt() {
+    boolean connected;
+    try {
+      this.stream.connect();
+      connected = this.stream.isConnected();
+    } catch (StreamException | RuntimeException e) {
+      connected = false;
+    }
+
+    synchronized (this) {
+      if (this.closed) {
+        return;
+      }
+      if (connected) {
+        this.open = false;
+        this.consecutiveFailures = 0;
+        this.reconnect = null;
+      } else {
+        this.attempts++;
+        this.schedule();
+      }
+    }
+  }
+}
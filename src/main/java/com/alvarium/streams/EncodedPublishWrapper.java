@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alvarium.PublishWrapper;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * A PublishWrapper carrying its encoded JSON, which is handed to the stream providers as is
+ * instead of being serialized again. It is either rebuilt from the JSON, e.g. after being read
+ * back from disk, in which case the content is the base64 encoded content of the original
+ * wrapper, or encoded once from a wrapper that is published to several streams.
+ */
+class EncodedPublishWrapper extends PublishWrapper {
+  private static final Gson gson = new Gson();
+
+  private final String json;
+
+  private EncodedPublishWrapper(PublishWrapper decoded, String json) {
+    super(decoded.getAction(), decoded.getMessageType(), decoded.getContent());
+    this.json = json;
+  }
+
+  static EncodedPublishWrapper encode(PublishWrapper wrapper) {
+    if (wrapper instanceof EncodedPublishWrapper) {
+      return (EncodedPublishWrapper) wrapper;
+    }
+    return new EncodedPublishWrapper(wrapper, wrapper.toJson());
+  }
+
+  /**
+   * rebuilds a wrapper from its JSON, or a batch of wrappers from their JSON array in which case
+   * the metadata of the first wrapper is used
+   */
+  static EncodedPublishWrapper fromJson(String json) {
+    final JsonReader reader = new JsonReader(new StringReader(json));
+    try {
+      if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+        reader.beginArray();
+      }
+    } catch (IOException e) {
+      throw new JsonSyntaxException(e);
+    }
+    final PublishWrapper decoded = gson.fromJson(reader, PublishWrapper.class);
+    if (decoded == null) {
+      throw new JsonSyntaxException("empty publish wrapper");
+    }
+    return new EncodedPublishWrapper(decoded, json);
+  }
+
+  /**
+   * rebuilds a wrapper from its JSON, or a {@link BatchPublishWrapper} holding every wrapper of
+   * a JSON array
+   */
+  static PublishWrapper decode(String json) {
+    if (!json.startsWith("[")) {
+      return fromJson(json);
+    }
+    final JsonArray array;
+    try {
+      array = JsonParser.parseString(json).getAsJsonArray();
+    } catch (IllegalStateException e) {
+      throw new JsonSyntaxException(e);
+    }
+    if (array.size() == 0) {
+      throw new JsonSyntaxException("empty publish wrapper batch");
+    }
+    final List<EncodedPublishWrapper> wrappers = new ArrayList<EncodedPublishWrapper>();
+    for (JsonElement element : array) {
+      final PublishWrapper decoded = gson.fromJson(element, PublishWrapper.class);
+      if (decoded == null) {
+        throw new JsonParseException("empty publish wrapper");
+      }
+      wrappers.add(new EncodedPublishWrapper(decoded, element.toString()));
+    }
+    return new BatchPublishWrapper(wrappers, json);
+  }
+
+  @Override
+  public String toJson() {
+    return this.json;
+  }
+}
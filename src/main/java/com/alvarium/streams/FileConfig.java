@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.Serializable;
+
+import com.google.gson.Gson;
+
+/**
+ * A unit that encapsulates the configuration of the file stream, which appends the published
+ * data to local segment files.
+ */
+public class FileConfig implements Serializable {
+  /**
+   * Directory holding the segment files.
+   */
+  private final String path;
+  /**
+   * Size in bytes after which a new segment file is started.
+   */
+  private final long segmentSize;
+  /**
+   * Size in bytes of the buffer records are gathered in before being written to the file.
+   */
+  private final int bufferSize;
+  private final FileSyncPolicy sync;
+  /**
+   * Interval in milliseconds between two syncs of the interval policy.
+   */
+  private final long syncIntervalMs;
+
+  public FileConfig(String path, long segmentSize, int bufferSize, FileSyncPolicy sync,
+      long syncIntervalMs) {
+    this.path = path;
+    this.segmentSize = segmentSize;
+    this.bufferSize = bufferSize;
+    this.sync = sync;
+    this.syncIntervalMs = syncIntervalMs;
+  }
+
+  public String getPath() {
+    return this.path;
+  }
+
+  public long getSegmentSize() {
+    return this.segmentSize;
+  }
+
+  public int getBufferSize() {
+    return this.bufferSize;
+  }
+
+  public FileSyncPolicy getSync() {
+    return this.sync;
+  }
+
+  public long getSyncIntervalMs() {
+    return this.syncIntervalMs;
+  }
+
+  public String toJson() {
+    Gson gson = new Gson();
+    return gson.toJson(this);
+  }
+
+  public static FileConfig fromJson(String json) {
+    Gson gson = new Gson();
+    return gson.fromJson(json, FileConfig.class);
+  }
+}
@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.alvarium.PublishWrapper;
+
+/**
+ * <p>Appends the published wrappers to segment files in a local directory, for sites without a
+ * broker or to measure the sdk without one. Each record is the length of the encoded wrapper (4
+ * bytes) followed by the wrapper JSON, and a new segment is started once
+ * {@link FileConfig#getSegmentSize()} is reached. Segments are read back with
+ * {@link FileStreamReader}.</p>
+ *
+ * <p>Records are gathered in a buffer and written to the file in batches. With the
+ * {@link FileSyncPolicy#ALWAYS} policy, publish returns once its record is on disk: the first
+ * publisher to sync writes and forces everything appended so far, so concurrent publishes are
+ * committed by a single sync.</p>
+ */
+class FileStreamProvider implements StreamProvider {
+  static final String SEGMENT_PREFIX = "alvarium-";
+  static final String SEGMENT_SUFFIX = ".log";
+  private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  private final FileConfig config;
+  private final Path directory;
+  private final ByteBuffer buffer;
+  private final Object commitLock = new Object();
+
+  private FileChannel channel;
+  private long segmentId;
+  private long segmentPosition;
+  private long appended;
+  private long committed;
+  private ScheduledExecutorService syncer;
+
+  FileStreamProvider(FileConfig config) throws StreamException {
+    if (config.getPath() == null) {
+      throw new StreamException("file stream path must be set");
+    }
+    if (config.getSegmentSize() <= 0) {
+      throw new StreamException("segmentSize must be greater than 0");
+    }
+    if (config.getSync() == FileSyncPolicy.INTERVAL && config.getSyncIntervalMs() <= 0) {
+      throw new StreamException("syncIntervalMs must be greater than 0");
+    }
+    this.config = config;
+    this.directory = Paths.get(config.getPath());
+    this.buffer = ByteBuffer.allocate(
+        config.getBufferSize() > 0 ? config.getBufferSize() : DEFAULT_BUFFER_SIZE
+    );
+  }
+
+  public synchronized void connect() throws StreamException {
+    if (this.channel != null) {
+      return;
+    }
+
+    try {
+      Files.createDirectories(this.directory);
+      // existing segments are left untouched, writing resumes in a new one
+      final List<Long> segments = listSegments(this.directory);
+      this.segmentId = segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1;
+      this.openSegment();
+    } catch (IOException e) {
+      throw new StreamException("could not open file stream", e);
+    }
+
+    if (this.config.getSync() == FileSyncPolicy.INTERVAL) {
+      this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread t = new Thread(r, "alvarium-file-stream-sync");
+        t.setDaemon(true);
+        return t;
+      });
+      this.syncer.scheduleWithFixedDelay(
+          () -> {
+            try {
+              this.flush();
+            } catch (StreamException e) {
+              // reported by the next publish, flush or close
+            }
+          },
+          this.config.getSyncIntervalMs(),
+          this.config.getSyncIntervalMs(),
+          TimeUnit.MILLISECONDS
+      );
+    }
+  }
+
+  public void close() throws StreamException {
+    synchronized (this) {
+      if (this.syncer != null) {
+        this.syncer.shutdownNow();
+        this.syncer = null;
+      }
+    }
+    this.flush();
+    synchronized (this) {
+      try {
+        if (this.channel != null) {
+          this.channel.close();
+        }
+      } catch (IOException e) {
+        throw new StreamException("could not close file stream", e);
+      } finally {
+        this.channel = null;
+      }
+    }
+  }
+
+  public synchronized boolean isConnected() {
+    return this.channel != null;
+  }
+
+  public void publish(PublishWrapper wrapper) throws StreamException {
+    final byte[] payload = wrapper.toJson().getBytes(StandardCharsets.UTF_8);
+    final long sequence;
+    synchronized (this) {
+      if (this.channel == null) {
+        throw new StreamException("file stream is not connected");
+      }
+      try {
+        this.append(payload);
+      } catch (IOException e) {
+        throw new StreamException("could not write to file stream", e);
+      }
+      sequence = ++this.appended;
+    }
+
+    if (this.config.getSync() == FileSyncPolicy.ALWAYS) {
+      this.commit(sequence);
+    }
+  }
+
+  /**
+   * writes the buffered records and forces them to disk
+   */
+  public void flush() throws StreamException {
+    final long sequence;
+    synchronized (this) {
+      sequence = this.appended;
+    }
+    this.commit(sequence);
+  }
+
+  /**
+   * makes every record up to the given sequence durable. The sync happens outside of the append
+   * lock, so records keep being appended meanwhile and are committed by the next sync.
+   */
+  private void commit(long sequence) throws StreamException {
+    synchronized (this.commitLock) {
+      if (this.committed >= sequence) {
+        return;
+      }
+
+      final long target;
+      final FileChannel current;
+      synchronized (this) {
+        if (this.channel == null) {
+          return;
+        }
+        try {
+          this.drain();
+        } catch (IOException e) {
+          throw new StreamException("could not write to file stream", e);
+        }
+        target = this.appended;
+        current = this.channel;
+      }
+
+      try {
+        current.force(false);
+      } catch (ClosedChannelException e) {
+        // the segment was rolled over, which forced it before closing
+      } catch (IOException e) {
+        throw new StreamException("could not sync file stream", e);
+      }
+      this.committed = target;
+    }
+  }
+
+  private void append(byte[] payload) throws IOException {
+    final int length = 4 + payload.length;
+    if (this.segmentPosition + this.buffer.position() > 0
+        && this.segmentPosition + this.buffer.position() + length > this.config.getSegmentSize()) {
+      this.roll();
+    }
+
+    if (length > this.buffer.remaining()) {
+      this.drain();
+    }
+    if (length > this.buffer.capacity()) {
+      // larger than the whole buffer, written directly
+      final ByteBuffer[] record = new ByteBuffer[] {
+        ByteBuffer.allocate(4).putInt(0, payload.length),
+        ByteBuffer.wrap(payload)
+      };
+      while (record[1].hasRemaining()) {
+        this.segmentPosition += this.channel.write(record);
+      }
+      return;
+    }
+    this.buffer.putInt(payload.length).put(payload);
+  }
+
+  /**
+   * writes the buffered records to the current segment
+   */
+  private void drain() throws IOException {
+    this.buffer.flip();
+    while (this.buffer.hasRemaining()) {
+      this.segmentPosition += this.channel.write(this.buffer);
+    }
+    this.buffer.clear();
+  }
+
+  /**
+   * completes the current segment and starts the next one
+   */
+  private void roll() throws IOException {
+    this.drain();
+    // forced whatever the policy, a pending commit cannot sync a closed segment
+    this.channel.force(false);
+    this.channel.close();
+    this.segmentId++;
+    this.openSegment();
+  }
+
+  private void openSegment() throws IOException {
+    this.channel = FileChannel.open(
+        segmentPath(this.directory, this.segmentId),
+        StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.WRITE
+    );
+    this.segmentPosition = 0;
+  }
+
+  static Path segmentPath(Path directory, long id) {
+    return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+  }
+
+  /**
+   * lists the ids of the segments found in the directory, oldest first
+   */
+  static List<Long> listSegments(Path directory) throws IOException {
+    final List<Long> ids = new ArrayList<Long>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(
+        directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path file : files) {
+        final String name = file.getFileName().toString();
+        try {
+          ids.add(Long.parseLong(name.substring(
+              SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+        } catch (NumberFormatException e) {
+          // not a segment of the file stream
+        }
+      }
+    }
+    Collections.sort(ids);
+    return ids;
+  }
+}
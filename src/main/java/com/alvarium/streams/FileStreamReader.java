@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * <p>Reads the records written by the file stream sequentially, oldest segment first, e.g. to
+ * ship them in bulk. Each record is returned as the encoded PublishWrapper JSON, which can be
+ * parsed with {@link com.alvarium.serializers.PublishWrapperReader}.</p>
+ *
+ * <p>A record cut short at the end of a segment, as left by a crash, ends that segment, as does
+ * a length longer than what is left of the segment, so a torn length is never allocated. The
+ * segments are listed when the reader is created. Instances are not thread-safe.</p>
+ */
+public class FileStreamReader implements Closeable {
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+  private final Path directory;
+  private final List<Long> segments;
+  private int nextSegment;
+  private DataInputStream in;
+  // bytes of the current segment not read yet
+  private long remaining;
+
+  public FileStreamReader(String path) throws IOException {
+    this.directory = Paths.get(path);
+    this.segments = FileStreamProvider.listSegments(this.directory);
+  }
+
+  /**
+   * reads the next record
+   * @return the encoded PublishWrapper, or null once every segment is read
+   * @throws IOException if a segment cannot be read
+   */
+  public byte[] next() throws IOException {
+    while (true) {
+      if (this.in == null) {
+        if (this.nextSegment >= this.segments.size()) {
+          return null;
+        }
+        final FileChannel channel = FileChannel.open(
+            FileStreamProvider.segmentPath(this.directory, this.segments.get(this.nextSegment++)),
+            StandardOpenOption.READ
+        );
+        try {
+          this.remaining = channel.size();
+        } catch (IOException e) {
+          channel.close();
+          throw e;
+        }
+        this.in = new DataInputStream(
+            new BufferedInputStream(Channels.newInputStream(channel), READ_BUFFER_SIZE)
+        );
+      }
+
+      try {
+        final int length = this.in.readInt();
+        this.remaining -= Integer.BYTES;
+        if (length < 0 || length > this.remaining) {
+          throw new EOFException();
+        }
+        final byte[] record = new byte[length];
+        this.in.readFully(record);
+        this.remaining -= length;
+        return record;
+      } catch (EOFException e) {
+        // end of the segment, or a record cut short
+        this.closeSegment();
+      }
+    }
+  }
+
+  public void close() throws IOException {
+    this.closeSegment();
+    this.nextSegment = this.segments.size();
+  }
+
+  private void closeSegment() throws IOException {
+    if (this.in != null) {
+      try {
+        this.in.close();
+      } finally {
+        this.in = null;
+      }
+    }
+  }
+}
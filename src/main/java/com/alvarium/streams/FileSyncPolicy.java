@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Identifies when the file stream forces written data to disk
+ */
+public enum FileSyncPolicy {
+  /**
+   * never forced explicitly. Records stay in the heap buffer of the stream, bufferSize bytes and
+   * 64 KB by default, until it fills up or the stream is flushed or closed, and only then reach
+   * the operating system, which writes them back on its own. A crash of the process, not only a
+   * power loss, loses the records still in the buffer
+   */
+  @SerializedName(value = "none")
+  NONE,
+  /**
+   * forced every syncIntervalMs, a crash may lose the data written since the last sync
+   */
+  @SerializedName(value = "interval")
+  INTERVAL,
+  /**
+   * publish returns once the data is on disk, concurrent publishes share a single sync
+   */
+  @SerializedName(value = "always")
+  ALWAYS;
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Identifies how the publish limiter adapts the number of concurrent publishes to the observed
+ * acknowledgement latency
+ */
+public enum LimiterAlgorithm {
+  /**
+   * additive increase while publishes are acknowledged within the latency threshold,
+   * multiplicative decrease when they are slower or fail
+   */
+  @SerializedName(value = "aimd")
+  AIMD,
+  /**
+   * scales the limit by the ratio between the long-term and the recent latency, so the limit
+   * shrinks as soon as acknowledgements queue up at the broker
+   */
+  @SerializedName(value = "gradient")
+  GRADIENT;
+}
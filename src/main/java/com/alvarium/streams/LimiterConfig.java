@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.Serializable;
+
+import com.google.gson.Gson;
+
+/**
+ * A unit that encapsulates the settings of the publish limiter, which adapts the number of
+ * concurrent publishes to what the stream can absorb and caps their rate
+ */
+public class LimiterConfig implements Serializable {
+  /**
+   * Name of the limiter metrics, the stream type and a counter, e.g. mqtt-1, when not set.
+   */
+  private final String name;
+  private final LimiterAlgorithm algorithm;
+  /**
+   * Concurrent publishes allowed before any acknowledgement is seen, 20 when not set.
+   */
+  private final int initialLimit;
+  /**
+   * Lowest concurrency limit, 1 when not set.
+   */
+  private final int minLimit;
+  /**
+   * Highest concurrency limit, 1000 when not set.
+   */
+  private final int maxLimit;
+  /**
+   * Acknowledgement latency above which the aimd algorithm decreases the limit.
+   */
+  private final long latencyThresholdMs;
+  /**
+   * Factor applied to the limit on a decrease, between 0 and 1, 0.9 when not set.
+   */
+  private final double backoffRatio;
+  /**
+   * Maximum number of publishes per second, 0 does not cap the rate.
+   */
+  private final double maxRate;
+  /**
+   * Number of publishes allowed at once above the rate after an idle period, 1 when not set.
+   */
+  private final int burst;
+
+  public LimiterConfig(String name, LimiterAlgorithm algorithm, int initialLimit, int minLimit,
+      int maxLimit, long latencyThresholdMs, double backoffRatio, double maxRate, int burst) {
+    this.name = name;
+    this.algorithm = algorithm;
+    this.initialLimit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.latencyThresholdMs = latencyThresholdMs;
+    this.backoffRatio = backoffRatio;
+    this.maxRate = maxRate;
+    this.burst = burst;
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public LimiterAlgorithm getAlgorithm() {
+    return this.algorithm;
+  }
+
+  public int getInitialLimit() {
+    return this.initialLimit;
+  }
+
+  public int getMinLimit() {
+    return this.minLimit;
+  }
+
+  public int getMaxLimit() {
+    return this.maxLimit;
+  }
+
+  public long getLatencyThresholdMs() {
+    return this.latencyThresholdMs;
+  }
+
+  public double getBackoffRatio() {
+    return this.backoffRatio;
+  }
+
+  public double getMaxRate() {
+    return this.maxRate;
+  }
+
+  public int getBurst() {
+    return this.burst;
+  }
+
+  public String toJson() {
+    Gson gson = new Gson();
+    return gson.toJson(this);
+  }
+
+  public static LimiterConfig fromJson(String json) {
+    Gson gson = new Gson();
+    return gson.fromJson(json, LimiterConfig.class);
+  }
+}
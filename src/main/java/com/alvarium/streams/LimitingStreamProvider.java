@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.alvarium.PublishWrapper;
+
+/**
+ * <p>Decorates a StreamProvider with an {@link AdaptiveLimiter}, so the number of concurrent
+ * publishes follows what the stream can absorb, and optionally with a {@link TokenBucket}
+ * capping the publish rate. The latency is measured from the publish to its acknowledgement,
+ * which for pipelined streams is the completion of publishAsync.</p>
+ *
+ * <p>The current limit is exposed through {@link PublishLimiterMXBean} while the stream is
+ * connected. Unnamed limiters are named after their stream type and a counter, e.g.
+ * {@code mqtt-1}, so several of them can be registered at once.</p>
+ */
+class LimitingStreamProvider implements StreamProvider, PublishLimiterMXBean {
+  private static final AtomicInteger unnamed = new AtomicInteger();
+
+  private final StreamProvider stream;
+  private final AdaptiveLimiter limiter;
+  private final TokenBucket bucket;
+  private final double maxRate;
+  private final ObjectName metricsName;
+  private boolean registered;
+
+  LimitingStreamProvider(StreamProvider stream, LimiterConfig config, StreamType type)
+      throws StreamException {
+    if (config.getMaxRate() < 0) {
+      throw new StreamException("maxRate must not be negative");
+    }
+    this.stream = stream;
+    this.limiter = new AdaptiveLimiter(config);
+    this.maxRate = config.getMaxRate();
+    this.bucket = config.getMaxRate() > 0 ? 
+        new TokenBucket(config.getMaxRate(), config.getBurst()) : null;
+    try {
+      this.metricsName = new ObjectName(String.format(
+          "com.alvarium:type=PublishLimiter,name=%s",
+          ObjectName.quote(config.getName() != null ? config.getName() : defaultName(type))
+      ));
+    } catch (JMException e) {
+      throw new StreamException("invalid limiter name", e);
+    }
+  }
+
+  private static String defaultName(StreamType type) {
+    return String.format("%s-%d", type.name().toLowerCase(), unnamed.incrementAndGet());
+  }
+
+  public void connect() throws StreamException {
+    this.stream.connect();
+    synchronized (this) {
+      if (this.registered) {
+        return;
+      }
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      try {
+        server.registerMBean(this, this.metricsName);
+        this.registered = true;
+      } catch (InstanceAlreadyExistsException e) {
+        throw new StreamException(
+            String.format("limiter metrics %s are already registered", this.metricsName), e);
+      } catch (JMException e) {
+        throw new StreamException("could not register limiter metrics", e);
+      }
+    }
+  }
+
+  public void close() throws StreamException {
+    synchronized (this) {
+      if (this.registered) {
+        try {
+          ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.metricsName);
+        } catch (InstanceNotFoundException e) {
+          // already gone
+        } catch (JMException e) {
+          throw new StreamException("could not unregister limiter metrics", e);
+        } finally {
+          this.registered = false;
+        }
+      }
+    }
+    this.stream.close();
+  }
+
+  public void publish(PublishWrapper wrapper) throws StreamException {
+    this.acquire();
+    final long start = System.nanoTime();
+    boolean success = false;
+    try {
+      this.stream.publish(wrapper);
+      success = true;
+    } finally {
+      this.limiter.release(System.nanoTime() - start, success);
+    }
+  }
+
+  public boolean isPipelined() {
+    return this.stream.isPipelined();
+  }
+
+  public CompletableFuture<Void> publishAsync(PublishWrapper wrapper) {
+    try {
+      this.acquire();
+    } catch (StreamException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    final long start = System.nanoTime();
+    final CompletableFuture<Void> result;
+    try {
+      result = this.stream.publishAsync(wrapper);
+    } catch (RuntimeException e) {
+      this.limiter.release(System.nanoTime() - start, false);
+      throw e;
+    }
+    return result.whenComplete(
+        (v, e) -> this.limiter.release(System.nanoTime() - start, e == null)
+    );
+  }
+
+  public void flush() throws StreamException {
+    this.stream.flush();
+  }
+
+  public int getLimit() {
+    return this.limiter.getLimit();
+  }
+
+  public int getInflight() {
+    return this.limiter.getInflight();
+  }
+
+  public double getLatencyMs() {
+    return this.limiter.getLatencyMs();
+  }
+
+  public double getMaxRate() {
+    return this.maxRate;
+  }
+
+  public long getFailures() {
+    return this.limiter.getFailures();
+  }
+
+  private void acquire() throws StreamException {
+    try {
+      if (this.bucket != null) {
+        this.bucket.acquire();
+      }
+      this.limiter.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StreamException("publishing process was interrupted.", e);
+    }
+  }
+}
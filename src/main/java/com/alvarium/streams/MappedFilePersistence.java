@@ -0,0 +1,381 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.MqttPersistable;
+import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
+
+/**
+ * <p>An MQTT client persistence that appends every change to a preallocated, memory-mapped
+ * file, instead of creating and deleting one file per message like paho's default persistence.
+ * The file is synced to disk in batches, every {@code syncIntervalMs}, so a crash may lose
+ * the changes made since the last sync.</p>
+ *
+ * <p>The file is used as a ring: records are appended until the end of the file is reached,
+ * then the live entries, which are also kept in memory, are rewritten from the start of the file
+ * under a new generation number. Records of older generations are ignored on recovery. A crash
+ * during that rewrite can lose the entries not yet rewritten.</p>
+ *
+ * <p>Record layout: length (4), generation (4), type (1), key length (2), header length (4),
+ * payload length (4), key, header, payload, CRC32 of everything after the length (4).</p>
+ */
+class MappedFilePersistence implements MqttClientPersistence {
+  private static final int MAGIC = 0x414c564d;
+  private static final int FILE_HEADER_SIZE = 16;
+  private static final int RECORD_OVERHEAD = 4 + 4 + 1 + 2 + 4 + 4 + 4;
+  private static final byte PUT = 1;
+  private static final byte REMOVE = 2;
+  private static final int FILL_CHUNK_SIZE = 64 * 1024;
+
+  private final Path directory;
+  private final long size;
+  private final long syncIntervalMs;
+  private final Map<String, Entry> entries;
+
+  private FileChannel channel;
+  private MappedByteBuffer buffer;
+  private ScheduledExecutorService syncer;
+  private int generation;
+  private int writePosition;
+  private boolean dirty;
+
+  MappedFilePersistence(String directory, long size, long syncIntervalMs) {
+    if (size <= FILE_HEADER_SIZE || size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("mmap persistence size must be between 16B and 2GB");
+    }
+    this.directory = Paths.get(directory);
+    this.size = size;
+    this.syncIntervalMs = syncIntervalMs;
+    this.entries = new LinkedHashMap<String, Entry>();
+  }
+
+  public synchronized void open(String clientId, String serverURI)
+      throws MqttPersistenceException {
+    if (this.channel != null) {
+      throw new MqttPersistenceException(MqttPersistenceException.REASON_CODE_PERSISTENCE_IN_USE);
+    }
+
+    final String name = (clientId + "-" + serverURI).replaceAll("[^a-zA-Z0-9_.-]", "");
+    try {
+      Files.createDirectories(this.directory);
+      this.channel = FileChannel.open(
+          this.directory.resolve(name + ".mqttlog"),
+          StandardOpenOption.CREATE,
+          StandardOpenOption.READ,
+          StandardOpenOption.WRITE
+      );
+      this.preallocate();
+      this.buffer = this.channel.map(
+          FileChannel.MapMode.READ_WRITE,
+          0,
+          Math.max(this.size, this.channel.size())
+      );
+    } catch (IOException e) {
+      this.closeChannel();
+      throw new MqttPersistenceException(e);
+    }
+
+    this.recover();
+
+    if (this.syncIntervalMs > 0) {
+      this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread t = new Thread(r, "alvarium-mqtt-persistence-sync");
+        t.setDaemon(true);
+        return t;
+      });
+      this.syncer.scheduleWithFixedDelay(
+          this::sync,
+          this.syncIntervalMs,
+          this.syncIntervalMs,
+          TimeUnit.MILLISECONDS
+      );
+    }
+  }
+
+  public synchronized void close() throws MqttPersistenceException {
+    if (this.channel == null) {
+      return;
+    }
+    if (this.syncer != null) {
+      this.syncer.shutdownNow();
+      this.syncer = null;
+    }
+    this.sync();
+    this.entries.clear();
+    this.buffer = null;
+    this.closeChannel();
+  }
+
+  public synchronized void put(String key, MqttPersistable persistable)
+      throws MqttPersistenceException {
+    this.ensureOpen();
+    final Entry entry = new Entry(
+        copy(persistable.getHeaderBytes(), persistable.getHeaderOffset(),
+            persistable.getHeaderLength()),
+        copy(persistable.getPayloadBytes(), persistable.getPayloadOffset(),
+            persistable.getPayloadLength())
+    );
+    this.append(PUT, key, entry);
+    this.entries.put(key, entry);
+  }
+
+  public synchronized MqttPersistable get(String key) throws MqttPersistenceException {
+    this.ensureOpen();
+    return this.entries.get(key);
+  }
+
+  public synchronized void remove(String key) throws MqttPersistenceException {
+    this.ensureOpen();
+    if (this.entries.remove(key) != null) {
+      this.append(REMOVE, key, Entry.EMPTY);
+    }
+  }
+
+  public synchronized Enumeration<String> keys() throws MqttPersistenceException {
+    this.ensureOpen();
+    return Collections.enumeration(new ArrayList<String>(this.entries.keySet()));
+  }
+
+  public synchronized void clear() throws MqttPersistenceException {
+    this.ensureOpen();
+    this.entries.clear();
+    this.compact();
+  }
+
+  public synchronized boolean containsKey(String key) throws MqttPersistenceException {
+    this.ensureOpen();
+    return this.entries.containsKey(key);
+  }
+
+  /**
+   * forces the pending changes to disk, invoked periodically when batching syncs
+   */
+  synchronized void sync() {
+    if (this.buffer != null && this.dirty) {
+      this.buffer.force();
+      this.dirty = false;
+    }
+  }
+
+  /**
+   * appends a record, wrapping to the start of the file when the end is reached
+   */
+  private void append(byte type, String key, Entry entry) throws MqttPersistenceException {
+    final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    final int length = RECORD_OVERHEAD + keyBytes.length + entry.header.length
+        + entry.payload.length;
+    if (this.writePosition + length > this.buffer.capacity()) {
+      this.compact();
+      if (type == REMOVE) {
+        // the removed entry was not rewritten by the compaction
+        return;
+      }
+      if (this.writePosition + length > this.buffer.capacity()) {
+        throw new MqttPersistenceException(new IOException("mmap persistence file is full"));
+      }
+    }
+
+    this.writeRecord(this.writePosition, type, keyBytes, entry);
+    this.writePosition += length;
+    if (this.syncIntervalMs > 0) {
+      this.dirty = true;
+    } else {
+      this.buffer.force();
+    }
+  }
+
+  /**
+   * rewrites the live entries from the start of the file under a new generation
+   */
+  private void compact() {
+    this.generation = this.generation == Integer.MAX_VALUE ? 1 : this.generation + 1;
+    this.buffer.putInt(4, this.generation);
+
+    int position = FILE_HEADER_SIZE;
+    for (Map.Entry<String, Entry> e : this.entries.entrySet()) {
+      final byte[] keyBytes = e.getKey().getBytes(StandardCharsets.UTF_8);
+      position += this.writeRecord(position, PUT, keyBytes, e.getValue());
+    }
+    this.writePosition = position;
+    this.buffer.force();
+    this.dirty = false;
+  }
+
+  private int writeRecord(int position, byte type, byte[] key, Entry entry) {
+    final int length = RECORD_OVERHEAD + key.length + entry.header.length + entry.payload.length;
+    final ByteBuffer view = this.buffer.duplicate();
+    view.position(position);
+    view.putInt(length);
+    view.putInt(this.generation);
+    view.put(type);
+    view.putShort((short) key.length);
+    view.putInt(entry.header.length);
+    view.putInt(entry.payload.length);
+    view.put(key);
+    view.put(entry.header);
+    view.put(entry.payload);
+    view.putInt(this.checksum(position, length));
+    return length;
+  }
+
+  /**
+   * replays the records of the current generation into memory
+   */
+  private void recover() {
+    if (this.buffer.getInt(0) != MAGIC) {
+      this.buffer.putInt(0, MAGIC);
+      this.generation = 1;
+      this.buffer.putInt(4, this.generation);
+      this.writePosition = FILE_HEADER_SIZE;
+      this.buffer.force();
+      return;
+    }
+
+    this.generation = this.buffer.getInt(4);
+    int position = FILE_HEADER_SIZE;
+    while (position + RECORD_OVERHEAD <= this.buffer.capacity()) {
+      final int length = this.buffer.getInt(position);
+      if (length < RECORD_OVERHEAD || length > this.buffer.capacity() - position
+          || this.buffer.getInt(position + 4) != this.generation
+          || this.buffer.getInt(position + length - 4) != this.checksum(position, length)) {
+        break;
+      }
+
+      final ByteBuffer view = this.buffer.duplicate();
+      view.position(position + 8);
+      final byte type = view.get();
+      final byte[] key = new byte[view.getShort() & 0xffff];
+      final byte[] header = new byte[view.getInt()];
+      final byte[] payload = new byte[view.getInt()];
+      view.get(key).get(header).get(payload);
+
+      final String k = new String(key, StandardCharsets.UTF_8);
+      if (type == PUT) {
+        this.entries.put(k, new Entry(header, payload));
+      } else {
+        this.entries.remove(k);
+      }
+      position += length;
+    }
+    this.writePosition = position;
+  }
+
+  private int checksum(int position, int length) {
+    final ByteBuffer region = this.buffer.duplicate();
+    region.position(position + 4);
+    region.limit(position + length - 4);
+    final CRC32 crc = new CRC32();
+    crc.update(region);
+    return (int) crc.getValue();
+  }
+
+  /**
+   * writes zeros up to the configured size once, so later writes never grow the file
+   */
+  private void preallocate() throws IOException {
+    long position = this.channel.size();
+    final ByteBuffer zeros = ByteBuffer.allocate(FILL_CHUNK_SIZE);
+    while (position < this.size) {
+      zeros.clear();
+      zeros.limit((int) Math.min(FILL_CHUNK_SIZE, this.size - position));
+      position += this.channel.write(zeros, position);
+    }
+    this.channel.force(true);
+  }
+
+  private void ensureOpen() throws MqttPersistenceException {
+    if (this.channel == null) {
+      throw new MqttPersistenceException(new IOException("mmap persistence is not open"));
+    }
+  }
+
+  private void closeChannel() {
+    if (this.channel != null) {
+      try {
+        this.channel.close();
+      } catch (IOException e) {
+        // nothing left to release
+      }
+      this.channel = null;
+    }
+  }
+
+  private static byte[] copy(byte[] bytes, int offset, int length) {
+    if (bytes == null || length == 0) {
+      return new byte[0];
+    }
+    final byte[] result = new byte[length];
+    System.arraycopy(bytes, offset, result, 0, length);
+    return result;
+  }
+
+  /**
+   * In-memory copy of a persisted message, served back to the client on get
+   */
+  private static class Entry implements MqttPersistable {
+    static final Entry EMPTY = new Entry(new byte[0], new byte[0]);
+
+    final byte[] header;
+    final byte[] payload;
+
+    Entry(byte[] header, byte[] payload) {
+      this.header = header;
+      this.payload = payload;
+    }
+
+    public byte[] getHeaderBytes() {
+      return this.header;
+    }
+
+    public int getHeaderLength() {
+      return this.header.length;
+    }
+
+    public int getHeaderOffset() {
+      return 0;
+    }
+
+    public byte[] getPayloadBytes() {
+      return this.payload;
+    }
+
+    public int getPayloadLength() {
+      return this.payload.length;
+    }
+
+    public int getPayloadOffset() {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.Serializable;
+
+import com.google.gson.Gson;
+
+/**
+ * A unit that encapsulates the configuration of an in-process memory stream
+ */
+public class MemoryConfig implements Serializable {
+  /**
+   * Name under which subscribers find the stream through {@link MemoryStream#get(String)}.
+   */
+  private final String name;
+  /**
+   * Number of slots of the ring buffer, must be a power of 2. The publisher waits once the
+   * slowest subscriber is this many events behind.
+   */
+  private final int capacity;
+  /**
+   * Maximum number of events handed to a subscriber in a single call, 0 hands all available.
+   */
+  private final int batchSize;
+  private final MemoryWaitStrategy waitStrategy;
+
+  public MemoryConfig(String name, int capacity, int batchSize, MemoryWaitStrategy waitStrategy) {
+    this.name = name;
+    this.capacity = capacity;
+    this.batchSize = batchSize;
+    this.waitStrategy = waitStrategy;
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  public int getBatchSize() {
+    return this.batchSize;
+  }
+
+  public MemoryWaitStrategy getWaitStrategy() {
+    return this.waitStrategy;
+  }
+
+  public String toJson() {
+    Gson gson = new Gson();
+    return gson.toJson(this);
+  }
+
+  public static MemoryConfig fromJson(String json) {
+    Gson gson = new Gson();
+    return gson.fromJson(json, MemoryConfig.class);
+  }
+}
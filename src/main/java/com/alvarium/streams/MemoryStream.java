@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.alvarium.PublishWrapper;
+
+/**
+ * <p>An in-process stream backed by a preallocated ring buffer, used to hand the published
+ * wrappers to consumers living in the same JVM without serializing them.</p>
+ *
+ * <p>The stream has a single producer, the memory stream provider, and any number of
+ * subscribers. Every subscriber sees every event published after it subscribed, on its own
+ * thread and in publish order. Subscribers only read the ring and publish their progress, no
+ * lock is taken on the consuming side. The producer waits, following the configured
+ * {@link MemoryWaitStrategy}, when the slowest subscriber is a full ring behind.</p>
+ *
+ * <p>Streams are registered under the name of their config while their provider is connected
+ * and are looked up by subscribers with {@link #get(String)}.</p>
+ */
+public class MemoryStream {
+  private static final ConcurrentHashMap<String, MemoryStream> streams = 
+      new ConcurrentHashMap<String, MemoryStream>();
+  private static final int SPIN_TRIES = 100;
+  private static final int YIELD_TRIES = 200;
+  private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  private final String name;
+  private final PublishWrapper[] entries;
+  private final int mask;
+  private final int batchSize;
+  private final MemoryWaitStrategy waitStrategy;
+  private final AtomicLong cursor;
+  private final CopyOnWriteArrayList<Subscription> subscriptions;
+  // lowest subscriber sequence seen by the producer, guarded by the producer lock
+  private long gatingSequence;
+  private volatile boolean closed;
+
+  private MemoryStream(MemoryConfig cfg) {
+    this.name = cfg.getName();
+    this.entries = new PublishWrapper[cfg.getCapacity()];
+    this.mask = cfg.getCapacity() - 1;
+    this.batchSize = cfg.getBatchSize();
+    this.waitStrategy = cfg.getWaitStrategy() != null ? 
+        cfg.getWaitStrategy() : MemoryWaitStrategy.PARK;
+    this.cursor = new AtomicLong(-1);
+    this.subscriptions = new CopyOnWriteArrayList<Subscription>();
+    this.gatingSequence = -1;
+  }
+
+  /**
+   * returns the connected memory stream registered under the given name
+   * @param name name of the stream in its config
+   * @return the stream, or null if no provider with that name is connected
+   */
+  public static MemoryStream get(String name) {
+    return streams.get(name);
+  }
+
+  /**
+   * creates and registers a stream
+   * @throws StreamException if a stream is already registered under the same name
+   */
+  static MemoryStream open(MemoryConfig cfg) throws StreamException {
+    final MemoryStream stream = new MemoryStream(cfg);
+    if (streams.putIfAbsent(cfg.getName(), stream) != null) {
+      throw new StreamException(String.format("memory stream %s is already open", cfg.getName()));
+    }
+    return stream;
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * registers a subscriber, which is called on a dedicated thread until the subscription or the
+   * stream is closed
+   * @param subscriber handler of the published events
+   * @return the subscription, closing it stops the calls
+   * @throws StreamException if the stream is closed
+   */
+  public synchronized Subscription subscribe(MemorySubscriber subscriber) throws StreamException {
+    if (this.closed) {
+      throw new StreamException(String.format("memory stream %s is closed", this.name));
+    }
+    // taken under the producer lock so that no event is published between reading the cursor
+    // and gating the producer on the new subscriber
+    final Subscription subscription = new Subscription(subscriber, this.cursor.get());
+    this.subscriptions.add(subscription);
+    subscription.thread.start();
+    return subscription;
+  }
+
+  /**
+   * adds a wrapper to the ring, waiting for a free slot if needed
+   * @throws StreamException if the stream is closed
+   */
+  synchronized void publish(PublishWrapper wrapper) throws StreamException {
+    final long next = this.cursor.get() + 1;
+    final long wrapPoint = next - this.entries.length;
+    if (wrapPoint > this.gatingSequence) {
+      int tries = 0;
+      long minimum;
+      while (wrapPoint > (minimum = this.minimumSequence(next - 1))) {
+        if (this.closed) {
+          break;
+        }
+        tries = this.idle(tries);
+      }
+      this.gatingSequence = minimum;
+    }
+    if (this.closed) {
+      throw new StreamException(String.format("memory stream %s is closed", this.name));
+    }
+
+    this.entries[(int) next & this.mask] = wrapper;
+    this.cursor.lazySet(next);
+    if (this.waitStrategy == MemoryWaitStrategy.PARK) {
+      for (Subscription subscription : this.subscriptions) {
+        if (subscription.parked) {
+          LockSupport.unpark(subscription.thread);
+        }
+      }
+    }
+  }
+
+  /**
+   * unregisters the stream, the subscribers stop once they have handled the events published
+   * so far
+   */
+  void close() {
+    this.closed = true;
+    streams.remove(this.name, this);
+    for (Subscription subscription : this.subscriptions) {
+      LockSupport.unpark(subscription.thread);
+    }
+  }
+
+  private long minimumSequence(long defaultValue) {
+    long minimum = defaultValue;
+    for (Subscription subscription : this.subscriptions) {
+      minimum = Math.min(minimum, subscription.sequence.get());
+    }
+    return minimum;
+  }
+
+  /**
+   * waits once according to the wait strategy
+   * @return the number of tries so far
+   */
+  private int idle(int tries) {
+    if (this.waitStrategy == MemoryWaitStrategy.BUSY_SPIN || tries < SPIN_TRIES) {
+      Thread.onSpinWait();
+    } else if (this.waitStrategy == MemoryWaitStrategy.YIELD || tries < YIELD_TRIES) {
+      Thread.yield();
+    } else {
+      LockSupport.parkNanos(PARK_NANOS);
+    }
+    return Math.min(tries + 1, YIELD_TRIES);
+  }
+
+  /**
+   * A subscriber registered on the stream and the thread draining events for it
+   */
+  public class Subscription implements Closeable {
+    private final MemorySubscriber subscriber;
+    private final AtomicLong sequence;
+    private final Thread thread;
+    private volatile boolean running;
+    private volatile boolean parked;
+
+    private Subscription(MemorySubscriber subscriber, long sequence) {
+      this.subscriber = subscriber;
+      this.sequence = new AtomicLong(sequence);
+      this.running = true;
+      this.thread = new Thread(this::run, "alvarium-memory-" + name);
+      this.thread.setDaemon(true);
+    }
+
+    /**
+     * stops the calls to the subscriber, a batch being handled is completed first
+     */
+    public void close() {
+      this.running = false;
+      subscriptions.remove(this);
+      LockSupport.unpark(this.thread);
+    }
+
+    private void run() {
+      final List<PublishWrapper> batch = new ArrayList<PublishWrapper>();
+      final List<PublishWrapper> events = Collections.unmodifiableList(batch);
+      long next = this.sequence.get() + 1;
+      int tries = 0;
+      while (this.running) {
+        final long available = cursor.get();
+        if (available >= next) {
+          final long end = batchSize > 0 ? Math.min(available, next + batchSize - 1) : available;
+          for (long s = next; s <= end; s++) {
+            batch.add(entries[(int) s & mask]);
+          }
+          try {
+            this.subscriber.onEvents(events);
+          } catch (RuntimeException e) {
+            // a failing subscriber must not stall the producer, the batch is skipped
+          }
+          batch.clear();
+          // the slots are released to the producer only once the batch is handled
+          this.sequence.lazySet(end);
+          next = end + 1;
+          tries = 0;
+        } else if (closed) {
+          break;
+        } else if (waitStrategy == MemoryWaitStrategy.PARK && tries >= YIELD_TRIES) {
+          this.parked = true;
+          // checked again after raising the flag, the producer may have missed it
+          if (cursor.get() < next && this.running && !closed) {
+            LockSupport.parkNanos(PARK_NANOS);
+          }
+          this.parked = false;
+        } else {
+          tries = idle(tries);
+        }
+      }
+      subscriptions.remove(this);
+    }
+  }
+}
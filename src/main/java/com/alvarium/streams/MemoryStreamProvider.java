@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import com.alvarium.PublishWrapper;
+
+/**
+ * Publishes the wrappers to an in-process {@link MemoryStream}, as is, for consumers living in
+ * the same JVM. Publishes are serialized, the stream has a single producer. A batch is published
+ * as its wrappers, one event each.
+ */
+class MemoryStreamProvider implements StreamProvider {
+  private final MemoryConfig config;
+  private volatile MemoryStream stream;
+
+  MemoryStreamProvider(MemoryConfig config) throws StreamException {
+    if (config.getName() == null) {
+      throw new StreamException("memory stream name must be set");
+    }
+    if (config.getCapacity() <= 0 || Integer.bitCount(config.getCapacity()) != 1) {
+      throw new StreamException("memory stream capacity must be a power of 2");
+    }
+    this.config = config;
+  }
+
+  public synchronized void connect() throws StreamException {
+    if (this.stream == null) {
+      this.stream = MemoryStream.open(this.config);
+    }
+  }
+
+  public synchronized void close() {
+    if (this.stream != null) {
+      this.stream.close();
+      this.stream = null;
+    }
+  }
+
+  public boolean isConnected() {
+    return this.stream != null;
+  }
+
+  public void publish(PublishWrapper wrapper) throws StreamException {
+    final MemoryStream current = this.stream;
+    if (current == null) {
+      throw new StreamException("memory stream is not connected");
+    }
+    if (wrapper instanceof BatchPublishWrapper) {
+      for (PublishWrapper batched : ((BatchPublishWrapper) wrapper).getWrappers()) {
+        current.publish(batched);
+      }
+      return;
+    }
+    current.publish(wrapper);
+  }
+}
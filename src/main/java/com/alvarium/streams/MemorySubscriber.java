@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.util.List;
+
+import com.alvarium.PublishWrapper;
+
+/**
+ * Receives the wrappers published to a memory stream. Each subscriber is called from its own
+ * thread, with the events drained since the previous call, in publish order.
+ */
+public interface MemorySubscriber {
+  /**
+   * handles a batch of published wrappers. The list is only valid during the call.
+   * @param events wrappers published since the previous batch
+   */
+  public void onEvents(List<PublishWrapper> events);
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Identifies how the memory stream waits, either for new events on the subscriber side or for
+ * free slots on the publisher side
+ */
+public enum MemoryWaitStrategy {
+  /**
+   * spins on the cpu, lowest latency but keeps a core busy
+   */
+  @SerializedName(value = "busy-spin")
+  BUSY_SPIN,
+  /**
+   * spins briefly then yields the cpu to other threads
+   */
+  @SerializedName(value = "yield")
+  YIELD,
+  /**
+   * spins and yields briefly then parks the thread until woken up by the publisher
+   */
+  @SerializedName(value = "park")
+  PARK;
+}
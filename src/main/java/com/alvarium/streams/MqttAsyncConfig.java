@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.Serializable;
+
+import com.google.gson.Gson;
+
+/**
+ * Enables asynchronous, pipelined publishing for the MQTT stream when present in MqttConfig.
+ * More info about the disconnected buffer can be found here:
+ * https://www.eclipse.org/paho/files/javadoc/org/eclipse/paho/client/mqttv3/DisconnectedBufferOptions.html
+ */
+public class MqttAsyncConfig implements Serializable {
+  /**
+   * Maximum number of publishes awaiting an acknowledgement. Publishing blocks once the window
+   * is full, and fails if no slot frees up within windowTimeoutMs. Messages held in the
+   * disconnected buffer are bounded by bufferSize instead and do not count against the window.
+   */
+  private final int maxInflight;
+  /**
+   * Number of messages kept while the client reconnects, 0 disables the disconnected buffer.
+   */
+  private final int bufferSize;
+  /**
+   * Whether buffered messages are saved through the client persistence.
+   */
+  private final boolean persistBuffer;
+  /**
+   * Whether the oldest buffered message is dropped when the buffer is full, instead of failing
+   * the new publish.
+   */
+  private final boolean deleteOldest;
+  /**
+   * How long a publish waits for a slot of the in-flight window, in milliseconds. 0 waits up to
+   * 2 seconds.
+   */
+  private final long windowTimeoutMs;
+
+  public MqttAsyncConfig(int maxInflight, int bufferSize, boolean persistBuffer,
+      boolean deleteOldest) {
+    this(maxInflight, bufferSize, persistBuffer, deleteOldest, 0);
+  }
+
+  public MqttAsyncConfig(int maxInflight, int bufferSize, boolean persistBuffer,
+      boolean deleteOldest, long windowTimeoutMs) {
+    this.maxInflight = maxInflight;
+    this.bufferSize = bufferSize;
+    this.persistBuffer = persistBuffer;
+    this.deleteOldest = deleteOldest;
+    this.windowTimeoutMs = windowTimeoutMs;
+  }
+
+  public int getMaxInflight() {
+    return this.maxInflight;
+  }
+
+  public int getBufferSize() {
+    return this.bufferSize;
+  }
+
+  public boolean getPersistBuffer() {
+    return this.persistBuffer;
+  }
+
+  public boolean getDeleteOldest() {
+    return this.deleteOldest;
+  }
+
+  public long getWindowTimeoutMs() {
+    return this.windowTimeoutMs;
+  }
+
+  public String toJson() {
+    Gson gson = new Gson();
+    return gson.toJson(this);
+  }
+
+  public static MqttAsyncConfig fromJson(String json) {
+    Gson gson = new Gson();
+    return gson.fromJson(json, MqttAsyncConfig.class);
+  }
+}
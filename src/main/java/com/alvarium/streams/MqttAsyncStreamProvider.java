@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.alvarium.PublishWrapper;
+
+import org.eclipse.paho.client.mqttv3.DisconnectedBufferOptions;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
+import org.eclipse.paho.client.mqttv3.MqttSecurityException;
+
+/**
+ * Publishes messages to the provided topics through the asynchronous MQTT client.
+ *
+ * <p>Every topic is published concurrently and up to {@link MqttAsyncConfig#getMaxInflight()}
+ * publishes may await an acknowledgement at the same time, so throughput is no longer bound to
+ * one round trip per message and topic. When the disconnected buffer is enabled the client
+ * reconnects automatically and publishes made in the meantime are delivered once it is back.
+ * Such publishes complete once they are buffered and do not count against the window, since the
+ * client may drop them from a full buffer without notice.</p>
+ *
+ * <p>The client only reconnects on its own after it was connected once. Until then the provider
+ * reports itself disconnected and buffered publishes start a connect attempt in the
+ * background, so that the buffer is delivered once the broker is reachable.</p>
+ */
+class MqttAsyncStreamProvider implements StreamProvider {
+  final private IMqttAsyncClient client;
+  final MqttConnectOptions options;
+  final private MqttConfig endpoint;
+  final private Semaphore window;
+  final private boolean buffered;
+  final private long windowTimeoutMs;
+  // a single background connect attempt at a time
+  final private AtomicBoolean connecting = new AtomicBoolean();
+  private volatile boolean established;
+  final int publishTimeoutSeconds = 2;
+  final int waitOnCloseMs = 250;
+
+  public MqttAsyncStreamProvider(MqttConfig cfg) throws StreamException {
+    final MqttAsyncConfig async = cfg.getAsync();
+    if (async.getMaxInflight() <= 0) {
+      throw new StreamException("maxInflight must be greater than 0");
+    }
+
+    this.endpoint = cfg;
+    this.window = new Semaphore(async.getMaxInflight());
+    this.buffered = async.getBufferSize() > 0;
+    this.windowTimeoutMs = async.getWindowTimeoutMs() > 0 ? async.getWindowTimeoutMs() :
+        TimeUnit.SECONDS.toMillis(publishTimeoutSeconds);
+    this.options = new MqttConnectOptions();
+    this.options.setUserName(cfg.getUser());
+    this.options.setPassword(cfg.getPassword().toCharArray());
+    this.options.setCleanSession(cfg.getIsClean());
+    this.options.setConnectionTimeout(publishTimeoutSeconds);
+    this.options.setMaxInflight(async.getMaxInflight());
+    this.options.setAutomaticReconnect(this.buffered);
+    try {
+      final MqttAsyncClient asyncClient = new MqttAsyncClient(
+          cfg.getProvider().uri(),
+          cfg.getClientId(),
+          new MqttPersistenceFactory().getPersistence(cfg.getPersistence())
+      );
+      if (this.buffered) {
+        final DisconnectedBufferOptions bufferOptions = new DisconnectedBufferOptions();
+        bufferOptions.setBufferEnabled(true);
+        bufferOptions.setBufferSize(async.getBufferSize());
+        bufferOptions.setPersistBuffer(async.getPersistBuffer());
+        bufferOptions.setDeleteOldestMessages(async.getDeleteOldest());
+        asyncClient.setBufferOpts(bufferOptions);
+      }
+      this.client = asyncClient;
+    } catch(IllegalArgumentException e) {
+      throw new StreamException("Invalid uri or cliendId", e);
+    } catch(MqttException e) {
+      throw new StreamException("Could not instantiate client", e);
+    }
+  }
+
+  public void connect() throws StreamException {
+    this.reconnect();
+  }
+
+  public void close() throws StreamException {
+    try {
+      // quiesce lets in-flight publishes complete before disconnecting
+      client.disconnect(waitOnCloseMs).waitForCompletion();
+      client.close();
+    } catch(MqttException e) {
+      throw new StreamException("Could not close client", e);
+    }
+  }
+
+  /**
+   * disconnects without closing the client, which can be connected again afterwards
+   */
+  void disconnect() throws StreamException {
+    try {
+      if (client.isConnected()) {
+        client.disconnect(waitOnCloseMs).waitForCompletion();
+      }
+    } catch(MqttException e) {
+      throw new StreamException("Could not disconnect client", e);
+    }
+  }
+
+  public boolean isConnected() {
+    // with a disconnected buffer, publishes are accepted while paho reconnects
+    return (this.buffered && this.established) || client.isConnected();
+  }
+
+  public void publish(PublishWrapper wrapper) throws StreamException {
+    try {
+      this.publishAsync(wrapper).get();
+    } catch (CancellationException e) {
+      throw new StreamException("publishing process was cancelled.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof StreamException) {
+        throw (StreamException) e.getCause();
+      }
+      throw new StreamException("Could not publish message", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StreamException("publishing process was interrupted.", e);
+    }
+  }
+
+  public boolean isPipelined() {
+    return true;
+  }
+
+  public CompletableFuture<Void> publishAsync(PublishWrapper wrapper) {
+    // with a disconnected buffer, paho keeps accepting publishes while it reconnects
+    if(!client.isConnected() && !this.buffered) {
+      try {
+        this.reconnect();
+      } catch (StreamException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    } else if (!this.established) {
+      this.connectInBackground();
+    }
+
+    final byte[] payload = wrapper.toJson().getBytes();
+    final String[] topics = endpoint.getTopics();
+    final CompletableFuture<?>[] results = new CompletableFuture<?>[topics.length];
+    for (int i = 0; i < topics.length; i++) {
+      results[i] = this.publishToTopic(topics[i], payload);
+    }
+    return CompletableFuture.allOf(results);
+  }
+
+  /**
+   * publishes the payload to a single topic once a slot of the in-flight window is available
+   * @param topic
+   * @param payload
+   * @return a future completed by the delivery callback, or once the message is buffered while
+   * the client is disconnected
+   */
+  private CompletableFuture<Void> publishToTopic(String topic, byte[] payload) {
+    final CompletableFuture<Void> result = new CompletableFuture<Void>();
+    try {
+      if (!this.window.tryAcquire(this.windowTimeoutMs, TimeUnit.MILLISECONDS)) {
+        result.completeExceptionally(new StreamException(
+            "publishing process timed out waiting for the in-flight window."
+        ));
+        return result;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      result.completeExceptionally(
+          new StreamException("publishing process was interrupted.", e)
+      );
+      return result;
+    }
+
+    // the slot is released once, either by the callback or when the message is buffered
+    final AtomicBoolean slot = new AtomicBoolean(true);
+    final Runnable release = () -> {
+      if (slot.getAndSet(false)) {
+        this.window.release();
+      }
+    };
+    final IMqttActionListener listener = new IMqttActionListener() {
+      public void onSuccess(IMqttToken token) {
+        release.run();
+        result.complete(null);
+      }
+
+      public void onFailure(IMqttToken token, Throwable e) {
+        release.run();
+        result.completeExceptionally(new StreamException(
+            "Could not publish message",
+            e instanceof Exception ? (Exception) e : new Exception(e)
+        ));
+      }
+    };
+
+    try {
+      final boolean connected = client.isConnected();
+      client.publish(topic, payload, endpoint.getQos(), false, null, listener);
+      // a message put in the disconnected buffer may be dropped without calling the listener
+      if (this.buffered && (!connected || !client.isConnected())) {
+        release.run();
+        result.complete(null);
+      }
+    } catch(MqttPersistenceException e) {
+      release.run();
+      result.completeExceptionally(new StreamException("Could not store message", e));
+    } catch(IllegalArgumentException e) {
+      release.run();
+      result.completeExceptionally(new StreamException("Invalid QoS value", e));
+    } catch(MqttException e) {
+      release.run();
+      result.completeExceptionally(new StreamException("Could not publish message", e));
+    }
+    return result;
+  }
+
+  private synchronized void reconnect() throws StreamException {
+    if(!client.isConnected()) {
+      try {
+        client.connect(options).waitForCompletion();
+        this.established = true;
+      } catch(MqttSecurityException e) {
+        throw new StreamException("Connection rejected: unsecure", e);
+      } catch(MqttException e) {
+        throw new StreamException("Connection failed", e);
+      }
+    }
+  }
+
+  /**
+   * connects without waiting, the buffered messages are sent once the connection completes
+   */
+  private void connectInBackground() {
+    if (client.isConnected() || !this.connecting.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      client.connect(options, null, new IMqttActionListener() {
+        public void onSuccess(IMqttToken token) {
+          established = true;
+          connecting.set(false);
+        }
+
+        public void onFailure(IMqttToken token, Throwable e) {
+          // the next publish tries again
+          connecting.set(false);
+        }
+      });
+    } catch (MqttException e) {
+      this.connecting.set(false);
+    }
+  }
+}
@@ -21,7 +21,8 @@ import com.google.gson.Gson;
 import com.google.gson.annotations.SerializedName;
 
 /**
- * Holds the configuration required to connect to an MQTT server and publish messages
+ * Holds the configuration required to connect to an MQTT server and publish messages. The
+ * optional publishing modes are set through a {@link Builder}.
  */
 public class MqttConfig  implements Serializable {
   private final String clientId;
@@ -32,6 +33,18 @@ public class MqttConfig  implements Serializable {
   private final boolean isClean;
   private final String[] topics;
   private final ServiceInfo provider;
+  /**
+   * Optional, publishes asynchronously with a bounded in-flight window when set
+   */
+  private final MqttAsyncConfig async;
+  /**
+   * Optional, where the client keeps in-flight QoS 1/2 messages
+   */
+  private final MqttPersistenceConfig persistence;
+  /**
+   * Optional, publishes through several connections when set
+   */
+  private final MqttPoolConfig pool;
 
   public MqttConfig(
         String cliendId,
@@ -42,13 +55,20 @@ public class MqttConfig  implements Serializable {
         String[] topics,
         ServiceInfo provider
     ) {
-    this.clientId = cliendId;
-    this.user = user;
-    this.password= password;
-    this.qos = qos;
-    this.isClean = isClean;
-    this.topics = topics;
-    this.provider = provider;
+    this(new Builder(cliendId, user, password, qos, isClean, topics, provider));
+  }
+
+  private MqttConfig(Builder builder) {
+    this.clientId = builder.clientId;
+    this.user = builder.user;
+    this.password= builder.password;
+    this.qos = builder.qos;
+    this.isClean = builder.isClean;
+    this.topics = builder.topics;
+    this.provider = builder.provider;
+    this.async = builder.async;
+    this.persistence = builder.persistence;
+    this.pool = builder.pool;
   }
 
   public String getClientId() {
@@ -79,6 +99,30 @@ public class MqttConfig  implements Serializable {
     return this.provider;
   }
 
+  public MqttAsyncConfig getAsync() {
+    return this.async;
+  }
+
+  public MqttPersistenceConfig getPersistence() {
+    return this.persistence;
+  }
+
+  public MqttPoolConfig getPool() {
+    return this.pool;
+  }
+
+  /**
+   * returns a copy of this config using another client id, e.g. for a connection of a pool
+   */
+  MqttConfig withClientId(String clientId) {
+    return new Builder(clientId, this.user, this.password, this.qos, this.isClean, this.topics,
+        this.provider)
+        .async(this.async)
+        .persistence(this.persistence)
+        .pool(this.pool)
+        .build();
+  }
+
   
   public String toJson() {
     Gson gson = new Gson();
@@ -90,4 +134,57 @@ public class MqttConfig  implements Serializable {
     return gson.fromJson(json, MqttConfig.class);
   }
 
+  /**
+   * Builds an MqttConfig, every optional publishing mode is left out unless set
+   */
+  public static class Builder {
+    private final String clientId;
+    private final String user;
+    private final String password;
+    private final int qos;
+    private final boolean isClean;
+    private final String[] topics;
+    private final ServiceInfo provider;
+    private MqttAsyncConfig async;
+    private MqttPersistenceConfig persistence;
+    private MqttPoolConfig pool;
+
+    public Builder(
+          String clientId,
+          String user,
+          String password,
+          int qos,
+          boolean isClean,
+          String[] topics,
+          ServiceInfo provider
+      ) {
+      this.clientId = clientId;
+      this.user = user;
+      this.password = password;
+      this.qos = qos;
+      this.isClean = isClean;
+      this.topics = topics;
+      this.provider = provider;
+    }
+
+    public Builder async(MqttAsyncConfig async) {
+      this.async = async;
+      return this;
+    }
+
+    public Builder persistence(MqttPersistenceConfig persistence) {
+      this.persistence = persistence;
+      return this;
+    }
+
+    public Builder pool(MqttPoolConfig pool) {
+      this.pool = pool;
+      return this;
+    }
+
+    public MqttConfig build() {
+      return new MqttConfig(this);
+    }
+  }
+
 }
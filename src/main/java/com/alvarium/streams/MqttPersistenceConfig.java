@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.Serializable;
+
+import com.google.gson.Gson;
+
+/**
+ * Selects and configures the persistence used by the MQTT client for QoS 1/2 messages.
+ * If absent from MqttConfig, paho's default file persistence in the working directory is used.
+ */
+public class MqttPersistenceConfig implements Serializable {
+  private final MqttPersistenceType type;
+  /**
+   * Directory holding the persistence files, ignored by the memory persistence
+   */
+  private final String path;
+  /**
+   * Size in bytes of the preallocated mmap ring file
+   */
+  private final long size;
+  /**
+   * Interval between two syncs of the mmap ring file to disk, 0 syncs on every write
+   */
+  private final long syncIntervalMs;
+
+  public MqttPersistenceConfig(MqttPersistenceType type, String path, long size,
+      long syncIntervalMs) {
+    this.type = type;
+    this.path = path;
+    this.size = size;
+    this.syncIntervalMs = syncIntervalMs;
+  }
+
+  public MqttPersistenceType getType() {
+    return this.type;
+  }
+
+  public String getPath() {
+    return this.path;
+  }
+
+  public long getSize() {
+    return this.size;
+  }
+
+  public long getSyncIntervalMs() {
+    return this.syncIntervalMs;
+  }
+
+  public String toJson() {
+    Gson gson = new Gson();
+    return gson.toJson(this);
+  }
+
+  public static MqttPersistenceConfig fromJson(String json) {
+    Gson gson = new Gson();
+    return gson.fromJson(json, MqttPersistenceConfig.class);
+  }
+}
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.eclipse.paho.client.mqttv3.persist.MqttDefaultFilePersistence;
+
+/**
+ * A factory that provides the MQTT client persistence selected in the stream config
+ */
+class MqttPersistenceFactory {
+  public MqttClientPersistence getPersistence(MqttPersistenceConfig cfg) throws StreamException {
+    if (cfg == null || cfg.getType() == null) {
+      return new MqttDefaultFilePersistence();
+    }
+
+    switch (cfg.getType()) {
+      case FILE:
+        return cfg.getPath() == null ? new MqttDefaultFilePersistence() :
+            new MqttDefaultFilePersistence(cfg.getPath());
+      case MEMORY:
+        return new MemoryPersistence();
+      case MMAP:
+        if (cfg.getPath() == null) {
+          throw new StreamException("mmap persistence requires a path");
+        }
+        try {
+          return new MappedFilePersistence(cfg.getPath(), cfg.getSize(), cfg.getSyncIntervalMs());
+        } catch (IllegalArgumentException e) {
+          throw new StreamException("Invalid mmap persistence config", e);
+        }
+      default:
+        throw new StreamException(String.format("%s persistence is not supported", cfg.getType()));
+    }
+  }
+}
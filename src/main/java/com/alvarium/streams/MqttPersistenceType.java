@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Identifies where the MQTT client keeps in-flight QoS 1/2 messages
+ */
+public enum MqttPersistenceType {
+  /**
+   * paho's default, one file per message in a directory
+   */
+  @SerializedName(value = "file")
+  FILE,
+  /**
+   * kept in memory only, in-flight messages are lost if the process exits
+   */
+  @SerializedName(value = "memory")
+  MEMORY,
+  /**
+   * appended to a preallocated memory-mapped ring file that is synced in batches
+   */
+  @SerializedName(value = "mmap")
+  MMAP;
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.Serializable;
+
+import com.google.gson.Gson;
+
+/**
+ * Opens several connections to the MQTT server when present in MqttConfig, so that publishing
+ * threads do not all contend on a single client and socket. Each connection uses the client id
+ * of the config suffixed with its index, e.g. {@code alvarium-0}, {@code alvarium-1}.
+ */
+public class MqttPoolConfig implements Serializable {
+  /**
+   * Number of connections opened to the server.
+   */
+  private final int connections;
+  /**
+   * How publishes are spread over the connections, thread when not set.
+   */
+  private final MqttStripingType striping;
+
+  public MqttPoolConfig(int connections, MqttStripingType striping) {
+    this.connections = connections;
+    this.striping = striping;
+  }
+
+  public int getConnections() {
+    return this.connections;
+  }
+
+  public MqttStripingType getStriping() {
+    return this.striping;
+  }
+
+  public String toJson() {
+    Gson gson = new Gson();
+    return gson.toJson(this);
+  }
+
+  public static MqttPoolConfig fromJson(String json) {
+    Gson gson = new Gson();
+    return gson.fromJson(json, MqttPoolConfig.class);
+  }
+}
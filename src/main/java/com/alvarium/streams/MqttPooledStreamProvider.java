@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.alvarium.PublishWrapper;
+
+/**
+ * <p>Publishes through a pool of MQTT connections instead of a single client. paho serializes
+ * the publishes of a client over its one connection, so with many publishing threads the
+ * aggregate throughput grows with the number of connections.</p>
+ *
+ * <p>Each connection is a regular MQTT stream, synchronous or asynchronous depending on the
+ * config, using a client id derived from the configured one. A publish is routed to a connection
+ * according to {@link MqttPoolConfig#getStriping()}, so messages of the same thread or of the
+ * same key always go through the same connection and keep their order.</p>
+ */
+class MqttPooledStreamProvider implements StreamProvider {
+  private final StreamProvider[] connections;
+  private final MqttStripingType striping;
+
+  MqttPooledStreamProvider(MqttConfig cfg) throws StreamException {
+    final MqttPoolConfig pool = cfg.getPool();
+    if (pool.getConnections() <= 0) {
+      throw new StreamException("pool connections must be greater than 0");
+    }
+
+    this.striping = pool.getStriping() == null ? MqttStripingType.THREAD : pool.getStriping();
+    this.connections = new StreamProvider[pool.getConnections()];
+    for (int i = 0; i < this.connections.length; i++) {
+      final MqttConfig member = cfg.withClientId(cfg.getClientId() + "-" + i);
+      this.connections[i] = cfg.getAsync() != null ?
+          new MqttAsyncStreamProvider(member) : new MqttStreamProvider(member);
+    }
+  }
+
+  /**
+   * connects every connection, the ones already connected are disconnected again if one fails
+   * so that the pool can be connected again later
+   */
+  public void connect() throws StreamException {
+    for (int i = 0; i < this.connections.length; i++) {
+      try {
+        this.connections[i].connect();
+      } catch (StreamException e) {
+        for (int j = 0; j < i; j++) {
+          try {
+            disconnect(this.connections[j]);
+          } catch (StreamException disconnecting) {
+            e.addSuppressed(disconnecting);
+          }
+        }
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * disconnects a connection, keeping its client usable
+   */
+  private static void disconnect(StreamProvider connection) throws StreamException {
+    if (connection instanceof MqttAsyncStreamProvider) {
+      ((MqttAsyncStreamProvider) connection).disconnect();
+    } else {
+      // only disconnects the synchronous client
+      connection.close();
+    }
+  }
+
+  /**
+   * closes every connection, reporting the first failure once all of them were closed
+   */
+  public void close() throws StreamException {
+    StreamException failure = null;
+    for (StreamProvider connection : this.connections) {
+      try {
+        connection.close();
+      } catch (StreamException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  public boolean isConnected() {
+    for (StreamProvider connection : this.connections) {
+      if (!connection.isConnected()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void publish(PublishWrapper wrapper) throws StreamException {
+    if (wrapper instanceof BatchPublishWrapper && this.striping == MqttStripingType.KEY) {
+      for (PublishWrapper group : this.splitByKey(wrapper)) {
+        this.connections[this.stripe(group)].publish(group);
+      }
+      return;
+    }
+    this.connections[this.stripe(wrapper)].publish(wrapper);
+  }
+
+  public boolean isPipelined() {
+    return this.connections[0].isPipelined();
+  }
+
+  public CompletableFuture<Void> publishAsync(PublishWrapper wrapper) {
+    if (wrapper instanceof BatchPublishWrapper && this.striping == MqttStripingType.KEY) {
+      final List<CompletableFuture<Void>> results = new ArrayList<CompletableFuture<Void>>();
+      for (PublishWrapper group : this.splitByKey(wrapper)) {
+        results.add(this.connections[this.stripe(group)].publishAsync(group));
+      }
+      return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]));
+    }
+    return this.connections[this.stripe(wrapper)].publishAsync(wrapper);
+  }
+
+  public void flush() throws StreamException {
+    for (StreamProvider connection : this.connections) {
+      connection.flush();
+    }
+  }
+
+  /**
+   * splits a batch into one message per key, so that the messages of a key go through the same
+   * connection and stay in order
+   */
+  private Collection<PublishWrapper> splitByKey(PublishWrapper batch) {
+    return BatchPublishWrapper.splitByKey(batch, RoutingKeyStrategyFactory::annotationKey)
+        .values();
+  }
+
+  /**
+   * returns the index of the connection the wrapper is published through
+   */
+  int stripe(PublishWrapper wrapper) {
+    if (this.striping == MqttStripingType.KEY) {
+      final String key = RoutingKeyStrategyFactory.annotationKey(wrapper);
+      if (key != null) {
+        return Math.floorMod(key.hashCode(), this.connections.length);
+      }
+    }
+    return (int) Math.floorMod(Thread.currentThread().getId(), (long) this.connections.length);
+  }
+}
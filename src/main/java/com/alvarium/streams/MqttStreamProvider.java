@@ -42,7 +42,11 @@ public class MqttStreamProvider implements StreamProvider {
     this.options.setCleanSession(cfg.getIsClean());
     this.options.setConnectionTimeout(publishTimeoutSeconds);
     try {
-      this.client = new MqttClient(cfg.getProvider().uri(), cfg.getClientId());
+      this.client = new MqttClient(
+          cfg.getProvider().uri(),
+          cfg.getClientId(),
+          new MqttPersistenceFactory().getPersistence(cfg.getPersistence())
+      );
     } catch(IllegalArgumentException e) {
       throw new StreamException("Invalid uri or cliendId", e);
     } catch(MqttException e) {
@@ -62,6 +66,10 @@ public class MqttStreamProvider implements StreamProvider {
     }
   }
 
+  public boolean isConnected() {
+    return client.isConnected();
+  }
+
   public void publish(PublishWrapper wrapper) throws StreamException {
     if(!client.isConnected()) {
       this.reconnect();
@@ -81,7 +89,7 @@ public class MqttStreamProvider implements StreamProvider {
   }
 }
 
-  private void reconnect() throws StreamException {
+  private synchronized void reconnect() throws StreamException {
     if(!client.isConnected()) {
       try {
         client.connect(options);
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Identifies how publishes are spread over the connections of an MQTT pool. Messages published
+ * through the same connection are delivered in order.
+ */
+public enum MqttStripingType {
+  /**
+   * every publishing thread always uses the same connection
+   */
+  @SerializedName(value = "thread")
+  THREAD,
+  /**
+   * the key of the published annotations, i.e. the hash of the annotated data, selects the
+   * connection so that annotations of the same data stay in order. Wrappers carrying no
+   * annotation fall back to the thread striping.
+   */
+  @SerializedName(value = "key")
+  KEY;
+}
@@ -23,6 +23,7 @@ import com.google.gson.Gson;
  * A unit that encapsulates all of the important pravega related configuration.
  * Most of the important fields are grabbed from here: 
  * https://pravega.io/docs/v0.6.0/basic-reader-and-writer/#creating-a-stream-and-the-streammanager-interface
+ * The optional write settings are set through a {@link Builder}.
  */
 public class PravegaConfig implements Serializable {
   /**
@@ -43,6 +44,33 @@ public class PravegaConfig implements Serializable {
   private final String routingKey;
   private final PravegaRetention retention;
   private final ServiceInfo provider;
+  /**
+   * Maximum number of events written but not yet acknowledged. When greater than 0, publish
+   * returns without waiting for the acknowledgement and a failure is reported by the next
+   * publish, flush or close. 0 waits for every event.
+   */
+  private final int maxOutstanding;
+  /**
+   * Number of events after which the writer is flushed, 0 only flushes on close.
+   */
+  private final int flushBatchSize;
+  /**
+   * How the routing key of each event is chosen, the fixed routingKey when not set.
+   */
+  private final PravegaRoutingType routing;
+  /**
+   * Fully qualified name of the RoutingKeyStrategy used by the custom routing.
+   */
+  private final String routingClass;
+  /**
+   * Number of writers events are spread over. Events sharing a routing key always go through
+   * the same writer so their order is preserved. 0 or 1 uses a single writer.
+   */
+  private final int writers;
+  /**
+   * Auto-scaling policy of the stream, overrides the fixed scalingPolicy when set.
+   */
+  private final PravegaScaling scaling;
 
   public PravegaConfig(
     Integer scalingPolicy, 
@@ -51,12 +79,22 @@ public class PravegaConfig implements Serializable {
     String stream, 
     String routingKey,
     PravegaRetention retention) {
-    this.scalingPolicy = scalingPolicy;
-    this.provider = provider;
-    this.scope = scope;
-    this.stream = stream;
-    this.routingKey = routingKey;
-    this.retention = retention;
+    this(new Builder(scalingPolicy, provider, scope, stream, routingKey, retention));
+  }
+
+  private PravegaConfig(Builder builder) {
+    this.scalingPolicy = builder.scalingPolicy;
+    this.provider = builder.provider;
+    this.scope = builder.scope;
+    this.stream = builder.stream;
+    this.routingKey = builder.routingKey;
+    this.retention = builder.retention;
+    this.maxOutstanding = builder.maxOutstanding;
+    this.flushBatchSize = builder.flushBatchSize;
+    this.routing = builder.routing;
+    this.routingClass = builder.routingClass;
+    this.writers = builder.writers;
+    this.scaling = builder.scaling;
   }
 
   public Integer getScalingPolicy() {
@@ -83,6 +121,30 @@ public class PravegaConfig implements Serializable {
     return this.retention;
   }
 
+  public int getMaxOutstanding() {
+    return this.maxOutstanding;
+  }
+
+  public int getFlushBatchSize() {
+    return this.flushBatchSize;
+  }
+
+  public PravegaRoutingType getRouting() {
+    return this.routing;
+  }
+
+  public String getRoutingClass() {
+    return this.routingClass;
+  }
+
+  public int getWriters() {
+    return this.writers;
+  }
+
+  public PravegaScaling getScaling() {
+    return this.scaling;
+  }
+
   public String toJson() {
     Gson gson = new Gson();
     return gson.toJson(this);
@@ -92,4 +154,71 @@ public class PravegaConfig implements Serializable {
     Gson gson = new Gson();
     return gson.fromJson(json, PravegaConfig.class);
   }
+
+  /**
+   * Builds a PravegaConfig, every optional write setting keeps its default unless set
+   */
+  public static class Builder {
+    private final Integer scalingPolicy;
+    private final ServiceInfo provider;
+    private final String scope;
+    private final String stream;
+    private final String routingKey;
+    private final PravegaRetention retention;
+    private int maxOutstanding;
+    private int flushBatchSize;
+    private PravegaRoutingType routing;
+    private String routingClass;
+    private int writers;
+    private PravegaScaling scaling;
+
+    public Builder(
+      Integer scalingPolicy,
+      ServiceInfo provider,
+      String scope,
+      String stream,
+      String routingKey,
+      PravegaRetention retention) {
+      this.scalingPolicy = scalingPolicy;
+      this.provider = provider;
+      this.scope = scope;
+      this.stream = stream;
+      this.routingKey = routingKey;
+      this.retention = retention;
+    }
+
+    public Builder maxOutstanding(int maxOutstanding) {
+      this.maxOutstanding = maxOutstanding;
+      return this;
+    }
+
+    public Builder flushBatchSize(int flushBatchSize) {
+      this.flushBatchSize = flushBatchSize;
+      return this;
+    }
+
+    public Builder routing(PravegaRoutingType routing) {
+      this.routing = routing;
+      return this;
+    }
+
+    public Builder routingClass(String routingClass) {
+      this.routingClass = routingClass;
+      return this;
+    }
+
+    public Builder writers(int writers) {
+      this.writers = writers;
+      return this;
+    }
+
+    public Builder scaling(PravegaScaling scaling) {
+      this.scaling = scaling;
+      return this;
+    }
+
+    public PravegaConfig build() {
+      return new PravegaConfig(this);
+    }
+  }
 }
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Identifies how the routing key of a Pravega event is chosen. Events sharing a routing key are
+ * written to the same segment, in order.
+ */
+public enum PravegaRoutingType {
+  /**
+   * the routing key of the config is used for every event
+   */
+  @SerializedName(value = "fixed")
+  FIXED,
+  /**
+   * the key of the published annotations, i.e. the hash of the annotated data
+   */
+  @SerializedName(value = "annotation")
+  ANNOTATION,
+  /**
+   * the host name of the publishing machine
+   */
+  @SerializedName(value = "host")
+  HOST,
+  /**
+   * no routing key, events are spread over writers and segments without ordering guarantees
+   */
+  @SerializedName(value = "round-robin")
+  ROUND_ROBIN,
+  /**
+   * a RoutingKeyStrategy implementation named in the config
+   */
+  @SerializedName(value = "custom")
+  CUSTOM;
+}
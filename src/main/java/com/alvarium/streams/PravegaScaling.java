@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.Serializable;
+
+import com.google.gson.Gson;
+
+import io.pravega.client.stream.ScalingPolicy;
+
+/**
+ * A unit that encapsulates the Pravega scaling policy configuration.
+ * More info about scaling policies can be found here:
+ * https://pravega.io/docs/latest/pravega-concepts/#elastic-streams-auto-scaling
+ */
+public class PravegaScaling implements Serializable {
+  /**
+   * Scaling policy, fixed when not set.
+   */
+  private final PravegaScalingType type;
+  /**
+   * Events per second (event-rate) or KB per second (data-rate) per segment before it is split.
+   * Ignored by the fixed policy.
+   */
+  private final int targetRate;
+  /**
+   * Number of segments a segment is split into when scaling up. Ignored by the fixed policy.
+   */
+  private final int scaleFactor;
+  /**
+   * Minimum number of segments, or the exact number for the fixed policy.
+   */
+  private final int minSegments;
+
+  public PravegaScaling(PravegaScalingType type, int targetRate, int scaleFactor,
+      int minSegments) {
+    this.type = type;
+    this.targetRate = targetRate;
+    this.scaleFactor = scaleFactor;
+    this.minSegments = minSegments;
+  }
+
+  public PravegaScalingType getType() {
+    return this.type != null ? this.type : PravegaScalingType.FIXED;
+  }
+
+  public int getTargetRate() {
+    return this.targetRate;
+  }
+
+  public int getScaleFactor() {
+    return this.scaleFactor;
+  }
+
+  public int getMinSegments() {
+    return this.minSegments;
+  }
+
+  /**
+   * builds the pravega scaling policy described by this config
+   * @return ScalingPolicy
+   */
+  public ScalingPolicy toScalingPolicy() {
+    switch (this.getType()) {
+      case EVENT_RATE:
+        return ScalingPolicy.byEventRate(this.targetRate, this.scaleFactor, this.minSegments);
+      case DATA_RATE:
+        return ScalingPolicy.byDataRate(this.targetRate, this.scaleFactor, this.minSegments);
+      default:
+        return ScalingPolicy.fixed(this.minSegments);
+    }
+  }
+
+  public String toJson() {
+    Gson gson = new Gson();
+    return gson.toJson(this);
+  }
+
+  public static PravegaScaling fromJson(String json) {
+    Gson gson = new Gson();
+    return gson.fromJson(json, PravegaScaling.class);
+  }
+}
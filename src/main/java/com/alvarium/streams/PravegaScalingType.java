@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Identifies the scaling policy of a Pravega stream. More info can be found here:
+ * https://pravega.io/docs/latest/pravega-concepts/#elastic-streams-auto-scaling
+ */
+public enum PravegaScalingType {
+  @SerializedName(value = "fixed")
+  FIXED,
+  @SerializedName(value = "event-rate")
+  EVENT_RATE,
+  @SerializedName(value = "data-rate")
+  DATA_RATE;
+}
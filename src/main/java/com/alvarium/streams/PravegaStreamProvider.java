@@ -15,8 +15,21 @@
 package com.alvarium.streams;
 
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.alvarium.PublishWrapper;
 
@@ -28,21 +41,58 @@ import io.pravega.client.stream.EventWriterConfig;
 import io.pravega.client.stream.RetentionPolicy;
 import io.pravega.client.stream.ScalingPolicy;
 import io.pravega.client.stream.StreamConfiguration;
-import io.pravega.client.stream.impl.UTF8StringSerializer;
+import io.pravega.client.stream.impl.ByteBufferSerializer;
 
 /**
  * A unit responsible for providing a pravega stream writer through the StreamProvider interface. 
+ * 
+ * <p>When {@link PravegaConfig#getMaxOutstanding()} is set, events are pipelined: up to that many
+ * events may await an acknowledgement from the segment store, publish only blocks when the limit
+ * is reached, and the writer is flushed every {@link PravegaConfig#getFlushBatchSize()} events
+ * and on close. The periodic flushes run in the background, on threads shared by every provider,
+ * so that publishers never wait on them.</p>
+ *
+ * <p>Events are spread over {@link PravegaConfig#getWriters()} writers. The writer is picked from
+ * the routing key chosen by the configured {@link RoutingKeyStrategy}, so events sharing a key
+ * keep their order; events without a key are assigned to the writers in turn.</p>
+ *
+ * <p>A failed write or flush drops the writers, the provider reports itself disconnected and the
+ * next connect or publish creates new ones.</p>
  */
 class PravegaStreamProvider implements StreamProvider {
+  private static final ExecutorService flusher = Executors.newCachedThreadPool(r -> {
+    final Thread t = new Thread(r, "alvarium-pravega-flush");
+    t.setDaemon(true);
+    return t;
+  });
+
   private final PravegaConfig config;
   private final StreamConfiguration streamConfig;
-  private EventStreamWriter<String> streamWriter;
+  private final Semaphore outstanding;
+  private final AtomicReference<StreamException> failure;
+  private final AtomicLong written;
+  // set while a periodic flush is queued or running, later ones are skipped meanwhile
+  private final AtomicBoolean flushing;
+  private final AtomicLong unkeyed;
+  private final RoutingKeyStrategy routing;
+  private EventStreamClientFactory clientFactory;
+  // read without the lock on every write, only replaced under it
+  private volatile List<EventStreamWriter<ByteBuffer>> streamWriters;
+  private boolean streamCreated;
 
-  public PravegaStreamProvider(PravegaConfig config) {
+  public PravegaStreamProvider(PravegaConfig config) throws StreamException {
     this.config = config;
+    this.routing = new RoutingKeyStrategyFactory().getStrategy(config);
+    this.unkeyed = new AtomicLong();
+    this.outstanding = config.getMaxOutstanding() > 0 ? 
+        new Semaphore(config.getMaxOutstanding()) : null;
+    this.failure = new AtomicReference<StreamException>();
+    this.written = new AtomicLong();
+    this.flushing = new AtomicBoolean();
     // build the depedencies required for the pravega stream configuration
     final PravegaRetention retention = config.getRetention();
-    final ScalingPolicy scalingPolicy = ScalingPolicy.fixed(config.getScalingPolicy());
+    final ScalingPolicy scalingPolicy = config.getScaling() != null ?
+        config.getScaling().toScalingPolicy() : ScalingPolicy.fixed(config.getScalingPolicy());
     final RetentionPolicy retentionPolicy = RetentionPolicy.builder()
         .retentionType(retention.getType())
         .retentionParam(retention.getMin())
@@ -57,10 +107,22 @@ class PravegaStreamProvider implements StreamProvider {
   public void connect() throws StreamException {
     this.reconnect();
   }
+
+  /**
+   * returns the connected writers, only locking when they have to be created
+   */
+  private List<EventStreamWriter<ByteBuffer>> writers() throws StreamException {
+    final List<EventStreamWriter<ByteBuffer>> writers = this.streamWriters;
+    return writers != null ? writers : this.reconnect();
+  }
   
-  private void reconnect() throws StreamException {
-    if(this.streamWriter != null){
-      return;
+  /**
+   * creates the writers unless they are already connected
+   * @return the connected writers
+   */
+  private synchronized List<EventStreamWriter<ByteBuffer>> reconnect() throws StreamException {
+    if(this.streamWriters != null){
+      return this.streamWriters;
     }
 
     // methods used inside this try/catch block do not specify the type of exception thrown.
@@ -68,38 +130,258 @@ class PravegaStreamProvider implements StreamProvider {
     try {
       final URI controllerUri = URI.create(this.config.getProvider().uri());
 
-      // make sure that the selected scope & stream are created.
-      // this routine should check if the scope/stream exists before creating new ones. 
-      final StreamManager streamManager = StreamManager.create(controllerUri); 
-      streamManager.createScope(config.getScope());
-      streamManager.createStream(config.getScope(), config.getStream(), this.streamConfig);
+      // make sure that the selected scope & stream are created, once. later attempts, e.g. after
+      // a failed writer creation, only recreate the writers.
+      if (!this.streamCreated) {
+        try (StreamManager streamManager = StreamManager.create(controllerUri)) {
+          streamManager.createScope(config.getScope());
+          streamManager.createStream(config.getScope(), config.getStream(), this.streamConfig);
+        }
+        this.streamCreated = true;
+      }
 
       // Init the pravega stream writer using the specified scope/stream.
-      EventStreamClientFactory clientFactory = EventStreamClientFactory.withScope(config.getScope(),
-          ClientConfig.builder().controllerURI(controllerUri).build());
-      this.streamWriter = clientFactory.createEventWriter(config.getStream(),
-          new UTF8StringSerializer(), EventWriterConfig.builder().build());
+      // events are encoded once by the wrapper and written as raw bytes
+      final EventStreamClientFactory clientFactory = EventStreamClientFactory.withScope(
+          config.getScope(), ClientConfig.builder().controllerURI(controllerUri).build());
+      final int count = Math.max(1, config.getWriters());
+      final List<EventStreamWriter<ByteBuffer>> writers = 
+          new ArrayList<EventStreamWriter<ByteBuffer>>(count);
+      try {
+        for (int i = 0; i < count; i++) {
+          writers.add(clientFactory.createEventWriter(config.getStream(),
+              new ByteBufferSerializer(), EventWriterConfig.builder().build()));
+        }
+      } catch (RuntimeException e) {
+        closeQuietly(writers, clientFactory);
+        throw e;
+      }
+      this.clientFactory = clientFactory;
+      this.streamWriters = writers;
+      return writers;
     } catch (Exception e) {
       throw new StreamException("cannot connect to stream.", e);
     }
   }
 
+  public boolean isConnected() {
+    return this.streamWriters != null;
+  }
+
   public void close() throws StreamException {
-    this.streamWriter.close();
+    try {
+      this.flush();
+    } finally {
+      final List<EventStreamWriter<ByteBuffer>> writers;
+      final EventStreamClientFactory factory;
+      synchronized (this) {
+        writers = this.streamWriters;
+        factory = this.clientFactory;
+        this.streamWriters = null;
+        this.clientFactory = null;
+      }
+      if (writers != null) {
+        for (EventStreamWriter<ByteBuffer> writer : writers) {
+          writer.close();
+        }
+        factory.close();
+      }
+    }
   }
 
   public void publish(PublishWrapper wrapper) throws StreamException {
-    this.reconnect();
+    if (this.outstanding == null) {
+      try {
+        // writes the data to the stream, and waits on the completable future until it fully 
+        // completes 
+        this.write(wrapper).get();
+      } catch (CancellationException e) {
+        throw new StreamException("publishing process was cancelled.", e);
+      } catch (ExecutionException e){
+        throw new StreamException("publishing process could not resolve.", e);
+      } catch (InterruptedException e){
+        throw new StreamException("publishing process was interrupted.", e);
+      }
+      return;
+    }
+
+    // report the failure of an earlier pipelined event before accepting new ones
+    this.throwFailure();
+    final CompletableFuture<Void> result = this.publishAsync(wrapper);
+    if (result.isCompletedExceptionally()) {
+      try {
+        result.join();
+      } catch (CompletionException e) {
+        throw (StreamException) e.getCause();
+      }
+    }
+  }
+
+  public boolean isPipelined() {
+    return this.config.getMaxOutstanding() > 0;
+  }
+
+  public CompletableFuture<Void> publishAsync(PublishWrapper wrapper) {
+    final CompletableFuture<Void> result = new CompletableFuture<Void>();
+    try {
+      if (this.outstanding != null) {
+        this.outstanding.acquire();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      result.completeExceptionally(
+          new StreamException("publishing process was interrupted.", e)
+      );
+      return result;
+    }
+
+    final CompletableFuture<Void> write;
+    try {
+      write = this.write(wrapper);
+    } catch (StreamException e) {
+      this.release();
+      result.completeExceptionally(e);
+      return result;
+    }
+
+    write.whenComplete((v, e) -> {
+      this.release();
+      if (e == null) {
+        result.complete(null);
+      } else {
+        final StreamException error = new StreamException(
+            "publishing process could not resolve.",
+            e instanceof Exception ? (Exception) e : new Exception(e)
+        );
+        this.failure.compareAndSet(null, error);
+        result.completeExceptionally(error);
+      }
+    });
+
+    final int batchSize = this.config.getFlushBatchSize();
+    if (batchSize > 0 && this.written.incrementAndGet() % batchSize == 0
+        && this.flushing.compareAndSet(false, true)) {
+      flusher.execute(() -> {
+        try {
+          this.flushWriter();
+        } catch (StreamException e) {
+          this.failure.compareAndSet(null, e);
+        } finally {
+          this.flushing.set(false);
+        }
+      });
+    }
+    return result;
+  }
+
+  public void flush() throws StreamException {
+    this.flushWriter();
+    this.throwFailure();
+  }
+
+  /**
+   * blocks until all outstanding events are acknowledged
+   */
+  private void flushWriter() throws StreamException {
+    final List<EventStreamWriter<ByteBuffer>> writers = this.streamWriters;
+    if (writers == null) {
+      return;
+    }
+    try {
+      for (EventStreamWriter<ByteBuffer> writer : writers) {
+        writer.flush();
+      }
+    } catch (RuntimeException e) {
+      this.invalidate(writers);
+      throw new StreamException("could not flush stream writer.", e);
+    }
+  }
 
+  private CompletableFuture<Void> write(PublishWrapper wrapper) throws StreamException {
+    final List<EventStreamWriter<ByteBuffer>> writers = this.writers();
+    // a batch is written as one event per routing key so that the events of a key stay in order
+    final Map<String, PublishWrapper> events = 
+        BatchPublishWrapper.splitByKey(wrapper, this.routing::getRoutingKey);
+    if (events.size() == 1) {
+      final Map.Entry<String, PublishWrapper> event = events.entrySet().iterator().next();
+      return this.write(writers, event.getValue(), event.getKey());
+    }
+    final CompletableFuture<?>[] results = new CompletableFuture<?>[events.size()];
+    int i = 0;
+    for (Map.Entry<String, PublishWrapper> event : events.entrySet()) {
+      results[i++] = this.write(writers, event.getValue(), event.getKey());
+    }
+    return CompletableFuture.allOf(results);
+  }
+
+  private CompletableFuture<Void> write(List<EventStreamWriter<ByteBuffer>> writers,
+      PublishWrapper wrapper, String routingKey) throws StreamException {
+    final ByteBuffer event = ByteBuffer.wrap(wrapper.toJson().getBytes(StandardCharsets.UTF_8));
+    final CompletableFuture<Void> result;
     try {
-      // writes the data to the stream, and waits on the completable future until it fully completes 
-      this.streamWriter.writeEvent(this.config.getRoutingKey(),wrapper.toJson()).get();
-    } catch (CancellationException e) {
-      throw new StreamException("publishing process was cancelled.", e);
-    } catch (ExecutionException e){
-      throw new StreamException("publishing process could not resolve.", e);
-    } catch (InterruptedException e){
-      throw new StreamException("publishing process was interrupted.", e);
+      if (routingKey == null) {
+        final int index = (int) (this.unkeyed.getAndIncrement() % writers.size());
+        result = writers.get(index).writeEvent(event);
+      } else {
+        final int index = Math.floorMod(routingKey.hashCode(), writers.size());
+        result = writers.get(index).writeEvent(routingKey, event);
+      }
+    } catch (RuntimeException e) {
+      this.invalidate(writers);
+      throw new StreamException("could not write to stream.", e);
+    }
+    result.whenComplete((v, e) -> {
+      if (e != null) {
+        this.invalidate(writers);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * drops writers that failed so that isConnected reports the failure and the next connect 
+   * creates new ones. Writers already replaced by a reconnect are left alone.
+   */
+  private void invalidate(List<EventStreamWriter<ByteBuffer>> writers) {
+    final EventStreamClientFactory factory;
+    synchronized (this) {
+      if (this.streamWriters != writers) {
+        return;
+      }
+      factory = this.clientFactory;
+      this.streamWriters = null;
+      this.clientFactory = null;
+    }
+    // closing flushes the writers, kept off the thread that reported the failure
+    CompletableFuture.runAsync(() -> closeQuietly(writers, factory));
+  }
+
+  private static void closeQuietly(List<EventStreamWriter<ByteBuffer>> writers,
+      EventStreamClientFactory factory) {
+    for (EventStreamWriter<ByteBuffer> writer : writers) {
+      try {
+        writer.close();
+      } catch (RuntimeException e) {
+        // the writer already failed, nothing more to report
+      }
+    }
+    try {
+      factory.close();
+    } catch (RuntimeException e) {
+      // same as above
+    }
+  }
+
+  private void release() {
+    if (this.outstanding != null) {
+      this.outstanding.release();
+    }
+  }
+
+  private void throwFailure() throws StreamException {
+    final StreamException e = this.failure.getAndSet(null);
+    if (e != null) {
+      throw e;
     }
   }
 }
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+/**
+ * Metrics of a publish limiter, registered with the platform MBean server under
+ * {@code com.alvarium:type=PublishLimiter,name=<limiter name>} while its stream is connected
+ */
+public interface PublishLimiterMXBean {
+  /**
+   * @return number of concurrent publishes currently allowed
+   */
+  public int getLimit();
+
+  /**
+   * @return number of publishes awaiting an acknowledgement
+   */
+  public int getInflight();
+
+  /**
+   * @return smoothed acknowledgement latency in milliseconds
+   */
+  public double getLatencyMs();
+
+  /**
+   * @return maximum number of publishes per second, 0 if the rate is not capped
+   */
+  public double getMaxRate();
+
+  /**
+   * @return number of publishes that failed
+   */
+  public long getFailures();
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.Serializable;
+
+import com.google.gson.Gson;
+
+/**
+ * A unit that encapsulates how a stream is reconnected in the background after losing its
+ * connection
+ */
+public class ReconnectConfig implements Serializable {
+  /**
+   * Delay in milliseconds before the first reconnect attempt.
+   */
+  private final long initialBackoffMs;
+  /**
+   * Highest delay in milliseconds between two reconnect attempts.
+   */
+  private final long maxBackoffMs;
+  /**
+   * Factor applied to the delay after each failed attempt, 2 when not set.
+   */
+  private final double multiplier;
+  /**
+   * Fraction of the delay that is randomized, between 0 and 1, so that many clients do not
+   * reconnect in lockstep.
+   */
+  private final double jitter;
+  /**
+   * Consecutive failed publishes that open the circuit, 1 when not set.
+   */
+  private final int failureThreshold;
+
+  public ReconnectConfig(long initialBackoffMs, long maxBackoffMs, double multiplier,
+      double jitter, int failureThreshold) {
+    this.initialBackoffMs = initialBackoffMs;
+    this.maxBackoffMs = maxBackoffMs;
+    this.multiplier = multiplier;
+    this.jitter = jitter;
+    this.failureThreshold = failureThreshold;
+  }
+
+  public long getInitialBackoffMs() {
+    return this.initialBackoffMs;
+  }
+
+  public long getMaxBackoffMs() {
+    return this.maxBackoffMs;
+  }
+
+  public double getMultiplier() {
+    return this.multiplier;
+  }
+
+  public double getJitter() {
+    return this.jitter;
+  }
+
+  public int getFailureThreshold() {
+    return this.failureThreshold;
+  }
+
+  public String toJson() {
+    Gson gson = new Gson();
+    return gson.toJson(this);
+  }
+
+  public static ReconnectConfig fromJson(String json) {
+    Gson gson = new Gson();
+    return gson.fromJson(json, ReconnectConfig.class);
+  }
+}
@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import com.alvarium.PublishWrapper;
+
+/**
+ * Chooses the routing key of the event carrying a published wrapper. Custom implementations
+ * are referenced by class name in the Pravega config and need a public no-argument constructor.
+ * The strategy is applied to every wrapper of a batch, and the batch is written as one event per
+ * key.
+ */
+public interface RoutingKeyStrategy {
+  /**
+   * returns the routing key of the event carrying the wrapper
+   * @param wrapper data being published
+   * @return routing key, or null to let the stream pick any segment
+   */
+  public String getRoutingKey(PublishWrapper wrapper);
+}
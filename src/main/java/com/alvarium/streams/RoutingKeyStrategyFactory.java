@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import com.alvarium.PublishWrapper;
+import com.alvarium.contracts.AnnotationList;
+import com.alvarium.serializers.PublishWrapperReader;
+import com.google.gson.JsonParseException;
+
+/**
+ * A factory that provides the routing key strategy selected in the Pravega config
+ */
+class RoutingKeyStrategyFactory {
+  public RoutingKeyStrategy getStrategy(PravegaConfig cfg) throws StreamException {
+    final String fixedKey = cfg.getRoutingKey();
+    if (cfg.getRouting() == null) {
+      return wrapper -> fixedKey;
+    }
+
+    switch (cfg.getRouting()) {
+      case FIXED:
+        return wrapper -> fixedKey;
+      case ANNOTATION:
+        return wrapper -> {
+          final String key = annotationKey(wrapper);
+          return key != null ? key : fixedKey;
+        };
+      case HOST:
+        try {
+          final String host = InetAddress.getLocalHost().getHostName();
+          return wrapper -> host;
+        } catch (UnknownHostException e) {
+          throw new StreamException("could not resolve host name for routing", e);
+        }
+      case ROUND_ROBIN:
+        return wrapper -> null;
+      case CUSTOM:
+        try {
+          return Class.forName(cfg.getRoutingClass())
+              .asSubclass(RoutingKeyStrategy.class)
+              .getDeclaredConstructor()
+              .newInstance();
+        } catch (ReflectiveOperationException | ClassCastException | NullPointerException e) {
+          throw new StreamException(
+              String.format("invalid routing strategy class %s", cfg.getRoutingClass()),
+              e
+          );
+        }
+      default:
+        throw new StreamException(String.format("%s routing is not supported", cfg.getRouting()));
+    }
+  }
+
+  /**
+   * returns the key of the first annotation carried by the wrapper, i.e. the hash of the
+   * annotated data, or null when the wrapper carries no annotation. The key of a batch is the
+   * key shared by all of its wrappers, or null if they carry different keys.
+   */
+  static String annotationKey(PublishWrapper wrapper) {
+    if (wrapper instanceof BatchPublishWrapper) {
+      final Map<String, PublishWrapper> groups =
+          BatchPublishWrapper.splitByKey(wrapper, RoutingKeyStrategyFactory::annotationKey);
+      return groups.size() == 1 ? groups.keySet().iterator().next() : null;
+    }
+    if (wrapper.getContent() instanceof AnnotationList) {
+      final AnnotationList list = (AnnotationList) wrapper.getContent();
+      if (!list.getAnnotations().isEmpty()) {
+        return list.getAnnotations().get(0).getKey();
+      }
+      return null;
+    }
+    // wrappers read back from their JSON, e.g. replayed from a spool, carry the encoded content
+    if (wrapper instanceof EncodedPublishWrapper
+        && AnnotationList.class.getName().equals(wrapper.getMessageType())) {
+      final byte[] json = wrapper.toJson().getBytes(StandardCharsets.UTF_8);
+      try (PublishWrapperReader reader = new PublishWrapperReader(new ByteArrayInputStream(json))) {
+        return reader.hasNext() ? reader.nextSummary().getKey() : null;
+      } catch (IOException | JsonParseException | IllegalArgumentException e) {
+        return null;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.Serializable;
+
+import com.google.gson.Gson;
+
+/**
+ * A unit that encapsulates the configuration of the local spool used to keep published data
+ * while the stream is unreachable.
+ */
+public class SpoolConfig implements Serializable {
+  /**
+   * Directory holding the spool segments.
+   */
+  private final String path;
+  /**
+   * Size in bytes of a segment file, bounds the size of a single record.
+   */
+  private final int segmentSize;
+  /**
+   * Maximum number of segments kept on disk, the spool uses at most segmentSize * maxSegments
+   * bytes.
+   */
+  private final int maxSegments;
+  /**
+   * When the spool is full, drop the oldest segment instead of failing the publish.
+   */
+  private final boolean dropOldest;
+  /**
+   * Maximum number of spooled records replayed per second, 0 replays as fast as the stream
+   * accepts them.
+   */
+  private final int replayRate;
+  /**
+   * Delay in milliseconds between two replay attempts while the stream is unreachable.
+   */
+  private final long retryIntervalMs;
+  /**
+   * Interval in milliseconds at which spooled records are forced to disk, 0 forces every record.
+   */
+  private final long syncIntervalMs;
+
+  public SpoolConfig(String path, int segmentSize, int maxSegments, boolean dropOldest,
+      int replayRate, long retryIntervalMs, long syncIntervalMs) {
+    this.path = path;
+    this.segmentSize = segmentSize;
+    this.maxSegments = maxSegments;
+    this.dropOldest = dropOldest;
+    this.replayRate = replayRate;
+    this.retryIntervalMs = retryIntervalMs;
+    this.syncIntervalMs = syncIntervalMs;
+  }
+
+  public String getPath() {
+    return this.path;
+  }
+
+  public int getSegmentSize() {
+    return this.segmentSize;
+  }
+
+  public int getMaxSegments() {
+    return this.maxSegments;
+  }
+
+  public boolean getDropOldest() {
+    return this.dropOldest;
+  }
+
+  public int getReplayRate() {
+    return this.replayRate;
+  }
+
+  public long getRetryIntervalMs() {
+    return this.retryIntervalMs;
+  }
+
+  public long getSyncIntervalMs() {
+    return this.syncIntervalMs;
+  }
+
+  public String toJson() {
+    Gson gson = new Gson();
+    return gson.toJson(this);
+  }
+
+  public static SpoolConfig fromJson(String json) {
+    Gson gson = new Gson();
+    return gson.fromJson(json, SpoolConfig.class);
+  }
+}
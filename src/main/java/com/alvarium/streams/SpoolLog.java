@@ -0,0 +1,404 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import com.alvarium.utils.MappedBuffers;
+
+/**
+ * <p>A first-in first-out log of records kept in memory-mapped segment files. Records are
+ * appended to the last segment and read back from the first one; a segment is deleted once all
+ * of its records are acknowledged.</p>
+ *
+ * <p>Record layout: payload length (4), CRC32 of the payload (4), payload. A zero length marks
+ * the end of a segment. The position of the next record to read is kept in a cursor file, so
+ * acknowledged records are not read again after a restart. Records appended since the last
+ * {@link #sync()} or acknowledged since the last cursor sync may be lost or read twice if the
+ * machine crashes.</p>
+ *
+ * <p>At most {@code maxSegments} segments are kept. When appending would need one more, the
+ * oldest segment is dropped or the append fails depending on {@code dropOldest}.</p>
+ */
+class SpoolLog implements Closeable {
+  private static final String SEGMENT_PREFIX = "spool-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final String CURSOR_FILE = "spool.cursor";
+  private static final int RECORD_HEADER_SIZE = 8;
+  private static final int CURSOR_SIZE = 12;
+
+  private final Path directory;
+  private final int segmentSize;
+  private final int maxSegments;
+  private final boolean dropOldest;
+  private final boolean syncEveryRecord;
+  private final ArrayDeque<Segment> segments;
+
+  private FileChannel cursorChannel;
+  private MappedByteBuffer cursor;
+  private int readPosition;
+  private int headConsumed;
+  private long pending;
+  private int peekedLength;
+  private boolean dirty;
+
+  SpoolLog(SpoolConfig cfg) throws StreamException {
+    if (cfg.getPath() == null) {
+      throw new StreamException("spool path must be set");
+    }
+    if (cfg.getSegmentSize() <= RECORD_HEADER_SIZE) {
+      throw new StreamException("spool segmentSize must be greater than 8");
+    }
+    if (cfg.getMaxSegments() <= 0) {
+      throw new StreamException("spool maxSegments must be greater than 0");
+    }
+    this.directory = Paths.get(cfg.getPath());
+    this.segmentSize = cfg.getSegmentSize();
+    this.maxSegments = cfg.getMaxSegments();
+    this.dropOldest = cfg.getDropOldest();
+    this.syncEveryRecord = cfg.getSyncIntervalMs() <= 0;
+    this.segments = new ArrayDeque<Segment>();
+  }
+
+  /**
+   * opens the existing segments, or creates the first one
+   * @throws StreamException if the spool directory cannot be used
+   */
+  synchronized void open() throws StreamException {
+    if (this.cursor != null) {
+      return;
+    }
+
+    try {
+      Files.createDirectories(this.directory);
+      this.cursorChannel = FileChannel.open(
+          this.directory.resolve(CURSOR_FILE),
+          StandardOpenOption.CREATE,
+          StandardOpenOption.READ,
+          StandardOpenOption.WRITE
+      );
+      this.cursor = this.cursorChannel.map(FileChannel.MapMode.READ_WRITE, 0, CURSOR_SIZE);
+      final long cursorSegment = this.cursor.getLong(0);
+      final int cursorPosition = this.cursor.getInt(8);
+
+      for (long id : this.listSegments()) {
+        if (id < cursorSegment) {
+          // fully acknowledged before the last shutdown
+          Files.deleteIfExists(this.segmentPath(id));
+        } else {
+          this.segments.addLast(this.openSegment(id));
+        }
+      }
+      if (this.segments.isEmpty()) {
+        this.segments.addLast(this.openSegment(Math.max(cursorSegment, 0)));
+      }
+
+      final Segment head = this.segments.peekFirst();
+      if (head.id == cursorSegment) {
+        this.skipTo(head, Math.min(cursorPosition, head.writePosition));
+      }
+      for (Segment segment : this.segments) {
+        this.pending += segment.records;
+      }
+      this.pending -= this.headConsumed;
+      this.writeCursor();
+    } catch (IOException e) {
+      this.close();
+      throw new StreamException("could not open spool", e);
+    }
+  }
+
+  /**
+   * appends a record at the end of the log
+   * @param payload record content
+   * @throws StreamException if the record does not fit in a segment or the spool is full
+   */
+  synchronized void append(byte[] payload) throws StreamException {
+    this.ensureOpen();
+    final int length = RECORD_HEADER_SIZE + payload.length;
+    if (length > this.segmentSize) {
+      throw new StreamException(String.format(
+          "record of %d bytes does not fit in a spool segment", payload.length));
+    }
+
+    Segment tail = this.segments.peekLast();
+    if (tail.writePosition + length > this.segmentSize) {
+      tail.buffer.force();
+      if (this.segments.size() >= this.maxSegments) {
+        if (!this.dropOldest) {
+          throw new StreamException("spool is full");
+        }
+        this.dropHead();
+      }
+      try {
+        tail = this.openSegment(tail.id + 1);
+      } catch (IOException e) {
+        throw new StreamException("could not create spool segment", e);
+      }
+      this.segments.addLast(tail);
+      if (this.segments.size() == 1) {
+        // the only segment was dropped, the cursor moves to the new one
+        this.writeCursor();
+      }
+    }
+
+    final CRC32 crc = new CRC32();
+    crc.update(payload);
+    final ByteBuffer view = tail.buffer.duplicate();
+    view.position(tail.writePosition + 4);
+    view.putInt((int) crc.getValue());
+    view.put(payload);
+    // the length is written last so that a torn record is never seen as complete
+    tail.buffer.putInt(tail.writePosition, payload.length);
+    tail.writePosition += length;
+    tail.records++;
+    this.pending++;
+
+    if (this.syncEveryRecord) {
+      tail.buffer.force();
+    } else {
+      this.dirty = true;
+    }
+  }
+
+  /**
+   * returns the oldest record that is not acknowledged yet, without consuming it
+   * @return record content, or null if the log is empty
+   */
+  synchronized byte[] peek() throws StreamException {
+    this.ensureOpen();
+    Segment head = this.segments.peekFirst();
+    while (this.readPosition >= head.writePosition) {
+      if (this.segments.size() == 1) {
+        return null;
+      }
+      this.dropHead();
+      head = this.segments.peekFirst();
+    }
+
+    final int length = head.buffer.getInt(this.readPosition);
+    final byte[] payload = new byte[length];
+    final ByteBuffer view = head.buffer.duplicate();
+    view.position(this.readPosition + RECORD_HEADER_SIZE);
+    view.get(payload);
+    this.peekedLength = RECORD_HEADER_SIZE + length;
+    return payload;
+  }
+
+  /**
+   * consumes the record returned by the last peek
+   */
+  synchronized void ack() throws StreamException {
+    this.ensureOpen();
+    if (this.peekedLength == 0) {
+      return;
+    }
+    this.readPosition += this.peekedLength;
+    this.headConsumed++;
+    this.pending--;
+    this.peekedLength = 0;
+    this.writeCursor();
+  }
+
+  /**
+   * @return number of records appended but not acknowledged
+   */
+  synchronized long size() {
+    return this.pending;
+  }
+
+  synchronized boolean isEmpty() {
+    return this.pending == 0;
+  }
+
+  /**
+   * forces the pending changes to disk, invoked periodically when batching syncs
+   */
+  synchronized void sync() {
+    if (this.cursor == null || this.segments.isEmpty() || !this.dirty) {
+      return;
+    }
+    this.segments.peekLast().buffer.force();
+    this.cursor.force();
+    this.dirty = false;
+  }
+
+  public synchronized void close() {
+    this.dirty = true;
+    this.sync();
+    for (Segment segment : this.segments) {
+      closeQuietly(segment.channel);
+      MappedBuffers.unmap(segment.buffer);
+    }
+    this.segments.clear();
+    closeQuietly(this.cursorChannel);
+    MappedBuffers.unmap(this.cursor);
+    this.cursorChannel = null;
+    this.cursor = null;
+    this.pending = 0;
+    this.readPosition = 0;
+    this.headConsumed = 0;
+    this.peekedLength = 0;
+  }
+
+  /**
+   * deletes the oldest segment, discarding the records it still holds
+   */
+  private void dropHead() {
+    final Segment head = this.segments.pollFirst();
+    this.pending -= head.records - this.headConsumed;
+    this.readPosition = 0;
+    this.headConsumed = 0;
+    this.peekedLength = 0;
+    closeQuietly(head.channel);
+    MappedBuffers.unmap(head.buffer);
+    try {
+      Files.deleteIfExists(this.segmentPath(head.id));
+    } catch (IOException e) {
+      // the segment is skipped by the cursor on the next start
+    }
+    if (!this.segments.isEmpty()) {
+      this.writeCursor();
+    }
+  }
+
+  /**
+   * moves the read position forward, counting the records skipped
+   */
+  private void skipTo(Segment head, int position) {
+    while (this.readPosition < position) {
+      this.readPosition += RECORD_HEADER_SIZE + head.buffer.getInt(this.readPosition);
+      this.headConsumed++;
+    }
+  }
+
+  private void writeCursor() {
+    this.cursor.putLong(0, this.segments.peekFirst().id);
+    this.cursor.putInt(8, this.readPosition);
+    if (this.syncEveryRecord) {
+      this.cursor.force();
+    } else {
+      this.dirty = true;
+    }
+  }
+
+  /**
+   * maps a segment and finds the end of its valid records
+   */
+  private Segment openSegment(long id) throws IOException {
+    final FileChannel channel = FileChannel.open(
+        this.segmentPath(id),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE
+    );
+    final MappedByteBuffer buffer;
+    try {
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, this.segmentSize);
+    } catch (IOException e) {
+      closeQuietly(channel);
+      throw e;
+    }
+
+    final Segment segment = new Segment(id, channel, buffer);
+    int position = 0;
+    while (position + RECORD_HEADER_SIZE <= this.segmentSize) {
+      final int length = buffer.getInt(position);
+      if (length <= 0 || length > this.segmentSize - position - RECORD_HEADER_SIZE) {
+        break;
+      }
+      final ByteBuffer region = buffer.duplicate();
+      region.position(position + RECORD_HEADER_SIZE);
+      region.limit(position + RECORD_HEADER_SIZE + length);
+      final CRC32 crc = new CRC32();
+      crc.update(region);
+      if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+        break;
+      }
+      position += RECORD_HEADER_SIZE + length;
+      segment.records++;
+    }
+    segment.writePosition = position;
+    return segment;
+  }
+
+  private List<Long> listSegments() throws IOException {
+    final List<Long> ids = new ArrayList<Long>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(
+        this.directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path file : files) {
+        final String name = file.getFileName().toString();
+        try {
+          ids.add(Long.parseLong(name.substring(
+              SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+        } catch (NumberFormatException e) {
+          // not a spool segment
+        }
+      }
+    }
+    Collections.sort(ids);
+    return ids;
+  }
+
+  private Path segmentPath(long id) {
+    return this.directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+  }
+
+  private void ensureOpen() throws StreamException {
+    if (this.cursor == null) {
+      throw new StreamException("spool is not open");
+    }
+  }
+
+  private static void closeQuietly(FileChannel channel) {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // nothing left to release
+      }
+    }
+  }
+
+  /**
+   * A mapped segment file and the end of its valid records
+   */
+  private static class Segment {
+    final long id;
+    final FileChannel channel;
+    final MappedByteBuffer buffer;
+    int writePosition;
+    int records;
+
+    Segment(long id, FileChannel channel, MappedByteBuffer buffer) {
+      this.id = id;
+      this.channel = channel;
+      this.buffer = buffer;
+    }
+  }
+}
@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.alvarium.PublishWrapper;
+import com.google.gson.JsonParseException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * <p>Decorates a StreamProvider with a local spool. When a publish fails, e.g. because the broker
+ * is unreachable, the encoded wrapper is appended to a {@link SpoolLog} on disk instead, and the
+ * following publishes are spooled too without waiting on the stream.</p>
+ *
+ * <p>A background task replays the spooled records in order through the wrapped provider, at
+ * most {@link SpoolConfig#getReplayRate()} records per second, and retries every
+ * {@link SpoolConfig#getRetryIntervalMs()} while the stream is still unreachable. Publishes go
+ * straight to the stream again once the spool is drained. Records are delivered at least once:
+ * a record leaves the spool only once the wrapped provider acknowledged it.</p>
+ *
+ * <p>Publishes are only pipelined when the wrapped provider is. When a pipelined publish fails
+ * after it returned, every wrapper still waiting for its acknowledgement is spooled in publish
+ * order, ahead of the wrappers published afterwards, so the replay keeps the publish order. A
+ * wrapper acknowledged after it was spooled this way is delivered twice.</p>
+ */
+class SpoolStreamProvider implements StreamProvider {
+  private static final Logger logger = LogManager.getLogger(SpoolStreamProvider.class);
+
+  private final StreamProvider stream;
+  private final SpoolConfig config;
+  private final SpoolLog spool;
+  private final long replayIntervalNanos;
+  private final AtomicReference<StreamException> failure;
+  // pipelined wrappers not acknowledged yet, by publish order
+  private final ConcurrentSkipListMap<Long, PublishWrapper> inflight;
+  // guarded by the spool
+  private long sequence;
+  private ScheduledExecutorService replayer;
+  private volatile boolean available;
+
+  SpoolStreamProvider(StreamProvider stream, SpoolConfig config) throws StreamException {
+    if (config.getRetryIntervalMs() <= 0) {
+      throw new StreamException("spool retryIntervalMs must be greater than 0");
+    }
+    this.stream = stream;
+    this.config = config;
+    this.spool = new SpoolLog(config);
+    this.failure = new AtomicReference<StreamException>();
+    this.inflight = new ConcurrentSkipListMap<Long, PublishWrapper>();
+    this.replayIntervalNanos = config.getReplayRate() > 0 ?
+        TimeUnit.SECONDS.toNanos(1) / config.getReplayRate() : 0;
+  }
+
+  public synchronized void connect() throws StreamException {
+    if (this.replayer != null) {
+      return;
+    }
+
+    this.spool.open();
+    try {
+      this.stream.connect();
+      this.available = this.spool.isEmpty();
+    } catch (StreamException e) {
+      // the replay task keeps trying, publishes are spooled meanwhile
+      this.available = false;
+    }
+
+    this.replayer = Executors.newSingleThreadScheduledExecutor(r -> {
+      final Thread t = new Thread(r, "alvarium-spool-replay");
+      t.setDaemon(true);
+      return t;
+    });
+    this.replayer.scheduleWithFixedDelay(
+        this::replay,
+        0,
+        this.config.getRetryIntervalMs(),
+        TimeUnit.MILLISECONDS
+    );
+    if (this.config.getSyncIntervalMs() > 0) {
+      this.replayer.scheduleWithFixedDelay(
+          this.spool::sync,
+          this.config.getSyncIntervalMs(),
+          this.config.getSyncIntervalMs(),
+          TimeUnit.MILLISECONDS
+      );
+    }
+  }
+
+  public void close() throws StreamException {
+    synchronized (this) {
+      if (this.replayer != null) {
+        this.replayer.shutdownNow();
+        try {
+          this.replayer.awaitTermination(this.config.getRetryIntervalMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        this.replayer = null;
+      }
+    }
+    try {
+      this.stream.close();
+    } finally {
+      this.spool.close();
+    }
+  }
+
+  public void publish(PublishWrapper wrapper) throws StreamException {
+    // report a wrapper that failed after its publish returned and could not be spooled either
+    this.throwFailure();
+    if (!this.available) {
+      synchronized (this.spool) {
+        // checked again under the lock, the replay task may have drained the spool meanwhile
+        if (!this.available) {
+          this.spool.append(wrapper.toJson().getBytes(StandardCharsets.UTF_8));
+          return;
+        }
+      }
+    }
+
+    if (!this.stream.isPipelined()) {
+      try {
+        this.stream.publish(wrapper);
+      } catch (StreamException e) {
+        this.spoolFailed(wrapper);
+      }
+      return;
+    }
+
+    final long sequence;
+    synchronized (this.spool) {
+      // registered under the lock, so a failure spooling the wrappers in flight either sees this
+      // one or makes it go to the spool
+      if (!this.available) {
+        this.spool.append(wrapper.toJson().getBytes(StandardCharsets.UTF_8));
+        return;
+      }
+      sequence = this.sequence++;
+      this.inflight.put(sequence, wrapper);
+    }
+    this.stream.publishAsync(wrapper).whenComplete((v, e) -> {
+      if (e == null) {
+        this.inflight.remove(sequence);
+        return;
+      }
+      try {
+        this.spoolInflight(sequence);
+      } catch (StreamException se) {
+        this.failure.compareAndSet(null, se);
+      }
+    });
+  }
+
+  public void flush() throws StreamException {
+    if (this.available) {
+      this.stream.flush();
+    }
+    this.throwFailure();
+  }
+
+  /**
+   * @return number of records waiting in the spool
+   */
+  long spooled() {
+    return this.spool.size();
+  }
+
+  /**
+   * appends a wrapper the stream failed to publish and spools the following ones too
+   */
+  private void spoolFailed(PublishWrapper wrapper) throws StreamException {
+    synchronized (this.spool) {
+      this.available = false;
+      this.spool.append(wrapper.toJson().getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * appends every pipelined wrapper not acknowledged yet, in publish order, once one of them
+   * failed, and spools the following ones too
+   */
+  private void spoolInflight(long failed) throws StreamException {
+    synchronized (this.spool) {
+      if (!this.inflight.containsKey(failed)) {
+        // already spooled along with an earlier failure
+        return;
+      }
+      this.available = false;
+      try {
+        for (PublishWrapper wrapper : this.inflight.values()) {
+          this.spool.append(wrapper.toJson().getBytes(StandardCharsets.UTF_8));
+        }
+      } finally {
+        this.inflight.clear();
+      }
+    }
+  }
+
+  private void throwFailure() throws StreamException {
+    final StreamException e = this.failure.getAndSet(null);
+    if (e != null) {
+      throw e;
+    }
+  }
+
+  /**
+   * publishes the spooled records in order until the spool is empty or the stream fails again
+   */
+  private void replay() {
+    long next = System.nanoTime();
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        final byte[] record = this.spool.peek();
+        if (record == null) {
+          synchronized (this.spool) {
+            if (this.spool.isEmpty()) {
+              this.available = true;
+              return;
+            }
+          }
+          continue;
+        }
+
+        if (this.replayIntervalNanos > 0) {
+          final long wait = next - System.nanoTime();
+          if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+          }
+          next = Math.max(next, System.nanoTime() - this.replayIntervalNanos)
+              + this.replayIntervalNanos;
+        }
+
+        final PublishWrapper wrapper;
+        try {
+          wrapper = EncodedPublishWrapper.decode(new String(record, StandardCharsets.UTF_8));
+        } catch (JsonParseException e) {
+          // cannot be published in any case, skipped so it does not block the spool
+          this.spool.ack();
+          continue;
+        }
+        // acked only once the stream acknowledged the record, a pipelined publish may still fail
+        // after it returned
+        this.stream.publishAsync(wrapper).get();
+        this.spool.ack();
+      }
+    } catch (StreamException | ExecutionException e) {
+      // the stream is still unreachable, retried on the next run
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      // an exception escaping would cancel the replay task for good
+      logger.error("Spool replay failed, retrying on the next run", e);
+    }
+  }
+}
@@ -21,17 +21,42 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
 /**
- * Contains the type of stream being used as well as the relevant configuration 
+ * Contains the type of stream being used as well as the relevant configuration. The optional
+ * decorations of the stream are set through a {@link Builder}.
  */
 public class StreamInfo implements Serializable {
   private final StreamType type;
   private final Object config;
+  /**
+   * Optional local spool keeping the published data while the stream is unreachable.
+   */
+  private final SpoolConfig spool;
+  /**
+   * Optional batching of the published data into fewer stream messages.
+   */
+  private final BatchConfig batch;
+  /**
+   * Optional adaptive limit of the concurrent publishes and cap of their rate.
+   */
+  private final LimiterConfig limiter;
+  /**
+   * Optional background reconnection of the stream, publishes fail fast while it is down.
+   */
+  private final ReconnectConfig reconnect;
 
   public StreamInfo(StreamType type, Object config) {
-    this.type = type;
-    this.config = config;
+    this(new Builder(type, config));
   } 
 
+  private StreamInfo(Builder builder) {
+    this.type = builder.type;
+    this.config = builder.config;
+    this.spool = builder.spool;
+    this.batch = builder.batch;
+    this.limiter = builder.limiter;
+    this.reconnect = builder.reconnect;
+  }
+
   public StreamType getType() {
     return this.type;
   }
@@ -40,6 +65,22 @@ public class StreamInfo implements Serializable {
     return this.config;
   }
 
+  public SpoolConfig getSpool() {
+    return this.spool;
+  }
+
+  public BatchConfig getBatch() {
+    return this.batch;
+  }
+
+  public LimiterConfig getLimiter() {
+    return this.limiter;
+  }
+
+  public ReconnectConfig getReconnect() {
+    return this.reconnect;
+  }
+
   public String toJson() {
     Gson gson = new Gson();
     return gson.toJson(this);
@@ -51,4 +92,45 @@ public class StreamInfo implements Serializable {
     return gson.fromJson(json, StreamInfo.class);
     
   }
+
+  /**
+   * Builds a StreamInfo, every decoration is left out unless set
+   */
+  public static class Builder {
+    private final StreamType type;
+    private final Object config;
+    private SpoolConfig spool;
+    private BatchConfig batch;
+    private LimiterConfig limiter;
+    private ReconnectConfig reconnect;
+
+    public Builder(StreamType type, Object config) {
+      this.type = type;
+      this.config = config;
+    }
+
+    public Builder spool(SpoolConfig spool) {
+      this.spool = spool;
+      return this;
+    }
+
+    public Builder batch(BatchConfig batch) {
+      this.batch = batch;
+      return this;
+    }
+
+    public Builder limiter(LimiterConfig limiter) {
+      this.limiter = limiter;
+      return this;
+    }
+
+    public Builder reconnect(ReconnectConfig reconnect) {
+      this.reconnect = reconnect;
+      return this;
+    }
+
+    public StreamInfo build() {
+      return new StreamInfo(this);
+    }
+  }
 }
@@ -14,6 +14,8 @@
  *******************************************************************************/
 package com.alvarium.streams;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.alvarium.PublishWrapper;
 
 /**
@@ -38,4 +40,48 @@ public interface StreamProvider {
    * @throws StreamException: thrown if the connection is closed or if the unit did not respond
    */
   public void publish(PublishWrapper wrapper) throws StreamException; 
+
+  /**
+   * tells whether the provider can publish right now without connecting first. Providers that
+   * cannot tell report true and connect on publish if needed.
+   * @return false if a publish would have to reconnect
+   */
+  public default boolean isConnected() {
+    return true;
+  }
+
+  /**
+   * tells whether publishAsync returns before the external unit acknowledged the data, so a
+   * failure may only be reported once later publishes were accepted
+   * @return false if publishAsync waits for the acknowledgement like publish does
+   */
+  public default boolean isPipelined() {
+    return false;
+  }
+
+  /**
+   * waits until everything published so far is acknowledged by the external unit. 
+   * Providers that publish synchronously have nothing to flush.
+   * @throws StreamException: thrown if any pending data could not be published
+   */
+  public default void flush() throws StreamException {
+  }
+
+  /**
+   * publishes the passed data without waiting for the external unit to acknowledge it.
+   * Providers that cannot pipeline publishes fall back to a synchronous publish.
+   * @param wrapper : data being published
+   * @return a future that completes once the data is acknowledged, or completes exceptionally 
+   * with a StreamException if it could not be published
+   */
+  public default CompletableFuture<Void> publishAsync(PublishWrapper wrapper) {
+    final CompletableFuture<Void> result = new CompletableFuture<Void>();
+    try {
+      this.publish(wrapper);
+      result.complete(null);
+    } catch (StreamException e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
 }
@@ -20,10 +20,35 @@ package com.alvarium.streams;
  */
 public class StreamProviderFactory {
   public StreamProvider getProvider(StreamInfo info) throws StreamException {
+    StreamProvider provider = this.getStreamProvider(info);
+    if (info.getReconnect() != null) {
+      provider = new ConnectionSupervisor(provider, info.getReconnect());
+    }
+    // the limiter wraps the stream itself, so it measures the stream and paces spool replays
+    if (info.getLimiter() != null) {
+      provider = new LimitingStreamProvider(provider, info.getLimiter(), info.getType());
+    }
+    if (info.getSpool() != null) {
+      provider = new SpoolStreamProvider(provider, info.getSpool());
+    }
+    // batches are spooled as a whole, the spool must not acknowledge a wrapper still lingering
+    if (info.getBatch() != null) {
+      provider = new BatchingStreamProvider(provider, info.getBatch());
+    }
+    return provider;
+  }
+
+  private StreamProvider getStreamProvider(StreamInfo info) throws StreamException {
     switch (info.getType()) {
       case MQTT:
         try {
           MqttConfig config = MqttConfig.class.cast(info.getConfig());
+          if (config.getPool() != null) {
+            return new MqttPooledStreamProvider(config);
+          }
+          if (config.getAsync() != null) {
+            return new MqttAsyncStreamProvider(config);
+          }
           return new MqttStreamProvider(config);
         } catch(ClassCastException e) {
           throw new StreamException("Invalid stream config", e);
@@ -37,6 +62,27 @@ public class StreamProviderFactory {
         }
       case MOCK:
         return new MockStreamProvider();
+      case FILE:
+        try {
+          FileConfig config = FileConfig.class.cast(info.getConfig());
+          return new FileStreamProvider(config);
+        } catch (ClassCastException e) {
+          throw new StreamException("Invalid stream config", e);
+        }
+      case MEMORY:
+        try {
+          MemoryConfig config = MemoryConfig.class.cast(info.getConfig());
+          return new MemoryStreamProvider(config);
+        } catch (ClassCastException e) {
+          throw new StreamException("Invalid stream config", e);
+        }
+      case COMPOSITE:
+        try {
+          CompositeConfig config = CompositeConfig.class.cast(info.getConfig());
+          return new CompositeStreamProvider(config, this);
+        } catch (ClassCastException e) {
+          throw new StreamException("Invalid stream config", e);
+        }
       default:
         throw new StreamException(String.format("%s is not supported", info.getType()));
     }  
@@ -25,5 +25,11 @@ public enum StreamType {
   @SerializedName(value = "pravega")
   PRAVEGA,
   @SerializedName(value = "mock")
-  MOCK;
+  MOCK,
+  @SerializedName(value = "file")
+  FILE,
+  @SerializedName(value = "memory")
+  MEMORY,
+  @SerializedName(value = "composite")
+  COMPOSITE;
 }
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps a rate of operations. Tokens are added continuously at the given rate, up to the burst
+ * size, and each operation takes one, waiting for it when none is left. Waiting operations
+ * reserve their token so they are served in arrival order.
+ */
+class TokenBucket {
+  private final double tokensPerNano;
+  private final double capacity;
+  private double tokens;
+  private long last;
+
+  TokenBucket(double ratePerSecond, int burst) {
+    this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+    this.capacity = Math.max(1, burst);
+    this.tokens = this.capacity;
+    this.last = System.nanoTime();
+  }
+
+  /**
+   * takes a token, waiting until one is available
+   */
+  void acquire() throws InterruptedException {
+    final long wait;
+    synchronized (this) {
+      final long now = System.nanoTime();
+      this.tokens = Math.min(this.capacity, this.tokens + (now - this.last) * this.tokensPerNano);
+      this.last = now;
+      this.tokens -= 1;
+      wait = this.tokens >= 0 ? 0 : (long) Math.ceil(-this.tokens / this.tokensPerNano);
+    }
+    if (wait > 0) {
+      TimeUnit.NANOSECONDS.sleep(wait);
+    }
+  }
+}
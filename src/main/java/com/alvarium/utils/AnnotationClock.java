@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.utils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.huxhorn.sulky.ulid.ULID;
+
+/**
+ * The shared source of annotation ids and timestamps.
+ *
+ * <p>Ids are ULIDs that are monotonic across all threads: two ids generated within the same
+ * millisecond differ by an increment of the random part, so they still sort in creation order.
+ * A single ULID generator (and its random source) is reused instead of being created for every
+ * annotation.</p>
+ *
+ * <p>The underlying clock is pluggable through {@link #setDefault(AnnotationClock)}, which is
+ * mainly useful for tests that need deterministic timestamps.</p>
+ */
+public class AnnotationClock {
+  private static volatile AnnotationClock shared = new AnnotationClock(Clock.systemDefaultZone());
+
+  private final Clock clock;
+  private final ULID ulid;
+  private final AtomicReference<ULID.Value> previous;
+
+  public AnnotationClock(Clock clock) {
+    this.clock = clock;
+    this.ulid = new ULID();
+    this.previous = new AtomicReference<ULID.Value>();
+  }
+
+  /**
+   * returns the instance used by the annotators and annotations
+   * @return shared AnnotationClock
+   */
+  public static AnnotationClock getDefault() {
+    return shared;
+  }
+
+  /**
+   * replaces the instance used by the annotators and annotations
+   * @param clock new shared AnnotationClock
+   */
+  public static void setDefault(AnnotationClock clock) {
+    shared = clock;
+  }
+
+  public Clock getClock() {
+    return this.clock;
+  }
+
+  /**
+   * returns the current instant of the underlying clock
+   * @return current instant
+   */
+  public Instant now() {
+    return this.clock.instant();
+  }
+
+  /**
+   * Generates a ULID greater than any ULID previously generated by this instance. The value
+   * is published through a compare-and-set loop, so concurrent callers never block each other.
+   * @return ULID string representation
+   */
+  public String nextId() {
+    ULID.Value last;
+    ULID.Value next;
+    do {
+      last = this.previous.get();
+      final long millis = this.clock.millis();
+      if (last == null) {
+        next = this.ulid.nextValue(millis);
+      } else {
+        // never step back in time if the clock is adjusted, keep incrementing the last id instead
+        next = this.ulid.nextMonotonicValue(last, Math.max(millis, last.timestamp()));
+      }
+    } while (!this.previous.compareAndSet(last, next));
+    return next.toString();
+  }
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+
+import com.alvarium.hash.HashProvider;
+import com.alvarium.hash.HashProviderFactory;
+import com.alvarium.hash.HashType;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ArtifactHasherTest {
+  @Rule
+  public TemporaryFolder dir = new TemporaryFolder();
+
+  @Test
+  public void hashShouldMatchDerivedHash() throws Exception {
+    final Random random = new Random(7);
+    // covers empty, buffered and memory-mapped artifacts
+    for (int size : new int[] {0, 100, (1 << 20) - 1, 3 << 20}) {
+      final byte[] content = new byte[size];
+      random.nextBytes(content);
+      final File artifact = dir.newFile("artifact-" + size);
+      Files.write(artifact.toPath(), content);
+
+      for (HashType type : new HashType[] {HashType.SHA256Hash, HashType.MD5Hash}) {
+        final HashProvider hash = new HashProviderFactory().getProvider(type);
+        assertEquals(hash.derive(content), new ArtifactHasher(type).hash(artifact.getPath()));
+      }
+    }
+  }
+
+  @Test
+  public void hashShouldChangeWithArtifact() throws Exception {
+    final File artifact = dir.newFile("artifact");
+    final FileTime past = FileTime.fromMillis(System.currentTimeMillis() - 60000);
+    Files.write(artifact.toPath(), "content".getBytes());
+    Files.setLastModifiedTime(artifact.toPath(), past);
+
+    final ArtifactHasher hasher = new ArtifactHasher(HashType.SHA256Hash);
+    final HashProvider hash = new HashProviderFactory().getProvider(HashType.SHA256Hash);
+    final String digest = hasher.hash(artifact.getPath());
+    assertEquals(hash.derive("content".getBytes()), digest);
+    assertEquals(digest, hasher.hash(artifact.getPath()));
+
+    // same size, different modification time
+    Files.write(artifact.toPath(), "CONTENT".getBytes());
+    Files.setLastModifiedTime(artifact.toPath(), FileTime.fromMillis(past.toMillis() + 1000));
+    assertEquals(hash.derive("CONTENT".getBytes()), hasher.hash(artifact.getPath()));
+
+    // same modification time, different size
+    Files.write(artifact.toPath(), "content!".getBytes());
+    Files.setLastModifiedTime(artifact.toPath(), FileTime.fromMillis(past.toMillis() + 1000));
+    assertNotEquals(digest, hasher.hash(artifact.getPath()));
+    assertEquals(hash.derive("content!".getBytes()), hasher.hash(artifact.getPath()));
+  }
+}
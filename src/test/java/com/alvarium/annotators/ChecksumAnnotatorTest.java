@@ -13,9 +13,13 @@
  *******************************************************************************/
 package com.alvarium.annotators;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.logging.log4j.Level;
@@ -116,4 +120,99 @@ public class ChecksumAnnotatorTest {
 
     }
 
+    @Test
+    public void manifestShouldVerifyEveryArtifact() throws Exception {
+            final KeyInfo privateKey = new KeyInfo(
+                            "./src/test/java/com/alvarium/annotators/public.key",
+                            SignType.Ed25519);
+            final SignatureInfo sign = new SignatureInfo(privateKey, privateKey);
+            final AnnotatorConfig checksumCfg = new GsonBuilder()
+                .registerTypeAdapter(AnnotatorConfig.class, new AnnotatorConfigConverter())
+                .create()
+                .fromJson("{\"kind\": \"checksum\"}", AnnotatorConfig.class);
+            final SdkInfo config = new SdkInfo(
+                new AnnotatorConfig[] {checksumCfg},
+                new HashInfo(HashType.SHA256Hash),
+                sign,
+                null,
+                LayerType.Application
+            );
+            final Annotator annotator = new AnnotatorFactory().getAnnotator(
+                checksumCfg,
+                config,
+                LogManager.getRootLogger()
+            );
+
+            // lowercase digests, binary markers and nested paths as written by sha256sum
+            final HashProvider hash = new HashProviderFactory().getProvider(HashType.SHA256Hash);
+            final File bundle = dir.newFolder("bundle");
+            new File(bundle, "lib").mkdirs();
+            final StringBuilder manifest = new StringBuilder();
+            for (int i = 0; i < 50; i++) {
+                final String name = (i % 2 == 0 ? "lib/" : "") + "artifact-" + i;
+                final byte[] content = ("artifact " + i).getBytes();
+                Files.write(new File(bundle, name).toPath(), content);
+                manifest.append(hash.derive(content).toLowerCase())
+                    .append(i % 3 == 0 ? " *" : "  ")
+                    .append(name)
+                    .append("\n");
+            }
+            final File manifestFile = new File(bundle, "SHA256SUMS");
+            Files.write(manifestFile.toPath(), manifest.toString().getBytes());
+
+            for (boolean failFast : new boolean[] {false, true}) {
+                final ChecksumAnnotatorProps props = new ChecksumAnnotatorProps(
+                    manifestFile.getPath(),
+                    4,
+                    failFast,
+                    true
+                );
+                final PropertyBag ctx = new ImmutablePropertyBag(
+                    Map.of(AnnotationType.CHECKSUM.name(), props)
+                );
+                assert annotator.execute(ctx, "pipeline1/1".getBytes()).getIsSatisfied();
+            }
+
+            final PropertyBag ctx = new ImmutablePropertyBag(Map.of(
+                AnnotationType.CHECKSUM.name(),
+                new ChecksumAnnotatorProps(manifestFile.getPath(), 4, false, true)
+            ));
+
+            // modified artifact
+            Files.write(new File(bundle, "artifact-7").toPath(), "modified".getBytes());
+            assert !annotator.execute(ctx, "pipeline1/1".getBytes()).getIsSatisfied();
+
+            // missing artifact
+            Files.write(new File(bundle, "artifact-7").toPath(), "artifact 7".getBytes());
+            assert annotator.execute(ctx, "pipeline1/1".getBytes()).getIsSatisfied();
+            new File(bundle, "lib/artifact-8").delete();
+            assert !annotator.execute(ctx, "pipeline1/1".getBytes()).getIsSatisfied();
+    }
+
+    @Test
+    public void manifestShouldParseEscapedPaths() throws Exception {
+            final File manifestFile = dir.newFile("SHA256SUMS");
+            Files.write(
+                manifestFile.toPath(),
+                ("# comment\n\nabc  plain name\n\\def *new\\nline\\\\x\n").getBytes()
+            );
+
+            final List<ChecksumManifest.Entry> entries = ChecksumManifest.read(
+                manifestFile.toPath()
+            ).getEntries();
+            assertEquals(2, entries.size());
+            assertEquals("abc", entries.get(0).digest);
+            assertEquals("plain name", entries.get(0).name);
+            assertEquals(dir.getRoot().toPath().resolve("plain name"), entries.get(0).path);
+            assertEquals("def", entries.get(1).digest);
+            assertEquals("new\nline\\x", entries.get(1).name);
+
+            Files.write(manifestFile.toPath(), "abc plain name\n".getBytes());
+            try {
+                ChecksumManifest.read(manifestFile.toPath());
+                fail("malformed line should be rejected");
+            } catch (AnnotatorException e) {
+                assertEquals("Malformed checksum manifest line 1", e.getMessage());
+            }
+    }
 }
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Builds repositories with the git command line, the tests are skipped when git is not installed
+ */
+public class GitSourceVerifierTest {
+  @Rule
+  public TemporaryFolder dir = new TemporaryFolder();
+
+  private final GitSourceVerifier verifier = new GitSourceVerifier();
+  private File root;
+
+  @Before
+  public void setUp() throws Exception {
+    assumeTrue(gitAvailable());
+    root = dir.newFolder("repo");
+    git("init", "-q");
+    write("README.md", "readme");
+    write("src/Main.java", "class Main {}");
+    write("src/lib/Util.java", "class Util {}");
+    Files.createSymbolicLink(new File(root, "link").toPath(), new File("README.md").toPath());
+    git("add", "-A");
+    git("commit", "-q", "-m", "initial");
+  }
+
+  @Test
+  public void cleanWorkTreeShouldMatchHead() throws Exception {
+    final String head = git("rev-parse", "HEAD");
+    assertEquals(head, GitSourceVerifier.head(tree()));
+    assertNull(verifier.verify(tree(), head));
+    assertTrue(verifier.verify(tree(), "0000000000000000000000000000000000000000")
+        .startsWith("HEAD is at"));
+  }
+
+  @Test
+  public void changesShouldBeDetected() throws Exception {
+    final String head = git("rev-parse", "HEAD");
+    final File main = new File(root, "src/Main.java");
+
+    // a touched file is hashed again and still matches
+    Files.setLastModifiedTime(main.toPath(), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+    assertNull(verifier.verify(tree(), head));
+
+    write("src/Main.java", "class Main {{}}");
+    assertEquals("modified src/Main.java", verifier.verify(tree(), head));
+    git("add", "src/Main.java");
+    assertEquals("staged change to src/Main.java", verifier.verify(tree(), head));
+    git("checkout", "HEAD", "--", "src/Main.java");
+    assertNull(verifier.verify(tree(), head));
+
+    write("target/Main.class", "bytecode");
+    assertEquals("untracked target/Main.class", verifier.verify(tree(), head));
+    assertNull(verifier.verify(new SourceCodeTree(root.getPath(), null,
+        new String[] {"target/"}), head));
+
+    Files.delete(new File(root, "README.md").toPath());
+    assertEquals("deleted README.md", verifier.verify(tree(), head));
+  }
+
+  @Test
+  public void restoredModificationTimeShouldNotHideChanges() throws Exception {
+    final String head = git("rev-parse", "HEAD");
+    final File main = new File(root, "src/Main.java");
+    final FileTime modified = Files.getLastModifiedTime(main.toPath());
+
+    write("src/Main.java", "class Niam {}");
+    Files.setLastModifiedTime(main.toPath(), modified);
+    assertEquals("modified src/Main.java", verifier.verify(tree(), head));
+  }
+
+  @Test
+  public void unreadableDirectoriesShouldBeReported() throws Exception {
+    final String head = git("rev-parse", "HEAD");
+    final File hidden = new File(root, "hidden");
+    hidden.mkdirs();
+    hidden.setReadable(false);
+    try {
+      // permissions do not apply to root
+      assumeTrue(hidden.list() == null);
+      assertEquals("unreadable hidden", verifier.verify(tree(), head));
+    } finally {
+      hidden.setReadable(true);
+    }
+  }
+
+  @Test
+  public void skipWorktreeFilesShouldBeVerified() throws Exception {
+    final String head = git("rev-parse", "HEAD");
+    git("update-index", "--skip-worktree", "src/Main.java");
+    assertNull(verifier.verify(tree(), head));
+
+    write("src/Main.java", "class Main {{}}");
+    assertEquals("modified src/Main.java", verifier.verify(tree(), head));
+
+    // left out of a sparse checkout
+    Files.delete(new File(root, "src/Main.java").toPath());
+    assertNull(verifier.verify(tree(), head));
+  }
+
+  @Test
+  public void packedRepositoryShouldBeRead() throws Exception {
+    final StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      for (int j = 0; j < 200; j++) {
+        content.append("line ").append(j).append(" of revision ").append(j % 7 == 0 ? i : 0)
+            .append('\n');
+      }
+      write("src/Big.java", content.toString());
+      write("src/v" + (i % 3) + "/File.java", "revision " + i);
+      git("add", "-A");
+      git("commit", "-q", "-m", "revision " + i);
+    }
+    git("gc", "-q", "--aggressive");
+    git("update-index", "--index-version", "4");
+
+    final String head = git("rev-parse", "HEAD");
+    try (GitRepository repository = GitRepository.open(root.toPath())) {
+      final Map<String, String> expected = new TreeMap<String, String>();
+      for (String line : git("ls-tree", "-r", "HEAD").split("\n")) {
+        final String[] columns = line.split("\\s+", 4);
+        expected.put(columns[3], columns[2]);
+      }
+      final Map<String, String> actual = new TreeMap<String, String>();
+      for (Map.Entry<String, GitRepository.TreeEntry> e
+          : repository.readCommitTree(head).entrySet()) {
+        actual.put(e.getKey(), e.getValue().id);
+      }
+      assertEquals(expected, actual);
+      // an older commit is rebuilt from deltas
+      assertTrue(repository.readCommitTree(git("rev-parse", "HEAD~10")).containsKey("src/Big.java"));
+    }
+    assertNull(verifier.verify(tree(), head));
+  }
+
+  private SourceCodeTree tree() {
+    return new SourceCodeTree(root.getPath(), null, null);
+  }
+
+  private void write(String name, String content) throws IOException {
+    final File file = new File(root, name);
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private String git(String... args) throws Exception {
+    final String[] command = new String[args.length + 5];
+    command[0] = "git";
+    command[1] = "-c";
+    command[2] = "user.name=alvarium";
+    command[3] = "-c";
+    command[4] = "user.email=alvarium@example.com";
+    System.arraycopy(args, 0, command, 5, args.length);
+    final Process process = new ProcessBuilder(command)
+        .directory(root)
+        .redirectErrorStream(true)
+        .start();
+    final String output = new String(process.getInputStream().readAllBytes(),
+        StandardCharsets.UTF_8).trim();
+    if (process.waitFor() != 0) {
+      throw new IOException("git " + String.join(" ", args) + " failed: " + output);
+    }
+    return output;
+  }
+
+  private static boolean gitAvailable() {
+    try {
+      return new ProcessBuilder("git", "--version").start().waitFor() == 0;
+    } catch (Exception e) {
+      return false;
+    }
+  }
+}
@@ -17,6 +17,9 @@ package com.alvarium.annotators;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Map;
 
 import org.apache.logging.log4j.Level;
@@ -123,4 +126,100 @@ public class SourceCodeAnnotatorTest {
                 assert !annotation.getIsSatisfied();
 
         }
+
+        @Test
+        public void manifestShouldOnlyRehashModifiedFiles() throws Exception {
+                final KeyInfo key = new KeyInfo(
+                                "./src/test/java/com/alvarium/annotators/public.key",
+                                SignType.Ed25519);
+                final SignatureInfo sign = new SignatureInfo(key, key);
+                final Annotator annotator = new SourceCodeAnnotator(HashType.SHA256Hash, sign,
+                                LogManager.getRootLogger(), LayerType.Application);
+
+                final File sourceCodeDir = dir.newFolder("sourceCode");
+                final File f1 = new File(sourceCodeDir, "file1");
+                final File f2 = new File(sourceCodeDir, "file2");
+                Files.write(f1.toPath(), "foo".getBytes());
+                Files.write(f2.toPath(), "boo".getBytes());
+                // files modified during a scan are never trusted, date them back
+                final FileTime past = FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS));
+                Files.setLastModifiedTime(f1.toPath(), past);
+                Files.setLastModifiedTime(f2.toPath(), past);
+
+                final HashProvider hash = new HashProviderFactory().getProvider(HashType.SHA256Hash);
+                final String hashAndPath = hash.derive("foo".getBytes()) + "  " + f1.toPath().toString() + "\n"
+                                + hash.derive("boo".getBytes()) + "  " + f2.toPath().toString() + "\n";
+                final File checksumFile = dir.newFile("checksum");
+                Files.write(checksumFile.toPath(), hash.derive(hashAndPath.getBytes()).getBytes());
+
+                final File manifest = new File(dir.getRoot(), "manifest");
+                final PropertyBag ctx = new ImmutablePropertyBag(Map.of(
+                                AnnotationType.SourceCode.name(),
+                                new SourceCodeAnnotatorProps.Builder(sourceCodeDir.getPath(),
+                                                checksumFile.getPath())
+                                                .manifestPath(manifest.getPath())
+                                                .build()
+                ));
+                final byte[] data = "pipeline1/1".getBytes();
+                assert annotator.execute(ctx, data).getIsSatisfied();
+                assert manifest.exists();
+
+                // same size and modification time, the remembered digest is used
+                Files.write(f1.toPath(), "bar".getBytes());
+                Files.setLastModifiedTime(f1.toPath(), past);
+                assert annotator.execute(ctx, data).getIsSatisfied();
+
+                // a full verification hashes every file again
+                final PropertyBag verifyCtx = new ImmutablePropertyBag(Map.of(
+                                AnnotationType.SourceCode.name(),
+                                new SourceCodeAnnotatorProps.Builder(sourceCodeDir.getPath(),
+                                                checksumFile.getPath())
+                                                .manifestPath(manifest.getPath())
+                                                .fullVerifyIntervalMs(1)
+                                                .build()
+                ));
+                assert !annotator.execute(verifyCtx, data).getIsSatisfied();
+
+                // the manifest is reloaded from disk by a new annotator
+                Files.write(f1.toPath(), "foo".getBytes());
+                Files.setLastModifiedTime(f1.toPath(), FileTime.from(past.toInstant().plusSeconds(1)));
+                final Annotator other = new SourceCodeAnnotator(HashType.SHA256Hash, sign,
+                                LogManager.getRootLogger(), LayerType.Application);
+                assert other.execute(ctx, data).getIsSatisfied();
+                Files.write(f2.toPath(), "tampered".getBytes());
+                assert !other.execute(ctx, data).getIsSatisfied();
+        }
+
+        @Test
+        public void excludedFilesShouldNotAffectChecksum() throws Exception {
+                final KeyInfo key = new KeyInfo(
+                                "./src/test/java/com/alvarium/annotators/public.key",
+                                SignType.Ed25519);
+                final SignatureInfo sign = new SignatureInfo(key, key);
+                final Annotator annotator = new SourceCodeAnnotator(HashType.SHA256Hash, sign,
+                                LogManager.getRootLogger(), LayerType.Application);
+
+                final File sourceCodeDir = dir.newFolder("sourceCode");
+                final File target = new File(sourceCodeDir, "target");
+                target.mkdir();
+                Files.write(new File(sourceCodeDir, "file1").toPath(), "foo".getBytes());
+                Files.write(new File(target, "build.jar").toPath(), "jar".getBytes());
+
+                final SourceCodeAnnotatorProps props = new SourceCodeAnnotatorProps.Builder(
+                                sourceCodeDir.getPath(), new File(dir.getRoot(), "checksum").getPath())
+                                .excludes("target/")
+                                .build();
+                new SourceCodeChecksumGenerator(HashType.SHA256Hash).write(props);
+
+                final PropertyBag ctx = new ImmutablePropertyBag(
+                                Map.of(AnnotationType.SourceCode.name(), props));
+                final byte[] data = "pipeline1/1".getBytes();
+                assert annotator.execute(ctx, data).getIsSatisfied();
+
+                Files.write(new File(target, "build.jar").toPath(), "rebuilt".getBytes());
+                assert annotator.execute(ctx, data).getIsSatisfied();
+
+                Files.write(new File(sourceCodeDir, "file1").toPath(), "tampered".getBytes());
+                assert !annotator.execute(ctx, data).getIsSatisfied();
+        }
 }
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import com.alvarium.hash.HashProvider;
+import com.alvarium.hash.HashProviderFactory;
+import com.alvarium.hash.HashType;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SourceCodeChecksumTest {
+  @Rule
+  public TemporaryFolder dir = new TemporaryFolder();
+
+  @Test
+  public void checksumShouldMatchSequentialChecksum() throws Exception {
+    final File root = dir.newFolder("src");
+    final String[] names = {"a", "B", "c-d", "C_d", "e.txt", "E.TXT", "f 1", "_g"};
+    for (int i = 0; i < 200; i++) {
+      final File parent = new File(root, names[i % names.length] + "/" + names[(i / 8) % 8]);
+      parent.mkdirs();
+      Files.write(new File(parent, names[(i * 7) % 8] + i).toPath(), ("content " + i).getBytes());
+    }
+
+    for (HashType type : new HashType[] {HashType.SHA256Hash, HashType.MD5Hash}) {
+      final HashProvider hash = new HashProviderFactory().getProvider(type);
+      final List<String> lines = new ArrayList<String>();
+      for (File file : listFiles(root)) {
+        lines.add(hash.derive(Files.readAllBytes(file.toPath())) + "  " + file.getAbsolutePath());
+      }
+      Collections.sort(lines, Collator.getInstance(Locale.US));
+      final String expected = hash.derive((String.join("\n", lines) + "\n").getBytes());
+
+      assertEquals(expected, new SourceCodeChecksum(type).generate(tree(root), null, false));
+    }
+  }
+
+  @Test
+  public void singleFileShouldBeHashed() throws Exception {
+    final File file = dir.newFile("artifact");
+    Files.write(file.toPath(), "foo".getBytes());
+    final HashProvider hash = new HashProviderFactory().getProvider(HashType.SHA256Hash);
+    final String expected = hash.derive(
+        (hash.derive("foo".getBytes()) + "  " + file.getAbsolutePath() + "\n").getBytes()
+    );
+    assertEquals(expected,
+        new SourceCodeChecksum(HashType.SHA256Hash).generate(tree(file), null, false));
+  }
+
+  private List<File> listFiles(File directory) {
+    final List<File> files = new ArrayList<File>();
+    for (File file : directory.listFiles()) {
+      if (file.isDirectory()) {
+        files.addAll(listFiles(file));
+      } else {
+        files.add(file);
+      }
+    }
+    return files;
+  }
+
+  private SourceCodeTree tree(File root) {
+    return new SourceCodeTree(root.getPath(), null, null);
+  }
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SourceCodeTreeTest {
+  @Rule
+  public TemporaryFolder dir = new TemporaryFolder();
+
+  @Test
+  public void rulesShouldFollowGitignoreConventions() throws Exception {
+    final SourceCodeTree tree = new SourceCodeTree(
+        dir.getRoot().getPath(),
+        null,
+        new String[] {".git/", "/target", "*.class", "docs/**/*.tmp", "*.log", "!keep.log"}
+    );
+    final Path root = tree.getRoot();
+
+    // unanchored rules match at any depth
+    assertFalse(tree.acceptsDirectory(root.resolve(".git")));
+    assertFalse(tree.acceptsDirectory(root.resolve("module/.git")));
+    assertFalse(tree.acceptsFile(root.resolve("A.class")));
+    assertFalse(tree.acceptsFile(root.resolve("src/main/A.class")));
+    // a trailing slash only matches directories
+    assertTrue(tree.acceptsFile(root.resolve(".git")));
+    // a leading slash anchors the rule at the root
+    assertFalse(tree.acceptsDirectory(root.resolve("target")));
+    assertTrue(tree.acceptsDirectory(root.resolve("module/target")));
+    assertFalse(tree.acceptsFile(root.resolve("docs/a/b/c.tmp")));
+    assertTrue(tree.acceptsFile(root.resolve("src/c.tmp")));
+    // the last matching rule wins
+    assertFalse(tree.acceptsFile(root.resolve("logs/out.log")));
+    assertTrue(tree.acceptsFile(root.resolve("logs/keep.log")));
+    assertTrue(tree.acceptsFile(root.resolve("src/A.java")));
+    assertTrue(tree.acceptsDirectory(root));
+  }
+
+  @Test
+  public void walkShouldPruneExcludedDirectories() throws Exception {
+    final File root = dir.newFolder("src");
+    for (String name : new String[] {"A.java", "B.txt", "lib/C.java", "target/D.java",
+        "node_modules/pkg/E.java"}) {
+      final File file = new File(root, name);
+      file.getParentFile().mkdirs();
+      Files.write(file.toPath(), name.getBytes());
+    }
+
+    final SourceCodeTree tree = new SourceCodeTree(root.getPath(), new String[] {"*.java"},
+        new String[] {"target/", "node_modules/"});
+    final List<Path> directories = new ArrayList<Path>();
+    final List<String> files = new ArrayList<String>();
+    for (SourceCodeChecksum.SourceFile file : SourceCodeChecksum.walk(tree, tree.getRoot(),
+        directories)) {
+      files.add(tree.getRoot().relativize(Paths.get(file.path)).toString());
+    }
+    Collections.sort(files);
+
+    assertEquals(List.of("A.java", "lib/C.java".replace("/", File.separator)), files);
+    // excluded directories are not entered
+    assertEquals(2, directories.size());
+  }
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import com.alvarium.hash.HashType;
+
+import org.apache.logging.log4j.LogManager;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SourceCodeWatcherTest {
+  @Rule
+  public TemporaryFolder dir = new TemporaryFolder();
+
+  private final SourceCodeChecksum checksum = new SourceCodeChecksum(HashType.SHA256Hash);
+
+  @Test
+  public void checksumShouldFollowChanges() throws Exception {
+    final File root = dir.newFolder("src");
+    final File sub = new File(root, "sub");
+    sub.mkdir();
+    Files.write(new File(root, "file1").toPath(), "foo".getBytes());
+    Files.write(new File(sub, "file2").toPath(), "boo".getBytes());
+
+    try (SourceCodeWatcher watcher = new SourceCodeWatcher(tree(root), checksum,
+        LogManager.getRootLogger())) {
+      assertEquals(checksum.generate(tree(root), null, false), watcher.getChecksum());
+
+      // modified file
+      Files.write(new File(root, "file1").toPath(), "tampered".getBytes());
+      awaitChecksum(watcher, root);
+
+      // new directory holding files
+      final File added = new File(root, "added/nested");
+      added.mkdirs();
+      Files.write(new File(added, "file3").toPath(), "zoo".getBytes());
+      awaitChecksum(watcher, root);
+      Files.write(new File(added, "file4").toPath(), "moo".getBytes());
+      awaitChecksum(watcher, root);
+
+      // deleted file and directory
+      Files.delete(new File(sub, "file2").toPath());
+      Files.delete(sub.toPath());
+      awaitChecksum(watcher, root);
+    }
+  }
+
+  @Test
+  public void linksLeavingTheWatchedDirectoriesShouldBeReported() throws Exception {
+    final File root = dir.newFolder("src");
+    final File outside = dir.newFile("outside");
+    Files.write(new File(root, "file1").toPath(), "foo".getBytes());
+    Files.createSymbolicLink(new File(root, "inside").toPath(), new File(root, "file1").toPath());
+
+    try (SourceCodeWatcher watcher = new SourceCodeWatcher(tree(root), checksum,
+        LogManager.getRootLogger())) {
+      assertTrue(watcher.isComplete());
+
+      Files.createSymbolicLink(new File(root, "link").toPath(), outside.toPath());
+      final long deadline = System.currentTimeMillis() + 15000;
+      while (watcher.isComplete() && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertFalse(watcher.isComplete());
+    }
+  }
+
+  private void awaitChecksum(SourceCodeWatcher watcher, File root) throws Exception {
+    final String expected = checksum.generate(tree(root), null, false);
+    final long deadline = System.currentTimeMillis() + 15000;
+    while (!expected.equals(watcher.getChecksum()) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(expected, watcher.getChecksum());
+  }
+
+  private SourceCodeTree tree(File root) {
+    return new SourceCodeTree(root.getPath(), null, null);
+  }
+}
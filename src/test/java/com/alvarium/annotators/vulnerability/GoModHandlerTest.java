@@ -235,4 +235,57 @@ public class GoModHandlerTest {
         assert packages.get(artifactId5).equals(version5);
     }
 
+    @Test
+    public void testGetPackagesWithComments() throws Exception {
+        File project = dir.newFolder("project");
+        File gomodFile = new File(project.toPath() + "/go.mod");
+
+        StringBuilder goModContent = new StringBuilder();
+        goModContent.append("// the agent module\n");
+        goModContent.append("module github.com/edgexfoundry/edgex-go\n");
+        goModContent.append("require pkg1/v1 v1.0 // indirect\n");
+        goModContent.append("require(\n");
+        goModContent.append("\tpkg2/v2 v2.0 // indirect\n");
+        goModContent.append("\t// pkg3/v3 v3.0\n");
+        goModContent.append(")\n");
+        goModContent.append("replace pkg2/v2 => pkg4/v4 v4.0\n");
+        goModContent.append("replace pkg1/v1 => ../pkg1\n");
+
+        Files.writeString(gomodFile.toPath(), goModContent.toString());
+
+        GoModHandler handler = new GoModHandler(project.getAbsolutePath());
+        Map<String, String> packages = handler.getPackages();
+
+        assert handler.getEcosystem().equals("Go");
+        assert packages.keySet().size() == 2;
+        assert packages.get("pkg1/v1").equals("v1.0");
+        assert packages.get("pkg4/v4").equals("v4.0");
+    }
+
+    @Test
+    public void testReplacementsApplyToRequiredVersions() throws Exception {
+        File project = dir.newFolder("project");
+        File gomodFile = new File(project.toPath() + "/go.mod");
+
+        StringBuilder goModContent = new StringBuilder();
+        goModContent.append("module github.com/edgexfoundry/edgex-go\n");
+        // before the require it replaces
+        goModContent.append("replace pkg1/v1 => pkg4/v4 v4.0\n");
+        // only replaces another version
+        goModContent.append("replace pkg2/v2 v2.1 => pkg5/v5 v5.0\n");
+        // never required
+        goModContent.append("replace pkg6/v6 => pkg7/v7 v7.0\n");
+        goModContent.append("require (\n");
+        goModContent.append("\tpkg1/v1 v1.0\n");
+        goModContent.append("\tpkg2/v2 v2.0\n");
+        goModContent.append(")\n");
+
+        Files.writeString(gomodFile.toPath(), goModContent.toString());
+
+        Map<String, String> packages = new GoModHandler(project.getAbsolutePath()).getPackages();
+
+        assert packages.keySet().size() == 2;
+        assert packages.get("pkg4/v4").equals("v4.0");
+        assert packages.get("pkg2/v2").equals("v2.0");
+    }
 }
@@ -74,4 +74,56 @@ public class MavenHandlerTest {
 
     }
 
+    @Test
+    public void shouldResolveVersionProperties() throws Exception {
+        File project = dir.newFolder("project");
+        File pom = new File(project.toPath() + "/pom.xml");
+
+        StringBuilder pomContent = new StringBuilder();
+        pomContent.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">");
+        pomContent.append("    <parent><version>2.0.0</version></parent>");
+        pomContent.append("    <dependencyManagement><dependencies>");
+        pomContent.append("        <dependency>");
+        pomContent.append("        <groupId>org.foo</groupId>");
+        pomContent.append("        <artifactId>managed</artifactId>");
+        pomContent.append("        <version>${foo.version}</version>");
+        pomContent.append("        <exclusions><exclusion>");
+        pomContent.append("            <groupId>org.bar</groupId><artifactId>bar</artifactId>");
+        pomContent.append("        </exclusion></exclusions>");
+        pomContent.append("        </dependency>");
+        pomContent.append("    </dependencies></dependencyManagement>");
+        pomContent.append("    <dependencies>");
+        pomContent.append("        <dependency>");
+        pomContent.append("        <groupId>org.foo</groupId>");
+        pomContent.append("        <artifactId>sibling</artifactId>");
+        pomContent.append("        <version>${project.version}</version>");
+        pomContent.append("        </dependency>");
+        pomContent.append("        <dependency>");
+        pomContent.append("        <groupId>org.foo</groupId>");
+        pomContent.append("        <artifactId>unversioned</artifactId>");
+        pomContent.append("        </dependency>");
+        pomContent.append("    </dependencies>");
+        pomContent.append("    <properties><foo.version> 1.2.3 </foo.version></properties>");
+        pomContent.append("</project>");
+
+        Files.writeString(pom.toPath(), pomContent.toString());
+        Map<String, String> packages = new MavenHandler(project.getAbsolutePath()).getPackages();
+
+        assert packages.keySet().size() == 2;
+        assert packages.get("org.foo:managed").equals("1.2.3");
+        assert packages.get("org.foo:sibling").equals("2.0.0");
+    }
+
+    @Test(expected = VulnerabilityException.class)
+    public void shouldRejectDoctypes() throws Exception {
+        File project = dir.newFolder("project");
+        Files.writeString(
+            new File(project, "pom.xml").toPath(),
+            "<!DOCTYPE project [<!ENTITY v SYSTEM \"file:///etc/hostname\">]>"
+                + "<project><dependencies><dependency><groupId>a</groupId>"
+                + "<artifactId>b</artifactId><version>&v;</version>"
+                + "</dependency></dependencies></project>"
+        );
+        new MavenHandler(project.getAbsolutePath()).getPackages();
+    }
 }
@@ -13,10 +13,18 @@
  *******************************************************************************/
 package com.alvarium.annotators.vulnerability;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.junit.Test;
 
 import com.alvarium.utils.ServiceInfo;
 
@@ -42,4 +50,102 @@ public class OsvApiHandlerTest {
         assert vulnerabilities.size() > 0;
     }
 
+    @Test
+    public void largeRequestsShouldBeSplitAndPaginated() throws Exception {
+        final Map<String, List<String>> vulns = new HashMap<String, List<String>>();
+        final Map<String, String> packages = new HashMap<String, String>();
+        final List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 45; i++) {
+            final String name = "org.example:package-" + i;
+            packages.put(name, "1.0." + i);
+            final List<String> ids = new ArrayList<String>();
+            // some packages have no vulnerability, others span several pages
+            for (int j = 0; j < i % 7; j++) {
+                ids.add("GHSA-" + i + "-" + j);
+            }
+            vulns.put(name, ids);
+            expected.addAll(ids);
+        }
+
+        try (OsvStubServer server = new OsvStubServer(vulns, 2)) {
+            final OsvApiHandler handler = new OsvApiHandler(server.getConfig(), null, 10);
+            final List<String> ids = handler.getVulnerabilityIds(packages);
+
+            Collections.sort(ids);
+            Collections.sort(expected);
+            assertEquals(expected, ids);
+            assertTrue(server.maxQueriesPerRequest.get() <= 10);
+            // 5 batches, each followed by up to 3 page requests
+            assertTrue(server.requests.get() > 5);
+            assertTrue(server.requests.get() <= 20);
+            // connections are kept alive and reused across requests
+            assertTrue(server.connections.size() <= OsvApiHandler.MAX_CONCURRENT_BATCHES);
+        }
+    }
+
+    @Test
+    public void onlyCacheMissesShouldBeQueried() throws Exception {
+        final Map<String, List<String>> vulns = Map.of(
+            "junit:junit", List.of("GHSA-269g-pwp5-87pp"),
+            "org.example:safe", List.of()
+        );
+        try (OsvStubServer server = new OsvStubServer(vulns, 10)) {
+            final OsvApiHandler handler = new OsvApiHandler(
+                server.getConfig(),
+                new OsvResultCache(60000, null, System::currentTimeMillis),
+                OsvApiHandler.BATCH_SIZE
+            );
+
+            final Map<String, String> packages = new HashMap<String, String>();
+            packages.put("junit:junit", "4.12");
+            assertEquals(List.of("GHSA-269g-pwp5-87pp"), handler.getVulnerabilityIds(packages));
+            assertEquals(List.of("GHSA-269g-pwp5-87pp"), handler.getVulnerabilityIds(packages));
+            assertEquals(1, server.requests.get());
+
+            packages.put("org.example:safe", "1.0");
+            assertEquals(List.of("GHSA-269g-pwp5-87pp"), handler.getVulnerabilityIds(packages));
+            assertEquals(2, server.requests.get());
+            assertEquals(2, server.queries.get());
+        }
+    }
+
+    @Test
+    public void errorStatusShouldFail() throws Exception {
+        try (OsvStubServer server = new OsvStubServer(Map.of(), 10)) {
+            server.status = 500;
+            final OsvApiHandler handler = new OsvApiHandler(
+                server.getConfig(),
+                null,
+                OsvApiHandler.BATCH_SIZE
+            );
+            try {
+                handler.getVulnerabilityIds(Map.of("junit:junit", "4.12"));
+                fail("error status should fail the query");
+            } catch (VulnerabilityException e) {
+                assertTrue(e.getMessage().contains("500"));
+            }
+        }
+    }
+
+    @Test
+    public void queriesShouldBeTaggedWithTheirEcosystem() throws Exception {
+        final Map<String, List<String>> vulns = Map.of(
+            "golang.org/x/net", List.of("GO-2023-2102")
+        );
+        try (OsvStubServer server = new OsvStubServer(vulns, 10)) {
+            final OsvApiHandler handler = new OsvApiHandler(
+                server.getConfig(),
+                null,
+                OsvApiHandler.BATCH_SIZE
+            );
+            final List<String> ids = handler.getVulnerabilityIds(List.of(
+                new Dependency("Go", "golang.org/x/net", "v0.17.0"),
+                new Dependency("Maven", "junit:junit", "4.12")
+            ));
+
+            assertEquals(List.of("GO-2023-2102"), ids);
+            assertEquals(1, server.requests.get());
+            assertEquals(Set.of("Go:golang.org/x/net", "Maven:junit:junit"), server.packages);
+        }
+    }
 }
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators.vulnerability;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.alvarium.utils.ServiceInfo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OsvDatabaseHandlerTest {
+    @Rule
+    public TemporaryFolder dir = new TemporaryFolder();
+
+    private static final String JUNIT = "{\"id\": \"GHSA-269g-pwp5-87pp\", \"affected\": [{"
+        + "\"package\": {\"ecosystem\": \"Maven\", \"name\": \"junit:junit\"},"
+        + "\"ranges\": [{\"type\": \"ECOSYSTEM\","
+        + "\"events\": [{\"fixed\": \"4.13.1\"}, {\"introduced\": \"4.7\"}]}],"
+        + "\"versions\": [\"4.7\", \"4.8\"]}]}";
+    private static final String JETTY = "{\"id\": \"GHSA-jetty\", \"modified\": \"x\","
+        + "\"affected\": [{"
+        + "\"package\": {\"ecosystem\": \"Maven\", \"name\": \"org.eclipse.jetty:jetty-server\"},"
+        + "\"ranges\": [{\"type\": \"GIT\", \"events\": [{\"introduced\": \"0\"}]},"
+        + "{\"type\": \"ECOSYSTEM\", \"events\": [{\"introduced\": \"0\"},"
+        + "{\"last_affected\": \"9.4.40\"}]}]},"
+        + "{\"package\": {\"ecosystem\": \"Maven\", \"name\": \"org.eclipse.jetty:jetty-server\"},"
+        + "\"versions\": [\"10.0.0\"]}]}";
+    private static final String WITHDRAWN = "{\"id\": \"GHSA-withdrawn\","
+        + "\"withdrawn\": \"2024-01-01T00:00:00Z\", \"affected\": [{"
+        + "\"package\": {\"ecosystem\": \"Maven\", \"name\": \"junit:junit\"},"
+        + "\"versions\": [\"4.12\"]}]}";
+    private static final String GUAVA = "{\"id\": \"GHSA-guava\", \"affected\": [{"
+        + "\"package\": {\"ecosystem\": \"Maven\", \"name\": \"com.google.guava:guava\"},"
+        + "\"ranges\": [{\"type\": \"ECOSYSTEM\", \"events\": [{\"introduced\": \"0\"},"
+        + "{\"fixed\": \"32.0.0-android\"}]}]}]}";
+
+    @Test
+    public void lookupsShouldMatchVersionsAndRanges() throws Exception {
+        export("Maven/all.zip", JUNIT, JETTY, WITHDRAWN);
+        final OsvDatabaseHandler handler = this.handler(0);
+
+        assertEquals(List.of("GHSA-269g-pwp5-87pp"), ids(handler, "junit:junit", "4.12"));
+        assertEquals(List.of("GHSA-269g-pwp5-87pp"), ids(handler, "junit:junit", "4.7"));
+        assertEquals(List.of(), ids(handler, "junit:junit", "4.6"));
+        assertEquals(List.of(), ids(handler, "junit:junit", "4.13.1"));
+        assertEquals(List.of("GHSA-jetty"), ids(handler, "org.eclipse.jetty:jetty-server", "9.4.40"));
+        assertEquals(List.of(), ids(handler, "org.eclipse.jetty:jetty-server", "9.4.41"));
+        assertEquals(List.of("GHSA-jetty"), ids(handler, "org.eclipse.jetty:jetty-server", "10.0.0"));
+        assertEquals(List.of(), ids(handler, "org.example:unknown", "1.0"));
+    }
+
+    @Test
+    public void onlyNewExportsShouldBeIndexed() throws Exception {
+        final File maven = export("Maven/all.zip", JUNIT);
+        final File index = new File(dir.getRoot(), ".index/Maven_all.zip.osvidx");
+        assertEquals(List.of("GHSA-269g-pwp5-87pp"), ids(this.handler(0), "junit:junit", "4.12"));
+        assertTrue(index.exists());
+
+        // a restarted handler reuses the index
+        final FileTime built = FileTime.fromMillis(1000);
+        Files.setLastModifiedTime(index.toPath(), built);
+        final OsvDatabaseHandler handler = this.handler(0);
+        assertEquals(List.of("GHSA-269g-pwp5-87pp"), ids(handler, "junit:junit", "4.12"));
+        assertEquals(built, Files.getLastModifiedTime(index.toPath()));
+
+        // a new export is indexed on its own
+        export("extra/all.zip", GUAVA);
+        assertEquals(List.of("GHSA-guava"), ids(handler, "com.google.guava:guava", "31.1-jre"));
+        assertEquals(built, Files.getLastModifiedTime(index.toPath()));
+
+        // a replaced export is indexed again
+        export("Maven/all.zip", JUNIT, JETTY);
+        Files.setLastModifiedTime(maven.toPath(), FileTime.fromMillis(5000));
+        assertEquals(List.of("GHSA-jetty"), ids(handler, "org.eclipse.jetty:jetty-server", "9.0"));
+        assertNotEquals(built, Files.getLastModifiedTime(index.toPath()));
+    }
+
+    @Test
+    public void exportsShouldOnlyBeRescannedAfterTheInterval() throws Exception {
+        export("Maven/all.zip", JUNIT);
+        final OsvDatabaseHandler handler = this.handler(OsvDatabaseHandler.RESCAN_INTERVAL_MS);
+        assertEquals(List.of("GHSA-269g-pwp5-87pp"), ids(handler, "junit:junit", "4.12"));
+
+        export("extra/all.zip", GUAVA);
+        assertEquals(List.of(), ids(handler, "com.google.guava:guava", "31.1-jre"));
+        assertEquals(List.of("GHSA-guava"), ids(this.handler(0), "com.google.guava:guava", "31.1-jre"));
+    }
+
+    @Test
+    public void previousExportsShouldBeKeptWhenListingFails() throws Exception {
+        export("Maven/all.zip", JUNIT);
+        final OsvDatabaseHandler handler = this.handler(0);
+        assertEquals(List.of("GHSA-269g-pwp5-87pp"), ids(handler, "junit:junit", "4.12"));
+
+        final File root = dir.getRoot();
+        final File moved = new File(root.getParentFile(), root.getName() + "-moved");
+        assertTrue(root.renameTo(moved));
+        try {
+            assertEquals(List.of("GHSA-269g-pwp5-87pp"), ids(handler, "junit:junit", "4.12"));
+        } finally {
+            assertTrue(moved.renameTo(root));
+        }
+    }
+
+    private OsvDatabaseHandler handler(long rescanIntervalMs) throws VulnerabilityException {
+        return new OsvDatabaseHandler(new VulnerabilityAnnotatorConfig(
+            new ServiceInfo("localhost", "http", 80),
+            VulnerabilityProviderType.OSV_OFFLINE,
+            null,
+            null,
+            new OsvDatabaseConfig(dir.getRoot().getPath(), null)
+        ), rescanIntervalMs);
+    }
+
+    private static List<String> ids(OsvDatabaseHandler handler, String name, String version)
+            throws VulnerabilityException {
+        return handler.getVulnerabilityIds(Map.of(name, version));
+    }
+
+    private File export(String name, String... advisories) throws Exception {
+        final File zip = new File(dir.getRoot(), name);
+        zip.getParentFile().mkdirs();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip))) {
+            for (int i = 0; i < advisories.length; i++) {
+                out.putNextEntry(new ZipEntry("advisory-" + i + ".json"));
+                out.write(advisories[i].getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        return zip;
+    }
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators.vulnerability;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OsvResultCacheTest {
+    @Rule
+    public TemporaryFolder dir = new TemporaryFolder();
+
+    @Test
+    public void entriesShouldExpireAfterTtl() {
+        final AtomicLong now = new AtomicLong(1000);
+        final OsvResultCache cache = new OsvResultCache(100, null, now::get);
+
+        assertNull(cache.get("Maven", "junit:junit", "4.12"));
+        cache.put("Maven", "junit:junit", "4.12", List.of("GHSA-269g-pwp5-87pp"));
+        cache.put("Maven", "junit:junit", "4.13.1", List.of());
+
+        now.addAndGet(99);
+        assertEquals(List.of("GHSA-269g-pwp5-87pp"), cache.get("Maven", "junit:junit", "4.12"));
+        assertEquals(List.of(), cache.get("Maven", "junit:junit", "4.13.1"));
+        assertNull(cache.get("Go", "junit:junit", "4.12"));
+
+        now.addAndGet(1);
+        assertNull(cache.get("Maven", "junit:junit", "4.12"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void expiredEntriesShouldBeDroppedOnSave() throws Exception {
+        final AtomicLong now = new AtomicLong(1000);
+        final OsvResultCache cache = new OsvResultCache(100, null, now::get);
+        cache.put("Maven", "junit:junit", "4.12", List.of("GHSA-269g-pwp5-87pp"));
+        now.addAndGet(50);
+        cache.put("Maven", "junit:junit", "4.13.1", List.of());
+
+        now.addAndGet(50);
+        cache.save();
+        assertEquals(1, cache.size());
+        assertEquals(List.of(), cache.get("Maven", "junit:junit", "4.13.1"));
+    }
+
+    @Test
+    public void cacheShouldSurviveRestart() throws Exception {
+        final File file = new File(dir.getRoot(), "cache/osv.json");
+        final VulnerabilityCacheConfig cfg = VulnerabilityCacheConfig.fromJson(
+            "{\"ttlMs\": 3600000, \"path\": \"" + file.getPath() + "\"}"
+        );
+
+        final OsvResultCache cache = OsvResultCache.create(cfg);
+        cache.put("Maven", "junit:junit", "4.12", List.of("GHSA-269g-pwp5-87pp"));
+        cache.save();
+
+        final OsvResultCache restarted = OsvResultCache.create(cfg);
+        assertEquals(
+            List.of("GHSA-269g-pwp5-87pp"),
+            restarted.get("Maven", "junit:junit", "4.12")
+        );
+
+        // expired entries and unreadable files are ignored
+        final OsvResultCache expired = OsvResultCache.create(
+            new VulnerabilityCacheConfig(1, file.getPath()),
+            () -> System.currentTimeMillis() + 1
+        );
+        assertNull(expired.get("Maven", "junit:junit", "4.12"));
+
+        Files.write(file.toPath(), "{not json".getBytes());
+        assertNull(OsvResultCache.create(cfg).get("Maven", "junit:junit", "4.12"));
+    }
+
+    @Test
+    public void cacheShouldOnlyBeEnabledWhenConfigured() {
+        assertNull(OsvResultCache.create(null));
+        assertNull(OsvResultCache.create(new VulnerabilityCacheConfig(-1, null)));
+    }
+}
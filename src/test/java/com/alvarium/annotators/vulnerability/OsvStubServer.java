@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators.vulnerability;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alvarium.utils.ServiceInfo;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local stand-in for the OSV querybatch endpoint, serving the vulnerabilities it was given
+ * per package name. Results hold at most {@code pageSize} vulnerabilities and are paginated
+ * with {@code next_page_token} like OSV does. Keeps count of the requests and connections it
+ * received.
+ */
+class OsvStubServer implements AutoCloseable {
+    private final Gson gson = new Gson();
+    private final Map<String, List<String>> vulns;
+    private final int pageSize;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    final AtomicInteger requests = new AtomicInteger();
+    final AtomicInteger queries = new AtomicInteger();
+    final AtomicInteger maxQueriesPerRequest = new AtomicInteger();
+    final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+    // ecosystem and name of every queried package
+    final Set<String> packages = ConcurrentHashMap.newKeySet();
+    volatile int status = 200;
+
+    OsvStubServer(Map<String, List<String>> vulns, int pageSize) throws IOException {
+        this.vulns = vulns;
+        this.pageSize = pageSize;
+        this.executor = Executors.newFixedThreadPool(8);
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.createContext("/v1/querybatch", this::handle);
+        this.server.setExecutor(this.executor);
+        this.server.start();
+    }
+
+    VulnerabilityAnnotatorConfig getConfig() {
+        return new VulnerabilityAnnotatorConfig(
+            new ServiceInfo("localhost", "http", this.server.getAddress().getPort()),
+            VulnerabilityProviderType.OSV,
+            new VulnerabilityAnnotatorConfig.EndpointPaths("/v1/querybatch", "/v1/query")
+        );
+    }
+
+    public void close() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        this.requests.incrementAndGet();
+        this.connections.add(exchange.getRemoteAddress());
+
+        final JsonObject req;
+        try (InputStreamReader reader = new InputStreamReader(
+            exchange.getRequestBody(),
+            StandardCharsets.UTF_8
+        )) {
+            req = this.gson.fromJson(reader, JsonObject.class);
+        }
+        final JsonArray queries = req.getAsJsonArray("queries");
+        this.queries.addAndGet(queries.size());
+        this.maxQueriesPerRequest.accumulateAndGet(queries.size(), Math::max);
+
+        final JsonArray results = new JsonArray();
+        for (int i = 0; i < queries.size(); i++) {
+            final JsonObject query = queries.get(i).getAsJsonObject();
+            final JsonObject pkg = query.getAsJsonObject("package");
+            final String name = pkg.get("name").getAsString();
+            this.packages.add(pkg.get("ecosystem").getAsString() + ":" + name);
+            final int offset = query.has("page_token") ? query.get("page_token").getAsInt() : 0;
+            final List<String> ids = this.vulns.getOrDefault(name, Collections.emptyList());
+
+            final JsonObject result = new JsonObject();
+            final List<String> page = new ArrayList<String>(
+                ids.subList(offset, Math.min(offset + this.pageSize, ids.size()))
+            );
+            if (!page.isEmpty()) {
+                final JsonArray vulns = new JsonArray();
+                for (String id : page) {
+                    final JsonObject vuln = new JsonObject();
+                    vuln.addProperty("id", id);
+                    vuln.addProperty("modified", "2024-01-01T00:00:00Z");
+                    vulns.add(vuln);
+                }
+                result.add("vulns", vulns);
+            }
+            if (offset + this.pageSize < ids.size()) {
+                result.addProperty("next_page_token", String.valueOf(offset + this.pageSize));
+            }
+            results.add(result);
+        }
+
+        final JsonObject response = new JsonObject();
+        response.add("results", results);
+        final byte[] body = this.gson.toJson(response).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(this.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators.vulnerability;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class OsvVersionTest {
+    @Test
+    public void ecosystemVersionsShouldBeOrderedLikeMaven() {
+        final String[] ordered = {
+            "1.0-alpha-1", "1.0-alpha2", "1.0-beta", "1.0-M1", "1.0-rc1", "1.0-SNAPSHOT", "1.0",
+            "1.0-sp1", "1.0.1", "1.2", "1.10", "2.0.0-rc.1", "2.0", "10.0"
+        };
+        for (int i = 0; i < ordered.length; i++) {
+            for (int j = 0; j < ordered.length; j++) {
+                assertEquals(
+                    ordered[i] + " vs " + ordered[j],
+                    Integer.signum(Integer.compare(i, j)),
+                    Integer.signum(maven(ordered[i], ordered[j]))
+                );
+            }
+        }
+        assertEquals(0, maven("1.0", "1"));
+        assertEquals(0, maven("1.0.0.Final", "1.0"));
+        assertEquals(0, maven("1.0-GA", "1.0"));
+    }
+
+    @Test
+    public void semverVersionsShouldBeOrderedBySemver() {
+        final String[] ordered = {
+            "v0.9.9", "1.0.0-alpha", "1.0.0-alpha.1", "1.0.0-alpha.beta", "1.0.0-beta.2",
+            "1.0.0-beta.11", "1.0.0-rc.1", "1.0.0", "v1.0.1", "1.2.0", "1.10.0"
+        };
+        for (int i = 0; i < ordered.length; i++) {
+            for (int j = 0; j < ordered.length; j++) {
+                assertEquals(
+                    ordered[i] + " vs " + ordered[j],
+                    Integer.signum(Integer.compare(i, j)),
+                    Integer.signum(OsvVersion.compare(
+                        "npm", OsvVersion.RANGE_SEMVER, ordered[i], ordered[j]
+                    ))
+                );
+            }
+        }
+        assertEquals(0, OsvVersion.compare("Go", OsvVersion.RANGE_ECOSYSTEM, "v1.2.3+meta", "1.2.3"));
+        assertTrue(OsvVersion.compare("Go", OsvVersion.RANGE_ECOSYSTEM, "v1.10.0", "v1.9.0") > 0);
+    }
+
+    private static int maven(String a, String b) {
+        return OsvVersion.compare("Maven", OsvVersion.RANGE_ECOSYSTEM, a, b);
+    }
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.annotators.vulnerability;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PackageFileScannerTest {
+    @Rule
+    public TemporaryFolder dir = new TemporaryFolder();
+
+    @Test
+    public void scanShouldReadEveryPackageFileOfTheTree() throws Exception {
+        final File root = dir.getRoot();
+        write(root, "pom.xml", pom("junit", "junit", "4.12"));
+        write(root, "services/api/pom.xml", pom("com.google.guava", "guava", "31.1-jre"));
+        write(root, "services/agent/go.mod", "module example.com/agent\n\n"
+            + "require golang.org/x/net v0.17.0 // indirect\n");
+        // build outputs, vendored and hidden directories are not scanned
+        write(root, "services/api/target/classes/pom.xml", pom("org.example", "built", "1.0"));
+        write(root, "node_modules/x/pom.xml", pom("org.example", "vendored", "1.0"));
+        write(root, ".git/pom.xml", pom("org.example", "hidden", "1.0"));
+        // neither are test fixtures
+        write(root, "services/api/src/test/resources/pom.xml", "<project><broken>");
+        write(root, "services/agent/testdata/go.mod", "require example.com/fixture v1.0.0\n");
+
+        final PackageFileScanner scanner = new PackageFileScanner();
+        assertEquals(
+            Set.of(
+                new Dependency("Maven", "junit:junit", "4.12"),
+                new Dependency("Maven", "com.google.guava:guava", "31.1-jre"),
+                new Dependency("Go", "golang.org/x/net", "v0.17.0")
+            ),
+            scanner.scan(root.getPath())
+        );
+
+        // the cached dependencies of a package file are dropped once its content changes
+        write(root, "pom.xml", pom("junit", "junit", "4.13.2"));
+        assertEquals(
+            Set.of(
+                new Dependency("Maven", "junit:junit", "4.13.2"),
+                new Dependency("Maven", "com.google.guava:guava", "31.1-jre"),
+                new Dependency("Go", "golang.org/x/net", "v0.17.0")
+            ),
+            scanner.scan(root.getPath())
+        );
+    }
+
+    @Test
+    public void malformedPackageFileShouldBeSkipped() throws Exception {
+        final File root = dir.getRoot();
+        write(root, "pom.xml", pom("junit", "junit", "4.12"));
+        write(root, "fixtures/pom.xml", "<project><broken>");
+
+        assertEquals(
+            Set.of(new Dependency("Maven", "junit:junit", "4.12")),
+            new PackageFileScanner().scan(root.getPath())
+        );
+    }
+
+    @Test(expected = VulnerabilityException.class)
+    public void scanShouldFailWhenNoPackageFileCanBeRead() throws Exception {
+        write(dir.getRoot(), "pom.xml", "<project><broken>");
+        new PackageFileScanner().scan(dir.getRoot().getPath());
+    }
+
+    @Test(expected = VulnerabilityException.class)
+    public void scanShouldFailWithoutPackageFile() throws Exception {
+        new PackageFileScanner().scan(dir.newFolder("empty").getPath());
+    }
+
+    private static String pom(String groupId, String artifactId, String version) {
+        return "<project><dependencies><dependency>"
+            + "<groupId>" + groupId + "</groupId>"
+            + "<artifactId>" + artifactId + "</artifactId>"
+            + "<version>" + version + "</version>"
+            + "</dependency></dependencies></project>";
+    }
+
+    private static void write(File root, String name, String content) throws Exception {
+        final File file = new File(root, name);
+        file.getParentFile().mkdirs();
+        Files.writeString(file.toPath(), content);
+    }
+}
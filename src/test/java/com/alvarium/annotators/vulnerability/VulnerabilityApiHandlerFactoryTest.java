@@ -32,4 +32,18 @@ public class VulnerabilityApiHandlerFactoryTest {
         );
         assert apiHandler instanceof OsvApiHandler;
     }
+
+    @Test
+    public void shouldReturnOsvDatabaseHandler() throws Exception {
+        VulnerabilityApiHandler apiHandler = new VulnerabilityApiHandlerFactory().getHandler(
+            new VulnerabilityAnnotatorConfig(
+                null,
+                VulnerabilityProviderType.OSV_OFFLINE,
+                null,
+                null,
+                new OsvDatabaseConfig("/var/lib/osv", null)
+            )
+        );
+        assert apiHandler instanceof OsvDatabaseHandler;
+    }
 }
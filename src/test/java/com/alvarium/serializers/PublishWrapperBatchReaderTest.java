@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.serializers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import com.alvarium.PublishWrapper;
+import com.alvarium.SdkAction;
+import com.alvarium.contracts.Annotation;
+import com.alvarium.contracts.AnnotationList;
+import com.alvarium.contracts.AnnotationType;
+import com.alvarium.contracts.LayerType;
+import com.alvarium.hash.HashType;
+
+import org.junit.Test;
+
+public class PublishWrapperBatchReaderTest {
+  private PublishWrapper wrapper(String key) {
+    final Annotation annotation = new Annotation(key, HashType.SHA256Hash, "host",
+        LayerType.Application, AnnotationType.TPM, "sig", true, Instant.now());
+    final AnnotationList list = new AnnotationList(List.of(annotation));
+    return new PublishWrapper(SdkAction.CREATE, list.getClass().getName(), list);
+  }
+
+  private InputStream stream(String message) {
+    return new ByteArrayInputStream(message.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void batchShouldYieldEveryWrapperInOrder() throws IOException {
+    final String message = "[" + wrapper("key1").toJson() + "," + wrapper("key2").toJson() + ","
+        + new PublishWrapper(SdkAction.MUTATE, "plain", "text").toJson() + "]";
+
+    try (PublishWrapperBatchReader reader = new PublishWrapperBatchReader(stream(message))) {
+      assertTrue(reader.isBatch());
+      assertEquals("key1", reader.next().nextSummary().getKey());
+      assertEquals("key2", reader.next().nextSummary().getKey());
+      final PublishWrapperReader last = reader.next();
+      assertEquals(SdkAction.MUTATE, last.getAction());
+      assertFalse(last.hasNext());
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  @Test
+  public void singleWrapperShouldBeReadAsABatchOfOne() throws IOException {
+    try (PublishWrapperBatchReader reader = new PublishWrapperBatchReader(
+        stream(wrapper("key").toJson()))) {
+      assertFalse(reader.isBatch());
+      assertTrue(reader.hasNext());
+      assertEquals("key", reader.next().next().getKey());
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void nextShouldFailWhenNoWrapperIsLeft() throws IOException {
+    try (PublishWrapperBatchReader reader = new PublishWrapperBatchReader(stream("[]"))) {
+      reader.next();
+    }
+  }
+}
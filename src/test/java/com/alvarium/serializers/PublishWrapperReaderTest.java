@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.serializers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import com.alvarium.PublishWrapper;
+import com.alvarium.SdkAction;
+import com.alvarium.contracts.Annotation;
+import com.alvarium.contracts.AnnotationList;
+import com.alvarium.contracts.AnnotationSummary;
+import com.alvarium.contracts.AnnotationType;
+import com.alvarium.contracts.LayerType;
+import com.alvarium.hash.HashType;
+
+import org.junit.Test;
+
+public class PublishWrapperReaderTest {
+
+  private InputStream wrap(List<Annotation> annotations) {
+    final AnnotationList list = new AnnotationList(annotations);
+    final PublishWrapper wrapper = new PublishWrapper(
+        SdkAction.CREATE,
+        list.getClass().getName(),
+        list
+    );
+    return new ByteArrayInputStream(wrapper.toJson().getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void nextShouldYieldEveryAnnotation() throws IOException {
+    final Annotation tpm = new Annotation("key1", HashType.SHA256Hash, "host",
+        LayerType.Application, AnnotationType.TPM, "sig", true, Instant.now());
+    final Annotation tls = new Annotation("key2", HashType.SHA256Hash, "host",
+        LayerType.Application, AnnotationType.TLS, "sig", false, Instant.now());
+
+    final PublishWrapperReader reader = new PublishWrapperReader(wrap(List.of(tpm, tls)));
+    assertEquals(SdkAction.CREATE, reader.getAction());
+    assertEquals(AnnotationList.class.getName(), reader.getMessageType());
+
+    assertTrue(reader.hasNext());
+    final Annotation first = reader.next();
+    assertEquals(tpm.getId(), first.getId());
+    assertEquals(tpm.getTimestamp(), first.getTimestamp());
+    assertEquals(AnnotationType.TPM, first.getKind());
+
+    assertTrue(reader.hasNext());
+    final Annotation second = reader.next();
+    assertEquals(tls.getId(), second.getId());
+    assertEquals(false, second.getIsSatisfied());
+
+    assertFalse(reader.hasNext());
+    reader.close();
+  }
+
+  @Test
+  public void nextSummaryShouldProjectScoringFields() throws IOException {
+    final Annotation annotation = new Annotation("key", HashType.MD5Hash, "host",
+        LayerType.Application, AnnotationType.SourceCode, "sig", true, Instant.now());
+
+    final PublishWrapperReader reader = new PublishWrapperReader(
+        wrap(List.of(annotation, annotation))
+    );
+    int count = 0;
+    while (reader.hasNext()) {
+      final AnnotationSummary summary = reader.nextSummary();
+      assertEquals("key", summary.getKey());
+      assertEquals(AnnotationType.SourceCode, summary.getKind());
+      assertEquals(true, summary.getIsSatisfied());
+      count++;
+    }
+    assertEquals(2, count);
+  }
+
+  @Test
+  public void nonAnnotationContentShouldHaveNoAnnotations() throws IOException {
+    final PublishWrapper wrapper = new PublishWrapper(SdkAction.PUBLISH, "test type",
+        "test content");
+    final PublishWrapperReader reader = new PublishWrapperReader(
+        new ByteArrayInputStream(wrapper.toJson().getBytes(StandardCharsets.UTF_8))
+    );
+    assertEquals(SdkAction.PUBLISH, reader.getAction());
+    assertFalse(reader.hasNext());
+  }
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.serializers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import org.junit.Test;
+
+public class TimestampFormatterTest {
+
+  @Test
+  public void formatShouldMatchZonedDateTimeRepresentation() {
+    final String[] instants = {
+      "2021-08-24T17:22:33.334070489Z",
+      "2021-08-24T17:22:33.334070Z",
+      "2021-08-24T17:22:33.334Z",
+      "2021-08-24T17:22:33Z",
+      "2021-08-24T17:22:00Z",
+      "2024-02-29T23:59:59.999999999Z",
+      "1969-12-31T23:59:59.000000001Z",
+      "0999-01-01T00:00:01Z",
+      "-0005-03-01T12:00:00Z",
+      "+12345-06-07T08:09:10.5Z"
+    };
+    final String[] zones = {"UTC", "America/Chicago", "Asia/Kolkata", "Africa/Monrovia"};
+
+    for (String zone : zones) {
+      final ZoneId zoneId = ZoneId.of(zone);
+      for (String raw : instants) {
+        final Instant instant = Instant.parse(raw);
+        final String expected = ZonedDateTime.ofInstant(instant, zoneId).toString()
+            .replaceAll("\\[.*\\]$", "");
+        assertEquals(expected, TimestampFormatter.format(instant, zoneId));
+      }
+    }
+  }
+}
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import com.alvarium.PublishWrapper;
+import com.alvarium.SdkAction;
+import com.alvarium.serializers.PublishWrapperBatchReader;
+import com.alvarium.serializers.PublishWrapperReader;
+
+import org.junit.Test;
+
+public class BatchingStreamProviderTest {
+  private List<String> decode(List<String> messages) throws IOException {
+    final List<String> contents = new ArrayList<String>();
+    for (String message : messages) {
+      try (PublishWrapperBatchReader reader = new PublishWrapperBatchReader(
+          new ByteArrayInputStream(message.getBytes(StandardCharsets.UTF_8)))) {
+        while (reader.hasNext()) {
+          final PublishWrapperReader wrapper = reader.next();
+          contents.add(wrapper.getMessageType());
+        }
+      }
+    }
+    return contents;
+  }
+
+  @Test
+  public void wrappersShouldBePackedUpToMaxCount() throws Exception {
+    final RecordingStreamProvider stream = new RecordingStreamProvider();
+    final StreamProvider provider = new BatchingStreamProvider(stream,
+        new BatchConfig(60000, 0, 3));
+    provider.connect();
+    final List<String> expected = new ArrayList<String>();
+    for (int i = 0; i < 7; i++) {
+      expected.add("type " + i);
+      provider.publish(new PublishWrapper(SdkAction.CREATE, "type " + i, "content"));
+    }
+    provider.close();
+
+    assertEquals(3, stream.messages.size());
+    assertTrue(stream.messages.get(0).startsWith("["));
+    // the last batch holds a single wrapper, sent as is
+    assertTrue(stream.messages.get(2).startsWith("{"));
+    assertEquals(expected, decode(stream.messages));
+  }
+
+  @Test
+  public void batchShouldBeSentAfterLinger() throws Exception {
+    final RecordingStreamProvider stream = new RecordingStreamProvider();
+    final StreamProvider provider = new BatchingStreamProvider(stream,
+        new BatchConfig(20, 1024 * 1024, 0));
+    provider.connect();
+    provider.publish(new PublishWrapper(SdkAction.CREATE, "first", "content"));
+    provider.publishAsync(new PublishWrapper(SdkAction.CREATE, "second", "content")).get();
+
+    assertEquals(1, stream.messages.size());
+    assertEquals(List.of("first", "second"), decode(stream.messages));
+    provider.close();
+  }
+
+  @Test
+  public void batchShouldNotExceedMaxBytes() throws Exception {
+    final RecordingStreamProvider stream = new RecordingStreamProvider();
+    final PublishWrapper wrapper = new PublishWrapper(SdkAction.CREATE, "type", "content");
+    final int length = wrapper.toJson().length();
+    final StreamProvider provider = new BatchingStreamProvider(stream,
+        new BatchConfig(60000, length * 2 + length / 2, 0));
+    provider.connect();
+    for (int i = 0; i < 5; i++) {
+      provider.publish(wrapper);
+    }
+    provider.flush();
+
+    assertEquals(3, stream.messages.size());
+    for (String message : stream.messages) {
+      assertTrue(message.length() <= length * 2 + 3);
+    }
+    provider.close();
+  }
+
+  @Test
+  public void sendFailureShouldBeReportedByTheNextFlush() throws Exception {
+    final RecordingStreamProvider stream = new RecordingStreamProvider();
+    stream.down = true;
+    final StreamProvider provider = new BatchingStreamProvider(stream,
+        new BatchConfig(0, 0, 1));
+    provider.connect();
+    provider.publish(new PublishWrapper(SdkAction.CREATE, "type", "content"));
+    try {
+      provider.flush();
+      fail("the failed batch should be reported");
+    } catch (StreamException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void sendFailureShouldOnlyFailTheWrappersOfTheBatch() throws Exception {
+    final RecordingStreamProvider stream = new RecordingStreamProvider();
+    stream.down = true;
+    final StreamProvider provider = new BatchingStreamProvider(stream,
+        new BatchConfig(0, 0, 2));
+    provider.connect();
+    final CompletableFuture<Void> first = provider.publishAsync(
+        new PublishWrapper(SdkAction.CREATE, "type", "first"));
+    final CompletableFuture<Void> second = provider.publishAsync(
+        new PublishWrapper(SdkAction.CREATE, "type", "second"));
+    try {
+      second.get();
+      fail("the wrappers of the failed batch should fail");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof StreamException);
+    }
+    assertTrue(first.isCompletedExceptionally());
+
+    stream.down = false;
+    provider.publish(new PublishWrapper(SdkAction.CREATE, "type", "third"));
+    provider.publishAsync(new PublishWrapper(SdkAction.CREATE, "type", "fourth")).get();
+  }
+
+  @Test
+  public void spooledBatchShouldBeRebuiltFromItsJson() {
+    final List<EncodedPublishWrapper> wrappers = List.of(
+        EncodedPublishWrapper.encode(new PublishWrapper(SdkAction.CREATE, "first", "a")),
+        EncodedPublishWrapper.encode(new PublishWrapper(SdkAction.CREATE, "second", "b"))
+    );
+    final String json = new BatchPublishWrapper(wrappers, 0).toJson();
+    final EncodedPublishWrapper rebuilt = EncodedPublishWrapper.fromJson(json);
+
+    assertEquals("first", rebuilt.getMessageType());
+    assertEquals(json, rebuilt.toJson());
+
+    final BatchPublishWrapper batch = (BatchPublishWrapper) EncodedPublishWrapper.decode(json);
+    assertEquals(json, batch.toJson());
+    assertEquals(2, batch.getWrappers().size());
+    assertEquals("second", batch.getWrappers().get(1).getMessageType());
+    assertEquals(wrappers.get(1).toJson(), batch.getWrappers().get(1).toJson());
+  }
+
+  @Test
+  public void memorySubscribersShouldReceiveEveryBatchedWrapper() throws Exception {
+    final StreamProvider provider = new BatchingStreamProvider(
+        new MemoryStreamProvider(new MemoryConfig("batched", 8, 0, MemoryWaitStrategy.PARK)),
+        new BatchConfig(60000, 0, 4)
+    );
+    provider.connect();
+    final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+    MemoryStream.get("batched").subscribe(batch -> 
+        batch.forEach(wrapper -> received.add(wrapper.getMessageType())));
+
+    final List<String> expected = new ArrayList<String>();
+    for (int i = 0; i < 8; i++) {
+      expected.add("type " + i);
+      provider.publish(new PublishWrapper(SdkAction.CREATE, "type " + i, "content"));
+    }
+    provider.flush();
+    final long deadline = System.currentTimeMillis() + 5000;
+    while (received.size() < expected.size() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+    provider.close();
+    assertEquals(expected, received);
+  }
+
+  @Test
+  public void maxBytesShouldCountEncodedBytes() {
+    assertEquals(3, BatchingStreamProvider.utf8Length("abc"));
+    // 2, 3 and 4 bytes characters
+    assertEquals(9, BatchingStreamProvider.utf8Length("\u00e9\u20ac\ud83d\ude00"));
+  }
+
+  /**
+   * Records the published messages, failing while it is marked as down
+   */
+  private static class RecordingStreamProvider implements StreamProvider {
+    final List<String> messages = new ArrayList<String>();
+    volatile boolean down;
+
+    public void connect() {}
+
+    public void close() {}
+
+    public synchronized void publish(PublishWrapper wrapper) throws StreamException {
+      if (this.down) {
+        throw new StreamException("stream is down");
+      }
+      this.messages.add(wrapper.toJson());
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alvarium.PublishWrapper;
+import com.alvarium.SdkAction;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CompositeStreamProviderTest {
+  @Rule
+  public TemporaryFolder dir = new TemporaryFolder();
+
+  private StreamInfo file(String path) {
+    return new StreamInfo(StreamType.FILE,
+        new FileConfig(path, 1024 * 1024, 0, FileSyncPolicy.NONE, 0));
+  }
+
+  private StreamInfo memory(String name) {
+    return new StreamInfo(StreamType.MEMORY,
+        new MemoryConfig(name, 1024, 0, MemoryWaitStrategy.YIELD));
+  }
+
+  private StreamInfo unreachable() throws IOException {
+    // a regular file cannot hold the segments
+    return file(new File(dir.newFile(), "stream").getPath());
+  }
+
+  private StreamProvider composite(CompositeAckPolicy ack, StreamInfo... streams)
+      throws StreamException {
+    return new StreamProviderFactory().getProvider(
+        new StreamInfo(StreamType.COMPOSITE, new CompositeConfig(streams, ack, 0))
+    );
+  }
+
+  @Test
+  public void compositeConfigShouldLoadNestedStreams() throws IOException {
+    final String path = "./src/test/java/com/alvarium/streams/composite-config.json";
+    final String testJson = Files.readString(Paths.get(path), StandardCharsets.US_ASCII);
+    final StreamInfo info = StreamInfo.fromJson(testJson);
+    final CompositeConfig config = CompositeConfig.class.cast(info.getConfig());
+
+    assertEquals(CompositeAckPolicy.QUORUM, config.getAck());
+    assertEquals(3, config.getStreams().length);
+    assertTrue(config.getStreams()[0].getConfig() instanceof MqttConfig);
+    assertTrue(config.getStreams()[1].getConfig() instanceof PravegaConfig);
+    assertTrue(config.getStreams()[2].getConfig() instanceof FileConfig);
+  }
+
+  @Test
+  public void everyStreamShouldReceiveThePublishedWrapper() throws Exception {
+    final String path = dir.newFolder().getPath();
+    final StreamProvider provider = composite(CompositeAckPolicy.ALL, file(path),
+        memory("composite"));
+    provider.connect();
+    final List<PublishWrapper> received = Collections.synchronizedList(
+        new ArrayList<PublishWrapper>()
+    );
+    MemoryStream.get("composite").subscribe(received::addAll);
+
+    final PublishWrapper wrapper = new PublishWrapper(SdkAction.CREATE, "test", "content");
+    provider.publish(wrapper);
+    provider.flush();
+    provider.close();
+
+    try (FileStreamReader reader = new FileStreamReader(path)) {
+      assertArrayEquals(wrapper.toJson().getBytes(StandardCharsets.UTF_8), reader.next());
+      assertNull(reader.next());
+    }
+    assertEquals(1, received.size());
+    assertEquals("content", received.get(0).getContent());
+  }
+
+  @Test
+  public void quorumShouldTolerateAMinorityOfFailures() throws Exception {
+    final StreamProvider provider = composite(CompositeAckPolicy.QUORUM,
+        file(dir.newFolder().getPath()), file(dir.newFolder().getPath()), unreachable());
+    provider.connect();
+    provider.publish(new PublishWrapper(SdkAction.CREATE, "test", "content"));
+    try {
+      provider.close();
+    } catch (StreamException e) {
+      // the unreachable stream was never connected
+    }
+  }
+
+  @Test(expected = StreamException.class)
+  public void allShouldFailWhenAnyStreamFails() throws Exception {
+    final StreamProvider provider = composite(CompositeAckPolicy.ALL,
+        file(dir.newFolder().getPath()), unreachable());
+    provider.connect();
+  }
+
+  @Test
+  public void anyShouldSucceedWithASingleStream() throws Exception {
+    final StreamProvider provider = composite(CompositeAckPolicy.ANY, unreachable(),
+        unreachable(), file(dir.newFolder().getPath()));
+    provider.connect();
+    provider.publish(new PublishWrapper(SdkAction.CREATE, "test", "content"));
+  }
+
+  @Test(timeout = 10000)
+  public void closeShouldGiveUpOnStuckStreamsAndCloseThemAll() throws Exception {
+    final CountDownLatch stuck = new CountDownLatch(1);
+    final AtomicInteger closed = new AtomicInteger();
+    final StreamProviderFactory factory = new StreamProviderFactory() {
+      @Override
+      public StreamProvider getProvider(StreamInfo info) {
+        return new StreamProvider() {
+          public void connect() {}
+
+          public void close() {
+            closed.incrementAndGet();
+          }
+
+          public void publish(PublishWrapper wrapper) throws StreamException {
+            try {
+              stuck.await();
+            } catch (InterruptedException e) {
+              throw new StreamException("publishing process was interrupted.", e);
+            }
+          }
+        };
+      }
+    };
+    final StreamInfo[] streams = new StreamInfo[] {
+        new StreamInfo(StreamType.MOCK, null), new StreamInfo(StreamType.MOCK, null)
+    };
+    final CompositeStreamProvider provider = new CompositeStreamProvider(
+        new CompositeConfig(streams, CompositeAckPolicy.ANY, 0, 100), factory);
+    provider.connect();
+    provider.publishAsync(new PublishWrapper(SdkAction.CREATE, "test", "content"));
+
+    try {
+      provider.close();
+      fail("close should report the publishes it gave up on");
+    } catch (StreamException e) {
+      assertTrue(e.getMessage().contains("close timeout"));
+    }
+    assertEquals(2, closed.get());
+  }
+}
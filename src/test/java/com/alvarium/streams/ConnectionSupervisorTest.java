@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alvarium.PublishWrapper;
+import com.alvarium.SdkAction;
+
+import org.junit.Test;
+
+public class ConnectionSupervisorTest {
+  private final PublishWrapper wrapper = new PublishWrapper(SdkAction.CREATE, "test", "content");
+
+  @Test
+  public void publishShouldFailFastWhileDisconnected() throws Exception {
+    final ToggledStreamProvider stream = new ToggledStreamProvider();
+    stream.up = false;
+    final ConnectionSupervisor provider = new ConnectionSupervisor(stream,
+        new ReconnectConfig(60000, 60000, 2, 0, 1));
+    // a failed connect is retried in the background instead of failing the caller
+    provider.connect();
+    assertFalse(provider.isConnected());
+
+    for (int i = 0; i < 10; i++) {
+      try {
+        provider.publish(wrapper);
+        fail("publish should fail while the circuit is open");
+      } catch (StreamException e) {
+        // expected
+      }
+    }
+    assertEquals(1, stream.connects.get());
+    assertEquals(0, stream.published.get());
+    provider.close();
+  }
+
+  @Test
+  public void circuitShouldCloseOnceReconnected() throws Exception {
+    final ToggledStreamProvider stream = new ToggledStreamProvider();
+    final ConnectionSupervisor provider = new ConnectionSupervisor(stream,
+        new ReconnectConfig(5, 20, 2, 0.5, 1));
+    provider.connect();
+    provider.publish(wrapper);
+
+    stream.up = false;
+    try {
+      provider.publish(wrapper);
+      fail("publish should fail once the stream is down");
+    } catch (StreamException e) {
+      // expected
+    }
+    assertFalse(provider.isConnected());
+    // attempts keep failing in the background while the stream is down
+    final long attempts = System.currentTimeMillis() + 5000;
+    while (stream.connects.get() <= 2 && System.currentTimeMillis() < attempts) {
+      Thread.sleep(5);
+    }
+    assertTrue(stream.connects.get() > 2);
+    assertFalse(provider.isConnected());
+
+    stream.up = true;
+    final long deadline = System.currentTimeMillis() + 5000;
+    while (!provider.isConnected() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertTrue(provider.isConnected());
+    provider.publish(wrapper);
+    assertEquals(2, stream.published.get());
+    provider.close();
+  }
+
+  @Test
+  public void circuitShouldOpenAfterConsecutiveFailures() throws Exception {
+    final ToggledStreamProvider stream = new ToggledStreamProvider();
+    final ConnectionSupervisor provider = new ConnectionSupervisor(stream,
+        new ReconnectConfig(60000, 60000, 2, 0, 3));
+    provider.connect();
+    stream.failing = true;
+    for (int i = 0; i < 3; i++) {
+      assertTrue(provider.isConnected());
+      try {
+        provider.publish(wrapper);
+        fail("publish should fail");
+      } catch (StreamException e) {
+        // expected
+      }
+    }
+    assertFalse(provider.isConnected());
+    provider.close();
+  }
+
+  @Test(expected = StreamException.class)
+  public void invalidBackoffShouldBeRejected() throws Exception {
+    new ConnectionSupervisor(new ToggledStreamProvider(), new ReconnectConfig(0, 100, 2, 0, 1));
+  }
+
+  /**
+   * Counts connects and publishes, the connection being toggled by the test
+   */
+  private static class ToggledStreamProvider implements StreamProvider {
+    final AtomicInteger connects = new AtomicInteger();
+    final AtomicInteger published = new AtomicInteger();
+    volatile boolean up = true;
+    volatile boolean failing;
+
+    public void connect() throws StreamException {
+      this.connects.incrementAndGet();
+      if (!this.up) {
+        throw new StreamException("stream is down");
+      }
+    }
+
+    public void close() {}
+
+    public boolean isConnected() {
+      return this.up;
+    }
+
+    public void publish(PublishWrapper wrapper) throws StreamException {
+      if (!this.up || this.failing) {
+        throw new StreamException("could not publish");
+      }
+      this.published.incrementAndGet();
+    }
+  }
+}
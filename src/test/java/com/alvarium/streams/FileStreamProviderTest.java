@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alvarium.PublishWrapper;
+import com.alvarium.SdkAction;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileStreamProviderTest {
+  @Rule
+  public TemporaryFolder dir = new TemporaryFolder();
+
+  private StreamProvider provider(long segmentSize, FileSyncPolicy sync) throws StreamException {
+    final FileConfig config = new FileConfig(dir.getRoot().getPath(), segmentSize, 256, sync, 0);
+    return new StreamProviderFactory().getProvider(new StreamInfo(StreamType.FILE, config));
+  }
+
+  private List<String> readAll() throws IOException {
+    final List<String> records = new ArrayList<String>();
+    try (FileStreamReader reader = new FileStreamReader(dir.getRoot().getPath())) {
+      byte[] record;
+      while ((record = reader.next()) != null) {
+        records.add(new String(record, StandardCharsets.UTF_8));
+      }
+    }
+    return records;
+  }
+
+  @Test
+  public void fileConfigShouldLoadFromJson() throws IOException {
+    final String path = "./src/test/java/com/alvarium/streams/file-config.json";
+    final String testJson = Files.readString(Paths.get(path), StandardCharsets.US_ASCII);
+    final StreamInfo info = StreamInfo.fromJson(testJson);
+    final FileConfig config = FileConfig.class.cast(info.getConfig());
+
+    assertEquals(StreamType.FILE, info.getType());
+    assertEquals(FileSyncPolicy.INTERVAL, config.getSync());
+    assertEquals(100, config.getSyncIntervalMs());
+    assertEquals(5, info.getBatch().getLingerMs());
+    assertEquals(500, info.getBatch().getMaxCount());
+  }
+
+  @Test
+  public void publishedWrappersShouldBeReadBackInOrder() throws Exception {
+    final List<String> expected = new ArrayList<String>();
+    StreamProvider provider = provider(1024, FileSyncPolicy.ALWAYS);
+    provider.connect();
+    for (int i = 0; i < 100; i++) {
+      final PublishWrapper wrapper = new PublishWrapper(SdkAction.CREATE, "test", "content " + i);
+      expected.add(wrapper.toJson());
+      provider.publish(wrapper);
+    }
+    // larger than the write buffer
+    final PublishWrapper large = new PublishWrapper(SdkAction.CREATE, "test", "x".repeat(600));
+    expected.add(large.toJson());
+    provider.publish(large);
+    provider.close();
+
+    // writing resumes in a new segment
+    provider = provider(1024, FileSyncPolicy.NONE);
+    provider.connect();
+    final PublishWrapper last = new PublishWrapper(SdkAction.CREATE, "test", "last");
+    expected.add(last.toJson());
+    provider.publish(last);
+    provider.close();
+
+    assertTrue(dir.getRoot().list().length > 2);
+    assertEquals(expected, readAll());
+  }
+
+  @Test
+  public void truncatedRecordShouldEndTheSegment() throws Exception {
+    final StreamProvider provider = provider(1024 * 1024, FileSyncPolicy.NONE);
+    provider.connect();
+    final PublishWrapper first = new PublishWrapper(SdkAction.CREATE, "test", "first");
+    provider.publish(first);
+    provider.publish(new PublishWrapper(SdkAction.CREATE, "test", "second"));
+    provider.close();
+
+    final File segment = dir.getRoot().listFiles()[0];
+    try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+      file.setLength(file.length() - 3);
+    }
+
+    try (FileStreamReader reader = new FileStreamReader(dir.getRoot().getPath())) {
+      assertArrayEquals(first.toJson().getBytes(StandardCharsets.UTF_8), reader.next());
+      assertNull(reader.next());
+    }
+  }
+
+  @Test
+  public void tornLengthShouldEndTheSegment() throws Exception {
+    final StreamProvider provider = provider(1024 * 1024, FileSyncPolicy.NONE);
+    provider.connect();
+    final PublishWrapper first = new PublishWrapper(SdkAction.CREATE, "test", "first");
+    provider.publish(first);
+    provider.close();
+
+    final File segment = dir.getRoot().listFiles()[0];
+    try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+      file.seek(file.length());
+      file.writeInt(Integer.MAX_VALUE);
+      file.write(new byte[16]);
+    }
+
+    try (FileStreamReader reader = new FileStreamReader(dir.getRoot().getPath())) {
+      assertArrayEquals(first.toJson().getBytes(StandardCharsets.UTF_8), reader.next());
+      assertNull(reader.next());
+    }
+  }
+
+  @Test
+  public void concurrentPublishesShouldAllBeCommitted() throws Exception {
+    final StreamProvider provider = provider(64 * 1024, FileSyncPolicy.ALWAYS);
+    provider.connect();
+    final Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        try {
+          for (int i = 0; i < 50; i++) {
+            provider.publish(new PublishWrapper(SdkAction.CREATE, "test", "content"));
+          }
+        } catch (StreamException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    provider.close();
+
+    assertEquals(200, readAll().size());
+  }
+}
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.alvarium.PublishWrapper;
+import com.alvarium.SdkAction;
+
+import org.junit.Test;
+
+public class LimitingStreamProviderTest {
+  private final PublishWrapper wrapper = new PublishWrapper(SdkAction.CREATE, "test", "content");
+
+  private LimiterConfig aimd(String name, double maxRate) {
+    return new LimiterConfig(name, LimiterAlgorithm.AIMD, 10, 2, 50, 5, 0.5, maxRate, 1);
+  }
+
+  private void publishConcurrently(StreamProvider provider, int threads, int count)
+      throws InterruptedException {
+    final Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      workers[t] = new Thread(() -> {
+        for (int i = 0; i < count; i++) {
+          try {
+            provider.publish(wrapper);
+          } catch (StreamException e) {
+            // failures only feed the limiter
+          }
+        }
+      });
+      workers[t].start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+  }
+
+  @Test
+  public void aimdShouldGrowWhileAcknowledgementsAreFast() throws Exception {
+    final SlowStreamProvider stream = new SlowStreamProvider();
+    final LimitingStreamProvider provider = new LimitingStreamProvider(stream, aimd("grow", 0),
+        StreamType.MOCK);
+    publishConcurrently(provider, 16, 200);
+    assertTrue(provider.getLimit() > 10);
+    assertEquals(0, provider.getInflight());
+  }
+
+  @Test
+  public void aimdShouldBackOffOnSlowAcknowledgements() throws Exception {
+    final SlowStreamProvider stream = new SlowStreamProvider();
+    stream.delayMs = 10;
+    final LimitingStreamProvider provider = new LimitingStreamProvider(stream, aimd("slow", 0),
+        StreamType.MOCK);
+    publishConcurrently(provider, 4, 5);
+    assertEquals(2, provider.getLimit());
+  }
+
+  @Test
+  public void failuresShouldDecreaseTheLimit() throws Exception {
+    final SlowStreamProvider stream = new SlowStreamProvider();
+    stream.down = true;
+    final LimitingStreamProvider provider = new LimitingStreamProvider(stream,
+        new LimiterConfig("failures", LimiterAlgorithm.GRADIENT, 40, 1, 100, 0, 0, 0, 0),
+        StreamType.MOCK);
+    publishConcurrently(provider, 2, 40);
+    assertEquals(1, provider.getLimit());
+    assertEquals(80, provider.getFailures());
+  }
+
+  @Test
+  public void gradientShouldShrinkWhenLatencyRises() throws Exception {
+    final SlowStreamProvider stream = new SlowStreamProvider();
+    final LimitingStreamProvider provider = new LimitingStreamProvider(stream,
+        new LimiterConfig("gradient", LimiterAlgorithm.GRADIENT, 40, 1, 100, 0, 0, 0, 0),
+        StreamType.MOCK);
+    stream.delayMs = 1;
+    publishConcurrently(provider, 8, 20);
+    final int before = provider.getLimit();
+    stream.delayMs = 20;
+    publishConcurrently(provider, 8, 5);
+    assertTrue(provider.getLimit() < before);
+  }
+
+  @Test
+  public void tokenBucketShouldCapTheRate() throws Exception {
+    final LimitingStreamProvider provider = new LimitingStreamProvider(
+        new SlowStreamProvider(), aimd("rate", 200), StreamType.MOCK);
+    final long start = System.nanoTime();
+    for (int i = 0; i < 21; i++) {
+      provider.publish(wrapper);
+    }
+    // the first publish uses the burst token, the next 20 take 5ms each
+    assertTrue(System.nanoTime() - start >= 90_000_000L);
+  }
+
+  @Test
+  public void limitShouldBeExposedWhileConnected() throws Exception {
+    final LimitingStreamProvider provider = new LimitingStreamProvider(
+        new SlowStreamProvider(), aimd("metrics", 0), StreamType.MOCK);
+    final ObjectName name = new ObjectName("com.alvarium:type=PublishLimiter,name=\"metrics\"");
+    provider.connect();
+    assertEquals(10, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Limit"));
+    provider.close();
+    assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+  }
+
+  @Test
+  public void unnamedLimitersShouldBeRegisteredSideBySide() throws Exception {
+    final LimitingStreamProvider first = new LimitingStreamProvider(
+        new SlowStreamProvider(), aimd(null, 0), StreamType.MQTT);
+    final LimitingStreamProvider second = new LimitingStreamProvider(
+        new SlowStreamProvider(), aimd(null, 0), StreamType.MQTT);
+    first.connect();
+    second.connect();
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    assertEquals(2, server.queryNames(
+        new ObjectName("com.alvarium:type=PublishLimiter,name=\"mqtt-*\""), null).size());
+    first.close();
+    second.close();
+  }
+
+  /**
+   * Acknowledges publishes after a configurable delay, failing while it is marked as down
+   */
+  private static class SlowStreamProvider implements StreamProvider {
+    volatile long delayMs;
+    volatile boolean down;
+
+    public void connect() {}
+
+    public void close() {}
+
+    public void publish(PublishWrapper wrapper) throws StreamException {
+      if (this.down) {
+        throw new StreamException("stream is down");
+      }
+      try {
+        Thread.sleep(this.delayMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.MqttPersistable;
+import org.eclipse.paho.client.mqttv3.internal.MqttPersistentData;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedFilePersistenceTest {
+  private final String clientId = "alvarium-test";
+  private final String uri = "tcp://localhost:1883";
+
+  @Rule
+  public TemporaryFolder dir = new TemporaryFolder();
+
+  private MqttPersistable message(String header, String payload) {
+    final byte[] h = header.getBytes();
+    final byte[] p = payload.getBytes();
+    return new MqttPersistentData("unused", h, 0, h.length, p, 0, p.length);
+  }
+
+  @Test
+  public void entriesShouldSurviveReopen() throws Exception {
+    final String path = dir.getRoot().getPath();
+    MappedFilePersistence persistence = new MappedFilePersistence(path, 4096, 0);
+    persistence.open(clientId, uri);
+    persistence.put("s-1", message("h1", "p1"));
+    persistence.put("s-2", message("h2", "p2"));
+    persistence.put("s-3", message("h3", "p3"));
+    persistence.remove("s-2");
+    persistence.close();
+
+    persistence = new MappedFilePersistence(path, 4096, 0);
+    persistence.open(clientId, uri);
+    assertTrue(persistence.containsKey("s-1"));
+    assertFalse(persistence.containsKey("s-2"));
+    assertArrayEquals("p3".getBytes(), persistence.get("s-3").getPayloadBytes());
+    assertArrayEquals("h1".getBytes(), persistence.get("s-1").getHeaderBytes());
+    persistence.close();
+  }
+
+  @Test
+  public void ringShouldWrapAndKeepLiveEntries() throws Exception {
+    final String path = dir.getRoot().getPath();
+    MappedFilePersistence persistence = new MappedFilePersistence(path, 512, 50);
+    persistence.open(clientId, uri);
+    // each put/remove pair is far smaller than the file, so the ring wraps many times
+    persistence.put("s-live", message("header", "live"));
+    for (int i = 0; i < 1000; i++) {
+      persistence.put("s-" + i, message("header", "payload " + i));
+      persistence.remove("s-" + i);
+    }
+    persistence.close();
+
+    persistence = new MappedFilePersistence(path, 512, 50);
+    persistence.open(clientId, uri);
+    final List<String> keys = Collections.list(persistence.keys());
+    assertEquals(List.of("s-live"), keys);
+    assertArrayEquals("live".getBytes(), persistence.get("s-live").getPayloadBytes());
+    persistence.clear();
+    assertFalse(persistence.keys().hasMoreElements());
+    persistence.close();
+  }
+
+  @Test
+  public void factoryShouldProvideConfiguredPersistence() throws StreamException {
+    final MqttPersistenceFactory factory = new MqttPersistenceFactory();
+    final MqttClientPersistence memory = factory.getPersistence(
+        new MqttPersistenceConfig(MqttPersistenceType.MEMORY, null, 0, 0)
+    );
+    assertTrue(memory instanceof MemoryPersistence);
+
+    final MqttClientPersistence mmap = factory.getPersistence(
+        new MqttPersistenceConfig(MqttPersistenceType.MMAP, dir.getRoot().getPath(), 4096, 100)
+    );
+    assertTrue(mmap instanceof MappedFilePersistence);
+  }
+
+  @Test(expected = StreamException.class)
+  public void factoryShouldRejectMmapWithoutSize() throws StreamException {
+    new MqttPersistenceFactory().getPersistence(
+        new MqttPersistenceConfig(MqttPersistenceType.MMAP, dir.getRoot().getPath(), 0, 100)
+    );
+  }
+}
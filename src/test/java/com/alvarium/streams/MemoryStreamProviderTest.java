@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.alvarium.PublishWrapper;
+import com.alvarium.SdkAction;
+
+import org.junit.Test;
+
+public class MemoryStreamProviderTest {
+  private StreamProvider provider(String name, int batchSize, MemoryWaitStrategy wait)
+      throws StreamException {
+    final MemoryConfig config = new MemoryConfig(name, 8, batchSize, wait);
+    return new StreamProviderFactory().getProvider(new StreamInfo(StreamType.MEMORY, config));
+  }
+
+  @Test
+  public void memoryConfigShouldLoadFromJson() throws IOException {
+    final String path = "./src/test/java/com/alvarium/streams/memory-config.json";
+    final String testJson = Files.readString(Paths.get(path), StandardCharsets.US_ASCII);
+    final StreamInfo info = StreamInfo.fromJson(testJson);
+    final MemoryConfig config = MemoryConfig.class.cast(info.getConfig());
+
+    assertEquals(StreamType.MEMORY, info.getType());
+    assertEquals(65536, config.getCapacity());
+    assertEquals(MemoryWaitStrategy.YIELD, config.getWaitStrategy());
+  }
+
+  @Test
+  public void subscribersShouldReceiveEveryEventInOrder() throws Exception {
+    for (MemoryWaitStrategy wait : MemoryWaitStrategy.values()) {
+      final StreamProvider provider = provider("ordered", 3, wait);
+      provider.connect();
+
+      final List<List<PublishWrapper>> received = new ArrayList<List<PublishWrapper>>();
+      final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+      for (int i = 0; i < 2; i++) {
+        final List<PublishWrapper> events = new ArrayList<PublishWrapper>();
+        received.add(events);
+        MemoryStream.get("ordered").subscribe(batch -> {
+          synchronized (events) {
+            events.addAll(batch);
+            batchSizes.add(batch.size());
+          }
+        });
+      }
+
+      // far more events than slots, the publisher waits on the subscribers
+      final List<PublishWrapper> expected = new ArrayList<PublishWrapper>();
+      for (int i = 0; i < 1000; i++) {
+        final PublishWrapper wrapper = new PublishWrapper(SdkAction.CREATE, "test", i);
+        expected.add(wrapper);
+        provider.publish(wrapper);
+      }
+
+      for (List<PublishWrapper> events : received) {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+          synchronized (events) {
+            if (events.size() == expected.size()) {
+              break;
+            }
+          }
+          Thread.sleep(1);
+        }
+        synchronized (events) {
+          assertEquals(wait.name(), expected, events);
+        }
+      }
+      synchronized (batchSizes) {
+        assertTrue(batchSizes.stream().allMatch(size -> size > 0 && size <= 3));
+      }
+      provider.close();
+    }
+  }
+
+  @Test
+  public void closedSubscriptionShouldNotBlockThePublisher() throws Exception {
+    final StreamProvider provider = provider("closed", 0, MemoryWaitStrategy.PARK);
+    provider.connect();
+    MemoryStream.get("closed").subscribe(batch -> {
+      throw new IllegalStateException("failing subscriber");
+    });
+    final MemoryStream.Subscription subscription = MemoryStream.get("closed").subscribe(batch -> {
+      try {
+        Thread.sleep(Long.MAX_VALUE);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    provider.publish(new PublishWrapper(SdkAction.CREATE, "test", "first"));
+    subscription.close();
+
+    for (int i = 0; i < 100; i++) {
+      provider.publish(new PublishWrapper(SdkAction.CREATE, "test", i));
+    }
+    provider.close();
+    assertNull(MemoryStream.get("closed"));
+  }
+
+  @Test(expected = StreamException.class)
+  public void streamNamesShouldBeUnique() throws StreamException {
+    final StreamProvider first = provider("unique", 0, MemoryWaitStrategy.YIELD);
+    first.connect();
+    try {
+      provider("unique", 0, MemoryWaitStrategy.YIELD).connect();
+    } finally {
+      first.close();
+    }
+  }
+}
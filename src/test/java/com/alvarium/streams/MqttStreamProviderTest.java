@@ -14,15 +14,26 @@
  *******************************************************************************/
 package com.alvarium.streams;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
 
 import com.alvarium.PublishWrapper;
 import com.alvarium.SdkAction;
+import com.alvarium.contracts.Annotation;
+import com.alvarium.contracts.AnnotationList;
+import com.alvarium.contracts.AnnotationType;
+import com.alvarium.contracts.LayerType;
+import com.alvarium.hash.HashType;
+import com.alvarium.utils.ServiceInfo;
 
 import org.junit.Test;
 
@@ -50,6 +61,109 @@ public class MqttStreamProviderTest {
     assertNotNull(config);
   }
 
+  @Test
+  public void mqttShouldLoadAsyncConfig() throws Exception {
+    final String path = "./src/test/java/com/alvarium/streams/mqtt-async-config.json";
+    final String testJson = Files.readString(Paths.get(path), StandardCharsets.US_ASCII);
+    final StreamInfo info = StreamInfo.fromJson(testJson);
+    final MqttConfig config = MqttConfig.class.cast(info.getConfig());
+    assertNotNull(config.getAsync());
+    assertEquals(100, config.getAsync().getMaxInflight());
+    assertEquals(5000, config.getAsync().getBufferSize());
+    assertEquals(5000, config.getAsync().getWindowTimeoutMs());
+    assertEquals(MqttPersistenceType.MMAP, config.getPersistence().getType());
+    assertEquals(100, config.getPersistence().getSyncIntervalMs());
+
+    final StreamProviderFactory factory = new StreamProviderFactory();
+    assertTrue(factory.getProvider(info) instanceof MqttAsyncStreamProvider);
+  }
+
+  @Test
+  public void mqttShouldLoadPoolConfig() throws Exception {
+    final String path = "./src/test/java/com/alvarium/streams/mqtt-pool-config.json";
+    final String testJson = Files.readString(Paths.get(path), StandardCharsets.US_ASCII);
+    final StreamInfo info = StreamInfo.fromJson(testJson);
+    final MqttConfig config = MqttConfig.class.cast(info.getConfig());
+    assertEquals(4, config.getPool().getConnections());
+    assertEquals(MqttStripingType.KEY, config.getPool().getStriping());
+
+    final StreamProviderFactory factory = new StreamProviderFactory();
+    assertTrue(factory.getProvider(info) instanceof MqttPooledStreamProvider);
+  }
+
+  @Test
+  public void poolShouldStripeByKey() throws Exception {
+    final String path = "./src/test/java/com/alvarium/streams/mqtt-pool-config.json";
+    final String testJson = Files.readString(Paths.get(path), StandardCharsets.US_ASCII);
+    final MqttConfig config = MqttConfig.class.cast(StreamInfo.fromJson(testJson).getConfig());
+    final MqttPooledStreamProvider provider = new MqttPooledStreamProvider(config);
+
+    final boolean[] used = new boolean[4];
+    for (int i = 0; i < 100; i++) {
+      final int stripe = provider.stripe(annotated("key-" + i));
+      // wrappers of the same key always go through the same connection
+      assertEquals(stripe, provider.stripe(annotated("key-" + i)));
+      used[stripe] = true;
+    }
+    for (boolean u : used) {
+      assertTrue(u);
+    }
+  }
+
+  @Test
+  public void poolShouldStripeByThread() throws Exception {
+    final MqttConfig config = new MqttConfig.Builder("alvarium-pool-test", "", "", 0, false,
+        new String[] {"alvarium-test-topic"}, new ServiceInfo("localhost", "tcp", 1883))
+        .persistence(new MqttPersistenceConfig(MqttPersistenceType.MEMORY, null, 0, 0))
+        .pool(new MqttPoolConfig(3, null))
+        .build();
+    final MqttPooledStreamProvider provider = new MqttPooledStreamProvider(config);
+    final PublishWrapper wrapper = new PublishWrapper(SdkAction.CREATE, "test", "content");
+    final int stripe = provider.stripe(wrapper);
+    assertEquals(stripe, provider.stripe(annotated("key")));
+
+    final int[] other = new int[1];
+    final Thread t = new Thread(() -> other[0] = provider.stripe(wrapper));
+    t.start();
+    t.join();
+    assertEquals(Math.floorMod(t.getId(), 3L), other[0]);
+  }
+
+  @Test
+  public void bufferedPublishesShouldNotHoldTheWindow() throws Exception {
+    // never connected, every publish goes to a buffer dropping its oldest messages
+    final MqttConfig config = new MqttConfig.Builder("alvarium-buffer-test", "", "", 1, false,
+        new String[] {"alvarium-test-topic"}, new ServiceInfo("localhost", "tcp", 1883))
+        .async(new MqttAsyncConfig(1, 2, false, true))
+        .persistence(new MqttPersistenceConfig(MqttPersistenceType.MEMORY, null, 0, 0))
+        .build();
+    final MqttAsyncStreamProvider provider = new MqttAsyncStreamProvider(config);
+    for (int i = 0; i < 5; i++) {
+      provider.publish(new PublishWrapper(SdkAction.CREATE, "test", "content " + i));
+    }
+    // paho does not reconnect on its own before a first connection succeeded
+    assertFalse(provider.isConnected());
+  }
+
+  private PublishWrapper annotated(String key) {
+    final Annotation annotation = new Annotation(key, HashType.SHA256Hash, "host",
+        LayerType.Application, AnnotationType.TPM, "sig", true, Instant.now());
+    final AnnotationList list = new AnnotationList(List.of(annotation));
+    return new PublishWrapper(SdkAction.CREATE, list.getClass().getName(), list);
+  }
+
+  public void mqttShouldPublishAsync() throws Exception {
+    String path = "./src/test/java/com/alvarium/streams/mqtt-async-config.json";
+    String testJson = Files.readString(Paths.get(path), StandardCharsets.US_ASCII);
+    StreamInfo info = StreamInfo.fromJson(testJson);
+    StreamProviderFactory factory = new StreamProviderFactory();
+    StreamProvider mqttProvider =  factory.getProvider(info);
+    mqttProvider.connect();
+    PublishWrapper wrapper = new PublishWrapper(SdkAction.CREATE, String.class.toString(), "hello");
+    mqttProvider.publishAsync(wrapper).get();
+    mqttProvider.close();
+  }
+
   public void mqttShouldPublish() throws Exception {
     String path = "./src/test/java/com/alvarium/streams/mqtt-config.json";
     String testJson = Files.readString(Paths.get(path), StandardCharsets.US_ASCII);
@@ -14,15 +14,27 @@
  *******************************************************************************/
 package com.alvarium.streams;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import com.alvarium.PublishWrapper;
 import com.alvarium.SdkAction;
+import com.alvarium.contracts.Annotation;
+import com.alvarium.contracts.AnnotationList;
+import com.alvarium.contracts.AnnotationType;
+import com.alvarium.contracts.LayerType;
+import com.alvarium.hash.HashType;
 
 import org.junit.Test;
 
@@ -51,6 +63,88 @@ public class PravegaStreamProviderTest {
     assertNotNull(config);
   }
 
+  @Test
+  public void pravegaConfigShouldLoadPipelineSettings() throws IOException {
+    final String path = "./src/test/java/com/alvarium/streams/pravega-pipelined-config.json";
+    final String testJson = Files.readString(Paths.get(path), StandardCharsets.US_ASCII);
+    final StreamInfo streamInfo = StreamInfo.fromJson(testJson);
+    final PravegaConfig config = PravegaConfig.class.cast(streamInfo.getConfig());
+
+    assertEquals(1000, config.getMaxOutstanding());
+    assertEquals(500, config.getFlushBatchSize());
+  }
+
+  @Test
+  public void pravegaConfigShouldLoadRoutingAndScaling() throws IOException {
+    final String path = "./src/test/java/com/alvarium/streams/pravega-pipelined-config.json";
+    final String testJson = Files.readString(Paths.get(path), StandardCharsets.US_ASCII);
+    final StreamInfo streamInfo = StreamInfo.fromJson(testJson);
+    final PravegaConfig config = PravegaConfig.class.cast(streamInfo.getConfig());
+
+    assertEquals(PravegaRoutingType.ANNOTATION, config.getRouting());
+    assertEquals(4, config.getWriters());
+    assertEquals(PravegaScalingType.EVENT_RATE, config.getScaling().getType());
+    assertEquals(1000, config.getScaling().getTargetRate());
+    assertEquals(2, config.getScaling().getScaleFactor());
+    assertEquals(4, config.getScaling().getMinSegments());
+  }
+
+  @Test
+  public void routingStrategiesShouldPickKeys() throws StreamException {
+    final Annotation annotation = new Annotation("data-key", HashType.SHA256Hash, "host",
+        LayerType.Application, AnnotationType.TPM, null, true, Instant.now());
+    final PublishWrapper wrapper = new PublishWrapper(SdkAction.CREATE,
+        AnnotationList.class.getName(), new AnnotationList(List.of(annotation)));
+    final RoutingKeyStrategyFactory factory = new RoutingKeyStrategyFactory();
+
+    assertEquals("fixed", factory.getStrategy(config(null, null)).getRoutingKey(wrapper));
+    assertEquals("data-key", factory.getStrategy(config(PravegaRoutingType.ANNOTATION, null))
+        .getRoutingKey(wrapper));
+    assertNull(factory.getStrategy(config(PravegaRoutingType.ROUND_ROBIN, null))
+        .getRoutingKey(wrapper));
+    assertEquals("custom", factory.getStrategy(
+        config(PravegaRoutingType.CUSTOM, MessageTypeRouting.class.getName())
+    ).getRoutingKey(new PublishWrapper(SdkAction.CREATE, "custom", "test")));
+  }
+
+  @Test
+  public void annotationKeyShouldBeReadFromEncodedAndBatchedWrappers() {
+    final PublishWrapper first = annotated("first-key");
+    final PublishWrapper second = annotated("second-key");
+    // replayed from a spool, the content is the encoded annotation list
+    assertEquals("first-key", RoutingKeyStrategyFactory.annotationKey(
+        EncodedPublishWrapper.fromJson(first.toJson())));
+
+    final EncodedPublishWrapper a1 = EncodedPublishWrapper.encode(first);
+    final EncodedPublishWrapper b1 = EncodedPublishWrapper.encode(second);
+    final EncodedPublishWrapper a2 = EncodedPublishWrapper.fromJson(first.toJson());
+    assertEquals("first-key", RoutingKeyStrategyFactory.annotationKey(
+        new BatchPublishWrapper(List.of(a1, a2), 0)));
+    final BatchPublishWrapper mixed = new BatchPublishWrapper(List.of(a1, b1, a2), 0);
+    assertNull(RoutingKeyStrategyFactory.annotationKey(mixed));
+
+    // a mixed batch is split into one batch per key, in order
+    final Map<String, PublishWrapper> groups = BatchPublishWrapper.splitByKey(mixed,
+        RoutingKeyStrategyFactory::annotationKey);
+    assertEquals(List.of("first-key", "second-key"), new ArrayList<String>(groups.keySet()));
+    assertEquals(List.of(a1, a2), ((BatchPublishWrapper) groups.get("first-key")).getWrappers());
+    assertSame(b1, groups.get("second-key"));
+  }
+
+  @Test
+  public void scalingShouldDefaultToFixed() {
+    final PravegaScaling scaling = PravegaScaling.fromJson("{\"minSegments\":2}");
+    assertEquals(PravegaScalingType.FIXED, scaling.getType());
+    assertNotNull(scaling.toScalingPolicy());
+  }
+
+  @Test(expected = StreamException.class)
+  public void customRoutingShouldRequireStrategyClass() throws StreamException {
+    new RoutingKeyStrategyFactory().getStrategy(
+        config(PravegaRoutingType.CUSTOM, String.class.getName())
+    );
+  }
+
   public void pravegaStreamProviderShouldConnect() throws StreamException, IOException {
     final String path = "./src/test/java/com/alvarium/streams/pravega-config.json";
     final String testJson = Files.readString(Paths.get(path), StandardCharsets.US_ASCII);
@@ -77,4 +171,24 @@ public class PravegaStreamProviderTest {
 
     pravega.close();
   }  
+
+  private static PublishWrapper annotated(String key) {
+    final Annotation annotation = new Annotation(key, HashType.SHA256Hash, "host",
+        LayerType.Application, AnnotationType.TPM, null, true, Instant.now());
+    return new PublishWrapper(SdkAction.CREATE, AnnotationList.class.getName(),
+        new AnnotationList(List.of(annotation)));
+  }
+
+  private static PravegaConfig config(PravegaRoutingType routing, String routingClass) {
+    return new PravegaConfig.Builder(1, null, "alvarium", "test", "fixed", null)
+        .routing(routing)
+        .routingClass(routingClass)
+        .build();
+  }
+
+  public static class MessageTypeRouting implements RoutingKeyStrategy {
+    public String getRoutingKey(PublishWrapper wrapper) {
+      return wrapper.getMessageType();
+    }
+  }
 }
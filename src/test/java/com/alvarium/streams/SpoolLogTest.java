@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SpoolLogTest {
+  @Rule
+  public TemporaryFolder dir = new TemporaryFolder();
+
+  private SpoolLog open(int segmentSize, int maxSegments, boolean dropOldest)
+      throws StreamException {
+    final SpoolLog log = new SpoolLog(new SpoolConfig(dir.getRoot().getPath(), segmentSize,
+        maxSegments, dropOldest, 0, 1000, 0));
+    log.open();
+    return log;
+  }
+
+  @Test
+  public void recordsShouldBeReadInOrderAcrossSegments() throws StreamException {
+    final SpoolLog log = open(64, 16, false);
+    for (int i = 0; i < 20; i++) {
+      log.append(("record " + i).getBytes());
+    }
+    assertEquals(20, log.size());
+
+    for (int i = 0; i < 20; i++) {
+      assertArrayEquals(("record " + i).getBytes(), log.peek());
+      log.ack();
+    }
+    assertNull(log.peek());
+    assertEquals(0, log.size());
+    log.close();
+  }
+
+  @Test
+  public void acknowledgedRecordsShouldNotSurviveReopen() throws StreamException {
+    SpoolLog log = open(64, 16, false);
+    for (int i = 0; i < 10; i++) {
+      log.append(("record " + i).getBytes());
+    }
+    for (int i = 0; i < 6; i++) {
+      log.peek();
+      log.ack();
+    }
+    log.close();
+
+    log = open(64, 16, false);
+    assertEquals(4, log.size());
+    for (int i = 6; i < 10; i++) {
+      assertArrayEquals(("record " + i).getBytes(), log.peek());
+      log.ack();
+    }
+    assertNull(log.peek());
+    log.close();
+  }
+
+  @Test
+  public void corruptedRecordShouldEndTheSegment() throws Exception {
+    SpoolLog log = open(1024, 4, false);
+    log.append("first".getBytes());
+    log.append("second".getBytes());
+    log.close();
+
+    final File segment = dir.getRoot().listFiles((d, name) -> name.endsWith(".log"))[0];
+    try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+      // flip a byte of the second payload
+      file.seek(8 + 5 + 8);
+      file.write('x');
+    }
+
+    log = open(1024, 4, false);
+    assertEquals(1, log.size());
+    assertArrayEquals("first".getBytes(), log.peek());
+    log.close();
+  }
+
+  @Test(expected = StreamException.class)
+  public void fullSpoolShouldRejectRecords() throws StreamException {
+    final SpoolLog log = open(32, 2, false);
+    try {
+      for (int i = 0; i < 10; i++) {
+        log.append("0123456789".getBytes());
+      }
+    } finally {
+      log.close();
+    }
+  }
+
+  @Test
+  public void fullSpoolShouldDropOldestSegment() throws StreamException {
+    final SpoolLog log = open(40, 2, true);
+    for (int i = 0; i < 10; i++) {
+      log.append(String.format("record %02d", i).getBytes());
+    }
+    // two records per segment, only the last two segments are kept
+    assertEquals(4, log.size());
+    assertArrayEquals("record 06".getBytes(), log.peek());
+    log.close();
+  }
+}
@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.streams;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import com.alvarium.PublishWrapper;
+import com.alvarium.SdkAction;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SpoolStreamProviderTest {
+  @Rule
+  public TemporaryFolder dir = new TemporaryFolder();
+
+  @Test
+  public void spooledWrappersShouldBeReplayedInOrder() throws Exception {
+    final FlakyStreamProvider stream = new FlakyStreamProvider();
+    final SpoolStreamProvider provider = new SpoolStreamProvider(stream,
+        new SpoolConfig(dir.getRoot().getPath(), 4096, 4, false, 0, 10, 0));
+    stream.down = true;
+    provider.connect();
+
+    final List<String> expected = new ArrayList<String>();
+    for (int i = 0; i < 50; i++) {
+      final PublishWrapper wrapper = new PublishWrapper(SdkAction.CREATE, "test", "content " + i);
+      expected.add(wrapper.toJson());
+      provider.publish(wrapper);
+    }
+    assertEquals(50, provider.spooled());
+    assertEquals(0, stream.published.size());
+
+    stream.down = false;
+    final long deadline = System.currentTimeMillis() + 5000;
+    while (provider.spooled() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    final PublishWrapper last = new PublishWrapper(SdkAction.CREATE, "test", "last");
+    expected.add(last.toJson());
+    provider.publish(last);
+    provider.close();
+
+    assertEquals(expected, stream.published);
+  }
+
+  @Test
+  public void wrappersFailingAfterPublishShouldStayInTheSpool() throws Exception {
+    final PipelinedStreamProvider stream = new PipelinedStreamProvider();
+    final SpoolStreamProvider provider = new SpoolStreamProvider(stream,
+        new SpoolConfig(dir.getRoot().getPath(), 4096, 4, false, 0, 10, 0));
+    stream.failing = true;
+    provider.connect();
+
+    final List<String> expected = new ArrayList<String>();
+    for (int i = 0; i < 10; i++) {
+      final PublishWrapper wrapper = new PublishWrapper(SdkAction.CREATE, "test", "content " + i);
+      expected.add(wrapper.toJson());
+      provider.publish(wrapper);
+    }
+    waitForSpooled(provider, 10);
+    // replayed records are not acknowledged either, none may leave the spool
+    Thread.sleep(100);
+    assertEquals(10, provider.spooled());
+
+    stream.failing = false;
+    waitForSpooled(provider, 0);
+    provider.close();
+
+    final List<String> acknowledged = new ArrayList<String>(stream.acknowledged);
+    Collections.sort(expected);
+    Collections.sort(acknowledged);
+    assertEquals(expected, acknowledged);
+  }
+
+  @Test
+  public void lateFailuresShouldBeReplayedInPublishOrder() throws Exception {
+    final ManualStreamProvider stream = new ManualStreamProvider();
+    final SpoolStreamProvider provider = new SpoolStreamProvider(stream,
+        new SpoolConfig(dir.getRoot().getPath(), 4096, 4, false, 0, 10, 0));
+    provider.connect();
+
+    final PublishWrapper first = new PublishWrapper(SdkAction.CREATE, "test", "first");
+    final PublishWrapper second = new PublishWrapper(SdkAction.CREATE, "test", "second");
+    final PublishWrapper third = new PublishWrapper(SdkAction.CREATE, "test", "third");
+    provider.publish(first);
+    provider.publish(second);
+    // the first fails once the second was accepted, the second fails after the third is spooled
+    stream.pending.get(0).completeExceptionally(new StreamException("not acknowledged"));
+    provider.publish(third);
+    stream.pending.get(1).completeExceptionally(new StreamException("not acknowledged"));
+    assertEquals(3, provider.spooled());
+
+    stream.acknowledging = true;
+    waitForSpooled(provider, 0);
+    provider.close();
+    assertEquals(List.of(first.toJson(), second.toJson(), third.toJson()), stream.acknowledged);
+  }
+
+  @Test
+  public void replayShouldSurviveUnexpectedExceptions() throws Exception {
+    final FlakyStreamProvider stream = new FlakyStreamProvider();
+    final SpoolStreamProvider provider = new SpoolStreamProvider(stream,
+        new SpoolConfig(dir.getRoot().getPath(), 4096, 4, false, 0, 10, 0));
+    stream.down = true;
+    provider.connect();
+    for (int i = 0; i < 3; i++) {
+      provider.publish(new PublishWrapper(SdkAction.CREATE, "test", "content " + i));
+    }
+
+    stream.broken = 2;
+    stream.down = false;
+    waitForSpooled(provider, 0);
+    provider.close();
+    assertEquals(3, stream.published.size());
+  }
+
+  private static void waitForSpooled(SpoolStreamProvider provider, long count) 
+      throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 5000;
+    while (provider.spooled() != count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(count, provider.spooled());
+  }
+
+  /**
+   * Records the published wrappers, failing while it is marked as down
+   */
+  private static class FlakyStreamProvider implements StreamProvider {
+    final List<String> published = new ArrayList<String>();
+    volatile boolean down;
+    // number of publishes failing with an unexpected exception
+    volatile int broken;
+
+    public void connect() throws StreamException {
+      if (this.down) {
+        throw new StreamException("stream is down");
+      }
+    }
+
+    public void close() {}
+
+    public synchronized void publish(PublishWrapper wrapper) throws StreamException {
+      this.connect();
+      if (this.broken > 0) {
+        this.broken--;
+        throw new IllegalStateException("unexpected failure");
+      }
+      this.published.add(wrapper.toJson());
+    }
+  }
+
+  /**
+   * Returns from publish before the wrapper is acknowledged, failing the acknowledgement later
+   * while it is marked as failing
+   */
+  private static class PipelinedStreamProvider implements StreamProvider {
+    final List<String> acknowledged = Collections.synchronizedList(new ArrayList<String>());
+    volatile boolean failing;
+
+    public void connect() {}
+
+    public void close() {}
+
+    public void publish(PublishWrapper wrapper) {
+      this.publishAsync(wrapper);
+    }
+
+    public boolean isPipelined() {
+      return true;
+    }
+
+    public CompletableFuture<Void> publishAsync(PublishWrapper wrapper) {
+      final boolean fail = this.failing;
+      return CompletableFuture.runAsync(() -> {
+        try {
+          TimeUnit.MILLISECONDS.sleep(5);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        if (fail) {
+          throw new CompletionException(new StreamException("not acknowledged"));
+        }
+        this.acknowledged.add(wrapper.toJson());
+      });
+    }
+  }
+
+  /**
+   * Leaves the acknowledgement of the first publishes to the test, then fails the others until
+   * it is marked as acknowledging
+   */
+  private static class ManualStreamProvider implements StreamProvider {
+    final List<CompletableFuture<Void>> pending = Collections.synchronizedList(
+        new ArrayList<CompletableFuture<Void>>());
+    final List<String> acknowledged = Collections.synchronizedList(new ArrayList<String>());
+    volatile boolean acknowledging;
+    private int held = 2;
+
+    public void connect() {}
+
+    public void close() {}
+
+    public void publish(PublishWrapper wrapper) {
+      this.publishAsync(wrapper);
+    }
+
+    public boolean isPipelined() {
+      return true;
+    }
+
+    public synchronized CompletableFuture<Void> publishAsync(PublishWrapper wrapper) {
+      if (this.held > 0) {
+        this.held--;
+        final CompletableFuture<Void> result = new CompletableFuture<Void>();
+        this.pending.add(result);
+        return result;
+      }
+      if (!this.acknowledging) {
+        return CompletableFuture.failedFuture(new StreamException("stream is down"));
+      }
+      this.acknowledged.add(wrapper.toJson());
+      return CompletableFuture.completedFuture(null);
+    }
+  }
+}
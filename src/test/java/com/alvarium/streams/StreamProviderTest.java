@@ -33,4 +33,17 @@ public class StreamProviderTest {
     provider.publish(wrapper);
     provider.close();
   }  
+
+  @Test
+  public void publishAsyncShouldCompleteForSynchronousProviders() throws Exception {
+    final StreamProviderFactory factory = new StreamProviderFactory();
+    final StreamInfo info = new StreamInfo(StreamType.MOCK, null);
+    final StreamProvider provider = factory.getProvider(info);
+    final PublishWrapper wrapper = new PublishWrapper(SdkAction.CREATE, "test type",
+        "test content");
+
+    provider.connect();
+    provider.publishAsync(wrapper).get();
+    provider.close();
+  }
 }
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright 2024 Dell Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ *******************************************************************************/
+package com.alvarium.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+public class AnnotationClockTest {
+
+  @Test
+  public void nextIdShouldBeMonotonicWithinTheSameMillisecond() {
+    final Instant fixed = Instant.parse("2024-01-01T00:00:00Z");
+    final AnnotationClock clock = new AnnotationClock(Clock.fixed(fixed, ZoneOffset.UTC));
+
+    String previous = clock.nextId();
+    for (int i = 0; i < 1000; i++) {
+      final String next = clock.nextId();
+      assertTrue(next.compareTo(previous) > 0);
+      previous = next;
+    }
+    assertEquals(fixed, clock.now());
+  }
+
+  @Test
+  public void nextIdShouldBeUniqueAcrossThreads() throws InterruptedException {
+    final AnnotationClock clock = new AnnotationClock(Clock.systemUTC());
+    final Set<String> ids = ConcurrentHashMap.newKeySet();
+    final List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < 4; i++) {
+      final Thread t = new Thread(() -> {
+        for (int j = 0; j < 10000; j++) {
+          ids.add(clock.nextId());
+        }
+      });
+      threads.add(t);
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertEquals(40000, ids.size());
+  }
+}